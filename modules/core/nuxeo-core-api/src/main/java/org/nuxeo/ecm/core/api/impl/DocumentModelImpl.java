@@ -19,8 +19,6 @@
  */
 package org.nuxeo.ecm.core.api.impl;
 
-import static org.nuxeo.ecm.core.schema.types.ComplexTypeImpl.canonicalXPath;
-
 import java.io.IOException;
 import java.io.ObjectOutputStream;
 import java.io.ObjectStreamException;
@@ -70,6 +68,7 @@ import org.nuxeo.ecm.core.schema.FacetNames;
 import org.nuxeo.ecm.core.schema.SchemaManager;
 import org.nuxeo.ecm.core.schema.TypeConstants;
 import org.nuxeo.ecm.core.schema.TypeProvider;
+import org.nuxeo.ecm.core.schema.types.CompiledXPath;
 import org.nuxeo.ecm.core.schema.types.ComplexType;
 import org.nuxeo.ecm.core.schema.types.CompositeType;
 import org.nuxeo.ecm.core.schema.types.Field;
@@ -1272,13 +1271,13 @@ public class DocumentModelImpl implements DocumentModel, Cloneable {
         if (xpath == null) {
             throw new PropertyNotFoundException("null", "Invalid null xpath");
         }
-        String cxpath = canonicalXPath(xpath);
-        if (cxpath.isEmpty()) {
+        CompiledXPath cxpath = CompiledXPath.compile(xpath);
+        if (cxpath.xpath.isEmpty()) {
             throw new PropertyNotFoundException(xpath, "Schema not specified");
         }
-        String schemaName = getXPathSchemaName(cxpath, schemas, null);
+        String schemaName = getXPathSchemaName(cxpath, schemas);
         if (schemaName == null) {
-            if (cxpath.indexOf(':') != -1) {
+            if (cxpath.xpath.indexOf(':') != -1) {
                 throw new PropertyNotFoundException(xpath, "No such schema");
             } else {
                 throw new PropertyNotFoundException(xpath);
@@ -1289,24 +1288,40 @@ public class DocumentModelImpl implements DocumentModel, Cloneable {
         if (part == null) {
             throw new PropertyNotFoundException(xpath);
         }
-        // cut prefix
-        String partPath = cxpath.substring(cxpath.indexOf(':') + 1);
         try {
-            return part.resolvePath(partPath);
+            return part.resolvePath(cxpath.path);
         } catch (PropertyNotFoundException e) {
             throw new PropertyNotFoundException(xpath, e.getDetail());
         }
     }
 
     public static String getXPathSchemaName(String xpath, Set<String> docSchemas, String[] returnName) {
-        SchemaManager schemaManager = getSchemaManager();
         // find first segment
         int i = xpath.indexOf('/');
         String prop = i == -1 ? xpath : xpath.substring(0, i);
         int p = prop.indexOf(':');
-        if (p != -1) {
+        String prefix = p == -1 ? null : prop.substring(0, p);
+        String name = p == -1 ? prop : prop.substring(p + 1);
+        String schemaName = getXPathSchemaName(prefix, name, docSchemas);
+        if (schemaName != null && returnName != null) {
+            returnName[0] = name;
+        }
+        return schemaName;
+    }
+
+    /**
+     * Gets the name of the schema of a compiled xpath.
+     *
+     * @since 11.5
+     */
+    public static String getXPathSchemaName(CompiledXPath xpath, Set<String> docSchemas) {
+        return getXPathSchemaName(xpath.prefix, xpath.name, docSchemas);
+    }
+
+    protected static String getXPathSchemaName(String prefix, String prop, Set<String> docSchemas) {
+        SchemaManager schemaManager = getSchemaManager();
+        if (prefix != null) {
             // prefixed
-            String prefix = prop.substring(0, p);
             Schema schema = schemaManager.getSchemaFromPrefix(prefix);
             if (schema == null) {
                 // try directly with prefix as a schema name
@@ -1315,9 +1330,6 @@ public class DocumentModelImpl implements DocumentModel, Cloneable {
                     return null;
                 }
             }
-            if (returnName != null) {
-                returnName[0] = prop.substring(p + 1);
-            }
             return schema.getName();
         } else {
             // unprefixed
@@ -1326,9 +1338,6 @@ public class DocumentModelImpl implements DocumentModel, Cloneable {
             for (String schemaName : docSchemas) {
                 Schema schema = schemaManager.getSchema(schemaName);
                 if (schema != null && schema.hasField(prop)) {
-                    if (returnName != null) {
-                        returnName[0] = prop;
-                    }
                     return schema.getName();
                 }
             }
@@ -1337,9 +1346,6 @@ public class DocumentModelImpl implements DocumentModel, Cloneable {
             // as removed schema is not yet support we can rely on docSchemas
             for (String schemaName : docSchemas) {
                 if (schemaManager.isRemoved(schemaName, prop)) {
-                    if (returnName != null) {
-                        returnName[0] = prop;
-                    }
                     return schemaName;
                 }
             }
@@ -20,8 +20,6 @@
  */
 package org.nuxeo.ecm.core.api.impl;
 
-import static org.nuxeo.ecm.core.schema.types.ComplexTypeImpl.canonicalXPath;
-
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.Collection;
@@ -55,6 +53,7 @@ import org.nuxeo.ecm.core.api.model.resolver.PropertyObjectResolver;
 import org.nuxeo.ecm.core.api.security.ACP;
 import org.nuxeo.ecm.core.schema.DocumentType;
 import org.nuxeo.ecm.core.schema.SchemaManager;
+import org.nuxeo.ecm.core.schema.types.CompiledXPath;
 import org.nuxeo.ecm.core.schema.types.CompositeType;
 import org.nuxeo.ecm.core.schema.types.Schema;
 import org.nuxeo.runtime.api.Framework;
@@ -247,13 +246,13 @@ public class SimpleDocumentModel implements DocumentModel {
         if (xpath == null) {
             throw new PropertyNotFoundException("null", "Invalid null xpath");
         }
-        String cxpath = canonicalXPath(xpath);
-        if (cxpath.isEmpty()) {
+        CompiledXPath cxpath = CompiledXPath.compile(xpath);
+        if (cxpath.xpath.isEmpty()) {
             throw new PropertyNotFoundException(xpath, "Schema not specified");
         }
-        String schemaName = DocumentModelImpl.getXPathSchemaName(cxpath, schemas, null);
+        String schemaName = DocumentModelImpl.getXPathSchemaName(cxpath, schemas);
         if (schemaName == null) {
-            if (cxpath.indexOf(':') != -1) {
+            if (cxpath.xpath.indexOf(':') != -1) {
                 throw new PropertyNotFoundException(xpath, "No such schema");
             } else {
                 throw new PropertyNotFoundException(xpath);
@@ -264,10 +263,8 @@ public class SimpleDocumentModel implements DocumentModel {
         if (part == null) {
             throw new PropertyNotFoundException(xpath);
         }
-        // cut prefix
-        String partPath = cxpath.substring(cxpath.indexOf(':') + 1);
         try {
-            Property property = part.resolvePath(partPath);
+            Property property = part.resolvePath(cxpath.path);
             // force dirty for updated properties
             property.setForceDirty(true);
             return property;
@@ -52,12 +52,12 @@ public abstract class ComplexProperty extends AbstractProperty implements Map<St
 
     protected ComplexProperty(Property parent) {
         super(parent);
-        children = new HashMap<>();
+        children = new PropertyChildren(this);
     }
 
     protected ComplexProperty(Property parent, int flags) {
         super(parent, flags);
-        children = new HashMap<>();
+        children = new PropertyChildren(this);
     }
 
     /**
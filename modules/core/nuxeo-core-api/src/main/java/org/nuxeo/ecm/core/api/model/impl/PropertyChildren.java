@@ -0,0 +1,224 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.api.model.impl;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.nuxeo.ecm.core.api.model.Property;
+import org.nuxeo.ecm.core.schema.types.ComplexType;
+
+/**
+ * The children of a {@link ComplexProperty}, keyed by prefixed name.
+ * <p>
+ * Children that are fields of the complex type are stored in an array indexed by {@link ComplexType#getFieldPosition},
+ * so the field layout is shared by all the properties of a given type and no map entry is allocated per child. Other
+ * names, if any, are kept in a regular map.
+ * <p>
+ * Null values are not supported.
+ *
+ * @since 11.5
+ */
+class PropertyChildren extends AbstractMap<String, Property> implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final Property[] EMPTY = new Property[0];
+
+    protected final ComplexProperty owner;
+
+    // resolved lazily as subclasses set their type after the ComplexProperty constructor
+    protected transient ComplexType type;
+
+    protected Property[] array = EMPTY;
+
+    protected Map<String, Property> others;
+
+    protected int size;
+
+    protected PropertyChildren(ComplexProperty owner) {
+        this.owner = owner;
+    }
+
+    protected int position(Object key) {
+        if (!(key instanceof String)) {
+            return -1;
+        }
+        if (type == null) {
+            type = owner.getType();
+        }
+        return type.getFieldPosition((String) key);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Property get(Object key) {
+        int pos = position(key);
+        if (pos >= 0) {
+            return pos < array.length ? array[pos] : null;
+        }
+        return others == null ? null : others.get(key);
+    }
+
+    @Override
+    public Property put(String key, Property value) {
+        if (value == null) {
+            throw new NullPointerException(key);
+        }
+        Property old;
+        int pos = position(key);
+        if (pos >= 0) {
+            if (pos >= array.length) {
+                array = Arrays.copyOf(array, Math.max(pos + 1, type.getFieldsCount()));
+            }
+            old = array[pos];
+            array[pos] = value;
+        } else {
+            if (others == null) {
+                others = new HashMap<>();
+            }
+            old = others.put(key, value);
+        }
+        if (old == null) {
+            size++;
+        }
+        return old;
+    }
+
+    @Override
+    public Property remove(Object key) {
+        Property old;
+        int pos = position(key);
+        if (pos >= 0) {
+            if (pos >= array.length) {
+                return null;
+            }
+            old = array[pos];
+            array[pos] = null;
+        } else {
+            old = others == null ? null : others.remove(key);
+        }
+        if (old != null) {
+            size--;
+        }
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(array, null);
+        others = null;
+        size = 0;
+    }
+
+    @Override
+    public Set<Entry<String, Property>> entrySet() {
+        return new AbstractSet<>() {
+
+            @Override
+            public Iterator<Entry<String, Property>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    protected class EntryIterator implements Iterator<Entry<String, Property>> {
+
+        // next array position to examine
+        protected int pos;
+
+        // array position of the last returned entry, or -1
+        protected int last = -1;
+
+        protected Iterator<Entry<String, Property>> othersIterator;
+
+        protected boolean inOthers;
+
+        @Override
+        public boolean hasNext() {
+            while (pos < array.length) {
+                if (array[pos] != null) {
+                    return true;
+                }
+                pos++;
+            }
+            if (othersIterator == null) {
+                othersIterator = others == null ? Collections.emptyIterator() : others.entrySet().iterator();
+            }
+            return othersIterator.hasNext();
+        }
+
+        @Override
+        public Entry<String, Property> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (pos < array.length) {
+                last = pos++;
+                inOthers = false;
+                Property property = array[last];
+                return new SimpleImmutableEntry<>(property.getName(), property);
+            }
+            inOthers = true;
+            return othersIterator.next();
+        }
+
+        @Override
+        public void remove() {
+            if (inOthers) {
+                othersIterator.remove();
+            } else {
+                if (last == -1 || array[last] == null) {
+                    throw new IllegalStateException();
+                }
+                array[last] = null;
+                last = -1;
+            }
+            size--;
+        }
+    }
+
+}
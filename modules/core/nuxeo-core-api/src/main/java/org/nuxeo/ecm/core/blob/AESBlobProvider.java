@@ -47,6 +47,9 @@ import org.nuxeo.ecm.core.blob.AESBlobStore.EncryptingOutputStream;
  * <li>password: the password
  * </ul>
  * <p>
+ * The size of the independently encrypted chunks of a file can be configured with the {@code chunkSize} property
+ * (since 11.5, default 64 KB, {@code 0} to write files as a single encrypted stream).
+ * <p>
  * For backward compatibility, the properties can also be included in the
  * {@code <property name="key">prop1=value1,prop2=value2,...</property>} of the blob provider configuration.
  *
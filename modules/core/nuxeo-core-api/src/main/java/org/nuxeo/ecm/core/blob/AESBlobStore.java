@@ -20,7 +20,12 @@ package org.nuxeo.ecm.core.blob;
 
 import static java.nio.charset.StandardCharsets.US_ASCII;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
 
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
@@ -29,23 +34,39 @@ import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.security.GeneralSecurityException;
 import java.security.Key;
 import java.security.SecureRandom;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.crypto.Cipher;
 import javax.crypto.CipherInputStream;
 import javax.crypto.CipherOutputStream;
+import javax.crypto.spec.GCMParameterSpec;
 
 import org.apache.commons.io.IOUtils;
 
 /**
  * A blob store that encrypts binaries on the filesystem using AES.
+ * <p>
+ * Since 11.5, files are by default encrypted as a sequence of independently authenticated AES-GCM chunks, which allows
+ * decrypting only the chunks needed for a byte range, and decrypting the chunks of a large file in parallel. Files
+ * written in the previous single stream format are still readable.
  *
  * @since 11.1
  */
@@ -55,6 +76,9 @@ public class AESBlobStore extends LocalBlobStore {
 
     protected static final int FILE_VERSION_1 = 1;
 
+    /** @since 11.5 */
+    protected static final int FILE_VERSION_2 = 2;
+
     protected static final int USE_KEYSTORE = 1;
 
     protected static final int USE_PBKDF2 = 2;
@@ -65,9 +89,40 @@ public class AESBlobStore extends LocalBlobStore {
     // for sanity check during reads
     private static final int MAX_IV_LEN = 1024;
 
+    /** @since 11.5 */
+    protected static final int GCM_TAG_LENGTH = 16;
+
+    /** Length of the random prefix of the chunk IVs, followed by a 4-byte chunk index. */
+    protected static final int NONCE_PREFIX_LENGTH = 8;
+
+    /** Additional authenticated data for the last chunk, so that truncation is detected. */
+    protected static final byte[] AAD_LAST_CHUNK = { 1 };
+
+    protected static final byte[] AAD_CHUNK = { 0 };
+
+    /** Number of chunks decrypted in sequence by each parallel task when reading a whole file. */
+    protected static final int CHUNKS_PER_TASK = 16;
+
     // Random instances are thread-safe
     protected static final Random RANDOM = new SecureRandom();
 
+    /**
+     * Executor for the parallel decryption of the chunks of large files, created on first use.
+     *
+     * @since 11.5
+     */
+    protected static class DecryptExecutorHolder {
+
+        protected static final AtomicInteger THREAD_NUMBER = new AtomicInteger();
+
+        protected static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(), r -> {
+                    Thread thread = new Thread(r, "Nuxeo-AESBlobStore-Decrypt-" + THREAD_NUMBER.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
     protected final AESBlobStoreConfiguration aesConfig;
 
     public AESBlobStore(String name, KeyStrategy keyStrategy, PathStrategy pathStrategy,
@@ -109,8 +164,59 @@ public class AESBlobStore extends LocalBlobStore {
         }
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * For chunked files, only the chunks covering the byte range are read and decrypted.
+     *
+     * @since 11.5
+     */
+    @SuppressWarnings("resource")
+    @Override
+    public OptionalOrUnknown<InputStream> getStream(String key, ByteRange byteRange) throws IOException {
+        if (byteRange == null) {
+            return getStream(key);
+        }
+        Path file = pathStrategy.getPathForKey(key);
+        SeekableByteChannel channel;
+        try {
+            channel = Files.newByteChannel(file, READ);
+        } catch (NoSuchFileException e) {
+            return OptionalOrUnknown.missing();
+        }
+        try {
+            Header header = readHeader(new BufferedInputStream(Channels.newInputStream(channel)), aesConfig);
+            if (header.version != FILE_VERSION_2) {
+                // no random access in this format
+                channel.close();
+                OptionalOrUnknown<InputStream> streamOpt = getStream(key);
+                return streamOpt.isPresent() ? OptionalOrUnknown.of(byteRange.forStream(streamOpt.get())) : streamOpt;
+            }
+            long chunk = byteRange.getStart() / header.chunkSize;
+            channel.position(header.length + chunk * (header.chunkSize + GCM_TAG_LENGTH));
+            InputStream in = new ChunkDecryptingInputStream(new BufferedInputStream(Channels.newInputStream(channel)),
+                    header, chunk);
+            long offset = byteRange.getStart() - chunk * header.chunkSize;
+            return OptionalOrUnknown.of(ByteRange.inclusive(offset, offset + byteRange.getLength() - 1).forStream(in));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
     @Override
     public boolean readBlob(String key, Path dest) throws IOException {
+        Path file = pathStrategy.getPathForKey(key);
+        Header header;
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file))) {
+            header = readHeader(in, aesConfig);
+        } catch (NoSuchFileException e) {
+            return false;
+        }
+        if (header.version == FILE_VERSION_2) {
+            decryptChunks(header, file, dest);
+            return true;
+        }
         OptionalOrUnknown<InputStream> streamOpt = getStream(key);
         if (streamOpt.isPresent()) {
             try (InputStream stream = streamOpt.get()) {
@@ -125,6 +231,88 @@ public class AESBlobStore extends LocalBlobStore {
         }
     }
 
+    /**
+     * Decrypts all the chunks of a file into the destination, using parallel tasks for large files.
+     *
+     * @since 11.5
+     */
+    protected void decryptChunks(Header header, Path file, Path dest) throws IOException {
+        long encryptedChunkSize = header.chunkSize + GCM_TAG_LENGTH;
+        long dataLength = Files.size(file) - header.length;
+        long numChunks = Math.max(1, (dataLength + encryptedChunkSize - 1) / encryptedChunkSize);
+        long lastChunkLength = dataLength - (numChunks - 1) * encryptedChunkSize;
+        if (lastChunkLength < GCM_TAG_LENGTH) {
+            throw new IOException("Invalid file (truncated)");
+        }
+        long numTasks = (numChunks + CHUNKS_PER_TASK - 1) / CHUNKS_PER_TASK;
+        try (FileChannel in = FileChannel.open(file, READ);
+                FileChannel out = FileChannel.open(dest, WRITE, CREATE, TRUNCATE_EXISTING)) {
+            if (numTasks == 1) {
+                decryptChunks(header, in, out, 0, numChunks, numChunks, lastChunkLength);
+                return;
+            }
+            List<Future<?>> futures = new ArrayList<>((int) numTasks);
+            for (long task = 0; task < numTasks; task++) {
+                long start = task * CHUNKS_PER_TASK;
+                long end = Math.min(numChunks, start + CHUNKS_PER_TASK);
+                futures.add(DecryptExecutorHolder.EXECUTOR.submit(() -> {
+                    decryptChunks(header, in, out, start, end, numChunks, lastChunkLength);
+                    return null;
+                }));
+            }
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new IOException(cause);
+            } finally {
+                // don't leave tasks writing to the closed channels
+                futures.forEach(future -> future.cancel(true));
+            }
+        }
+    }
+
+    /**
+     * Decrypts a sequence of chunks of a file into the destination, with positional reads and writes.
+     *
+     * @since 11.5
+     */
+    protected void decryptChunks(Header header, FileChannel in, FileChannel out, long start, long end, long numChunks,
+            long lastChunkLength) throws IOException {
+        long encryptedChunkSize = header.chunkSize + GCM_TAG_LENGTH;
+        byte[] encrypted = new byte[(int) encryptedChunkSize];
+        byte[] plain = new byte[header.chunkSize];
+        try {
+            Cipher cipher = getChunkCipher();
+            for (long index = start; index < end; index++) {
+                boolean last = index == numChunks - 1;
+                ByteBuffer buf = ByteBuffer.wrap(encrypted, 0, (int) (last ? lastChunkLength : encryptedChunkSize));
+                long position = header.length + index * encryptedChunkSize;
+                while (buf.hasRemaining()) {
+                    if (in.read(buf, position + buf.position()) < 0) {
+                        throw new IOException("Invalid file (truncated)");
+                    }
+                }
+                int n = decryptChunk(cipher, header, index, last, encrypted, buf.position(), plain);
+                ByteBuffer outBuf = ByteBuffer.wrap(plain, 0, n);
+                long outPosition = index * header.chunkSize;
+                while (outBuf.hasRemaining()) {
+                    out.write(outBuf, outPosition + outBuf.position());
+                }
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IOException(e);
+        }
+    }
+
     @Override
     public boolean copyBlobIsOptimized(BlobStore sourceStore) {
         return false;
@@ -136,6 +324,135 @@ public class AESBlobStore extends LocalBlobStore {
         throw new UnsupportedOperationException();
     }
 
+    /**
+     * The information read from the header of an encrypted file.
+     *
+     * @since 11.5
+     */
+    protected static class Header {
+
+        protected int version;
+
+        protected Key secret;
+
+        /** The IV for version 1, the prefix of the chunk IVs for version 2. */
+        protected byte[] iv;
+
+        protected int chunkSize;
+
+        /** The length of the header, after which the encrypted data starts. */
+        protected long length;
+    }
+
+    /**
+     * Reads the header of an encrypted file.
+     *
+     * @see EncryptingOutputStream
+     * @since 11.5
+     */
+    protected static Header readHeader(InputStream in, AESBlobStoreConfiguration aesConfig) throws IOException {
+        Header header = new Header();
+        // read magic
+        byte[] magic = new byte[FILE_MAGIC.length];
+        IOUtils.read(in, magic);
+        if (!Arrays.equals(magic, FILE_MAGIC)) {
+            throw new IOException("Invalid file (bad magic)");
+        }
+        // read version
+        DataInputStream data = new DataInputStream(in);
+        byte magicvers = data.readByte();
+        if (magicvers != FILE_VERSION_1 && magicvers != FILE_VERSION_2) {
+            throw new IOException("Invalid file (bad version)");
+        }
+        header.version = magicvers;
+        header.length = FILE_MAGIC.length + 1;
+
+        // check use
+        byte usepb = data.readByte();
+        header.length++;
+        if (usepb == USE_PBKDF2) {
+            if (!aesConfig.usePBKDF2) {
+                throw new IOException("File requires PBKDF2 password");
+            }
+        } else if (usepb == USE_KEYSTORE) {
+            if (aesConfig.usePBKDF2) {
+                throw new IOException("File requires keystore");
+            }
+        } else {
+            throw new IOException("Invalid file (bad use)");
+        }
+
+        try {
+            // secret key
+            if (aesConfig.usePBKDF2) {
+                // read salt first
+                int saltLen = data.readInt();
+                if (saltLen <= 0 || saltLen > MAX_SALT_LEN) {
+                    throw new IOException("Invalid salt length: " + saltLen);
+                }
+                byte[] salt = new byte[saltLen];
+                data.readFully(salt);
+                header.length += 4 + saltLen;
+                header.secret = aesConfig.generateSecretKey(salt);
+            } else {
+                header.secret = aesConfig.getSecretKey();
+            }
+        } catch (GeneralSecurityException e) {
+            throw new IOException(e);
+        }
+
+        // read chunk size
+        if (header.version == FILE_VERSION_2) {
+            header.chunkSize = data.readInt();
+            if (header.chunkSize <= 0 || header.chunkSize > AESBlobStoreConfiguration.MAX_CHUNK_SIZE) {
+                throw new IOException("Invalid chunk size: " + header.chunkSize);
+            }
+            header.length += 4;
+        }
+
+        // read IV
+        int ivLen = data.readInt();
+        if (ivLen <= 0 || ivLen > MAX_IV_LEN) {
+            throw new IOException("Invalid IV length: " + ivLen);
+        }
+        header.iv = new byte[ivLen];
+        data.readFully(header.iv);
+        header.length += 4 + ivLen;
+        return header;
+    }
+
+    /**
+     * Builds the IV of a chunk from the file's IV prefix and the chunk index.
+     *
+     * @since 11.5
+     */
+    protected static byte[] getChunkIV(byte[] prefix, long index) {
+        return ByteBuffer.allocate(prefix.length + 4).put(prefix).putInt((int) index).array();
+    }
+
+    /**
+     * Gets a cipher for the chunks of the version 2 format, which are always encrypted using AES-GCM.
+     *
+     * @since 11.5
+     */
+    protected static Cipher getChunkCipher() throws GeneralSecurityException {
+        return Cipher.getInstance(AESBlobStoreConfiguration.AES_GCM_NOPADDING);
+    }
+
+    /**
+     * Decrypts and authenticates one chunk.
+     *
+     * @return the length of the decrypted data
+     * @since 11.5
+     */
+    protected static int decryptChunk(Cipher cipher, Header header, long index, boolean last, byte[] encrypted,
+            int length, byte[] plain) throws GeneralSecurityException {
+        cipher.init(Cipher.DECRYPT_MODE, header.secret,
+                new GCMParameterSpec(GCM_TAG_LENGTH * 8, getChunkIV(header.iv, index)));
+        cipher.updateAAD(last ? AAD_LAST_CHUNK : AAD_CHUNK);
+        return cipher.doFinal(encrypted, 0, length, plain, 0);
+    }
+
     /**
      * Output stream that encrypts while writing.
      * <p>
@@ -153,6 +470,24 @@ public class AESBlobStore extends LocalBlobStore {
      * <li>p bytes: IV data
      * <li>x bytes: encrypted stream
      * </ul>
+     * <p>
+     * Stream format version 2 (since 11.5), used when a chunk size is configured:
+     * <ul>
+     * <li>10 bytes: magic number "NUXEOCRYPT"
+     * <li>1 byte: file format version = 2
+     * <li>1 byte: use keystore = 1, use PBKDF2 = 2
+     * <li>if use PBKDF2:
+     * <ul>
+     * <li>4 bytes: salt length = n
+     * <li>n bytes: salt data
+     * </ul>
+     * <li>4 bytes: chunk size = c
+     * <li>4 bytes: IV prefix length = p
+     * <li>p bytes: IV prefix data
+     * <li>chunks, each of them encrypting c bytes (except the last one which may be shorter) using AES-GCM, with as IV
+     * the IV prefix followed by the 4-byte chunk index, and as additional authenticated data 1 byte: last chunk = 1,
+     * other chunk = 0. Each chunk is c + 16 bytes long (except the last one).
+     * </ul>
      *
      * @see DecryptingInputStream
      */
@@ -167,10 +502,11 @@ public class AESBlobStore extends LocalBlobStore {
         }
 
         protected void writeHeader() throws IOException {
+            boolean chunked = aesConfig.chunkSize > 0;
             // write magic + version
             out.write(FILE_MAGIC);
             DataOutputStream data = new DataOutputStream(out);
-            data.writeByte(FILE_VERSION_1);
+            data.writeByte(chunked ? FILE_VERSION_2 : FILE_VERSION_1);
 
             Cipher cipher;
             try {
@@ -192,8 +528,22 @@ public class AESBlobStore extends LocalBlobStore {
                     secret = aesConfig.getSecretKey();
                 }
 
-                // cipher
+                if (chunked) {
+                    cipher = getChunkCipher();
+                    data.writeInt(aesConfig.chunkSize);
+                    // write IV prefix
+                    byte[] prefix = new byte[NONCE_PREFIX_LENGTH];
+                    RANDOM.nextBytes(prefix);
+                    data.writeInt(prefix.length);
+                    data.write(prefix);
+                    data.flush();
+                    // now replace the output stream with the chunk ciphering version
+                    out = new ChunkEncryptingOutputStream(out, cipher, secret, prefix, aesConfig.chunkSize);
+                    return;
+                }
                 cipher = aesConfig.getCipher();
+
+                // cipher
                 cipher.init(Cipher.ENCRYPT_MODE, secret);
 
                 // write IV
@@ -216,6 +566,102 @@ public class AESBlobStore extends LocalBlobStore {
         }
     }
 
+    /**
+     * Output stream encrypting chunks, for version 2 of the format.
+     *
+     * @see EncryptingOutputStream
+     * @since 11.5
+     */
+    protected static class ChunkEncryptingOutputStream extends OutputStream {
+
+        protected final OutputStream out;
+
+        protected final Cipher cipher;
+
+        protected final Key secret;
+
+        protected final byte[] prefix;
+
+        protected final byte[] buf;
+
+        protected final byte[] encrypted;
+
+        protected int count;
+
+        protected long index;
+
+        protected boolean closed;
+
+        protected ChunkEncryptingOutputStream(OutputStream out, Cipher cipher, Key secret, byte[] prefix,
+                int chunkSize) {
+            this.out = out;
+            this.cipher = cipher;
+            this.secret = secret;
+            this.prefix = prefix;
+            buf = new byte[chunkSize];
+            encrypted = new byte[chunkSize + GCM_TAG_LENGTH];
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buf.length) {
+                writeChunk(false);
+            }
+            buf[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                // a full chunk is only written once we know it's not the last one
+                if (count == buf.length) {
+                    writeChunk(false);
+                }
+                int n = Math.min(len, buf.length - count);
+                System.arraycopy(b, off, buf, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        protected void writeChunk(boolean last) throws IOException {
+            if (index > 0xFFFFFFFFL) {
+                throw new IOException("Too many chunks");
+            }
+            int n;
+            try {
+                cipher.init(Cipher.ENCRYPT_MODE, secret,
+                        new GCMParameterSpec(GCM_TAG_LENGTH * 8, getChunkIV(prefix, index)));
+                cipher.updateAAD(last ? AAD_LAST_CHUNK : AAD_CHUNK);
+                n = cipher.doFinal(buf, 0, count, encrypted, 0);
+            } catch (GeneralSecurityException e) {
+                throw new IOException(e);
+            }
+            out.write(encrypted, 0, n);
+            count = 0;
+            index++;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            out.flush();
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            try {
+                writeChunk(true);
+            } finally {
+                out.close();
+            }
+        }
+    }
+
     /**
      * Input stream that decrypts while reading.
      * <p>
@@ -234,61 +680,18 @@ public class AESBlobStore extends LocalBlobStore {
         }
 
         protected void readHeader() throws IOException {
-            // read magic
-            byte[] magic = new byte[FILE_MAGIC.length];
-            IOUtils.read(in, magic);
-            if (!Arrays.equals(magic, FILE_MAGIC)) {
-                throw new IOException("Invalid file (bad magic)");
-            }
-            // read version
-            DataInputStream data = new DataInputStream(in);
-            byte magicvers = data.readByte();
-            if (magicvers != FILE_VERSION_1) {
-                throw new IOException("Invalid file (bad version)");
-            }
-
-            // check use
-            byte usepb = data.readByte();
-            if (usepb == USE_PBKDF2) {
-                if (!aesConfig.usePBKDF2) {
-                    throw new IOException("File requires PBKDF2 password");
-                }
-            } else if (usepb == USE_KEYSTORE) {
-                if (aesConfig.usePBKDF2) {
-                    throw new IOException("File requires keystore");
-                }
-            } else {
-                throw new IOException("Invalid file (bad use)");
+            Header header = AESBlobStore.readHeader(in, aesConfig);
+            if (header.version == FILE_VERSION_2) {
+                // now replace the input stream with the chunk deciphering version
+                in = new ChunkDecryptingInputStream(in, header, 0);
+                return;
             }
 
             Cipher cipher;
             try {
-                // secret key
-                Key secret;
-                if (aesConfig.usePBKDF2) {
-                    // read salt first
-                    int saltLen = data.readInt();
-                    if (saltLen <= 0 || saltLen > MAX_SALT_LEN) {
-                        throw new IOException("Invalid salt length: " + saltLen);
-                    }
-                    byte[] salt = new byte[saltLen];
-                    data.read(salt, 0, saltLen);
-                    secret = aesConfig.generateSecretKey(salt);
-                } else {
-                    secret = aesConfig.getSecretKey();
-                }
-
-                // read IV
-                int ivLen = data.readInt();
-                if (ivLen <= 0 || ivLen > MAX_IV_LEN) {
-                    throw new IOException("Invalid IV length: " + ivLen);
-                }
-                byte[] iv = new byte[ivLen];
-                data.read(iv, 0, ivLen);
-
                 // cipher
                 cipher = aesConfig.getCipher();
-                cipher.init(Cipher.DECRYPT_MODE, secret, aesConfig.getParameterSpec(iv));
+                cipher.init(Cipher.DECRYPT_MODE, header.secret, aesConfig.getParameterSpec(header.iv));
             } catch (GeneralSecurityException e) {
                 throw new IOException(e);
             }
@@ -296,6 +699,152 @@ public class AESBlobStore extends LocalBlobStore {
             // now replace the input stream with the deciphering version
             in = new CipherInputStream(in, cipher);
         }
+
+        /**
+         * Skips by reading, as {@link CipherInputStream#skip} only skips the bytes already deciphered.
+         *
+         * @since 11.5
+         */
+        @Override
+        public long skip(long n) throws IOException {
+            if (n <= 0) {
+                return 0;
+            }
+            byte[] buf = new byte[(int) Math.min(n, 8192)];
+            long remaining = n;
+            while (remaining > 0) {
+                int read = in.read(buf, 0, (int) Math.min(remaining, buf.length));
+                if (read < 0) {
+                    break;
+                }
+                remaining -= read;
+            }
+            return n - remaining;
+        }
+    }
+
+    /**
+     * Input stream decrypting chunks, for version 2 of the format.
+     *
+     * @see EncryptingOutputStream
+     * @since 11.5
+     */
+    protected static class ChunkDecryptingInputStream extends InputStream {
+
+        protected final InputStream in;
+
+        protected final Header header;
+
+        protected final Cipher cipher;
+
+        protected final byte[] encrypted;
+
+        protected final byte[] buf;
+
+        protected int pos;
+
+        protected int limit;
+
+        protected long index;
+
+        protected final long startIndex;
+
+        protected boolean last;
+
+        /** Byte read ahead to find if a chunk is the last one, or -1. */
+        protected int pending = -1;
+
+        /**
+         * Constructs a stream decrypting chunks.
+         *
+         * @param in the stream, positioned at the start of a chunk
+         * @param header the file header
+         * @param index the index of the first chunk
+         */
+        protected ChunkDecryptingInputStream(InputStream in, Header header, long index) throws IOException {
+            this.in = in;
+            this.header = header;
+            this.index = index;
+            startIndex = index;
+            try {
+                cipher = getChunkCipher();
+            } catch (GeneralSecurityException e) {
+                throw new IOException(e);
+            }
+            encrypted = new byte[header.chunkSize + GCM_TAG_LENGTH];
+            buf = new byte[header.chunkSize];
+        }
+
+        /** Reads and decrypts the next chunk, returns {@code false} at the end of the stream. */
+        protected boolean nextChunk() throws IOException {
+            if (last) {
+                return false;
+            }
+            int n = 0;
+            if (pending >= 0) {
+                encrypted[n++] = (byte) pending;
+                pending = -1;
+            }
+            n += IOUtils.read(in, encrypted, n, encrypted.length - n);
+            if (n == 0 && index == startIndex && index > 0) {
+                // started past the last chunk
+                last = true;
+                return false;
+            }
+            if (n < GCM_TAG_LENGTH) {
+                throw new IOException("Invalid file (truncated)");
+            }
+            if (n < encrypted.length) {
+                last = true;
+            } else {
+                pending = in.read();
+                last = pending < 0;
+            }
+            try {
+                limit = decryptChunk(cipher, header, index, last, encrypted, n, buf);
+            } catch (GeneralSecurityException e) {
+                throw new IOException(e);
+            }
+            pos = 0;
+            index++;
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            while (pos == limit) {
+                if (!nextChunk()) {
+                    return -1;
+                }
+            }
+            return buf[pos++] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (pos == limit) {
+                if (!nextChunk()) {
+                    return -1;
+                }
+            }
+            int n = Math.min(len, limit - pos);
+            System.arraycopy(buf, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override
+        public int available() {
+            return limit - pos;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
     }
 
 }
@@ -88,6 +88,21 @@ public class AESBlobStoreConfiguration extends PropertyBasedConfiguration {
      */
     public static final String PROP_KEY_USE_INSECURE_CIPHER = "useInsecureCipher";
 
+    /**
+     * The size of the independently encrypted chunks of a file, which allow random access and parallel decryption. If
+     * {@code 0}, files are written as a single encrypted stream like before 11.5. Ignored when using the insecure
+     * cipher.
+     *
+     * @since 11.5
+     */
+    public static final String PROP_CHUNK_SIZE = "chunkSize";
+
+    /** @since 11.5 */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024; // 64 KB
+
+    /** @since 11.5 */
+    public static final int MAX_CHUNK_SIZE = 16 * 1024 * 1024; // 16 MB
+
     public final boolean usePBKDF2;
 
     public final String password;
@@ -104,6 +119,9 @@ public class AESBlobStoreConfiguration extends PropertyBasedConfiguration {
 
     public final boolean useInsecureCipher;
 
+    /** @since 11.5 */
+    public final int chunkSize;
+
     public AESBlobStoreConfiguration(Map<String, String> properties) throws IOException {
         super(null, properties);
         parseCompat();
@@ -114,6 +132,13 @@ public class AESBlobStoreConfiguration extends PropertyBasedConfiguration {
         keyAlias = getProperty(PROP_KEY_ALIAS);
         String keyPassword = getProperty(PROP_KEY_PASSWORD); // NOSONAR
         useInsecureCipher = Boolean.parseBoolean(getProperty(PROP_KEY_USE_INSECURE_CIPHER));
+        int chunkSize = getIntProperty(PROP_CHUNK_SIZE);
+        if (chunkSize < 0) {
+            chunkSize = DEFAULT_CHUNK_SIZE;
+        } else if (chunkSize > MAX_CHUNK_SIZE) {
+            throw new NuxeoException("Invalid " + PROP_CHUNK_SIZE + ": " + chunkSize);
+        }
+        this.chunkSize = useInsecureCipher ? 0 : chunkSize;
 
         usePBKDF2 = password != null;
         if (usePBKDF2) {
@@ -169,7 +194,8 @@ public class AESBlobStoreConfiguration extends PropertyBasedConfiguration {
                     PROP_KEY_STORE_PASSWORD, //
                     PROP_KEY_ALIAS, //
                     PROP_KEY_PASSWORD, //
-                    PROP_KEY_USE_INSECURE_CIPHER).contains(prop)) {
+                    PROP_KEY_USE_INSECURE_CIPHER, //
+                    PROP_CHUNK_SIZE).contains(prop)) {
                 log.error("Unrecognized property '" + prop + "' in compatibility property '" + PROP_COMPAT_KEY + "'");
                 continue;
             }
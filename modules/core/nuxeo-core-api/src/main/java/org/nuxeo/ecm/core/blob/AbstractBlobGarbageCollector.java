@@ -18,24 +18,46 @@
  */
 package org.nuxeo.ecm.core.blob;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.blob.binary.BinaryGarbageCollector;
 import org.nuxeo.ecm.core.blob.binary.BinaryManagerStatus;
+import org.nuxeo.runtime.api.Framework;
 
 /**
- * Basic implementation for a garbage collector recording marked blobs in memory.
+ * Basic implementation for a garbage collector recording marked blobs in a {@link MarkedBlobKeys}.
  */
 public abstract class AbstractBlobGarbageCollector implements BinaryGarbageCollector {
 
+    private static final Logger log = LogManager.getLogger(AbstractBlobGarbageCollector.class);
+
+    /**
+     * Framework property for the number of threads used to sweep the blob store shards.
+     *
+     * @since 11.5
+     */
+    public static final String SWEEP_THREADS_PROP = "nuxeo.blobstore.gc.sweep.threads";
+
+    /** @since 11.5 */
+    public static final int DEFAULT_SWEEP_THREADS = 4;
+
     // volatile as this is designed to be called from another thread
     protected volatile long startTime;
 
     protected BinaryManagerStatus status;
 
-    protected Set<String> marked;
+    protected MarkedBlobKeys marked;
 
     @Override
     public boolean isInProgress() {
@@ -49,7 +71,7 @@ public abstract class AbstractBlobGarbageCollector implements BinaryGarbageColle
         }
         startTime = System.currentTimeMillis();
         status = new BinaryManagerStatus();
-        marked = new HashSet<>();
+        marked = new MarkedBlobKeys();
     }
 
     @Override
@@ -58,8 +80,12 @@ public abstract class AbstractBlobGarbageCollector implements BinaryGarbageColle
             throw new NuxeoException("Not started");
         }
         try {
+            marked.seal();
+            status.numBinariesMarked = marked.size();
             removeUnmarkedBlobsAndUpdateStatus(delete);
         } finally {
+            marked.close();
+            marked = null;
             status.gcDuration = System.currentTimeMillis() - startTime;
             startTime = 0;
         }
@@ -67,7 +93,6 @@ public abstract class AbstractBlobGarbageCollector implements BinaryGarbageColle
 
     public void removeUnmarkedBlobsAndUpdateStatus(boolean delete) {
         Set<String> unmarked = getUnmarkedBlobsAndUpdateStatus();
-        marked = null;
         if (delete) {
             removeBlobs(unmarked);
         }
@@ -86,6 +111,80 @@ public abstract class AbstractBlobGarbageCollector implements BinaryGarbageColle
         marked.add(digest);
     }
 
+    /**
+     * Sweeps the given shards of the blob store in parallel.
+     * <p>
+     * Each shard is swept by the given function, which returns the status for the shard. It is added to the global
+     * status as soon as the shard is done, so that the progress of the sweep can be followed through {@link #getStatus}.
+     *
+     * @param shards the shards, for instance key prefixes or subdirectories
+     * @param sweeper the function sweeping a shard
+     * @since 11.5
+     */
+    protected <T> void sweepShards(List<T> shards, Function<T, BinaryManagerStatus> sweeper) {
+        status.numShards = shards.size();
+        int nbThreads = Math.min(getSweepThreads(), shards.size());
+        if (nbThreads <= 1) {
+            shards.forEach(shard -> addShardStatus(sweeper.apply(shard)));
+            return;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads, r -> {
+            Thread thread = new Thread(r, "Nuxeo-BlobGC-Sweep-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(shards.size());
+            for (T shard : shards) {
+                futures.add(executor.submit(() -> addShardStatus(sweeper.apply(shard))));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NuxeoException(e);
+        } catch (ExecutionException e) {
+            throw new NuxeoException("GC sweep failed for " + getId(), e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /** @since 11.5 */
+    protected void addStatus(BinaryManagerStatus partialStatus) {
+        synchronized (status) {
+            status.numBinaries += partialStatus.numBinaries;
+            status.sizeBinaries += partialStatus.sizeBinaries;
+            status.numBinariesGC += partialStatus.numBinariesGC;
+            status.sizeBinariesGC += partialStatus.sizeBinariesGC;
+        }
+    }
+
+    /** @since 11.5 */
+    protected void addShardStatus(BinaryManagerStatus shardStatus) {
+        synchronized (status) {
+            addStatus(shardStatus);
+            status.numShardsDone++;
+            log.debug("GC sweep progress for {}: {}/{} shards", getId(), status.numShardsDone, status.numShards);
+        }
+    }
+
+    /** @since 11.5 */
+    protected int getSweepThreads() {
+        String value = Framework.getProperty(SWEEP_THREADS_PROP);
+        if (value == null) {
+            return DEFAULT_SWEEP_THREADS;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log.error("Invalid value for {}: {}", SWEEP_THREADS_PROP, value);
+            return DEFAULT_SWEEP_THREADS;
+        }
+    }
+
     @Override
     public BinaryManagerStatus getStatus() {
         return status;
@@ -22,6 +22,10 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import javax.servlet.http.HttpServletRequest;
@@ -94,6 +98,32 @@ public interface BlobManager {
      */
     BlobProvider getBlobProvider(Blob blob);
 
+    /**
+     * Hints that the given blobs will soon be read, so that the blob providers keeping a local cache can start fetching
+     * them in the background. Blobs that are not managed are ignored.
+     * <p>
+     * This is only a hint, it returns immediately.
+     *
+     * @param blobs the blobs
+     * @see BlobProvider#prefetch
+     * @since 11.5
+     */
+    default void prefetch(Collection<? extends Blob> blobs) {
+        Map<String, List<ManagedBlob>> byProvider = new HashMap<>();
+        for (Blob blob : blobs) {
+            if (blob instanceof ManagedBlob) {
+                ManagedBlob managedBlob = (ManagedBlob) blob;
+                byProvider.computeIfAbsent(managedBlob.getProviderId(), k -> new ArrayList<>()).add(managedBlob);
+            }
+        }
+        byProvider.forEach((providerId, managedBlobs) -> {
+            BlobProvider blobProvider = getBlobProvider(providerId);
+            if (blobProvider != null) {
+                blobProvider.prefetch(managedBlobs);
+            }
+        });
+    }
+
     /**
      * Gets an {@link InputStream} for the data of a managed blob.
      * <p>
@@ -24,6 +24,7 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URI;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
@@ -230,6 +231,38 @@ public interface BlobProvider {
         return null;
     }
 
+    /**
+     * Gets an {@link InputStream} for a byte range of the data of a managed blob.
+     * <p>
+     * Providers able to fetch only the requested bytes from their storage should override this method. The default
+     * implementation skips the beginning of the full stream.
+     *
+     * @param blob the managed blob
+     * @param byteRange the byte range, or {@code null} for the full blob
+     * @return the stream
+     * @since 11.5
+     */
+    default InputStream getStream(ManagedBlob blob, ByteRange byteRange) throws IOException {
+        InputStream stream = getStream(blob);
+        if (stream == null || byteRange == null) {
+            return stream;
+        }
+        return byteRange.forStream(stream);
+    }
+
+    /**
+     * Hints that the given managed blobs will soon be read, so that they can be fetched in the background into a local
+     * cache if the provider has one.
+     * <p>
+     * This is only a hint, it returns immediately and may be ignored. The default implementation does nothing.
+     *
+     * @param blobs the managed blobs of this provider
+     * @since 11.5
+     */
+    default void prefetch(Collection<ManagedBlob> blobs) {
+        // nothing to prefetch by default
+    }
+
     /**
      * Gets a {@link File} (if one exists) for the data of a managed blob.
      *
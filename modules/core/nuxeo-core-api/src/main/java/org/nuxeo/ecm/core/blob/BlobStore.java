@@ -21,6 +21,7 @@ package org.nuxeo.ecm.core.blob;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.NoSuchElementException;
 import java.util.Objects;
 import java.util.Optional;
@@ -231,6 +232,39 @@ public interface BlobStore {
     @NotNull
     OptionalOrUnknown<InputStream> getStream(String key) throws IOException;
 
+    /**
+     * Gets the stream of a byte range of the blob for the given key, if present.
+     * <p>
+     * Stores able to read a byte range without reading the preceding bytes should override this method. The default
+     * implementation skips the beginning of the full stream.
+     *
+     * @param key the blob key
+     * @param byteRange the byte range, or {@code null} for the full blob
+     * @return the blob stream, or empty if the blob cannot be found, or unknown if no stream is efficiently available
+     * @since 11.5
+     */
+    @NotNull
+    default OptionalOrUnknown<InputStream> getStream(String key, ByteRange byteRange) throws IOException {
+        OptionalOrUnknown<InputStream> streamOpt = getStream(key);
+        if (byteRange == null || !streamOpt.isPresent()) {
+            return streamOpt;
+        }
+        return OptionalOrUnknown.of(byteRange.forStream(streamOpt.get()));
+    }
+
+    /**
+     * Hints that the blobs for the given keys will soon be read, so that a store keeping a local cache can start
+     * fetching them in the background.
+     * <p>
+     * This is only a hint, it returns immediately and may be ignored. The default implementation does nothing.
+     *
+     * @param keys the blob keys
+     * @since 11.5
+     */
+    default void prefetch(Collection<String> keys) {
+        // nothing to prefetch by default
+    }
+
     /**
      * Reads a blob based on its key into the given file.
      *
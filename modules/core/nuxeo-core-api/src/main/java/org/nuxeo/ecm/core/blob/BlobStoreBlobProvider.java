@@ -26,8 +26,11 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Collection;
 import java.util.Map;
+import java.util.stream.Collectors;
 
+import org.apache.commons.lang3.mutable.MutableObject;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.nuxeo.ecm.core.api.Blob;
@@ -125,6 +128,41 @@ public abstract class BlobStoreBlobProvider extends AbstractBlobProvider {
         return getStream(blobKey, null);
     }
 
+    @Override
+    public InputStream getStream(ManagedBlob blob, ByteRange byteRange) throws IOException {
+        if (byteRange == null) {
+            return getStream(blob);
+        }
+        String key = stripBlobKeyPrefix(blob.getKey());
+        if (allowByteRange()) {
+            // the key may itself designate a byte range of a larger blob
+            MutableObject<String> keyHolder = new MutableObject<>(key);
+            ByteRange keyByteRange = AbstractBlobStore.getByteRangeFromKey(keyHolder);
+            if (keyByteRange != null) {
+                long start = keyByteRange.getStart() + byteRange.getStart();
+                long end = Math.min(keyByteRange.getStart() + byteRange.getEnd(), keyByteRange.getEnd());
+                if (start > end) {
+                    return byteRange.forStream(getStream(blob));
+                }
+                key = keyHolder.getValue();
+                byteRange = ByteRange.inclusive(start, end);
+            }
+        }
+        OptionalOrUnknown<InputStream> streamOpt = store.getStream(key, byteRange);
+        if (streamOpt.isKnown()) {
+            if (!streamOpt.isPresent()) {
+                throw new IOException("Missing blob: " + key);
+            }
+            return streamOpt.get();
+        }
+        return byteRange.forStream(getStream(blob));
+    }
+
+    @Override
+    public void prefetch(Collection<ManagedBlob> blobs) {
+        store.prefetch(blobs.stream().map(blob -> stripBlobKeyPrefix(blob.getKey())).collect(Collectors.toList()));
+    }
+
     @Override
     public InputStream getStream(String blobKey, ByteRange byteRange) throws IOException {
         String key = stripBlobKeyPrefix(blobKey);
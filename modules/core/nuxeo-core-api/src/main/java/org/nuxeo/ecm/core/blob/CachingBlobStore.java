@@ -26,20 +26,44 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
-
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.nuxeo.common.file.FileCache;
-import org.nuxeo.common.file.LRUFileCache;
+import org.nuxeo.common.file.IndexedLRUFileCache;
+import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.blob.binary.BinaryGarbageCollector;
 import org.nuxeo.ecm.core.blob.binary.BinaryManagerStatus;
 import org.nuxeo.runtime.trackers.files.FileEventTracker;
 
 /**
  * Blob store wrapper that caches blobs locally because fetching them may be expensive.
+ * <p>
+ * Concurrent reads of the same blob missing from the cache share a single fetch from the underlying store.
+ * <p>
+ * Blobs can be {@linkplain #prefetch prefetched} into the cache by a bounded number of background threads, within an
+ * optional bandwidth budget.
  *
  * @since 11.1
  */
 public class CachingBlobStore extends AbstractBlobStore {
 
+    private static final Logger log = LogManager.getLogger(CachingBlobStore.class);
+
+    /** Maximum number of pending prefetches, further hints are ignored. */
+    protected static final int PREFETCH_QUEUE_SIZE = 1000;
+
     protected final BlobStore store;
 
     // public for tests
@@ -53,16 +77,34 @@ public class CachingBlobStore extends AbstractBlobStore {
 
     protected final BinaryGarbageCollector gc;
 
+    protected final int prefetchConcurrency;
+
+    protected final long prefetchBandwidth;
+
+    /** The fetches in progress, shared by all the readers of a key. */
+    protected final Map<String, CompletableFuture<File>> fetches = new ConcurrentHashMap<>();
+
+    /** The keys currently queued or being fetched by prefetching. */
+    protected final Set<String> prefetching = ConcurrentHashMap.newKeySet();
+
+    // created on first prefetch
+    protected volatile ThreadPoolExecutor prefetchExecutor;
+
+    /** The time, in nanoseconds, before which no prefetch may start, to stay within the bandwidth budget. */
+    protected long prefetchNextStart;
+
     public CachingBlobStore(String name, BlobStore store, CachingConfiguration config) {
         super(name, store.getKeyStrategy());
         this.store = store;
         cacheDir = config.dir;
-        fileCache = new LRUFileCache(cacheDir.toFile(), config.maxSize, config.maxCount, config.minAge);
+        fileCache = new IndexedLRUFileCache(cacheDir.toFile(), config.maxSize, config.maxCount, config.minAge);
         // be sure FileTracker won't steal our files
         FileEventTracker.registerProtectedPath(cacheDir.toAbsolutePath().toString());
         tmpPathStrategy = new PathStrategyFlat(cacheDir);
         tmpStore = new LocalBlobStore(name, store.getKeyStrategy(), tmpPathStrategy); // view of the LRUFileCache tmp dir
         gc = new CachingBinaryGarbageCollector(store.getBinaryGarbageCollector());
+        prefetchConcurrency = config.prefetchConcurrency;
+        prefetchBandwidth = config.prefetchBandwidth;
     }
 
     @Override
@@ -117,12 +159,15 @@ public class CachingBlobStore extends AbstractBlobStore {
         if ((!atomicMove || copyBlobIsOptimized(sourceStore)) && cachingSourceStore != null) {
             // if it's a copy and the original cached file won't be touched
             // else optimized move won't need the cache, so we can move the cache ahead of time
-            tmpStore.copyBlob(key, cachingSourceStore.tmpStore, sourceKey, atomicMove);
+            if (tmpStore.copyBlob(key, cachingSourceStore.tmpStore, sourceKey, atomicMove)) {
+                // register the file in the file cache
+                fileCache.getFile(key);
+            }
         }
         boolean found = store.copyBlob(key, sourceStore, sourceKey, atomicMove);
         if (found && atomicMove && cachingSourceStore != null) {
             // clear source cache
-            cachingSourceStore.tmpStore.deleteBlob(sourceKey);
+            cachingSourceStore.fileCache.removeFile(sourceKey);
         }
         return found;
     }
@@ -147,17 +192,10 @@ public class CachingBlobStore extends AbstractBlobStore {
         if (cachedFile == null) {
             logTrace("<--", "missing");
             logTrace("hnote right: " + key);
-            // fetch file from storage into the cache
-            // go through a tmp file for atomicity
-            String tmpKey = randomString();
-            boolean found = tmpStore.copyBlob(tmpKey, store, key, false);
-            if (!found) {
+            cachedFile = fetch(key);
+            if (cachedFile == null) {
                 return OptionalOrUnknown.missing();
             }
-            File tmp = tmpPathStrategy.getPathForKey(tmpKey).toFile();
-            logTrace("->", "write " + tmp.length() + " bytes");
-            logTrace("hnote right: " + key);
-            cachedFile = fileCache.putFile(key, tmp);
         } else {
             logTrace("<-", "read " + cachedFile.length() + " bytes");
             logTrace("hnote right: " + key);
@@ -165,6 +203,196 @@ public class CachingBlobStore extends AbstractBlobStore {
         return OptionalOrUnknown.of(new FileInputStream(cachedFile));
     }
 
+    /**
+     * Fetches a blob from storage into the cache.
+     * <p>
+     * If the blob is already being fetched by another thread, waits for that fetch instead of starting a new one.
+     *
+     * @return the cached file, or {@code null} if the blob was not found
+     * @since 11.5
+     */
+    protected File fetch(String key) throws IOException {
+        CompletableFuture<File> future = new CompletableFuture<>();
+        CompletableFuture<File> inProgress = fetches.putIfAbsent(key, future);
+        if (inProgress != null) {
+            logTrace("<--", "wait for fetch in progress");
+            logTrace("hnote right: " + key);
+            return waitForFetch(key, inProgress);
+        }
+        try {
+            // a concurrent fetch may have completed between the cache miss and the registration of this one
+            File file = fileCache.getFile(key);
+            if (file == null) {
+                file = doFetch(key);
+            }
+            future.complete(file);
+            return file;
+        } catch (IOException | RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            fetches.remove(key, future);
+        }
+    }
+
+    protected File waitForFetch(String key, CompletableFuture<File> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NuxeoException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw new IOException("Failed to fetch: " + key, cause);
+            } else if (cause instanceof RuntimeException) {
+                throw new NuxeoException("Failed to fetch: " + key, cause);
+            }
+            throw new NuxeoException(cause);
+        }
+    }
+
+    /**
+     * Fetches a blob from storage into the cache, without coordination with other threads.
+     *
+     * @since 11.5
+     */
+    protected File doFetch(String key) throws IOException {
+        // go through a tmp file for atomicity
+        String tmpKey = randomString();
+        boolean found = tmpStore.copyBlob(tmpKey, store, key, false);
+        if (!found) {
+            return null;
+        }
+        File tmp = tmpPathStrategy.getPathForKey(tmpKey).toFile();
+        logTrace("->", "write " + tmp.length() + " bytes");
+        logTrace("hnote right: " + key);
+        return fileCache.putFile(key, tmp);
+    }
+
+    /**
+     * Queues the blobs missing from the cache to be fetched in the background. Hints received while too many blobs are
+     * already queued are ignored.
+     *
+     * @since 11.5
+     */
+    @Override
+    public void prefetch(Collection<String> keys) {
+        if (prefetchConcurrency <= 0) {
+            return;
+        }
+        for (String key : keys) {
+            if (fileCache.getFile(key) != null || !prefetching.add(key)) {
+                // already cached or being prefetched
+                continue;
+            }
+            try {
+                getPrefetchExecutor().execute(() -> prefetch(key));
+            } catch (RejectedExecutionException e) {
+                prefetching.remove(key);
+                log.debug("Prefetch queue full, ignoring: {}", key);
+            }
+        }
+    }
+
+    protected void prefetch(String key) {
+        try {
+            if (!waitForPrefetchBandwidth()) {
+                return;
+            }
+            if (fileCache.getFile(key) != null) {
+                return;
+            }
+            logTrace("->", "prefetch");
+            logTrace("hnote right: " + key);
+            File file = fetch(key);
+            if (file != null) {
+                usePrefetchBandwidth(file.length());
+            }
+        } catch (IOException | RuntimeException e) {
+            // prefetching is only a hint, the blob will be fetched again when read
+            log.debug("Failed to prefetch: {}", key, e);
+        } finally {
+            prefetching.remove(key);
+        }
+    }
+
+    /**
+     * Waits until the bandwidth budget allows a new prefetch.
+     *
+     * @return {@code false} if interrupted
+     */
+    protected boolean waitForPrefetchBandwidth() {
+        if (prefetchBandwidth <= 0) {
+            return true;
+        }
+        long delay;
+        synchronized (this) {
+            delay = prefetchNextStart - System.nanoTime();
+        }
+        if (delay > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Accounts for the bytes fetched by a prefetch, delaying the next ones accordingly. */
+    protected void usePrefetchBandwidth(long bytes) {
+        if (prefetchBandwidth <= 0) {
+            return;
+        }
+        long duration = (long) (bytes * (double) TimeUnit.SECONDS.toNanos(1) / prefetchBandwidth);
+        synchronized (this) {
+            prefetchNextStart = Math.max(prefetchNextStart, System.nanoTime()) + duration;
+        }
+    }
+
+    protected ThreadPoolExecutor getPrefetchExecutor() {
+        ThreadPoolExecutor executor = prefetchExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = prefetchExecutor;
+                if (executor == null) {
+                    AtomicInteger threadNumber = new AtomicInteger();
+                    executor = new ThreadPoolExecutor(prefetchConcurrency, prefetchConcurrency, 60, TimeUnit.SECONDS,
+                            new ArrayBlockingQueue<>(PREFETCH_QUEUE_SIZE), r -> {
+                                Thread thread = new Thread(r,
+                                        "Nuxeo-BlobPrefetch-" + name + "-" + threadNumber.incrementAndGet());
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+                    executor.allowCoreThreadTimeOut(true);
+                    prefetchExecutor = executor;
+                }
+            }
+        }
+        return executor;
+    }
+
+    /**
+     * Reads a byte range of a blob missing from the cache directly from the underlying store if it can do it
+     * efficiently, without filling the cache with the whole blob.
+     *
+     * @since 11.5
+     */
+    @Override
+    public OptionalOrUnknown<InputStream> getStream(String key, ByteRange byteRange) throws IOException {
+        if (byteRange != null && fileCache.getFile(key) == null) {
+            OptionalOrUnknown<InputStream> streamOpt = store.getStream(key, byteRange);
+            if (streamOpt.isKnown()) {
+                logTrace("<-", "read " + byteRange.getLength() + " bytes");
+                logTrace("hnote right: " + key + " " + byteRange);
+                return streamOpt;
+            }
+        }
+        return super.getStream(key, byteRange);
+    }
+
     @Override
     public boolean readBlob(String key, Path dest) throws IOException {
         OptionalOrUnknown<InputStream> streamOpt = getStream(key);
@@ -184,7 +412,7 @@ public class CachingBlobStore extends AbstractBlobStore {
 
     @Override
     public void deleteBlob(String key) {
-        tmpStore.deleteBlob(key); // TODO add API to FileCache to do this cleanly
+        fileCache.removeFile(key);
         store.deleteBlob(key);
     }
 
@@ -44,6 +44,26 @@ public class CachingConfiguration extends PropertyBasedConfiguration {
 
     public static final String DEFAULT_CACHE_MIN_AGE = "3600"; // 1h
 
+    /**
+     * The maximum number of blobs fetched concurrently in the background when prefetching, 0 to disable prefetching.
+     *
+     * @since 11.5
+     */
+    public static final String CACHE_PREFETCH_CONCURRENCY_PROPERTY = "cacheprefetchconcurrency";
+
+    /**
+     * The maximum bandwidth used by prefetching, as a size per second, 0 for no limit.
+     *
+     * @since 11.5
+     */
+    public static final String CACHE_PREFETCH_BANDWIDTH_PROPERTY = "cacheprefetchbandwidth";
+
+    /** @since 11.5 */
+    public static final String DEFAULT_CACHE_PREFETCH_CONCURRENCY = "4";
+
+    /** @since 11.5 */
+    public static final String DEFAULT_CACHE_PREFETCH_BANDWIDTH = "0";
+
     public final Path dir;
 
     public final long maxSize;
@@ -52,6 +72,16 @@ public class CachingConfiguration extends PropertyBasedConfiguration {
 
     public final long minAge;
 
+    /** @since 11.5 */
+    public final int prefetchConcurrency;
+
+    /**
+     * Bytes per second, 0 for no limit.
+     *
+     * @since 11.5
+     */
+    public final long prefetchBandwidth;
+
     public CachingConfiguration(String systemPropertyPrefix, Map<String, String> properties) throws IOException {
         super(systemPropertyPrefix, properties);
         dir = Framework.createTempDirectory("nxbincache.");
@@ -61,14 +91,27 @@ public class CachingConfiguration extends PropertyBasedConfiguration {
         maxSize = SizeUtils.parseSizeInBytes(maxSizeProp);
         maxCount = Long.parseLong(maxCountProp);
         minAge = Long.parseLong(minAgeProp);
+        String prefetchConcurrencyProp = getProperty(CACHE_PREFETCH_CONCURRENCY_PROPERTY,
+                DEFAULT_CACHE_PREFETCH_CONCURRENCY);
+        String prefetchBandwidthProp = getProperty(CACHE_PREFETCH_BANDWIDTH_PROPERTY, DEFAULT_CACHE_PREFETCH_BANDWIDTH);
+        prefetchConcurrency = Integer.parseInt(prefetchConcurrencyProp);
+        prefetchBandwidth = SizeUtils.parseSizeInBytes(prefetchBandwidthProp);
     }
 
     public CachingConfiguration(Path dir, long maxSize, long maxCount, long minAge) {
+        this(dir, maxSize, maxCount, minAge, Integer.parseInt(DEFAULT_CACHE_PREFETCH_CONCURRENCY), 0);
+    }
+
+    /** @since 11.5 */
+    public CachingConfiguration(Path dir, long maxSize, long maxCount, long minAge, int prefetchConcurrency,
+            long prefetchBandwidth) {
         super(null, null);
         this.dir = dir;
         this.maxSize = maxSize;
         this.maxCount = maxCount;
         this.minAge = minAge;
+        this.prefetchConcurrency = prefetchConcurrency;
+        this.prefetchBandwidth = prefetchBandwidth;
     }
 
 }
@@ -0,0 +1,639 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.blob;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import org.apache.commons.codec.binary.Hex;
+import org.apache.commons.io.IOUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.api.impl.blob.ByteArrayBlob;
+import org.nuxeo.ecm.core.blob.BlobStoreBlobProvider.AutoDeleteFileInputStream;
+import org.nuxeo.ecm.core.blob.KeyStrategy.WriteObserver;
+import org.nuxeo.ecm.core.blob.binary.BinaryGarbageCollector;
+import org.nuxeo.ecm.core.blob.binary.BinaryManagerStatus;
+import org.nuxeo.runtime.api.Framework;
+
+/**
+ * Blob store wrapper that splits blobs into content-defined chunks, so that blobs differing only in some parts share
+ * the storage of their common chunks.
+ * <p>
+ * Chunk boundaries are found using a rolling gear hash, so an insertion or deletion only changes the chunks around it.
+ * Each chunk is stored in the underlying store under the digest of its content, and the blob itself is stored as a
+ * manifest listing its chunks, under its own key followed by {@value #MANIFEST_KEY_SUFFIX}. Blobs stored before chunking
+ * was enabled have no manifest and are still read as is from their own key.
+ * <p>
+ * Deleting a blob only deletes its manifest, as its chunks may be shared. The garbage collector marks the chunks of each
+ * marked manifest, so unreferenced chunks are removed by the underlying store's garbage collection. Chunks and manifests
+ * written on this server while a garbage collection is in progress are marked too, as a write may reuse a chunk that
+ * already exists, and that is not marked otherwise.
+ * <p>
+ * This store requires a digest key strategy.
+ *
+ * @since 11.5
+ */
+public class ChunkedBlobStore extends AbstractBlobStore {
+
+    private static final Logger log = LogManager.getLogger(ChunkedBlobStore.class);
+
+    /** Suffix of the key of a manifest, which cannot be found in a digest. */
+    public static final String MANIFEST_KEY_SUFFIX = "manifest";
+
+    protected static final byte[] MANIFEST_MAGIC = "NXCHUNKS1\n".getBytes(US_ASCII);
+
+    /** Fed to the digest of a chunk before its content, so that a chunk key never collides with a whole blob key. */
+    protected static final byte[] CHUNK_DIGEST_PREFIX = "NXCHUNK\0".getBytes(US_ASCII);
+
+    /** Random values for the gear hash, fixed so that chunk boundaries are stable across restarts. */
+    protected static final long[] GEAR = new long[256];
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x4e58434843L);
+        for (int i = 0; i < GEAR.length; i++) {
+            GEAR[i] = random.nextLong();
+        }
+    }
+
+    protected final BlobStore store;
+
+    protected final ChunkingConfiguration config;
+
+    protected final String digestAlgorithm;
+
+    /** Mask on the high bits of the gear hash, which depend on the most bytes. */
+    protected final long cutMask;
+
+    protected final ChunkedBinaryGarbageCollector gc;
+
+    public ChunkedBlobStore(String name, BlobStore store, ChunkingConfiguration config) {
+        super(name, store.getKeyStrategy());
+        if (!(keyStrategy instanceof KeyStrategyDigest)) {
+            throw new NuxeoException("Chunking requires a digest key strategy, in blob store: " + store.getName());
+        }
+        this.store = store;
+        this.config = config;
+        digestAlgorithm = ((KeyStrategyDigest) keyStrategy).digestAlgorithm;
+        cutMask = -1L << (Long.SIZE - Integer.numberOfTrailingZeros(config.averageSize));
+        gc = new ChunkedBinaryGarbageCollector(store.getBinaryGarbageCollector());
+    }
+
+    @Override
+    public boolean hasVersioning() {
+        return false;
+    }
+
+    @Override
+    public String writeBlob(BlobWriteContext blobWriteContext) throws IOException {
+        List<String> chunks;
+        try (InputStream in = blobWriteContext.getStream()) {
+            chunks = writeChunks(in, blobWriteContext.writeObserver);
+        }
+        String key = blobWriteContext.getKey(); // may depend on write observer, for example for digests
+        return writeManifest(key, chunks, blobWriteContext.blobContext);
+    }
+
+    @Override
+    public boolean copyBlobIsOptimized(BlobStore sourceStore) {
+        return false;
+    }
+
+    @Override
+    public boolean copyBlob(String key, BlobStore sourceStore, String sourceKey, boolean atomicMove)
+            throws IOException {
+        OptionalOrUnknown<InputStream> streamOpt = sourceStore.getStream(sourceKey);
+        List<String> chunks;
+        if (streamOpt.isPresent()) {
+            try (InputStream in = streamOpt.get()) {
+                chunks = writeChunks(in, null);
+            }
+        } else if (streamOpt.isMissing()) {
+            return false;
+        } else {
+            // no stream, go through a temporary file
+            Path tmp = Framework.createTempFilePath("bin_", ".tmp");
+            try {
+                if (!sourceStore.readBlob(sourceKey, tmp)) {
+                    return false;
+                }
+                try (InputStream in = Files.newInputStream(tmp)) {
+                    chunks = writeChunks(in, null);
+                }
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+        writeManifest(key, chunks, null);
+        if (atomicMove) {
+            sourceStore.deleteBlob(sourceKey);
+        }
+        return true;
+    }
+
+    /**
+     * Splits the stream into chunks and writes the ones that are not already present.
+     *
+     * @return the keys and lengths of the chunks, as manifest lines
+     */
+    @SuppressWarnings("resource")
+    protected List<String> writeChunks(InputStream in, WriteObserver writeObserver) throws IOException {
+        ChunkingOutputStream out = new ChunkingOutputStream();
+        transfer(in, out, writeObserver);
+        out.close();
+        return out.chunks;
+    }
+
+    protected String writeManifest(String key, List<String> chunks, BlobContext blobContext) throws IOException {
+        StringBuilder sb = new StringBuilder(new String(MANIFEST_MAGIC, US_ASCII));
+        for (String chunk : chunks) {
+            sb.append(chunk).append('\n');
+        }
+        Blob manifest = new ByteArrayBlob(sb.toString().getBytes(US_ASCII));
+        if (blobContext != null && blobContext.blob != null) {
+            manifest.setFilename(blobContext.blob.getFilename());
+            manifest.setMimeType(blobContext.blob.getMimeType());
+        }
+        BlobContext manifestContext = blobContext == null ? new BlobContext(manifest)
+                : new BlobContext(manifest, blobContext.docId, blobContext.xpath);
+        String manifestKey = getManifestKey(key);
+        logTrace("->", "write manifest of " + chunks.size() + " chunks");
+        logTrace("hnote right: " + manifestKey);
+        store.writeBlob(new BlobWriteContext(manifestContext, null, () -> manifestKey, keyStrategy));
+        gc.written(manifestKey);
+        return key;
+    }
+
+    protected static String getManifestKey(String key) {
+        return key + MANIFEST_KEY_SUFFIX;
+    }
+
+    /**
+     * Output stream splitting what it receives into content-defined chunks.
+     */
+    protected class ChunkingOutputStream extends OutputStream {
+
+        protected final byte[] buf = new byte[config.maxSize];
+
+        protected int count;
+
+        protected long hash;
+
+        protected final MessageDigest digest;
+
+        protected final Set<String> written = new HashSet<>();
+
+        protected final List<String> chunks = new ArrayList<>();
+
+        protected boolean closed;
+
+        protected ChunkingOutputStream() {
+            try {
+                digest = MessageDigest.getInstance(digestAlgorithm);
+            } catch (NoSuchAlgorithmException e) {
+                throw new NuxeoException(e);
+            }
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            buf[count++] = (byte) b;
+            hash = (hash << 1) + GEAR[b & 0xFF];
+            if (isCutPoint()) {
+                writeChunk();
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            int end = off + len;
+            for (int i = off; i < end; i++) {
+                buf[count++] = b[i];
+                hash = (hash << 1) + GEAR[b[i] & 0xFF];
+                if (isCutPoint()) {
+                    writeChunk();
+                }
+            }
+        }
+
+        protected boolean isCutPoint() {
+            return count == buf.length || (count >= config.minSize && (hash & cutMask) == 0);
+        }
+
+        protected void writeChunk() throws IOException {
+            digest.update(CHUNK_DIGEST_PREFIX);
+            digest.update(buf, 0, count);
+            String chunkKey = Hex.encodeHexString(digest.digest());
+            if (written.add(chunkKey)) {
+                Blob chunk = new ByteArrayBlob(Arrays.copyOf(buf, count));
+                // the underlying store may rewrite a chunk it already has, or skip the write
+                store.writeBlob(new BlobWriteContext(new BlobContext(chunk), null, () -> chunkKey, keyStrategy));
+                gc.written(chunkKey);
+            }
+            chunks.add(count + " " + chunkKey);
+            count = 0;
+            hash = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (count > 0) {
+                writeChunk();
+            }
+            log.trace("Wrote {} chunks ({} distinct)", chunks.size(), written.size());
+        }
+    }
+
+    /**
+     * The chunks of a blob.
+     */
+    protected static class Manifest {
+
+        protected final String[] keys;
+
+        /** The offset of each chunk, followed by the total length. */
+        protected final long[] offsets;
+
+        protected Manifest(List<String> keys, List<Long> lengths) {
+            this.keys = keys.toArray(new String[0]);
+            offsets = new long[keys.size() + 1];
+            for (int i = 0; i < this.keys.length; i++) {
+                offsets[i + 1] = offsets[i] + lengths.get(i).longValue();
+            }
+        }
+
+        /** Finds the index of the chunk containing the given offset. */
+        protected int findChunk(long offset) {
+            int i = Arrays.binarySearch(offsets, offset);
+            return i >= 0 ? i : -i - 2;
+        }
+    }
+
+    /**
+     * Reads a manifest.
+     */
+    protected static Manifest readManifest(InputStream in) throws IOException {
+        byte[] magic = new byte[MANIFEST_MAGIC.length];
+        int n = IOUtils.read(in, magic);
+        if (n != magic.length || !Arrays.equals(magic, MANIFEST_MAGIC)) {
+            throw new IOException("Invalid chunk manifest");
+        }
+        List<String> keys = new ArrayList<>();
+        List<Long> lengths = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, US_ASCII));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            int sp = line.indexOf(' ');
+            if (sp <= 0) {
+                throw new IOException("Invalid chunk manifest line: " + line);
+            }
+            try {
+                lengths.add(Long.valueOf(line.substring(0, sp)));
+            } catch (NumberFormatException e) {
+                throw new IOException("Invalid chunk manifest line: " + line, e);
+            }
+            keys.add(line.substring(sp + 1));
+        }
+        return new Manifest(keys, lengths);
+    }
+
+    /**
+     * Gets the manifest of a blob.
+     *
+     * @return the manifest, or {@code null} if the blob was stored without chunking or is missing
+     */
+    protected Manifest getManifest(String key) throws IOException {
+        OptionalOrUnknown<InputStream> streamOpt = getStoreStream(getManifestKey(key));
+        if (!streamOpt.isPresent()) {
+            return null;
+        }
+        try (InputStream in = new BufferedInputStream(streamOpt.get())) {
+            return readManifest(in);
+        }
+    }
+
+    /**
+     * Gets a stream from the underlying store, going through a temporary file if it can't provide a stream directly.
+     */
+    protected OptionalOrUnknown<InputStream> getStoreStream(String key) throws IOException {
+        OptionalOrUnknown<InputStream> streamOpt = store.getStream(key);
+        if (streamOpt.isKnown()) {
+            return streamOpt;
+        }
+        Path tmp = Framework.createTempFilePath("bin_", ".tmp");
+        boolean found = false;
+        try {
+            found = store.readBlob(key, tmp);
+            return found ? OptionalOrUnknown.of(new AutoDeleteFileInputStream(tmp)) : OptionalOrUnknown.missing();
+        } finally {
+            if (!found) {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    @Override
+    public OptionalOrUnknown<Path> getFile(String key) {
+        // the data is spread in chunks
+        return OptionalOrUnknown.unknown();
+    }
+
+    @Override
+    public OptionalOrUnknown<InputStream> getStream(String key) throws IOException {
+        return getStream(key, null);
+    }
+
+    @SuppressWarnings("resource")
+    @Override
+    public OptionalOrUnknown<InputStream> getStream(String key, ByteRange byteRange) throws IOException {
+        Manifest manifest = getManifest(key);
+        if (manifest == null) {
+            // stored without chunking
+            if (byteRange == null) {
+                return getStoreStream(key);
+            }
+            OptionalOrUnknown<InputStream> rangeOpt = store.getStream(key, byteRange);
+            if (rangeOpt.isUnknown()) {
+                rangeOpt = getStoreStream(key);
+                if (rangeOpt.isPresent()) {
+                    rangeOpt = OptionalOrUnknown.of(byteRange.forStream(rangeOpt.get()));
+                }
+            }
+            return rangeOpt;
+        }
+        if (byteRange == null) {
+            return OptionalOrUnknown.of(new ChunksInputStream(manifest, 0));
+        }
+        // only read the chunks covering the byte range
+        int chunk = Math.max(0, manifest.findChunk(byteRange.getStart()));
+        long offset = byteRange.getStart() - manifest.offsets[chunk];
+        InputStream chunks = new ChunksInputStream(manifest, chunk);
+        return OptionalOrUnknown.of(ByteRange.inclusive(offset, offset + byteRange.getLength() - 1).forStream(chunks));
+    }
+
+    /**
+     * Input stream reading the chunks of a manifest in sequence, opening each one when needed.
+     */
+    protected class ChunksInputStream extends InputStream {
+
+        protected final Manifest manifest;
+
+        protected int index;
+
+        protected InputStream current;
+
+        protected ChunksInputStream(Manifest manifest, int index) {
+            this.manifest = manifest;
+            this.index = index;
+        }
+
+        /** Opens the next chunk, returns {@code false} if there is none. */
+        protected boolean nextChunk() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+            if (index >= manifest.keys.length) {
+                return false;
+            }
+            String chunkKey = manifest.keys[index++];
+            OptionalOrUnknown<InputStream> streamOpt = getStoreStream(chunkKey);
+            if (!streamOpt.isPresent()) {
+                throw new IOException("Missing chunk: " + chunkKey);
+            }
+            current = streamOpt.get();
+            return true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            while (true) {
+                if (current != null) {
+                    int b = current.read();
+                    if (b >= 0) {
+                        return b;
+                    }
+                }
+                if (!nextChunk()) {
+                    return -1;
+                }
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (true) {
+                if (current != null) {
+                    int n = current.read(b, off, len);
+                    if (n >= 0) {
+                        return n;
+                    }
+                }
+                if (!nextChunk()) {
+                    return -1;
+                }
+            }
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            // skip whole chunks without opening them
+            if (current == null && n > 0) {
+                long skipped = 0;
+                while (index < manifest.keys.length) {
+                    long length = manifest.offsets[index + 1] - manifest.offsets[index];
+                    if (skipped + length > n) {
+                        break;
+                    }
+                    skipped += length;
+                    index++;
+                }
+                if (skipped > 0) {
+                    return skipped;
+                }
+            }
+            while (true) {
+                if (current != null) {
+                    long skipped = current.skip(n);
+                    if (skipped > 0) {
+                        return skipped;
+                    }
+                    if (current.read() >= 0) {
+                        return 1;
+                    }
+                }
+                if (!nextChunk()) {
+                    return 0;
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+            index = manifest.keys.length;
+        }
+    }
+
+    @Override
+    public boolean readBlob(String key, Path dest) throws IOException {
+        OptionalOrUnknown<InputStream> streamOpt = getStream(key);
+        if (streamOpt.isPresent()) {
+            try (InputStream stream = streamOpt.get()) {
+                Files.copy(stream, dest, REPLACE_EXISTING);
+            }
+            return true;
+        } else if (streamOpt.isMissing()) {
+            return false;
+        } else {
+            // this implementation never returns unknown
+            throw new IllegalStateException("stream should always be known");
+        }
+    }
+
+    @Override
+    public void writeBlobProperties(BlobUpdateContext blobUpdateContext) throws IOException {
+        store.writeBlobProperties(blobUpdateContext);
+    }
+
+    @Override
+    public void deleteBlob(String key) {
+        // chunks may be shared with other blobs, they're removed by the GC
+        store.deleteBlob(getManifestKey(key));
+        store.deleteBlob(key);
+    }
+
+    @Override
+    public BinaryGarbageCollector getBinaryGarbageCollector() {
+        return gc;
+    }
+
+    /**
+     * Garbage collector that delegates to the underlying one, and also marks the manifest and chunks of each marked
+     * blob.
+     * <p>
+     * The chunks and manifests written while the collection is in progress are marked before the sweep, because a
+     * chunk reused by a new blob may be older than the start of the collection. Those written during the sweep itself,
+     * or on other servers, are only kept if the underlying store keeps recently written blobs.
+     */
+    public class ChunkedBinaryGarbageCollector implements BinaryGarbageCollector {
+
+        protected final BinaryGarbageCollector delegate;
+
+        /** The keys written since the start of the collection, or {@code null} if it's not in progress. */
+        protected Set<String> written;
+
+        public ChunkedBinaryGarbageCollector(BinaryGarbageCollector delegate) {
+            this.delegate = delegate;
+        }
+
+        /**
+         * Records the write of a chunk or manifest, so that it's marked if a collection is in progress.
+         */
+        protected synchronized void written(String key) {
+            if (written != null) {
+                written.add(key);
+            }
+        }
+
+        @Override
+        public String getId() {
+            return delegate.getId();
+        }
+
+        @Override
+        public void start() {
+            delegate.start();
+            synchronized (this) {
+                written = new HashSet<>();
+            }
+        }
+
+        @Override
+        public void mark(String key) {
+            delegate.mark(key);
+            delegate.mark(getManifestKey(key));
+            Manifest manifest;
+            try {
+                manifest = getManifest(key);
+            } catch (IOException e) {
+                // abort the GC rather than deleting the chunks of a blob we failed to read
+                throw new NuxeoException("Cannot read chunk manifest for blob: " + key, e);
+            }
+            if (manifest != null) {
+                for (String chunkKey : manifest.keys) {
+                    delegate.mark(chunkKey);
+                }
+            }
+        }
+
+        @Override
+        public void stop(boolean delete) {
+            Set<String> keys;
+            synchronized (this) {
+                keys = written;
+                written = null;
+            }
+            if (keys != null) {
+                keys.forEach(delegate::mark);
+            }
+            delegate.stop(delete);
+        }
+
+        @Override
+        public BinaryManagerStatus getStatus() {
+            return delegate.getStatus();
+        }
+
+        @Override
+        public boolean isInProgress() {
+            return delegate.isInProgress();
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.blob;
+
+import java.util.Map;
+
+import org.nuxeo.common.utils.SizeUtils;
+import org.nuxeo.ecm.core.api.NuxeoException;
+
+/**
+ * Configuration for the content-defined chunking of blobs.
+ *
+ * @since 11.5
+ */
+public class ChunkingConfiguration extends PropertyBasedConfiguration {
+
+    /** Enables content-defined chunking for a blob provider using a digest key strategy. */
+    public static final String CHUNKING_PROPERTY = "chunking";
+
+    /** The average size of the chunks, the actual sizes are between a quarter and four times this size. */
+    public static final String CHUNKING_AVERAGE_SIZE_PROPERTY = "chunking.averagesize";
+
+    public static final String DEFAULT_CHUNKING_AVERAGE_SIZE = "64 kb";
+
+    protected static final long MIN_AVERAGE_SIZE = 256;
+
+    protected static final long MAX_AVERAGE_SIZE = 4 * 1024 * 1024;
+
+    public final int minSize;
+
+    public final int averageSize;
+
+    public final int maxSize;
+
+    public ChunkingConfiguration(String systemPropertyPrefix, Map<String, String> properties) {
+        super(systemPropertyPrefix, properties);
+        String averageSizeProp = getProperty(CHUNKING_AVERAGE_SIZE_PROPERTY, DEFAULT_CHUNKING_AVERAGE_SIZE);
+        long size = SizeUtils.parseSizeInBytes(averageSizeProp);
+        if (size < MIN_AVERAGE_SIZE || size > MAX_AVERAGE_SIZE) {
+            throw new NuxeoException("Invalid " + CHUNKING_AVERAGE_SIZE_PROPERTY + ": " + averageSizeProp);
+        }
+        // round to a power of two, as the cut point detection uses a bit mask
+        averageSize = Integer.highestOneBit((int) size);
+        minSize = averageSize / 4;
+        maxSize = averageSize * 4;
+    }
+
+    public ChunkingConfiguration(int minSize, int averageSize, int maxSize) {
+        super(null, null);
+        if (Integer.bitCount(averageSize) != 1 || minSize > averageSize || maxSize < averageSize) {
+            throw new IllegalArgumentException(minSize + " / " + averageSize + " / " + maxSize);
+        }
+        this.minSize = minSize;
+        this.averageSize = averageSize;
+        this.maxSize = maxSize;
+    }
+
+}
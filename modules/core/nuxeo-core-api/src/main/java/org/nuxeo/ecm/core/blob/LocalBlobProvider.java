@@ -27,6 +27,9 @@ import org.apache.logging.log4j.Logger;
 
 /**
  * A simple blob provider storing blobs on the local filesystem.
+ * <p>
+ * When the {@value ChunkingConfiguration#CHUNKING_PROPERTY} property is enabled and a digest is used as key, blobs are
+ * split into content-defined chunks stored separately, so that blobs sharing most of their content share storage.
  *
  * @since 11.1
  */
@@ -48,6 +51,9 @@ public class LocalBlobProvider extends BlobStoreBlobProvider {
             pathStrategy = new PathStrategyFlat(config.storageDir);
         }
         BlobStore store = newBlobStore("File", keyStrategy, pathStrategy);
+        if (keyStrategy.useDeDuplication() && config.getBooleanProperty(ChunkingConfiguration.CHUNKING_PROPERTY)) {
+            store = new ChunkedBlobStore("Chunked", store, new ChunkingConfiguration(null, properties));
+        }
         if (isTransactional()) {
             PathStrategy transientPathStrategy = new PathStrategyFlat(config.tmpDir);
             BlobStore transientStore = new LocalBlobStore("File_tmp", keyStrategy, transientPathStrategy);
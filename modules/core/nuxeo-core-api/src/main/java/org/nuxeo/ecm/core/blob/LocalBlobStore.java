@@ -22,13 +22,18 @@ import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
 import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 
 import java.io.BufferedInputStream;
-import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.RandomAccessFile;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -218,109 +223,125 @@ public class LocalBlobStore extends AbstractBlobStore {
         return gc;
     }
 
-    public class LocalBlobGarbageCollector implements BinaryGarbageCollector {
+    /**
+     * Garbage collector for a local blob store.
+     * <p>
+     * Marked keys are recorded in a {@link MarkedBlobKeys}, then each top-level subdirectory of the storage directory is
+     * swept in parallel. Files modified less than {@link #TIME_RESOLUTION} before the start of the GC are never
+     * collected, as they may have been written after the marking of the documents referencing them.
+     */
+    public class LocalBlobGarbageCollector extends AbstractBlobGarbageCollector {
 
         /**
          * Windows FAT filesystems have a time resolution of 2s. Other common filesystems have 1s.
          */
         public static final long TIME_RESOLUTION = 2000;
 
-        protected volatile long startTime;
-
-        protected BinaryManagerStatus status;
-
         @Override
         public String getId() {
             return pathStrategy.dir.toUri().toString();
         }
 
         @Override
-        public BinaryManagerStatus getStatus() {
-            return status;
-        }
-
-        @Override
-        public boolean isInProgress() {
-            // volatile as this is designed to be called from another thread
-            return startTime != 0;
-        }
-
-        @Override
-        public void start() {
-            if (startTime != 0) {
-                throw new NuxeoException("Already started");
-            }
-            startTime = System.currentTimeMillis();
-            status = new BinaryManagerStatus();
-        }
-
-        @Override
-        public void mark(String key) {
-            OptionalOrUnknown<Path> fileOpt = getStoredFile(key);
-            if (!fileOpt.isPresent()) {
-                log.warn("Unknown blob for key: " + key);
+        public void removeUnmarkedBlobsAndUpdateStatus(boolean delete) {
+            long minTime = startTime - TIME_RESOLUTION;
+            Path dir = pathStrategy.dir;
+            List<Path> shards = new ArrayList<>();
+            BinaryManagerStatus topStatus = new BinaryManagerStatus();
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir)) {
+                for (Path path : ds) {
+                    if (Files.isDirectory(path)) {
+                        shards.add(path);
+                    } else {
+                        // flat path strategy, or short keys
+                        sweepFile(path, minTime, delete, topStatus);
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                // nothing stored yet
                 return;
+            } catch (IOException e) {
+                throw new NuxeoException("Cannot list: " + dir, e);
             }
-            // mark the blob by touching the file
-            touch(fileOpt.get().toFile());
+            addStatus(topStatus);
+            sweepShards(shards, shard -> sweepDirectory(shard, minTime, delete));
         }
 
-        @Override
-        public void stop(boolean delete) {
-            if (startTime == 0) {
-                throw new NuxeoException("Not started");
-            }
-            deleteOld(pathStrategy.dir.toFile(), startTime - TIME_RESOLUTION, 0, delete);
-            status.gcDuration = System.currentTimeMillis() - startTime;
-            startTime = 0;
-        }
+        protected BinaryManagerStatus sweepDirectory(Path shard, long minTime, boolean delete) {
+            BinaryManagerStatus shardStatus = new BinaryManagerStatus();
+            try {
+                Files.walkFileTree(shard, new SimpleFileVisitor<Path>() {
 
-        protected void deleteOld(File file, long minTime, int depth, boolean delete) {
-            if (file.isDirectory()) {
-                for (File f : file.listFiles()) {
-                    deleteOld(f, minTime, depth + 1, delete);
-                }
-                if (depth > 0 && file.list().length == 0) {
-                    // empty directory
-                    file.delete(); // NOSONAR
-                }
-            } else if (file.isFile() && file.canWrite()) {
-                long lastModified = file.lastModified();
-                long length = file.length();
-                if (lastModified == 0) {
-                    log.warn("Cannot read last modified for file: " + file);
-                } else if (lastModified < minTime) {
-                    status.sizeBinariesGC += length;
-                    status.numBinariesGC++;
-                    if (delete && !file.delete()) { // NOSONAR
-                        log.warn("Cannot gc file: " + file);
+                    @Override
+                    public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                        sweepFile(file, attrs, minTime, delete, shardStatus);
+                        return FileVisitResult.CONTINUE;
                     }
-                } else {
-                    status.sizeBinaries += length;
-                    status.numBinaries++;
-                }
+
+                    @Override
+                    public FileVisitResult visitFileFailed(Path file, IOException e) {
+                        log.warn("Cannot read file: " + file, e);
+                        return FileVisitResult.CONTINUE;
+                    }
+
+                    @Override
+                    public FileVisitResult postVisitDirectory(Path d, IOException e) {
+                        if (delete) {
+                            try {
+                                Files.delete(d);
+                                // empty directory
+                            } catch (DirectoryNotEmptyException | NoSuchFileException ee) {
+                                // still in use
+                            } catch (IOException ee) {
+                                log.warn("Cannot delete directory: " + d, ee);
+                            }
+                        }
+                        return FileVisitResult.CONTINUE;
+                    }
+                });
+            } catch (IOException e) {
+                throw new NuxeoException("Cannot sweep: " + shard, e);
             }
+            return shardStatus;
         }
 
-        /** Sets the last modification date to now on a file. */
-        protected void touch(File file) {
-            long time = System.currentTimeMillis();
-            if (file.setLastModified(time)) {
-                // ok
+        protected void sweepFile(Path file, long minTime, boolean delete, BinaryManagerStatus shardStatus) {
+            BasicFileAttributes attrs;
+            try {
+                attrs = Files.readAttributes(file, BasicFileAttributes.class);
+            } catch (NoSuchFileException e) {
+                return;
+            } catch (IOException e) {
+                log.warn("Cannot read file: " + file, e);
                 return;
             }
-            if (!file.canWrite()) {
-                // cannot write -> stop won't be able to delete anyway
+            sweepFile(file, attrs, minTime, delete, shardStatus);
+        }
+
+        protected void sweepFile(Path file, BasicFileAttributes attrs, long minTime, boolean delete,
+                BinaryManagerStatus shardStatus) {
+            if (!attrs.isRegularFile()) {
                 return;
             }
-            try {
-                // Windows: the file may be open for reading
-                // workaround found by Thomas Mueller, see JCR-2872
-                try (RandomAccessFile r = new RandomAccessFile(file, "rw")) {
-                    r.setLength(r.length());
+            long length = attrs.size();
+            long lastModified = attrs.lastModifiedTime().toMillis();
+            if (marked.contains(file.getFileName().toString()) || lastModified >= minTime) {
+                shardStatus.sizeBinaries += length;
+                shardStatus.numBinaries++;
+            } else if (lastModified == 0) {
+                log.warn("Cannot read last modified for file: " + file);
+            } else {
+                shardStatus.sizeBinariesGC += length;
+                shardStatus.numBinariesGC++;
+                if (delete) {
+                    try {
+                        Files.delete(file);
+                    } catch (NoSuchFileException e) {
+                        // already removed
+                    } catch (IOException e) {
+                        log.warn("Cannot gc file: " + file, e);
+                    }
                 }
-            } catch (IOException e) {
-                log.warn("Cannot set last modified for file: " + file, e);
             }
         }
 
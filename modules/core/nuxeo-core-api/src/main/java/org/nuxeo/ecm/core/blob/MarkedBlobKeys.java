@@ -0,0 +1,436 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.blob;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.runtime.api.Framework;
+
+/**
+ * Compact set of the blob keys marked during a garbage collection.
+ * <p>
+ * While marking, keys are buffered in memory and spilled to sorted temporary files when the buffer is full. Once marking
+ * is done, {@link #seal} merges everything into a single sorted sequence, kept in memory if it is small enough or in a
+ * temporary file with a sparse in-memory index otherwise, and builds a Bloom filter sized for the actual number of keys.
+ * Lookups for keys that were not marked are then usually answered by the Bloom filter alone, and the other ones are
+ * confirmed by an exact lookup in the sorted keys.
+ * <p>
+ * Marking is thread-safe, lookups are thread-safe once sealed.
+ *
+ * @since 11.5
+ */
+public class MarkedBlobKeys implements Closeable {
+
+    private static final Logger log = LogManager.getLogger(MarkedBlobKeys.class);
+
+    /** Default maximum number of keys kept in memory before spilling them to disk. */
+    public static final int DEFAULT_MAX_IN_MEMORY = 200_000;
+
+    /** Number of keys between two entries of the sparse index of the spilled keys. */
+    protected static final int INDEX_INTERVAL = 64;
+
+    /** Bits per key of the Bloom filter, giving a false positive rate of about 1%. */
+    protected static final int BLOOM_BITS_PER_KEY = 10;
+
+    protected static final int BLOOM_HASHES = 7;
+
+    protected final int maxInMemory;
+
+    protected List<String> buffer = new ArrayList<>();
+
+    protected final List<Path> runs = new ArrayList<>();
+
+    protected volatile boolean sealed;
+
+    protected long size;
+
+    // sealed state: keys in memory
+
+    protected String[] keys;
+
+    // sealed state: keys spilled to disk
+
+    protected Path merged;
+
+    protected FileChannel channel;
+
+    protected long mergedLength;
+
+    protected String[] indexKeys;
+
+    protected long[] indexOffsets;
+
+    protected long[] bloom;
+
+    protected long bloomBits;
+
+    public MarkedBlobKeys() {
+        this(DEFAULT_MAX_IN_MEMORY);
+    }
+
+    public MarkedBlobKeys(int maxInMemory) {
+        this.maxInMemory = maxInMemory;
+    }
+
+    /**
+     * Marks a key.
+     */
+    public synchronized void add(String key) {
+        if (sealed) {
+            throw new IllegalStateException("Already sealed");
+        }
+        buffer.add(key);
+        if (buffer.size() >= maxInMemory) {
+            spill();
+        }
+    }
+
+    /**
+     * Returns the number of distinct marked keys, only available once sealed.
+     */
+    public long size() {
+        checkSealed();
+        return size;
+    }
+
+    /**
+     * Ends marking and prepares the keys for lookup.
+     */
+    public synchronized void seal() {
+        if (sealed) {
+            return;
+        }
+        if (runs.isEmpty()) {
+            keys = sortedDistinct(buffer);
+            size = keys.length;
+            initBloom(size);
+            for (String key : keys) {
+                addToBloom(key);
+            }
+        } else {
+            if (!buffer.isEmpty()) {
+                spill();
+            }
+            merge();
+        }
+        buffer = null;
+        sealed = true;
+        log.debug("Sealed {} marked keys, spilled: {}", size, merged != null);
+    }
+
+    /**
+     * Checks if a key was marked.
+     */
+    public boolean contains(String key) {
+        checkSealed();
+        if (!mayContain(key)) {
+            return false;
+        }
+        if (keys != null) {
+            return Arrays.binarySearch(keys, key) >= 0;
+        }
+        return containsSpilled(key);
+    }
+
+    @Override
+    public synchronized void close() {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                log.error(e, e);
+            }
+            channel = null;
+        }
+        for (Path run : runs) {
+            deleteQuietly(run);
+        }
+        runs.clear();
+        if (merged != null) {
+            deleteQuietly(merged);
+            merged = null;
+        }
+        buffer = null;
+        keys = null;
+        indexKeys = null;
+        indexOffsets = null;
+        bloom = null;
+    }
+
+    protected void checkSealed() {
+        if (!sealed) {
+            throw new IllegalStateException("Not sealed");
+        }
+    }
+
+    protected static String[] sortedDistinct(List<String> list) {
+        String[] array = list.toArray(new String[0]);
+        Arrays.sort(array);
+        int n = 0;
+        for (int i = 0; i < array.length; i++) {
+            if (n == 0 || !array[i].equals(array[n - 1])) {
+                array[n++] = array[i];
+            }
+        }
+        return n == array.length ? array : Arrays.copyOf(array, n);
+    }
+
+    /** Writes the buffered keys, sorted, to a new run file. */
+    protected void spill() {
+        String[] sorted = sortedDistinct(buffer);
+        buffer = new ArrayList<>();
+        try {
+            Path run = Framework.createTempFilePath("nxgc_", ".tmp");
+            runs.add(run);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run)))) {
+                for (String key : sorted) {
+                    writeKey(out, key);
+                }
+            }
+            log.trace("Spilled {} marked keys to: {}", sorted.length, run);
+        } catch (IOException e) {
+            throw new NuxeoException("Cannot spill marked keys", e);
+        }
+    }
+
+    protected static class Run implements Comparable<Run> {
+
+        protected final DataInputStream in;
+
+        protected String current;
+
+        protected Run(Path path) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)));
+        }
+
+        protected boolean next() throws IOException {
+            current = readKey(in);
+            return current != null;
+        }
+
+        @Override
+        public int compareTo(Run other) {
+            return current.compareTo(other.current);
+        }
+    }
+
+    /** Merges all the runs into a single sorted file, building its sparse index. */
+    protected void merge() {
+        List<Run> readers = new ArrayList<>();
+        PriorityQueue<Run> queue = new PriorityQueue<>();
+        List<String> ikeys = new ArrayList<>();
+        List<Long> ioffsets = new ArrayList<>();
+        try {
+            merged = Framework.createTempFilePath("nxgc_", ".tmp");
+            for (Path path : runs) {
+                Run run = new Run(path);
+                readers.add(run);
+                if (run.next()) {
+                    queue.add(run);
+                }
+            }
+            long offset = 0;
+            String last = null;
+            try (DataOutputStream out = new DataOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(merged)))) {
+                while (!queue.isEmpty()) {
+                    Run run = queue.poll();
+                    String key = run.current;
+                    if (run.next()) {
+                        queue.add(run);
+                    }
+                    if (key.equals(last)) {
+                        continue;
+                    }
+                    if (size % INDEX_INTERVAL == 0) {
+                        ikeys.add(key);
+                        ioffsets.add(Long.valueOf(offset));
+                    }
+                    offset += writeKey(out, key);
+                    size++;
+                    last = key;
+                }
+            }
+            mergedLength = offset;
+        } catch (IOException e) {
+            throw new NuxeoException("Cannot merge marked keys", e);
+        } finally {
+            for (Run run : readers) {
+                try {
+                    run.in.close();
+                } catch (IOException e) {
+                    log.error(e, e);
+                }
+            }
+            for (Path run : runs) {
+                deleteQuietly(run);
+            }
+            runs.clear();
+        }
+        indexKeys = ikeys.toArray(new String[0]);
+        indexOffsets = ioffsets.stream().mapToLong(Long::longValue).toArray();
+        // second pass to build the bloom filter now that the number of keys is known
+        initBloom(size);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(merged)))) {
+            String key;
+            while ((key = readKey(in)) != null) {
+                addToBloom(key);
+            }
+            channel = FileChannel.open(merged, StandardOpenOption.READ);
+        } catch (IOException e) {
+            throw new NuxeoException("Cannot read marked keys", e);
+        }
+    }
+
+    protected boolean containsSpilled(String key) {
+        int i = Arrays.binarySearch(indexKeys, key);
+        if (i >= 0) {
+            return true;
+        }
+        int block = -i - 2; // last index key lower than the key
+        if (block < 0) {
+            return false;
+        }
+        long start = indexOffsets[block];
+        long end = block + 1 < indexOffsets.length ? indexOffsets[block + 1] : mergedLength;
+        ByteBuffer buf = ByteBuffer.allocate((int) (end - start));
+        try {
+            while (buf.hasRemaining()) {
+                // positional read, safe for concurrent use
+                if (channel.read(buf, start + buf.position()) < 0) {
+                    break;
+                }
+            }
+        } catch (IOException e) {
+            throw new NuxeoException("Cannot read marked keys", e);
+        }
+        buf.flip();
+        while (buf.remaining() >= 2) {
+            byte[] bytes = new byte[buf.getShort() & 0xFFFF];
+            buf.get(bytes);
+            int cmp = new String(bytes, UTF_8).compareTo(key);
+            if (cmp == 0) {
+                return true;
+            } else if (cmp > 0) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    protected static int writeKey(DataOutputStream out, String key) throws IOException {
+        byte[] bytes = key.getBytes(UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+        return 2 + bytes.length;
+    }
+
+    protected static String readKey(DataInputStream in) throws IOException {
+        int length;
+        try {
+            length = in.readUnsignedShort();
+        } catch (EOFException e) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    protected void initBloom(long n) {
+        bloomBits = Math.max(64, n * BLOOM_BITS_PER_KEY);
+        bloom = new long[(int) ((bloomBits + 63) / 64)];
+        bloomBits = bloom.length * 64L;
+    }
+
+    protected void addToBloom(String key) {
+        long h1 = hash(key);
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bloomBits);
+            bloom[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    protected boolean mayContain(String key) {
+        long h1 = hash(key);
+        long h2 = mix(h1) | 1;
+        for (int i = 0; i < BLOOM_HASHES; i++) {
+            long bit = Long.remainderUnsigned(h1 + i * h2, bloomBits);
+            if ((bloom[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** 64-bit FNV-1a hash. */
+    protected static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /** Finalization step of MurmurHash3, used to derive a second hash. */
+    protected static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53aed63L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    protected static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.error(e, e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + "(" + (sealed ? size + " keys" : "marking") + ")";
+    }
+
+}
@@ -21,10 +21,21 @@ package org.nuxeo.ecm.core.blob;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import javax.transaction.Status;
 import javax.transaction.Synchronization;
@@ -36,9 +47,17 @@ import org.apache.logging.log4j.Logger;
 import org.nuxeo.ecm.core.api.ConcurrentUpdateException;
 import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.blob.binary.BinaryGarbageCollector;
+import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.jtajca.NuxeoContainer;
 import org.nuxeo.runtime.transaction.TransactionHelper;
 
+import com.google.common.util.concurrent.Uninterruptibles;
+
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+import io.dropwizard.metrics5.Timer;
+
 /**
  * Transactional Blob Store.
  * <p>
@@ -47,6 +66,10 @@ import org.nuxeo.runtime.transaction.TransactionHelper;
  * <p>
  * It is important that a copy operation between the transient store and the permanent store be extremely fast and never fail, as it
  * will be done during commit.
+ * <p>
+ * When a transaction commits several blobs, the copies are issued concurrently on a bounded thread pool, see
+ * {@link #COMMIT_THREADS_PROP}. The commit still waits for all of them, so that the blobs are in the permanent store
+ * once the transaction is complete.
  *
  * @since 11.1
  */
@@ -54,6 +77,19 @@ public class TransactionalBlobStore extends AbstractBlobStore implements Synchro
 
     private static final Logger log = LogManager.getLogger(TransactionalBlobStore.class);
 
+    /**
+     * Framework property for the number of threads used to copy the blobs of a transaction to the permanent store at
+     * commit time. A value of 1 does the copies sequentially on the committing thread.
+     *
+     * @since 11.5
+     */
+    public static final String COMMIT_THREADS_PROP = "nuxeo.blobstore.transactional.commit.threads";
+
+    /** @since 11.5 */
+    public static final int DEFAULT_COMMIT_THREADS = 4;
+
+    protected static final String METRICS_REGISTRY_NAME = "org.nuxeo.runtime.metrics.MetricsService";
+
     public final BlobStore store;
 
     // may be the same as the permanent store if it has versioning
@@ -82,6 +118,15 @@ public class TransactionalBlobStore extends AbstractBlobStore implements Synchro
         return DELETE_MARKER.equals(transientKey);
     }
 
+    /** Duration of the whole commit of the blobs of a transaction. */
+    protected final Timer commitTimer;
+
+    /** Duration of the copy of one blob to the permanent store. */
+    protected final Timer copyTimer;
+
+    // created on first concurrent commit
+    protected volatile ExecutorService commitExecutor;
+
     public TransactionalBlobStore(BlobStore store, BlobStore transientStore) {
         super("tx", store.getKeyStrategy());
         this.store = store;
@@ -89,6 +134,11 @@ public class TransactionalBlobStore extends AbstractBlobStore implements Synchro
         if (store.hasVersioning() && transientStore != store) {
             throw new NuxeoException("If the store has versioning then it must be also the transient store");
         }
+        MetricRegistry registry = SharedMetricRegistries.getOrCreate(METRICS_REGISTRY_NAME);
+        commitTimer = registry.timer(MetricName.build("nuxeo", "blobstores", "blobstore", "commit")
+                                               .tagged("blobstore", store.getName()));
+        copyTimer = registry.timer(MetricName.build("nuxeo", "blobstores", "blobstore", "commit", "copy")
+                                             .tagged("blobstore", store.getName()));
     }
 
     @Override
@@ -178,6 +228,25 @@ public class TransactionalBlobStore extends AbstractBlobStore implements Synchro
         return store.getStream(key);
     }
 
+    @Override
+    public OptionalOrUnknown<InputStream> getStream(String key, ByteRange byteRange) throws IOException {
+        if (TransactionHelper.isTransactionActive() && getTransientKey(key) != null) {
+            // blob written or deleted in the transaction
+            return super.getStream(key, byteRange);
+        }
+        // check permanent store
+        return store.getStream(key, byteRange);
+    }
+
+    @Override
+    public void prefetch(Collection<String> keys) {
+        if (TransactionHelper.isTransactionActive()) {
+            // blobs written or deleted in the transaction are not in the permanent store
+            keys = keys.stream().filter(key -> getTransientKey(key) == null).collect(Collectors.toList());
+        }
+        store.prefetch(keys);
+    }
+
     @Override
     public boolean readBlob(String key, Path file) throws IOException {
         if (TransactionHelper.isTransactionActive()) {
@@ -295,42 +364,7 @@ public class TransactionalBlobStore extends AbstractBlobStore implements Synchro
             if (status == Status.STATUS_COMMITTED) {
                 logTrace("== TX commit ==");
                 // move transient files to permanent store
-                for (Entry<String, TransientInfo> en : map.entrySet()) {
-                    String key = en.getKey();
-                    TransientInfo info = en.getValue();
-                    // apply create/delete
-                    String transientKey = info.transientKey;
-                    if (transientKey != null) {
-                        if (isDeleteMarker(transientKey)) {
-                            store.deleteBlob(key);
-                        } else {
-                            // with versioning, the blob already has its final key
-                            // without versioning, atomically move to permanent store
-                            if (!hasVersioning()) {
-                                try {
-                                    boolean found = store.copyBlob(key, transientStore, transientKey, true);
-                                    if (!found) {
-                                        log.error("Missing blob from transient blob store: " + transientKey
-                                                + ", failed to commit creation of file: " + key);
-                                        continue;
-                                    }
-                                } catch (IOException e) {
-                                    log.error("Failed to commit creation of blob: " + key, e);
-                                    continue;
-                                }
-                            }
-                        }
-                    }
-                    // apply updates
-                    BlobUpdateContext blobUpdateContext = info.blobUpdateContext;
-                    if (blobUpdateContext != null) {
-                        try {
-                            store.writeBlobProperties(blobUpdateContext);
-                        } catch (IOException e) {
-                            log.error("Failed to commit update of blob: " + key, e);
-                        }
-                    }
-                }
+                commit(map);
             } else if (status == Status.STATUS_ROLLEDBACK) {
                 logTrace("== TX rollback ==");
                 // delete transient files
@@ -349,4 +383,120 @@ public class TransactionalBlobStore extends AbstractBlobStore implements Synchro
         }
     }
 
+    /**
+     * Applies the operations of a committed transaction to the permanent store.
+     * <p>
+     * Each key is handled independently, so the keys are committed concurrently when there are several of them.
+     *
+     * @since 11.5
+     */
+    @SuppressWarnings("resource") // timerContext closed by stop() in finally
+    protected void commit(Map<String, TransientInfo> map) {
+        Timer.Context timerContext = commitTimer.time();
+        try {
+            int threads = getCommitThreads();
+            if (threads <= 1 || map.size() <= 1) {
+                map.forEach(this::commit);
+                return;
+            }
+            ExecutorService executor = getCommitExecutor(threads);
+            List<Future<?>> futures = new ArrayList<>(map.size());
+            for (Entry<String, TransientInfo> en : map.entrySet()) {
+                futures.add(executor.submit(() -> commit(en.getKey(), en.getValue())));
+            }
+            // wait for all the copies, even if interrupted, as the keys must be in the permanent store afterwards
+            for (Future<?> future : futures) {
+                try {
+                    Uninterruptibles.getUninterruptibly(future);
+                } catch (ExecutionException e) {
+                    log.error("Failed to commit blob", e.getCause());
+                }
+            }
+        } finally {
+            long duration = timerContext.stop();
+            log.debug("Committed {} blobs in {} ms", map.size(), TimeUnit.NANOSECONDS.toMillis(duration));
+        }
+    }
+
+    /**
+     * Applies the operations of a committed transaction on one key to the permanent store.
+     *
+     * @since 11.5
+     */
+    protected void commit(String key, TransientInfo info) {
+        // apply create/delete
+        String transientKey = info.transientKey;
+        if (transientKey != null) {
+            if (isDeleteMarker(transientKey)) {
+                store.deleteBlob(key);
+            } else {
+                // with versioning, the blob already has its final key
+                // without versioning, atomically move to permanent store
+                if (!hasVersioning()) {
+                    try (Timer.Context timerContext = copyTimer.time()) {
+                        boolean found = store.copyBlob(key, transientStore, transientKey, true);
+                        if (!found) {
+                            log.error("Missing blob from transient blob store: " + transientKey
+                                    + ", failed to commit creation of file: " + key);
+                            return;
+                        }
+                    } catch (IOException e) {
+                        log.error("Failed to commit creation of blob: " + key, e);
+                        return;
+                    }
+                }
+            }
+        }
+        // apply updates
+        BlobUpdateContext blobUpdateContext = info.blobUpdateContext;
+        if (blobUpdateContext != null) {
+            try {
+                store.writeBlobProperties(blobUpdateContext);
+            } catch (IOException e) {
+                log.error("Failed to commit update of blob: " + key, e);
+            }
+        }
+    }
+
+    /** @since 11.5 */
+    protected int getCommitThreads() {
+        String value = Framework.getProperty(COMMIT_THREADS_PROP);
+        if (value == null) {
+            return DEFAULT_COMMIT_THREADS;
+        }
+        try {
+            return Integer.parseInt(value.trim());
+        } catch (NumberFormatException e) {
+            log.error("Invalid value for {}: {}", COMMIT_THREADS_PROP, value);
+            return DEFAULT_COMMIT_THREADS;
+        }
+    }
+
+    /**
+     * Gets the executor for concurrent commits, shared by all the transactions. Its threads stop when idle.
+     *
+     * @since 11.5
+     */
+    protected ExecutorService getCommitExecutor(int threads) {
+        ExecutorService executor = commitExecutor;
+        if (executor == null) {
+            synchronized (this) {
+                executor = commitExecutor;
+                if (executor == null) {
+                    AtomicInteger threadNumber = new AtomicInteger();
+                    ThreadPoolExecutor tpe = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(), r -> {
+                                Thread thread = new Thread(r,
+                                        "Nuxeo-BlobCommit-" + store.getName() + "-" + threadNumber.incrementAndGet());
+                                thread.setDaemon(true);
+                                return thread;
+                            });
+                    tpe.allowCoreThreadTimeOut(true);
+                    commitExecutor = executor = tpe;
+                }
+            }
+        }
+        return executor;
+    }
+
 }
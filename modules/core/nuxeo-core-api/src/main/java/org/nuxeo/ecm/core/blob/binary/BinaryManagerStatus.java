@@ -33,6 +33,15 @@ public class BinaryManagerStatus {
 
     public long sizeBinariesGC;
 
+    /** @since 11.5 */
+    public long numBinariesMarked;
+
+    /** @since 11.5 */
+    public long numShards;
+
+    /** @since 11.5 */
+    public long numShardsDone;
+
     /**
      * The GC duration, in milliseconds
      */
@@ -68,6 +77,33 @@ public class BinaryManagerStatus {
         return sizeBinariesGC;
     }
 
+    /**
+     * The number of distinct binaries marked as referenced.
+     *
+     * @since 11.5
+     */
+    public long getNumBinariesMarked() {
+        return numBinariesMarked;
+    }
+
+    /**
+     * The number of shards (subdirectories, key prefixes) to sweep, or 0 if the sweep has not started.
+     *
+     * @since 11.5
+     */
+    public long getNumShards() {
+        return numShards;
+    }
+
+    /**
+     * The number of shards already swept, can be compared to {@link #getNumShards} to follow the GC progress.
+     *
+     * @since 11.5
+     */
+    public long getNumShardsDone() {
+        return numShardsDone;
+    }
+
     @Override
     public String toString() {
         StringBuilder builder = new StringBuilder();
@@ -75,7 +111,10 @@ public class BinaryManagerStatus {
         .append(", numBinaries=").append(numBinaries) //
         .append(", sizeBinaries=").append(sizeBinaries) //
         .append(", numBinariesGC=").append(numBinariesGC) //
-        .append(", sizeBinariesGC=").append(sizeBinariesGC).append("]");
+        .append(", sizeBinariesGC=").append(sizeBinariesGC) //
+        .append(", numBinariesMarked=").append(numBinariesMarked) //
+        .append(", numShards=").append(numShards) //
+        .append(", numShardsDone=").append(numShardsDone).append("]");
         return builder.toString();
     }
 
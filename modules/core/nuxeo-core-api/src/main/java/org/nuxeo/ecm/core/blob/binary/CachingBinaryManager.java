@@ -30,7 +30,7 @@ import org.apache.commons.io.FileUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.nuxeo.common.file.FileCache;
-import org.nuxeo.common.file.LRUFileCache;
+import org.nuxeo.common.file.IndexedLRUFileCache;
 import org.nuxeo.common.utils.SizeUtils;
 import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.runtime.api.Framework;
@@ -73,7 +73,7 @@ public abstract class CachingBinaryManager extends AbstractBinaryManager {
      * @since 5.9.2
      */
     protected void initializeCache(File dir, long maxSize, long maxCount, long minAge, FileStorage fileStorage) {
-        fileCache = new LRUFileCache(dir, maxSize, maxCount, minAge);
+        fileCache = new IndexedLRUFileCache(dir, maxSize, maxCount, minAge);
         this.fileStorage = fileStorage;
     }
 
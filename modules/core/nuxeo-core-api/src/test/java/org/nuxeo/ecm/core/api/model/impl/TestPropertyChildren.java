@@ -0,0 +1,167 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.api.model.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.lang3.SerializationUtils;
+import org.junit.Test;
+import org.nuxeo.ecm.core.api.model.Property;
+import org.nuxeo.ecm.core.schema.types.ComplexType;
+import org.nuxeo.ecm.core.schema.types.ComplexTypeImpl;
+import org.nuxeo.ecm.core.schema.types.FieldImpl;
+import org.nuxeo.ecm.core.schema.types.QName;
+import org.nuxeo.ecm.core.schema.types.SchemaImpl;
+import org.nuxeo.ecm.core.schema.types.primitives.StringType;
+
+/**
+ * @since 11.5
+ */
+public class TestPropertyChildren extends AbstractTestProperty {
+
+    protected static final int FIELDS = 20;
+
+    @Test
+    public void testChildren() {
+        ComplexProperty property = getComplexProperty();
+        assertTrue(property.children instanceof PropertyChildren);
+        assertTrue(property.isEmpty());
+
+        Property test2 = property.get("test2");
+        assertEquals(1, property.children.size());
+        assertSame(test2, property.get((Object) "test2"));
+        assertNull(property.get((Object) "test1"));
+        assertEquals(2, property.getChildren().size());
+        assertEquals(2, property.keySet().size());
+        assertTrue(property.keySet().contains("test1"));
+        assertTrue(property.keySet().contains("test2"));
+        // children are stored in an array sized after the type's fields
+        assertEquals(2, ((PropertyChildren) property.children).array.length);
+        assertNull(((PropertyChildren) property.children).others);
+    }
+
+    @Test
+    public void testValues() {
+        ComplexProperty property = getComplexProperty();
+        Map<String, Serializable> map = new HashMap<>();
+        map.put("test1", "foo");
+        map.put("test2", "bar");
+        property.setValue(map);
+        assertEquals(map, property.getValue());
+        assertEquals("bar", property.get("test2").getValue());
+    }
+
+    @Test
+    public void testLayout() {
+        SchemaImpl schema = getSchema();
+        DocumentPartImpl part = new DocumentPartImpl(schema);
+        ComplexTypeImpl type = new ComplexTypeImpl(schema, "test", "complex");
+        for (int i = 0; i < FIELDS; i++) {
+            type.addField("field" + i, StringType.INSTANCE, null, 0, new HashSet<>());
+        }
+        ComplexProperty property = new MapProperty(part, new FieldImpl(new QName("test:complex"), schema, type));
+        // access the fields in reverse order
+        for (int i = FIELDS - 1; i >= 0; i--) {
+            property.get("field" + i);
+        }
+        PropertyChildren children = (PropertyChildren) property.children;
+        assertEquals(FIELDS, children.size());
+        // each child is at the position of its field
+        assertEquals(FIELDS, children.array.length);
+        for (int i = 0; i < FIELDS; i++) {
+            String name = "field" + i;
+            assertSame(property.get(name), children.array[type.getFieldPosition(name)]);
+        }
+        assertNull(children.others);
+        // iteration follows the field positions
+        int previous = -1;
+        for (String name : children.keySet()) {
+            int position = type.getFieldPosition(name);
+            assertTrue(name, position > previous);
+            previous = position;
+        }
+    }
+
+    @Test
+    public void testOthers() {
+        ComplexProperty property = getComplexProperty();
+        ComplexType type = (ComplexType) property.getType();
+        PropertyChildren children = (PropertyChildren) property.children;
+        Property test1 = property.get("test1");
+        Property other = new ScalarProperty(property, new FieldImpl(new QName("other"), type, StringType.INSTANCE));
+
+        // a name that is not a field of the type goes to the others map
+        assertNull(children.put("other", other));
+        assertEquals(2, children.size());
+        assertSame(other, children.get("other"));
+        assertEquals(Map.of("other", other), children.others);
+        assertSame(test1, children.array[type.getFieldPosition("test1")]);
+        assertNull(children.array[type.getFieldPosition("test2")]);
+        assertEquals(Set.of("test1", "other"), children.keySet());
+
+        assertSame(other, children.remove("other"));
+        assertEquals(1, children.size());
+        assertNull(children.get("other"));
+
+        // removal through the iterator
+        children.put("other", other);
+        Iterator<Map.Entry<String, Property>> it = children.entrySet().iterator();
+        while (it.hasNext()) {
+            it.next();
+            it.remove();
+        }
+        assertTrue(children.isEmpty());
+        assertNull(children.get("test1"));
+        assertNull(children.get("other"));
+    }
+
+    @Test
+    public void testSerialization() {
+        ComplexProperty property = getComplexProperty();
+        Map<String, Serializable> map = new HashMap<>();
+        map.put("test1", "foo");
+        map.put("test2", "bar");
+        property.setValue(map);
+        ComplexType type = (ComplexType) property.getType();
+        property.children.put("other",
+                new ScalarProperty(property, new FieldImpl(new QName("other"), type, StringType.INSTANCE)));
+
+        ComplexProperty clone = SerializationUtils.clone(property);
+        PropertyChildren children = (PropertyChildren) clone.children;
+        assertSame(clone, children.owner);
+        assertEquals(3, children.size());
+        assertEquals(2, children.array.length);
+        assertEquals(Set.of("other"), children.others.keySet());
+        // the transient type is resolved again on access
+        assertEquals("foo", clone.get("test1").getValue());
+        assertEquals("bar", clone.get("test2").getValue());
+        assertSame(clone.get("test1"), children.array[children.type.getFieldPosition("test1")]);
+    }
+
+}
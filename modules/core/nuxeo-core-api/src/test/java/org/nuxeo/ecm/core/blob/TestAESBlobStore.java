@@ -24,6 +24,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 import static org.junit.Assume.assumeFalse;
+import static org.nuxeo.ecm.core.blob.AESBlobStoreConfiguration.PROP_CHUNK_SIZE;
 import static org.nuxeo.ecm.core.blob.AESBlobStoreConfiguration.PROP_KEY_ALIAS;
 import static org.nuxeo.ecm.core.blob.AESBlobStoreConfiguration.PROP_KEY_PASSWORD;
 import static org.nuxeo.ecm.core.blob.AESBlobStoreConfiguration.PROP_KEY_STORE_FILE;
@@ -53,6 +54,7 @@ import org.junit.Before;
 import org.junit.Test;
 import org.nuxeo.ecm.core.blob.AESBlobStore.DecryptingInputStream;
 import org.nuxeo.ecm.core.blob.AESBlobStore.EncryptingOutputStream;
+import org.nuxeo.ecm.core.blob.BlobStore.OptionalOrUnknown;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.test.runner.Deploy;
 
@@ -141,6 +143,80 @@ public class TestAESBlobStore extends TestLocalBlobStoreAbstract {
         doTestEncryptDecrypt(properties);
     }
 
+    @Test
+    public void testEncryptDecryptWithSmallChunks() throws IOException {
+        Map<String, String> properties = new HashMap<>();
+        properties.put(PROP_PASSWORD, PASSWORD);
+        properties.put(PROP_CHUNK_SIZE, "4");
+        doTestEncryptDecrypt(properties);
+    }
+
+    @Test
+    public void testEncryptDecryptWithoutChunks() throws IOException {
+        Map<String, String> properties = new HashMap<>();
+        properties.put(PROP_PASSWORD, PASSWORD);
+        properties.put(PROP_CHUNK_SIZE, "0");
+        doTestEncryptDecrypt(properties);
+    }
+
+    @Test
+    public void testTruncatedChunks() throws IOException {
+        Map<String, String> properties = new HashMap<>();
+        properties.put(PROP_PASSWORD, PASSWORD);
+        properties.put(PROP_CHUNK_SIZE, "4");
+        AESBlobStoreConfiguration aesConfig = new AESBlobStoreConfiguration(properties);
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (OutputStream enc = new EncryptingOutputStream(baos, aesConfig)) {
+            IOUtils.write("hello world", enc, UTF_8);
+        }
+        // remove the last chunk, which is 3 bytes + 16 bytes of tag
+        byte[] bytes = baos.toByteArray();
+        ByteArrayInputStream bain = new ByteArrayInputStream(bytes, 0, bytes.length - 19);
+        try (InputStream dec = new DecryptingInputStream(bain, aesConfig)) {
+            String result = IOUtils.toString(dec, UTF_8);
+            fail("Should fail to decrypt, but read: " + result);
+        } catch (IOException e) {
+            String message = e.getMessage();
+            assertTrue(message, message.contains("Tag mismatch"));
+        }
+    }
+
+    @Test
+    public void testByteRangeAcrossChunks() throws IOException {
+        // several chunks of the default size
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; sb.length() < 200_000; i++) {
+            sb.append(i).append(',');
+        }
+        String value = sb.toString();
+        String key = bs.writeBlob(blobContext(ID1, value));
+        for (int start : new int[] { 0, 10, 65535, 65536, 65537, 131000, value.length() - 1 }) {
+            int end = Math.min(start + 70_000, value.length() - 1);
+            OptionalOrUnknown<InputStream> streamOpt = bs.getStream(key, ByteRange.inclusive(start, end));
+            assertTrue(streamOpt.isPresent());
+            try (InputStream stream = streamOpt.get()) {
+                assertEquals(value.substring(start, end + 1), IOUtils.toString(stream, UTF_8));
+            }
+        }
+        // whole file
+        assertTrue(bs.readBlob(key, tmpFile));
+        assertEquals(value, new String(Files.readAllBytes(tmpFile), UTF_8));
+    }
+
+    @Test
+    public void testReadBlobWithParallelDecryption() throws IOException {
+        // more chunks of the default size than decrypted by a single task
+        int length = (2 * AESBlobStore.CHUNKS_PER_TASK + 1) * AESBlobStoreConfiguration.DEFAULT_CHUNK_SIZE + 123;
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; sb.length() < length; i++) {
+            sb.append(i).append(',');
+        }
+        String value = sb.toString();
+        String key = bs.writeBlob(blobContext(ID1, value));
+        assertTrue(bs.readBlob(key, tmpFile));
+        assertEquals(value, new String(Files.readAllBytes(tmpFile), UTF_8));
+    }
+
     protected void doTestEncryptDecrypt(Map<String, String> properties) throws IOException {
         AESBlobStoreConfiguration aesConfig = new AESBlobStoreConfiguration(properties);
         String string = "hello world";
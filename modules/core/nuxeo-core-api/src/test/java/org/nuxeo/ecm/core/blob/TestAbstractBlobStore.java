@@ -30,6 +30,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 
 import javax.inject.Inject;
 
@@ -46,6 +48,7 @@ import org.nuxeo.ecm.core.blob.binary.BinaryGarbageCollector;
 import org.nuxeo.ecm.core.blob.binary.BinaryManagerStatus;
 import org.nuxeo.runtime.test.runner.Features;
 import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.WithFrameworkProperty;
 
 @RunWith(FeaturesRunner.class)
 @Features(BlobManagerFeature.class)
@@ -141,6 +144,13 @@ public abstract class TestAbstractBlobStore {
         // no wait by default
     }
 
+    /**
+     * If this is true, then the GC sweeps the blob store by shards, see {@link AbstractBlobGarbageCollector#sweepShards}.
+     */
+    public boolean hasShardedGC() {
+        return false;
+    }
+
     // we can't check the size on files encrypted when stored
     public boolean checkSizeOfGCedFiles() {
         return true;
@@ -263,6 +273,45 @@ public abstract class TestAbstractBlobStore {
         assertBlob(key + ";4;7", "1234");
     }
 
+    @Test
+    public void testGetStreamWithByteRange() throws IOException {
+        // store blob
+        String key = bs.writeBlob(blobContext(ID1, "abcd1234efgh"));
+        // read a byte range from the store
+        OptionalOrUnknown<InputStream> streamOpt = bs.getStream(key, ByteRange.inclusive(4, 7));
+        if (streamOpt.isKnown()) {
+            assertTrue(streamOpt.isPresent());
+            try (InputStream stream = streamOpt.get()) {
+                assertEquals("1234", IOUtils.toString(stream, UTF_8));
+            }
+        }
+        // read a byte range through the blob provider
+        BlobInfo blobInfo = new BlobInfo();
+        blobInfo.key = "test:" + key;
+        try (InputStream stream = bp.getStream(new SimpleManagedBlob(blobInfo), ByteRange.inclusive(8, 11))) {
+            assertEquals("efgh", IOUtils.toString(stream, UTF_8));
+        }
+    }
+
+    @Test
+    public void testGetStreamWithByteRangeInKey() throws IOException {
+        assumeTrue(bp.allowByteRange());
+
+        // store blob
+        String key = bs.writeBlob(blobContext(ID1, "abcd1234efgh"));
+        // read a byte range of a key that is itself a byte range
+        BlobInfo blobInfo = new BlobInfo();
+        blobInfo.key = "test:" + key + ";4;11";
+        SimpleManagedBlob blob = new SimpleManagedBlob(blobInfo);
+        try (InputStream stream = bp.getStream(blob, ByteRange.inclusive(2, 5))) {
+            assertEquals("34ef", IOUtils.toString(stream, UTF_8));
+        }
+        // the requested range is bounded by the one of the key
+        try (InputStream stream = bp.getStream(blob, ByteRange.inclusive(6, 20))) {
+            assertEquals("gh", IOUtils.toString(stream, UTF_8));
+        }
+    }
+
     @Test
     public void testWriteFromSameBlobProvier() throws IOException {
         // store blob
@@ -411,4 +460,52 @@ public abstract class TestAbstractBlobStore {
         }
     }
 
+    @Test
+    @WithFrameworkProperty(name = AbstractBlobGarbageCollector.SWEEP_THREADS_PROP, value = "4")
+    public void testGCWithParallelSweep() throws IOException {
+        assumeFalse("GC not tested in transactional blob store", bp.isTransactional());
+
+        int n = 20;
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            String key = bs.writeBlob(blobContext("id" + i, "content" + i));
+            keys.add(key);
+        }
+        waitForGCTimeThreshold();
+
+        // mark half of the blobs
+        BinaryGarbageCollector gc = bs.getBinaryGarbageCollector();
+        gc.start();
+        for (int i = 0; i < n; i += 2) {
+            gc.mark(keys.get(i));
+        }
+        gc.stop(true);
+        BinaryManagerStatus status = gc.getStatus();
+        // the statuses of all the shards are summed up
+        assertEquals(n / 2, status.numBinaries);
+        assertEquals(n / 2, status.numBinariesGC);
+        if (checkSizeOfGCedFiles()) {
+            // "content0".."content9" are 8 bytes, "content10".."content19" are 9 bytes
+            assertEquals(5 * 8 + 5 * 9, status.sizeBinaries);
+            assertEquals(5 * 8 + 5 * 9, status.sizeBinariesGC);
+        }
+        if (hasShardedGC()) {
+            assertTrue(String.valueOf(status.numShards), status.numShards > 0);
+            if (useDeDuplication()) {
+                // digests are spread over many shards
+                assertTrue(String.valueOf(status.numShards), status.numShards > 1);
+            }
+            assertEquals(status.numShards, status.numShardsDone);
+        }
+
+        // check content, unmarked blobs gone
+        for (int i = 0; i < n; i++) {
+            if (i % 2 == 0) {
+                assertBlob(keys.get(i), "content" + i);
+            } else {
+                assertNoBlob(keys.get(i));
+            }
+        }
+    }
+
 }
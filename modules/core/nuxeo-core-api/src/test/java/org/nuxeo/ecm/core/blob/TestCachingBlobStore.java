@@ -18,9 +18,116 @@
  */
 package org.nuxeo.ecm.core.blob;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
 import org.nuxeo.runtime.test.runner.Deploy;
 
 @Deploy("org.nuxeo.ecm.core.api.tests:OSGI-INF/test-blob-provider-inmemory-caching.xml")
 public class TestCachingBlobStore extends TestAbstractBlobStore {
 
+    @Test
+    public void testPrefetch() throws Exception {
+        CachingBlobStore cbs = (CachingBlobStore) bs;
+        // write directly to the underlying store, so that nothing is cached
+        String key1 = cbs.store.writeBlob(blobContext(ID1, FOO));
+        String key2 = cbs.store.writeBlob(blobContext(ID2, BAR));
+        assertNull(cbs.fileCache.getFile(key1));
+        assertNull(cbs.fileCache.getFile(key2));
+
+        cbs.prefetch(Arrays.asList(key1, key2, "nosuchkey"));
+        // wait for background fetches
+        for (int i = 0; i < 100 && !cbs.prefetching.isEmpty(); i++) {
+            Thread.sleep(50);
+        }
+        assertTrue(cbs.prefetching.isEmpty());
+
+        // blobs are now in the cache
+        assertNotNull(cbs.fileCache.getFile(key1));
+        assertNotNull(cbs.fileCache.getFile(key2));
+        assertNull(cbs.fileCache.getFile("nosuchkey"));
+        assertBlob(key1, FOO);
+        assertBlob(key2, BAR);
+    }
+
+    @Test
+    public void testConcurrentFetchesAreShared() throws Exception {
+        AtomicInteger reads = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(1);
+        // the other readers wait for the fetch in progress
+        CountDownLatch waiting = new CountDownLatch(4);
+        InMemoryBlobStore slowStore = new InMemoryBlobStore("slow", bs.getKeyStrategy()) {
+            @Override
+            public boolean readBlob(String key, Path dest) throws IOException {
+                reads.incrementAndGet();
+                try {
+                    latch.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException();
+                }
+                return super.readBlob(key, dest);
+            }
+        };
+        Path dir = Files.createTempDirectory("nxbincache.");
+        ExecutorService executor = Executors.newFixedThreadPool(5);
+        try {
+            CachingBlobStore cbs = new CachingBlobStore("cache", slowStore,
+                    new CachingConfiguration(dir, 1024 * 1024, 100, 0)) {
+                @Override
+                protected File waitForFetch(String key, CompletableFuture<File> future) throws IOException {
+                    waiting.countDown();
+                    return super.waitForFetch(key, future);
+                }
+            };
+            String key = slowStore.writeBlob(blobContext(ID1, FOO));
+
+            // concurrent reads of the same uncached blob
+            List<Future<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 5; i++) {
+                futures.add(executor.submit(() -> {
+                    try (InputStream in = cbs.getStream(key).get()) {
+                        return IOUtils.toString(in, UTF_8);
+                    }
+                }));
+            }
+            // let the fetch complete once all the other readers wait for it
+            assertTrue(waiting.await(10, SECONDS));
+            latch.countDown();
+            for (Future<String> future : futures) {
+                assertEquals(FOO, future.get());
+            }
+            // a single fetch from the underlying store
+            assertEquals(1, reads.get());
+            assertTrue(cbs.fetches.isEmpty());
+        } finally {
+            latch.countDown();
+            executor.shutdownNow();
+            FileUtils.deleteDirectory(dir.toFile());
+        }
+    }
+
 }
@@ -0,0 +1,178 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.blob;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.nuxeo.ecm.core.api.impl.blob.ByteArrayBlob;
+import org.nuxeo.ecm.core.blob.binary.BinaryGarbageCollector;
+
+/**
+ * @since 11.5
+ */
+public class TestChunkedBlobStore {
+
+    protected InMemoryBlobStore store;
+
+    protected ChunkedBlobStore bs;
+
+    protected Random random = new Random(123);
+
+    @Before
+    public void setUp() {
+        store = new InMemoryBlobStore("mem", new KeyStrategyDigest("MD5"));
+        bs = new ChunkedBlobStore("chunked", store, new ChunkingConfiguration(256, 1024, 4096));
+    }
+
+    protected byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        random.nextBytes(bytes);
+        return bytes;
+    }
+
+    protected String write(byte[] bytes) throws IOException {
+        return bs.writeBlob(new BlobContext(new ByteArrayBlob(bytes)));
+    }
+
+    protected byte[] read(String key, ByteRange byteRange) throws IOException {
+        try (InputStream in = bs.getStream(key, byteRange).get()) {
+            return IOUtils.toByteArray(in);
+        }
+    }
+
+    @Test
+    public void testWriteRead() throws IOException {
+        byte[] bytes = randomBytes(100_000);
+        String key = write(bytes);
+        // the key is still the digest of the whole content
+        String plainKey = new InMemoryBlobStore("mem2", new KeyStrategyDigest("MD5")).writeBlob(
+                new BlobContext(new ByteArrayBlob(bytes)));
+        assertEquals(plainKey, key);
+        assertArrayEquals(bytes, read(key, null));
+        // manifest plus many chunks
+        assertTrue(String.valueOf(store.map.size()), store.map.size() > 20);
+
+        // empty blob
+        String emptyKey = write(new byte[0]);
+        assertEquals(0, read(emptyKey, null).length);
+
+        assertTrue(bs.getStream("nosuchkey").isMissing());
+    }
+
+    @Test
+    public void testSharedChunks() throws IOException {
+        byte[] bytes = randomBytes(100_000);
+        String key1 = write(bytes);
+        int size1 = store.map.size();
+        // insert a few bytes in the middle
+        byte[] bytes2 = new byte[bytes.length + 10];
+        System.arraycopy(bytes, 0, bytes2, 0, 50_000);
+        System.arraycopy(bytes, 50_000, bytes2, 50_010, 50_000);
+        String key2 = write(bytes2);
+        assertNotEquals(key1, key2);
+        // only the manifest and the chunks around the edit are new
+        int added = store.map.size() - size1;
+        assertTrue(String.valueOf(added), added <= 4);
+        assertArrayEquals(bytes, read(key1, null));
+        assertArrayEquals(bytes2, read(key2, null));
+    }
+
+    @Test
+    public void testByteRange() throws IOException {
+        byte[] bytes = randomBytes(50_000);
+        String key = write(bytes);
+        for (int i = 0; i < 100; i++) {
+            int start = random.nextInt(bytes.length);
+            int end = start + random.nextInt(Math.min(10_000, bytes.length - start));
+            assertArrayEquals(start + "-" + end, Arrays.copyOfRange(bytes, start, end + 1),
+                    read(key, ByteRange.inclusive(start, end)));
+        }
+    }
+
+    @Test
+    public void testReadUnchunkedBlob() throws IOException {
+        // blob written before chunking was enabled
+        String key = store.writeBlob(new BlobContext(new ByteArrayBlob("hello world".getBytes(UTF_8))));
+        assertEquals("hello world", new String(read(key, null), UTF_8));
+        assertEquals("world", new String(read(key, ByteRange.inclusive(6, 10)), UTF_8));
+    }
+
+    @Test
+    public void testReadUnchunkedBlobLookingLikeManifest() throws IOException {
+        // blob written before chunking was enabled, whose content looks like a manifest
+        String content = "NXCHUNKS1\n5 foo\n";
+        String key = store.writeBlob(new BlobContext(new ByteArrayBlob(content.getBytes(UTF_8))));
+        assertEquals(content, new String(read(key, null), UTF_8));
+        assertEquals("5 foo", new String(read(key, ByteRange.inclusive(10, 14)), UTF_8));
+    }
+
+    @Test
+    public void testGC() throws IOException {
+        byte[] bytes = randomBytes(50_000);
+        String key1 = write(bytes);
+        int size1 = store.map.size();
+        String key2 = write(randomBytes(50_000));
+        bs.deleteBlob(key2);
+
+        BinaryGarbageCollector gc = bs.getBinaryGarbageCollector();
+        gc.start();
+        gc.mark(key1);
+        gc.stop(true);
+        assertEquals(size1, gc.getStatus().numBinaries);
+        // the orphaned chunks are gone, the chunks of the marked blob are kept
+        assertEquals(size1, store.map.size());
+        assertArrayEquals(bytes, read(key1, null));
+    }
+
+    @Test
+    public void testGCKeepsChunksReusedDuringGC() throws IOException {
+        byte[] bytes = randomBytes(50_000);
+        String key1 = write(bytes);
+        bs.deleteBlob(key1);
+        int size1 = store.map.size();
+
+        BinaryGarbageCollector gc = bs.getBinaryGarbageCollector();
+        gc.start();
+        // a blob written during the GC reuses the chunks of the deleted blob, it's not marked by the GC
+        byte[] bytes2 = Arrays.copyOf(bytes, bytes.length + 10);
+        String key2 = write(bytes2);
+        gc.stop(true);
+        // the reused chunks and the new manifest are kept
+        assertTrue(String.valueOf(store.map.size()), store.map.size() >= size1);
+        assertArrayEquals(bytes2, read(key2, null));
+
+        // the next GC collects the unmarked ones
+        gc.start();
+        gc.stop(true);
+        assertEquals(0, store.map.size());
+    }
+
+}
@@ -22,6 +22,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Test;
 import org.nuxeo.runtime.test.runner.Features;
@@ -193,4 +195,36 @@ public abstract class TestInMemoryBlobStoreTxAbstract extends TestAbstractBlobSt
         assertLegalHold(key2, true);
     }
 
+    @Test
+    public void testTransactionManyBlobs() throws IOException {
+        int n = 20;
+        List<String> keys = new ArrayList<>();
+
+        // start transaction
+        assertTrue(TransactionHelper.startTransaction());
+
+        // write many blobs, some with a properties change
+        for (int i = 0; i < n; i++) {
+            String key = bs.writeBlob(blobContext("id" + i, FOO + i));
+            keys.add(key);
+            if (i % 2 == 0) {
+                bs.writeBlobProperties(new BlobUpdateContext(key).withUpdateLegalHold(true));
+            }
+        }
+        assertNoVersioningCountFiles(0, n);
+        assertVersioningCountFiles(n);
+
+        // commit, the blobs are committed concurrently
+        TransactionHelper.commitOrRollbackTransaction();
+
+        // all blobs are now in permanent storage
+        assertNoVersioningCountFiles(n, 0);
+        assertVersioningCountFiles(n);
+        for (int i = 0; i < n; i++) {
+            String key = keys.get(i);
+            assertBlob(key, FOO + i);
+            assertLegalHold(key, i % 2 == 0);
+        }
+    }
+
 }
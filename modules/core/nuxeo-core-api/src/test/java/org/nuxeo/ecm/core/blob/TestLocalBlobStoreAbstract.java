@@ -28,6 +28,11 @@ public abstract class TestLocalBlobStoreAbstract extends TestAbstractBlobStore {
         return true;
     }
 
+    @Override
+    public boolean hasShardedGC() {
+        return true;
+    }
+
     @Override
     public void waitForGCTimeThreshold() {
         try {
@@ -0,0 +1,108 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.blob;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+/**
+ * @since 11.5
+ */
+public class TestMarkedBlobKeys {
+
+    protected static String key(int i) {
+        return String.format("%08x", i * 7919);
+    }
+
+    @Test
+    public void testInMemory() {
+        doTest(new MarkedBlobKeys(), false);
+    }
+
+    @Test
+    public void testSpilled() {
+        doTest(new MarkedBlobKeys(100), true);
+    }
+
+    protected void doTest(MarkedBlobKeys marked, boolean spilled) {
+        try {
+            for (int i = 0; i < 1000; i += 2) {
+                marked.add(key(i));
+            }
+            // duplicates
+            marked.add(key(0));
+            marked.add(key(500));
+            try {
+                marked.contains(key(0));
+                fail("should fail when not sealed");
+            } catch (IllegalStateException e) {
+                // ok
+            }
+            marked.seal();
+            assertEquals(500, marked.size());
+            if (spilled) {
+                assertNotNull(marked.merged);
+            } else {
+                assertNull(marked.merged);
+            }
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(key(i), i % 2 == 0, marked.contains(key(i)));
+            }
+            assertFalse(marked.contains(""));
+            assertFalse(marked.contains("zzzzzzzz"));
+        } finally {
+            marked.close();
+        }
+        if (spilled) {
+            assertNull(marked.merged);
+        }
+    }
+
+    @Test
+    public void testEmpty() {
+        try (MarkedBlobKeys marked = new MarkedBlobKeys(10)) {
+            marked.seal();
+            assertEquals(0, marked.size());
+            assertFalse(marked.contains("abc"));
+        }
+    }
+
+    @Test
+    public void testSpilledSingleBlock() {
+        try (MarkedBlobKeys marked = new MarkedBlobKeys(2)) {
+            marked.add("b");
+            marked.add("d");
+            marked.add("a");
+            marked.seal();
+            assertEquals(3, marked.size());
+            assertTrue(marked.contains("a"));
+            assertTrue(marked.contains("b"));
+            assertFalse(marked.contains("c"));
+            assertTrue(marked.contains("d"));
+            assertFalse(marked.contains("e"));
+        }
+    }
+
+}
@@ -0,0 +1,131 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.blob;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.Test;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.blob.binary.BinaryManagerStatus;
+
+/**
+ * @since 11.5
+ */
+public class TestSweepShards {
+
+    protected static class ShardedGarbageCollector extends AbstractBlobGarbageCollector {
+
+        protected final int threads;
+
+        protected final List<Integer> shards;
+
+        protected final Set<String> threadNames = ConcurrentHashMap.newKeySet();
+
+        protected ShardedGarbageCollector(int threads, int numShards) {
+            this.threads = threads;
+            shards = IntStream.range(0, numShards).boxed().collect(Collectors.toList());
+        }
+
+        @Override
+        public String getId() {
+            return "test";
+        }
+
+        @Override
+        protected int getSweepThreads() {
+            return threads;
+        }
+
+        @Override
+        public void removeUnmarkedBlobsAndUpdateStatus(boolean delete) {
+            sweepShards(shards, this::sweepShard);
+        }
+
+        protected BinaryManagerStatus sweepShard(Integer shard) {
+            threadNames.add(Thread.currentThread().getName());
+            if (shard.intValue() < 0) {
+                throw new NuxeoException("shard failure");
+            }
+            BinaryManagerStatus shardStatus = new BinaryManagerStatus();
+            shardStatus.numBinaries = 1;
+            shardStatus.sizeBinaries = shard.intValue();
+            shardStatus.numBinariesGC = 2;
+            shardStatus.sizeBinariesGC = 10L * shard.intValue();
+            return shardStatus;
+        }
+    }
+
+    @Test
+    public void testSequential() {
+        doTest(1);
+    }
+
+    @Test
+    public void testParallel() {
+        doTest(4);
+    }
+
+    protected void doTest(int threads) {
+        int numShards = 256;
+        ShardedGarbageCollector gc = new ShardedGarbageCollector(threads, numShards);
+        gc.start();
+        gc.stop(true);
+        BinaryManagerStatus status = gc.getStatus();
+        long sum = numShards * (numShards - 1) / 2;
+        assertEquals(numShards, status.numBinaries);
+        assertEquals(sum, status.sizeBinaries);
+        assertEquals(2 * numShards, status.numBinariesGC);
+        assertEquals(10 * sum, status.sizeBinariesGC);
+        assertEquals(numShards, status.numShards);
+        assertEquals(numShards, status.numShardsDone);
+        if (threads > 1) {
+            assertTrue(gc.threadNames.toString(),
+                    gc.threadNames.stream().allMatch(name -> name.startsWith("Nuxeo-BlobGC-Sweep-")));
+        } else {
+            assertEquals(Set.of(Thread.currentThread().getName()), gc.threadNames);
+        }
+    }
+
+    @Test
+    public void testParallelFailure() {
+        ShardedGarbageCollector gc = new ShardedGarbageCollector(4, 16);
+        gc.shards.set(5, Integer.valueOf(-1));
+        gc.start();
+        try {
+            gc.stop(true);
+            fail("should fail");
+        } catch (NuxeoException e) {
+            assertEquals("shard failure", e.getCause().getMessage());
+        }
+        // the GC can be restarted
+        gc.shards.set(5, Integer.valueOf(5));
+        gc.start();
+        gc.stop(true);
+        assertEquals(16, gc.getStatus().numShardsDone);
+    }
+
+}
@@ -26,15 +26,21 @@ import static org.nuxeo.ecm.core.blob.KeyStrategy.VER_SEP;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Date;
-import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang3.mutable.MutableObject;
@@ -57,6 +63,7 @@ import org.nuxeo.ecm.core.blob.ByteRange;
 import org.nuxeo.ecm.core.blob.KeyStrategy;
 import org.nuxeo.ecm.core.blob.ManagedBlob;
 import org.nuxeo.ecm.core.blob.binary.BinaryGarbageCollector;
+import org.nuxeo.ecm.core.blob.binary.BinaryManagerStatus;
 import org.nuxeo.ecm.core.io.download.DownloadHelper;
 import org.nuxeo.runtime.api.Framework;
 
@@ -76,6 +83,7 @@ import com.amazonaws.services.s3.model.ObjectLockRetention;
 import com.amazonaws.services.s3.model.ObjectMetadata;
 import com.amazonaws.services.s3.model.PutObjectRequest;
 import com.amazonaws.services.s3.model.RestoreObjectRequest;
+import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.amazonaws.services.s3.model.S3VersionSummary;
 import com.amazonaws.services.s3.model.SSEAwsKeyManagementParams;
@@ -96,6 +104,8 @@ public class S3BlobStore extends AbstractBlobStore {
 
     private static final Logger log = LogManager.getLogger(S3BlobStore.class);
 
+    protected static final int DOWNLOAD_BUFFER_SIZE = 64 * 1024;
+
     // x-amz-meta-username header
     protected static final String USER_METADATA_USERNAME = "username";
 
@@ -116,6 +126,10 @@ public class S3BlobStore extends AbstractBlobStore {
 
     protected final BinaryGarbageCollector gc;
 
+    /** Shards for the GC of digest keys, which are hexadecimal. */
+    protected static final List<String> HEX_PREFIXES = Arrays.asList("0", "1", "2", "3", "4", "5", "6", "7", "8", "9",
+            "a", "b", "c", "d", "e", "f");
+
     public S3BlobStore(String name, S3BlobStoreConfiguration config, KeyStrategy keyStrategy) {
         super(name, keyStrategy);
         this.config = config;
@@ -305,6 +319,44 @@ public class S3BlobStore extends AbstractBlobStore {
         return OptionalOrUnknown.unknown();
     }
 
+    /**
+     * Reads a byte range of a blob with a ranged GET, without reading the rest of the object.
+     *
+     * @since 11.5
+     */
+    @Override
+    public OptionalOrUnknown<InputStream> getStream(String key, ByteRange byteRange) throws IOException {
+        if (byteRange == null || config.useClientSideEncryption) {
+            return OptionalOrUnknown.unknown();
+        }
+        String objectKey;
+        String versionId;
+        int seppos;
+        if (useVersion && (seppos = key.indexOf(VER_SEP)) > 0) {
+            objectKey = key.substring(0, seppos);
+            versionId = key.substring(seppos + 1);
+        } else {
+            objectKey = key;
+            versionId = null;
+        }
+        String bucketKey = bucketPrefix + objectKey;
+        GetObjectRequest getObjectRequest = new GetObjectRequest(bucketName, bucketKey, versionId);
+        getObjectRequest.setRange(byteRange.getStart(), byteRange.getEnd());
+        try {
+            S3Object object = amazonS3.getObject(getObjectRequest);
+            logTrace("<-", "read " + byteRange.getLength() + " bytes");
+            logTrace("hnote right: " + bucketKey + " " + byteRange);
+            return OptionalOrUnknown.of(object.getObjectContent());
+        } catch (AmazonServiceException e) {
+            if (isMissingKey(e)) {
+                logTrace("<--", "missing");
+                logTrace("hnote right: " + bucketKey);
+                return OptionalOrUnknown.missing();
+            }
+            throw new IOException(e);
+        }
+    }
+
     protected boolean exists(String bucketKey) {
         try {
             amazonS3.getObjectMetadata(bucketName, bucketKey);
@@ -400,8 +452,15 @@ public class S3BlobStore extends AbstractBlobStore {
             if (byteRange != null) {
                 getObjectRequest.setRange(byteRange.getStart(), byteRange.getEnd());
             }
-            Download download = config.transferManager.download(getObjectRequest, dest.toFile());
-            download.waitForCompletion();
+            ObjectMetadata metadata = null;
+            if (byteRange == null && config.downloadPartSize > 0 && !config.useClientSideEncryption) {
+                metadata = downloadInParts(getObjectRequest, dest);
+            }
+            if (metadata == null) {
+                Download download = config.transferManager.download(getObjectRequest, dest.toFile());
+                download.waitForCompletion();
+                metadata = download.getObjectMetadata();
+            }
             logTrace("<-", "read " + Files.size(dest) + " bytes");
             logTrace("hnote right: " + bucketKey + (versionId == null ? "" : " v=" + versionId));
             if (log.isDebugEnabled()) {
@@ -422,7 +481,7 @@ public class S3BlobStore extends AbstractBlobStore {
             }
             String expectedDigest = getKeyStrategy().getDigestFromKey(objectKey);
             if (expectedDigest != null) {
-                checkDigest(expectedDigest, download, dest);
+                checkDigest(expectedDigest, metadata.getETag(), dest);
             }
             // else nothing to compare to, key is not digest-based
             return true;
@@ -442,8 +501,96 @@ public class S3BlobStore extends AbstractBlobStore {
         }
     }
 
+    /**
+     * Downloads an object by fetching byte ranges in parallel. The first range gives the length of the object, the
+     * other ones are then fetched in parallel and written at their offset in the file.
+     *
+     * @return the object metadata, or {@code null} if the object cannot be downloaded by ranges
+     * @since 11.5
+     */
+    protected ObjectMetadata downloadInParts(GetObjectRequest getObjectRequest, Path dest)
+            throws IOException, InterruptedException {
+        long partSize = config.downloadPartSize;
+        try (FileChannel channel = FileChannel.open(dest, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ObjectMetadata metadata;
+            try {
+                metadata = downloadPart(getObjectRequest, null, 0, partSize, channel);
+            } catch (AmazonServiceException e) {
+                if (e.getStatusCode() == 416) {
+                    // empty object, no range can be satisfied
+                    return null;
+                }
+                throw e;
+            }
+            long length = metadata.getInstanceLength();
+            if (length <= partSize) {
+                return metadata;
+            }
+            // the ETag makes sure that all the parts come from the same object
+            String etag = metadata.getETag();
+            List<Future<?>> futures = new ArrayList<>();
+            for (long start = partSize; start < length; start += partSize) {
+                long partStart = start;
+                futures.add(config.downloadExecutor.submit(
+                        () -> downloadPart(getObjectRequest, etag, partStart, partSize, channel)));
+            }
+            logTrace("->", "read " + (futures.size() + 1) + " parts");
+            try {
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof AmazonServiceException) {
+                    throw (AmazonServiceException) cause;
+                } else if (cause instanceof IOException) {
+                    throw (IOException) cause;
+                }
+                throw new NuxeoException(cause);
+            } finally {
+                futures.forEach(future -> future.cancel(true));
+            }
+            return metadata;
+        }
+    }
+
+    /** @since 11.5 */
+    protected ObjectMetadata downloadPart(GetObjectRequest getObjectRequest, String etag, long start, long partSize,
+            FileChannel channel) throws IOException {
+        GetObjectRequest request = new GetObjectRequest(getObjectRequest.getBucketName(), getObjectRequest.getKey(),
+                getObjectRequest.getVersionId());
+        request.setRange(start, start + partSize - 1);
+        if (etag != null) {
+            request.setMatchingETagConstraints(Collections.singletonList(etag));
+        }
+        S3Object object = amazonS3.getObject(request);
+        if (object == null) {
+            // ETag constraint not met
+            throw new IOException("Object modified during download: " + getObjectRequest.getKey());
+        }
+        try (InputStream in = object.getObjectContent()) {
+            byte[] buf = new byte[DOWNLOAD_BUFFER_SIZE];
+            long position = start;
+            int n;
+            while ((n = in.read(buf)) != -1) {
+                ByteBuffer bb = ByteBuffer.wrap(buf, 0, n);
+                while (bb.hasRemaining()) {
+                    // positional write, safe for concurrent use
+                    position += channel.write(bb, position);
+                }
+            }
+        }
+        return object.getObjectMetadata();
+    }
+
     protected void checkDigest(String expectedDigest, Download download, Path file) throws IOException {
-        if (!expectedDigest.equals(download.getObjectMetadata().getETag())) {
+        checkDigest(expectedDigest, download.getObjectMetadata().getETag(), file);
+    }
+
+    /** @since 11.5 */
+    protected void checkDigest(String expectedDigest, String etag, Path file) throws IOException {
+        if (!expectedDigest.equals(etag)) {
             // if our digest algorithm is not MD5 (so the ETag can never match),
             // or in case of a multipart upload (where the ETag may not be the MD5),
             // check manually the object integrity
@@ -766,51 +913,60 @@ public class S3BlobStore extends AbstractBlobStore {
             return "s3:" + bucketName + "/" + bucketPrefix;
         }
 
+        /**
+         * Lists and sweeps the bucket in parallel, by key prefix. Digest keys are hexadecimal so each of their possible
+         * first characters is a separate shard. Unmarked objects are deleted as soon as they are listed, instead of being
+         * collected first.
+         *
+         * @since 11.5
+         */
         @Override
-        public Set<String> getUnmarkedBlobsAndUpdateStatus() {
-            // list S3 objects in the bucket
-            // record those not marked
+        public void removeUnmarkedBlobsAndUpdateStatus(boolean delete) {
+            List<String> shards;
+            if (keyStrategy.useDeDuplication()) {
+                shards = HEX_PREFIXES;
+            } else {
+                shards = Collections.singletonList("");
+            }
+            logTrace("->", "listObjects");
+            sweepShards(shards, shard -> sweepPrefix(shard, delete));
+            logTrace("<--", (status.numBinaries + status.numBinariesGC) + " objects");
+        }
+
+        /** @since 11.5 */
+        protected BinaryManagerStatus sweepPrefix(String shard, boolean delete) {
             boolean useDeDuplication = keyStrategy.useDeDuplication();
-            Set<String> unmarked = new HashSet<>();
-            ObjectListing list = null;
+            BinaryManagerStatus shardStatus = new BinaryManagerStatus();
             int prefixLength = bucketPrefix.length();
-            logTrace("->", "listObjects");
-            do {
-                if (list == null) {
-                    // use delimiter to avoid useless listing of objects in "subdirectories"
-                    ListObjectsRequest listObjectsRequest = new ListObjectsRequest(bucketName, bucketPrefix, null,
-                            S3BlobStoreConfiguration.DELIMITER, null);
-                    list = amazonS3.listObjects(listObjectsRequest);
-                } else {
-                    list = amazonS3.listNextBatchOfObjects(list);
-                }
+            // use delimiter to avoid useless listing of objects in "subdirectories"
+            ListObjectsRequest listObjectsRequest = new ListObjectsRequest(bucketName, bucketPrefix + shard, null,
+                    S3BlobStoreConfiguration.DELIMITER, null);
+            ObjectListing list = amazonS3.listObjects(listObjectsRequest);
+            for (;;) {
                 for (S3ObjectSummary summary : list.getObjectSummaries()) {
                     String key = summary.getKey().substring(prefixLength);
-                    if (useDeDuplication) {
-                        if (!config.digestConfiguration.isValidDigest(key)) {
-                            // ignore files that cannot be digests, for safety
-                            continue;
-                        }
+                    if (useDeDuplication && !config.digestConfiguration.isValidDigest(key)) {
+                        // ignore files that cannot be digests, for safety
+                        continue;
                     }
                     long length = summary.getSize();
                     if (marked.contains(key)) {
-                        status.numBinaries++;
-                        status.sizeBinaries += length;
+                        shardStatus.numBinaries++;
+                        shardStatus.sizeBinaries += length;
                     } else {
-                        status.numBinariesGC++;
-                        status.sizeBinariesGC += length;
-                        // record file to delete
-                        unmarked.add(key);
+                        shardStatus.numBinariesGC++;
+                        shardStatus.sizeBinariesGC += length;
+                        if (delete) {
+                            deleteBlob(key);
+                        }
                     }
                 }
-            } while (list.isTruncated());
-            logTrace("<--", (status.numBinaries + status.numBinariesGC) + " objects");
-            return unmarked;
-        }
-
-        @Override
-        public void removeBlobs(Set<String> keys) {
-            keys.forEach(S3BlobStore.this::deleteBlob);
+                if (!list.isTruncated()) {
+                    break;
+                }
+                list = amazonS3.listNextBatchOfObjects(list);
+            }
+            return shardStatus;
         }
     }
 
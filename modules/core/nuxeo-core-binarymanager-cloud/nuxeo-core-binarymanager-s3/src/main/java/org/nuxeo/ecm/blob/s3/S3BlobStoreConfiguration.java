@@ -35,6 +35,9 @@ import java.time.Duration;
 import java.util.Date;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -134,6 +137,23 @@ public class S3BlobStoreConfiguration extends CloudBlobStoreConfiguration {
 
     public static final String DELIMITER = "/";
 
+    /**
+     * Size of the byte ranges fetched in parallel when reading a blob. Parallel reads are disabled if absent or 0.
+     *
+     * @since 11.5
+     */
+    public static final String DOWNLOAD_PART_SIZE_PROPERTY = "download.partsize";
+
+    /**
+     * Number of threads used to fetch byte ranges in parallel when reading a blob.
+     *
+     * @since 11.5
+     */
+    public static final String DOWNLOAD_THREADS_PROPERTY = "download.threads";
+
+    /** @since 11.5 */
+    public static final int DEFAULT_DOWNLOAD_THREADS = 4;
+
     /**
      * The configuration property to define the multipart copy part size.
      */
@@ -167,6 +187,21 @@ public class S3BlobStoreConfiguration extends CloudBlobStoreConfiguration {
 
     public final boolean metadataAddUsername;
 
+    /**
+     * The size of the byte ranges fetched in parallel when reading a blob, or 0 if parallel reads are disabled.
+     *
+     * @since 11.5
+     */
+    public final long downloadPartSize;
+
+    /**
+     * The executor fetching byte ranges in parallel when reading a blob, or {@code null} if parallel reads are
+     * disabled.
+     *
+     * @since 11.5
+     */
+    public final ExecutorService downloadExecutor;
+
     /**
      * The retention mode with which the bucket is configured.
      *
@@ -227,6 +262,9 @@ public class S3BlobStoreConfiguration extends CloudBlobStoreConfiguration {
 
         transferManager = createTransferManager();
 
+        downloadPartSize = Math.max(0, getLongProperty(DOWNLOAD_PART_SIZE_PROPERTY));
+        downloadExecutor = downloadPartSize > 0 ? createDownloadExecutor() : null;
+
         abortOldUploads();
     }
 
@@ -239,6 +277,23 @@ public class S3BlobStoreConfiguration extends CloudBlobStoreConfiguration {
 
     public void close() {
         transferManager.shutdownNow();
+        if (downloadExecutor != null) {
+            downloadExecutor.shutdownNow();
+        }
+    }
+
+    /** @since 11.5 */
+    protected ExecutorService createDownloadExecutor() {
+        int threads = getIntProperty(DOWNLOAD_THREADS_PROPERTY);
+        if (threads <= 0) {
+            threads = DEFAULT_DOWNLOAD_THREADS;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "Nuxeo-S3-Download-" + bucketName + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
     }
 
     @Override
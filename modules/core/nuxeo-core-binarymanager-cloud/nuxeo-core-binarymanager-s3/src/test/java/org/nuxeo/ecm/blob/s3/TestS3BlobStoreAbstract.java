@@ -101,6 +101,11 @@ public abstract class TestS3BlobStoreAbstract extends TestAbstractBlobStore {
         return properties;
     }
 
+    @Override
+    public boolean hasShardedGC() {
+        return true;
+    }
+
     // remove all objects, including versions
     protected void clearBucket() {
         S3BlobStore s3BlobStore = (S3BlobStore) bs.unwrap();
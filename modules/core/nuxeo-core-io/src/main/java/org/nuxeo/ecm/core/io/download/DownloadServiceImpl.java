@@ -19,6 +19,7 @@
  */
 package org.nuxeo.ecm.core.io.download;
 
+import java.io.EOFException;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -28,6 +29,9 @@ import java.io.UncheckedIOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URI;
 import java.net.URLEncoder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.Enumeration;
@@ -76,8 +80,10 @@ import org.nuxeo.ecm.core.api.model.PropertyNotFoundException;
 import org.nuxeo.ecm.core.blob.BlobManager;
 import org.nuxeo.ecm.core.blob.BlobManager.UsageHint;
 import org.nuxeo.ecm.core.blob.BlobProvider;
+import org.nuxeo.ecm.core.blob.BlobStoreBlobProvider;
 import org.nuxeo.ecm.core.blob.ByteRange;
 import org.nuxeo.ecm.core.blob.LocalBlobProvider;
+import org.nuxeo.ecm.core.blob.LocalBlobStore;
 import org.nuxeo.ecm.core.blob.ManagedBlob;
 import org.nuxeo.ecm.core.blob.binary.DefaultBinaryManager;
 import org.nuxeo.ecm.core.event.Event;
@@ -118,6 +124,26 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
     /** @since 11.1 */
     public static final String DOWNLOAD_URL_FOLLOW_REDIRECT = "org.nuxeo.download.url.follow.redirect";
 
+    /**
+     * Configuration property to disable the transfer of local files through the container's sendfile support or
+     * through a {@link FileChannel}, enabled by default.
+     *
+     * @since 11.5
+     */
+    public static final String DOWNLOAD_ZERO_COPY_ENABLED = "org.nuxeo.download.zerocopy.enabled";
+
+    /** @since 11.5 */
+    protected static final String TOMCAT_SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+
+    /** @since 11.5 */
+    protected static final String TOMCAT_SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+
+    /** @since 11.5 */
+    protected static final String TOMCAT_SENDFILE_START = "org.apache.tomcat.sendfile.start";
+
+    /** @since 11.5 */
+    protected static final String TOMCAT_SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
     private static final String RUN_FUNCTION = "run";
 
     private static final Pattern FILENAME_SANITIZATION_REGEX = Pattern.compile(";\\w+=.*");
@@ -565,7 +591,7 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
         Consumer<ByteRange> blobTransferer = context.getBlobTransferer();
         if (blobTransferer == null) {
             Blob fblob = blob;
-            blobTransferer = byteRange -> transferBlobWithByteRange(fblob, byteRange, response);
+            blobTransferer = byteRange -> transferBlobWithByteRange(fblob, byteRange, request, response);
         }
         Calendar lastModified = context.getLastModified();
         if (lastModified == null && doc != null) {
@@ -782,6 +808,30 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
         }
     }
 
+    /**
+     * Transfers a blob to the response, delegating the transfer to the container's sendfile support when the blob is
+     * permanently stored in a local file and the container supports it.
+     *
+     * @since 11.5
+     */
+    protected void transferBlobWithByteRange(Blob blob, ByteRange byteRange, HttpServletRequest request,
+            HttpServletResponse response) {
+        if (isZeroCopyEnabled() && Boolean.TRUE.equals(request.getAttribute(TOMCAT_SENDFILE_SUPPORT))) {
+            // the transfer happens after the request returns, so the file must outlive it
+            File file = hasPermanentFile(blob) ? blob.getFile() : null;
+            if (file != null && file.length() == blob.getLength()) {
+                long start = byteRange == null ? 0 : byteRange.getStart();
+                long end = byteRange == null ? file.length() : byteRange.getEnd() + 1; // exclusive
+                request.setAttribute(TOMCAT_SENDFILE_FILENAME, file.getAbsolutePath());
+                request.setAttribute(TOMCAT_SENDFILE_START, Long.valueOf(start));
+                request.setAttribute(TOMCAT_SENDFILE_END, Long.valueOf(end));
+                log.trace("Using sendfile for: {}", file);
+                return;
+            }
+        }
+        transferBlobWithByteRange(blob, byteRange, response);
+    }
+
     protected void transferBlobWithByteRange(Blob blob, ByteRange byteRange, HttpServletResponse response) {
         transferBlobWithByteRange(blob, byteRange, () -> {
             try {
@@ -799,18 +849,17 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
 
     @Override
     public void transferBlobWithByteRange(Blob blob, ByteRange byteRange, Supplier<OutputStream> outputStreamSupplier) {
-        try (InputStream in = blob.getStream()) {
-            @SuppressWarnings("resource")
-            OutputStream out = outputStreamSupplier.get(); // not ours to close
+        File file = isZeroCopyEnabled() ? getLocalFile(blob) : null;
+        @SuppressWarnings("resource")
+        OutputStream out = outputStreamSupplier.get(); // not ours to close
+        try {
             BufferingServletOutputStream.stopBuffering(out);
-            if (byteRange == null) {
-                IOUtils.copy(in, out);
+            if (file != null && out instanceof WritableByteChannel) {
+                transferFile(file, byteRange, (WritableByteChannel) out);
             } else {
-                @SuppressWarnings("resource") // closing the original stream is enough
-                InputStream substream = byteRange.forStream(in);
-                // don't use IOUtils.copyLarge because it uses a skip method that reads
-                // all intervening bytes, which is inefficient for skippable streams
-                IOUtils.copy(substream, out);
+                try (InputStream in = getStream(blob, byteRange)) {
+                    IOUtils.copy(in, out);
+                }
             }
             out.flush();
         } catch (IOException e) {
@@ -818,6 +867,96 @@ public class DownloadServiceImpl extends DefaultComponent implements DownloadSer
         }
     }
 
+    /** @since 11.5 */
+    protected boolean isZeroCopyEnabled() {
+        return !Framework.getService(ConfigurationService.class).isBooleanFalse(DOWNLOAD_ZERO_COPY_ENABLED);
+    }
+
+    /**
+     * Gets the local file holding the data of a blob, if it is already available without fetching it.
+     *
+     * @return the file, or {@code null} if there is none
+     * @since 11.5
+     */
+    protected File getLocalFile(Blob blob) {
+        File file;
+        try {
+            file = blob.getFile();
+        } catch (NuxeoException e) {
+            log.debug("Cannot get file for blob: {}", blob, e);
+            return null;
+        }
+        // don't trust a file that changed under us
+        if (file == null || !file.isFile() || file.length() != blob.getLength()) {
+            return null;
+        }
+        return file;
+    }
+
+    /**
+     * Checks whether a blob is stored in a local file that outlives the request, which excludes the files of a
+     * {@link org.nuxeo.ecm.core.blob.CachingBlobStore CachingBlobStore} cache as they may be evicted at any time.
+     *
+     * @since 11.5
+     */
+    protected boolean hasPermanentFile(Blob blob) {
+        if (!(blob instanceof ManagedBlob)) {
+            return false;
+        }
+        BlobProvider blobProvider = Framework.getService(BlobManager.class).getBlobProvider(blob);
+        if (blobProvider instanceof BlobStoreBlobProvider) {
+            return ((BlobStoreBlobProvider) blobProvider).store.unwrap() instanceof LocalBlobStore;
+        }
+        return blobProvider != null && blobProvider.getBinaryManager() instanceof DefaultBinaryManager;
+    }
+
+    /**
+     * Transfers a byte range of a file to a channel using {@link FileChannel#transferTo}, which lets the operating
+     * system copy the data directly when the channel is backed by a file descriptor.
+     *
+     * @since 11.5
+     */
+    protected void transferFile(File file, ByteRange byteRange, WritableByteChannel target) throws IOException {
+        // the target channel is not ours to close
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long position = byteRange == null ? 0 : byteRange.getStart();
+            long remaining = byteRange == null ? channel.size() : byteRange.getLength();
+            while (remaining > 0) {
+                long n = channel.transferTo(position, remaining, target);
+                if (n <= 0) {
+                    if (position >= channel.size()) {
+                        throw new EOFException("File truncated: " + file);
+                    }
+                    continue;
+                }
+                position += n;
+                remaining -= n;
+            }
+        }
+    }
+
+    /**
+     * Gets the stream for a byte range of a blob. For a managed blob the byte range is passed to its blob provider, so
+     * that only the requested bytes are read from the storage when possible.
+     *
+     * @since 11.5
+     */
+    protected InputStream getStream(Blob blob, ByteRange byteRange) throws IOException {
+        if (byteRange == null) {
+            return blob.getStream();
+        }
+        if (blob instanceof ManagedBlob) {
+            BlobProvider blobProvider = Framework.getService(BlobManager.class).getBlobProvider(blob);
+            if (blobProvider != null) {
+                InputStream stream = blobProvider.getStream((ManagedBlob) blob, byteRange);
+                if (stream != null) {
+                    return stream;
+                }
+            }
+        }
+        return byteRange.forStream(blob.getStream());
+    }
+
     protected String fixXPath(String xpath) {
         // Hack for Flash Url wich doesn't support ':' char
         return xpath == null ? null : xpath.replace(';', ':');
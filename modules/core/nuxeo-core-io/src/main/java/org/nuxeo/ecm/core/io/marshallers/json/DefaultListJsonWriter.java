@@ -22,6 +22,7 @@ package org.nuxeo.ecm.core.io.marshallers.json;
 import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
 import static org.nuxeo.ecm.core.io.registry.MarshallingConstants.ENTITY_FIELD_NAME;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.util.Collections;
@@ -121,14 +122,39 @@ public abstract class DefaultListJsonWriter<EntityType> extends AbstractJsonWrit
         writePaginationInfos(list, jg);
         Writer<EntityType> documentWriter = registry.getWriter(ctx, elClazz, elGenericType, APPLICATION_JSON_TYPE);
         jg.writeArrayFieldStart("entries");
-        for (EntityType entity : list) {
-            documentWriter.write(entity, elClazz, elClazz, APPLICATION_JSON_TYPE, new OutputStreamWithJsonWriter(jg));
+        try (Closeable prefetched = prefetchEnrichers(documentWriter, list)) {
+            writeEntries(list, documentWriter, jg);
         }
         jg.writeEndArray();
         extend(list, jg);
         jg.writeEndObject();
     }
 
+    /**
+     * Writes the elements of the list, inside the "entries" array.
+     *
+     * @since 11.5
+     */
+    protected void writeEntries(List<EntityType> list, Writer<EntityType> elementWriter, JsonGenerator jg)
+            throws IOException {
+        for (EntityType entity : list) {
+            elementWriter.write(entity, elClazz, elClazz, APPLICATION_JSON_TYPE, new OutputStreamWithJsonWriter(jg));
+        }
+    }
+
+    /**
+     * Lets the batch enrichers of the elements prefetch what they need for the whole list.
+     *
+     * @since 11.5
+     */
+    protected Closeable prefetchEnrichers(Writer<EntityType> elementWriter, List<EntityType> list) throws IOException {
+        if (elementWriter instanceof ExtensibleEntityJsonWriter) {
+            return ((ExtensibleEntityJsonWriter<EntityType>) elementWriter).prefetchEnrichers(list);
+        }
+        return () -> {
+        };
+    }
+
     private void writePaginationInfos(List<EntityType> list, JsonGenerator jg) throws IOException {
         if (list instanceof Paginable) {
             Paginable<?> paginable = (Paginable<?>) list;
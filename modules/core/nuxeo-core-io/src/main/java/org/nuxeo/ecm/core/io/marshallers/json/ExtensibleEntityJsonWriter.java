@@ -32,6 +32,9 @@ import java.util.List;
 import java.util.Set;
 
 import org.apache.commons.lang3.reflect.TypeUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.io.marshallers.json.enrichers.AbstractBatchJsonEnricher;
 import org.nuxeo.ecm.core.io.marshallers.json.enrichers.Enriched;
 import org.nuxeo.ecm.core.io.registry.MarshallerRegistry;
 import org.nuxeo.ecm.core.io.registry.Writer;
@@ -53,6 +56,8 @@ import io.opencensus.trace.Tracing;
  */
 public abstract class ExtensibleEntityJsonWriter<EntityType> extends AbstractJsonWriter<EntityType> {
 
+    private static final Logger log = LogManager.getLogger(ExtensibleEntityJsonWriter.class);
+
     /**
      * The "entity-type" Json property value.
      */
@@ -119,6 +124,60 @@ public abstract class ExtensibleEntityJsonWriter<EntityType> extends AbstractJso
         span.addAnnotation("json#write " + entityType + ".done");
     }
 
+    /**
+     * Prefetches the data needed by the activated {@link AbstractBatchJsonEnricher}s to enrich the given entities, and
+     * makes it available to them while the entities are written.
+     *
+     * @param entities The entities about to be written.
+     * @return A resource to close once the entities are written.
+     * @since 11.5
+     */
+    public Closeable prefetchEnrichers(List<EntityType> entities) throws IOException {
+        Set<String> enrichers = ctx.getEnrichers(entityType);
+        if (enrichers.isEmpty() || entities.isEmpty()) {
+            return () -> {
+            };
+        }
+        WrappedContext prefetchedCtx = ctx.wrap();
+        try {
+            // same depth control as when the entities are written
+            WrappedContext wrappedCtx = ctx.wrap().controlDepth();
+            for (String enricherName : enrichers) {
+                try (Closeable resource = wrappedCtx.with(ENTITY_ENRICHER_NAME, enricherName).open()) {
+                    @SuppressWarnings("rawtypes")
+                    Collection<Writer<Enriched>> writers = registry.getAllWriters(ctx, Enriched.class,
+                            this.genericType, APPLICATION_JSON_TYPE);
+                    for (@SuppressWarnings("rawtypes")
+                    Writer<Enriched> writer : writers) {
+                        if (writer instanceof AbstractBatchJsonEnricher) {
+                            @SuppressWarnings("unchecked")
+                            AbstractBatchJsonEnricher<EntityType, ?> enricher = //
+                                    (AbstractBatchJsonEnricher<EntityType, ?>) writer;
+                            Object prefetched = prefetch(enricher, entities);
+                            if (prefetched != null) {
+                                prefetchedCtx.with(enricher.getPrefetchedParameter(), prefetched);
+                            }
+                        }
+                    }
+                }
+            }
+        } catch (MaxDepthReachedException e) {
+            // enrichers won't be called
+        }
+        return prefetchedCtx.open();
+    }
+
+    protected Object prefetch(AbstractBatchJsonEnricher<EntityType, ?> enricher, List<EntityType> entities) {
+        try {
+            return enricher.prefetch(entities);
+        } catch (Exception e) { // NOSONAR
+            // the entities will be enriched one by one
+            log.warn("Enricher: {} failed to prefetch: {}", enricher.getClass().getName(), e.toString());
+            log.debug(e, e);
+            return null;
+        }
+    }
+
     /**
      * Implement this method to write the entity body.
      *
@@ -30,7 +30,9 @@ import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Calendar;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.inject.Inject;
 
@@ -51,6 +53,8 @@ import org.nuxeo.ecm.core.schema.utils.DateParser;
 import org.nuxeo.runtime.api.Framework;
 
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
 
 /**
  * Convert {@link DocumentModel} to Json.
@@ -130,6 +134,61 @@ public class DocumentModelJsonWriter extends ExtensibleEntityJsonWriter<Document
         return ctx.getFetched(ENTITY_TYPE).contains(name) || fetchHeavy();
     }
 
+    /**
+     * The fields to write for each schema, by schema name.
+     *
+     * @since 11.5
+     */
+    protected static final Map<String, SchemaFields> SCHEMA_FIELDS = new ConcurrentHashMap<>();
+
+    /**
+     * The prefixed names of the fields of a schema, computed once and with their Json encoding.
+     *
+     * @since 11.5
+     */
+    protected static class SchemaFields {
+
+        protected final Schema schema;
+
+        protected final String[] names;
+
+        protected final SerializableString[] jsonNames;
+
+        protected SchemaFields(Schema schema) {
+            this.schema = schema;
+            String prefix = schema.getNamespace().prefix;
+            if (prefix == null || prefix.length() == 0) {
+                prefix = schema.getName();
+            }
+            prefix = prefix + ":";
+            int size = schema.getFields().size();
+            names = new String[size];
+            jsonNames = new SerializableString[size];
+            int i = 0;
+            for (Field field : schema.getFields()) {
+                String prefixedName = prefix + field.getName().getLocalName();
+                names[i] = prefixedName;
+                jsonNames[i] = new SerializedString(prefixedName);
+                i++;
+            }
+        }
+    }
+
+    /**
+     * Gets the fields to write for the given schema.
+     *
+     * @since 11.5
+     */
+    protected static SchemaFields getSchemaFields(Schema schema) {
+        SchemaFields fields = SCHEMA_FIELDS.get(schema.getName());
+        if (fields == null || fields.schema != schema) {
+            // first use, or the schemas were reloaded
+            fields = new SchemaFields(schema);
+            SCHEMA_FIELDS.put(schema.getName(), fields);
+        }
+        return fields;
+    }
+
     @Inject
     protected SchemaManager schemaManager;
 
@@ -232,21 +291,26 @@ public class DocumentModelJsonWriter extends ExtensibleEntityJsonWriter<Document
 
     protected void writeSchemaProperties(JsonGenerator jg, DocumentModel doc, String schemaName) throws IOException {
         Writer<Property> propertyWriter = registry.getWriter(ctx, Property.class, APPLICATION_JSON_TYPE);
+        // the default property writer is called directly, it doesn't need a stream and a flush for each property
+        DocumentPropertyJsonWriter defaultWriter = propertyWriter.getClass() == DocumentPropertyJsonWriter.class
+                ? (DocumentPropertyJsonWriter) propertyWriter
+                : null;
         // provides the current document to the property marshaller
         try (Closeable resource = ctx.wrap().with(ENTITY_TYPE, doc).open()) {
-            Schema schema = schemaManager.getSchema(schemaName);
-            String prefix = schema.getNamespace().prefix;
-            if (prefix == null || prefix.length() == 0) {
-                prefix = schemaName;
-            }
-            prefix = prefix + ":";
-            for (Field field : schema.getFields()) {
-                String prefixedName = prefix + field.getName().getLocalName();
-                Property property = doc.getProperty(prefixedName);
+            SchemaFields fields = getSchemaFields(schemaManager.getSchema(schemaName));
+            OutputStream out = null;
+            for (int i = 0; i < fields.names.length; i++) {
+                Property property = doc.getProperty(fields.names[i]);
                 if (!DocumentPropertyJsonWriter.skipProperty(ctx, property)) {
-                    jg.writeFieldName(prefixedName);
-                    OutputStream out = new OutputStreamWithJsonWriter(jg);
-                    propertyWriter.write(property, Property.class, Property.class, APPLICATION_JSON_TYPE, out);
+                    jg.writeFieldName(fields.jsonNames[i]);
+                    if (defaultWriter != null) {
+                        defaultWriter.writeProperty(jg, property);
+                    } else {
+                        if (out == null) {
+                            out = new OutputStreamWithJsonWriter(jg);
+                        }
+                        propertyWriter.write(property, Property.class, Property.class, APPLICATION_JSON_TYPE, out);
+                    }
                 }
             }
         }
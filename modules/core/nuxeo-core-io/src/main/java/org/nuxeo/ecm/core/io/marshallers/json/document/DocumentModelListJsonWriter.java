@@ -19,23 +19,56 @@
 
 package org.nuxeo.ecm.core.io.marshallers.json.document;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
 import static org.nuxeo.ecm.automation.core.util.PaginableDocumentModelList.CODEC_PARAMETER_NAME;
 import static org.nuxeo.ecm.core.io.registry.reflect.Instantiations.SINGLETON;
 import static org.nuxeo.ecm.core.io.registry.reflect.Priorities.REFERENCE;
 
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.Principal;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.commons.lang3.math.NumberUtils;
 import org.nuxeo.ecm.automation.core.util.PaginableDocumentModelList;
 import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.io.marshallers.json.DefaultListJsonWriter;
+import org.nuxeo.ecm.core.io.marshallers.json.JsonFactoryProvider;
+import org.nuxeo.ecm.core.io.marshallers.json.OutputStreamWithJsonWriter;
+import org.nuxeo.ecm.core.io.registry.MarshallingException;
+import org.nuxeo.ecm.core.io.registry.Writer;
+import org.nuxeo.ecm.core.io.registry.context.RenderingContext;
+import org.nuxeo.ecm.core.io.registry.context.RenderingContextImpl.RenderingContextBuilder;
 import org.nuxeo.ecm.core.io.registry.reflect.Setup;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.api.login.LoginComponent;
+import org.nuxeo.runtime.api.login.NuxeoLoginContext;
+import org.nuxeo.runtime.transaction.TransactionHelper;
 
 import com.fasterxml.jackson.core.JsonGenerator;
 
 /**
  * see {@link DefaultListJsonWriter}
+ * <p>
+ * When the {@value #PARALLEL_PROPERTY} framework property is {@code true}, the documents of a list are rendered in
+ * parallel by a bounded pool of {@value #PARALLEL_THREADS_PROPERTY} threads, then written in order, which produces the
+ * same Json. Each document is rendered as the current user but in its own transaction, so it doesn't see the changes
+ * not yet committed by the current transaction: this mode must only be enabled if the rendered lists don't depend on
+ * such changes. Lists written while rendering a document in parallel, by enrichers for instance, are rendered
+ * sequentially, as waiting for the same pool could exhaust it.
  *
  * @since 7.2
  */
@@ -44,6 +77,51 @@ public class DocumentModelListJsonWriter extends DefaultListJsonWriter<DocumentM
 
     public static final String ENTITY_DOCUMENT_LIST = "documents";
 
+    /** @since 11.5 */
+    public static final String PARALLEL_PROPERTY = "nuxeo.document.json.list.parallel";
+
+    /** @since 11.5 */
+    public static final String PARALLEL_THREADS_PROPERTY = "nuxeo.document.json.list.parallel.threads";
+
+    /** @since 11.5 */
+    public static final int DEFAULT_PARALLEL_THREADS = 4;
+
+    protected static volatile ExecutorService parallelExecutor;
+
+    /**
+     * Whether the current thread is rendering a document in parallel.
+     *
+     * @since 11.5
+     */
+    protected static final ThreadLocal<Boolean> PARALLEL_RENDERING = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    /**
+     * Gets the executor rendering documents in parallel, creating it on first use.
+     *
+     * @since 11.5
+     */
+    protected static ExecutorService getParallelExecutor() {
+        if (parallelExecutor == null) {
+            synchronized (DocumentModelListJsonWriter.class) {
+                if (parallelExecutor == null) {
+                    int threads = NumberUtils.toInt(Framework.getProperty(PARALLEL_THREADS_PROPERTY),
+                            DEFAULT_PARALLEL_THREADS);
+                    AtomicInteger threadNumber = new AtomicInteger();
+                    ThreadFactory threadFactory = r -> {
+                        Thread thread = new Thread(r, "Nuxeo-JsonDocumentList-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    };
+                    ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                            new LinkedBlockingQueue<>(), threadFactory);
+                    executor.allowCoreThreadTimeOut(true);
+                    parallelExecutor = executor;
+                }
+            }
+        }
+        return parallelExecutor;
+    }
+
     public DocumentModelListJsonWriter() {
         super(ENTITY_DOCUMENT_LIST, DocumentModel.class);
     }
@@ -61,4 +139,111 @@ public class DocumentModelListJsonWriter extends DefaultListJsonWriter<DocumentM
         }
     }
 
+    @Override
+    protected void writeEntries(List<DocumentModel> docs, Writer<DocumentModel> documentWriter, JsonGenerator jg)
+            throws IOException {
+        if (docs.size() < 2 || PARALLEL_RENDERING.get().booleanValue()
+                || !Framework.isBooleanPropertyTrue(PARALLEL_PROPERTY)) {
+            super.writeEntries(docs, documentWriter, jg);
+            return;
+        }
+        // the rendering context is bound to the current thread, each rendering gets a copy
+        RenderingContext current = ctx;
+        Principal principal = LoginComponent.getCurrentPrincipal();
+        List<Future<RenderedDocument>> futures = new ArrayList<>(docs.size());
+        for (DocumentModel doc : docs) {
+            RenderingContext docCtx = copyContext(current);
+            futures.add(getParallelExecutor().submit(() -> renderDocument(doc, docCtx, principal)));
+        }
+        try {
+            for (Future<RenderedDocument> future : futures) {
+                RenderedDocument rendered = future.get();
+                jg.writeRawValue(rendered.json);
+                if (!rendered.entityTypes.isEmpty()) {
+                    ctx.addParameterListValues(RenderingContext.RESPONSE_HEADER_ENTITY_TYPE_KEY,
+                            rendered.entityTypes);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new MarshallingException("interrupted", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) cause).getCause();
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new MarshallingException(cause);
+        } finally {
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * A document rendered as Json, and the entity types it added to the rendering context.
+     *
+     * @since 11.5
+     */
+    protected static class RenderedDocument {
+
+        protected final String json;
+
+        protected final List<Object> entityTypes;
+
+        protected RenderedDocument(String json, List<Object> entityTypes) {
+            this.json = json;
+            this.entityTypes = entityTypes;
+        }
+    }
+
+    /**
+     * Copies a rendering context, including its wrapped entities, so that it can be used by another thread.
+     *
+     * @since 11.5
+     */
+    protected static RenderingContext copyContext(RenderingContext context) {
+        RenderingContextBuilder builder = RenderingContext.CtxBuilder.base(context.getBaseUrl())
+                                                                     .locale(context.getLocale());
+        for (Entry<String, List<Object>> entry : context.getAllParameters().entrySet()) {
+            builder.paramList(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        return builder.get();
+    }
+
+    /**
+     * Renders a document in the current thread, as the given user and in a new transaction.
+     *
+     * @since 11.5
+     */
+    protected RenderedDocument renderDocument(DocumentModel doc, RenderingContext docCtx, Principal principal) {
+        PARALLEL_RENDERING.set(Boolean.TRUE);
+        try (NuxeoLoginContext loginContext = principal == null ? null : NuxeoLoginContext.create(principal)) {
+            if (loginContext != null) {
+                loginContext.login();
+            }
+            return TransactionHelper.runInTransaction(() -> {
+                try {
+                    int entityTypesCount = docCtx.getParameters(RenderingContext.RESPONSE_HEADER_ENTITY_TYPE_KEY)
+                                                 .size();
+                    ByteArrayOutputStream out = new ByteArrayOutputStream();
+                    try (JsonGenerator docJg = JsonFactoryProvider.get().createGenerator(out)) {
+                        // configures the marshallers for this thread
+                        Writer<DocumentModel> writer = registry.getWriter(docCtx, DocumentModel.class,
+                                APPLICATION_JSON_TYPE);
+                        writer.write(doc, DocumentModel.class, DocumentModel.class, APPLICATION_JSON_TYPE,
+                                new OutputStreamWithJsonWriter(docJg));
+                    }
+                    List<Object> entityTypes = docCtx.getParameters(RenderingContext.RESPONSE_HEADER_ENTITY_TYPE_KEY);
+                    entityTypes = new ArrayList<>(entityTypes.subList(entityTypesCount, entityTypes.size()));
+                    return new RenderedDocument(out.toString(UTF_8), entityTypes);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } finally {
+            PARALLEL_RENDERING.remove();
+        }
+    }
+
 }
@@ -32,6 +32,7 @@ import java.io.IOException;
 import java.lang.reflect.ParameterizedType;
 import java.util.Collection;
 import java.util.Set;
+import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.reflect.TypeUtils;
 import org.apache.commons.logging.Log;
@@ -99,6 +100,9 @@ public class DocumentPropertyJsonWriter extends AbstractJsonWriter<Property> {
 
     private static final Log log = LogFactory.getLog(DocumentPropertyJsonWriter.class);
 
+    /** @since 11.5 */
+    protected static final Pattern LIST_INDEX = Pattern.compile("/[0-9]*/");
+
     @Override
     public void write(Property prop, JsonGenerator jg) throws IOException {
         writeProperty(jg, prop);
@@ -152,7 +156,7 @@ public class DocumentPropertyJsonWriter extends AbstractJsonWriter<Property> {
         }
         boolean fetched = false;
         if (resolver != null) {
-            String genericPropertyPath = path.replaceAll("/[0-9]*/", "/*/");
+            String genericPropertyPath = LIST_INDEX.matcher(path).replaceAll("/*/");
             Set<String> fetchElements = ctx.getFetched(ENTITY_TYPE);
             boolean fetch = false;
             for (String fetchElement : fetchElements) {
@@ -0,0 +1,79 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.io.marshallers.json.enrichers;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.nuxeo.ecm.core.io.marshallers.json.DefaultListJsonWriter;
+import org.nuxeo.ecm.core.io.marshallers.json.ExtensibleEntityJsonWriter;
+
+/**
+ * Base class for enrichers that can prepare the enrichment of a whole list of entities at once.
+ * <p>
+ * When a list of entities is written by a {@link DefaultListJsonWriter}, {@link #prefetch} is first called with all
+ * the entities of the list, for instance to run a single query instead of one per entity. The returned data is then
+ * available through {@link #getPrefetched} while the entities of the list are written one by one by the usual
+ * {@link #write(com.fasterxml.jackson.core.JsonGenerator, Object) write} method.
+ * <p>
+ * As an entity may also be written outside of a list, or be missing from the prefetched data, the write method must
+ * still be able to compute the enrichment of a single entity.
+ *
+ * @param <EntityType> The Java type whose the generated JSON will be enriched.
+ * @param <PrefetchedType> The type of the data prefetched for a list of entities.
+ * @since 11.5
+ */
+public abstract class AbstractBatchJsonEnricher<EntityType, PrefetchedType> extends AbstractJsonEnricher<EntityType> {
+
+    protected static final String PREFETCHED_PARAMETER_PREFIX = "_EntityEnricherPrefetched_";
+
+    private final String prefetchedParameter;
+
+    public AbstractBatchJsonEnricher(String name) {
+        super(name);
+        prefetchedParameter = PREFETCHED_PARAMETER_PREFIX + name;
+    }
+
+    /**
+     * Gets the name of the rendering context parameter holding the data prefetched by this enricher.
+     *
+     * @see ExtensibleEntityJsonWriter#prefetchEnrichers
+     */
+    public String getPrefetchedParameter() {
+        return prefetchedParameter;
+    }
+
+    /**
+     * Prefetches the data needed to enrich the given entities.
+     *
+     * @param entities The entities of the list about to be written.
+     * @return The prefetched data, or {@code null} if nothing was prefetched.
+     */
+    public abstract PrefetchedType prefetch(List<EntityType> entities) throws IOException;
+
+    /**
+     * Gets the data prefetched for the list being written.
+     *
+     * @return The prefetched data, or {@code null} if there is none.
+     */
+    protected PrefetchedType getPrefetched() {
+        return ctx.getParameter(prefetchedParameter);
+    }
+
+}
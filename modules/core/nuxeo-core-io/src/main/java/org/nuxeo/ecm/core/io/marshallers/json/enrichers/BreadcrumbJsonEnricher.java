@@ -23,9 +23,20 @@ import static org.nuxeo.ecm.core.io.registry.reflect.Instantiations.SINGLETON;
 import static org.nuxeo.ecm.core.io.registry.reflect.Priorities.REFERENCE;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 
+import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentRef;
 import org.nuxeo.ecm.core.api.impl.DocumentModelListImpl;
 import org.nuxeo.ecm.core.io.marshallers.json.document.DocumentModelListJsonWriter;
 import org.nuxeo.ecm.core.io.registry.context.RenderingContext.SessionWrapper;
@@ -51,11 +62,14 @@ import com.fasterxml.jackson.core.JsonGenerator;
  *   }
  * }
  * </pre>
+ * <p>
+ * For a list of documents, the parents of all the documents of the list are fetched at once by id, so that the parents
+ * they share are fetched only once.
  *
  * @since 7.2
  */
 @Setup(mode = SINGLETON, priority = REFERENCE)
-public class BreadcrumbJsonEnricher extends AbstractJsonEnricher<DocumentModel> {
+public class BreadcrumbJsonEnricher extends AbstractBatchJsonEnricher<DocumentModel, Map<String, List<DocumentModel>>> {
 
     public static final String NAME = "breadcrumb";
 
@@ -63,11 +77,57 @@ public class BreadcrumbJsonEnricher extends AbstractJsonEnricher<DocumentModel>
         super(NAME);
     }
 
+    @Override
+    public Map<String, List<DocumentModel>> prefetch(List<DocumentModel> documents) throws IOException {
+        String repositoryName = documents.get(0).getRepositoryName();
+        Map<DocumentModel, DocumentRef[]> parentRefs = new LinkedHashMap<>();
+        Set<DocumentRef> refs = new LinkedHashSet<>();
+        try (SessionWrapper wrapper = ctx.getSession(documents.get(0))) {
+            CoreSession session = wrapper.getSession();
+            for (DocumentModel document : documents) {
+                if (document.getId() == null || document.getPathAsString() == null
+                        || !Objects.equals(repositoryName, document.getRepositoryName())) {
+                    continue;
+                }
+                // the ids of the ancestors, from the parent up to the root
+                DocumentRef[] ancestors = session.getParentDocumentRefs(document.getRef());
+                parentRefs.put(document, ancestors);
+                refs.addAll(Arrays.asList(ancestors));
+            }
+            if (parentRefs.isEmpty()) {
+                return null;
+            }
+            Map<String, DocumentModel> byId = new HashMap<>();
+            // documents that cannot be read are skipped
+            session.getDocuments(refs.toArray(new DocumentRef[0])).forEach(doc -> byId.put(doc.getId(), doc));
+            Map<String, List<DocumentModel>> breadcrumbs = new HashMap<>();
+            parentRefs.forEach((document, ancestors) -> {
+                List<DocumentModel> parentDocuments = new ArrayList<>();
+                parentDocuments.add(document);
+                for (DocumentRef ref : ancestors) {
+                    DocumentModel parent = byId.get(ref.reference());
+                    if (parent == null || "/".equals(parent.getPathAsString())) {
+                        // stop at the root or at the first document that cannot be read, like
+                        // CoreSession.getParentDocuments
+                        break;
+                    }
+                    parentDocuments.add(parent);
+                }
+                Collections.reverse(parentDocuments);
+                breadcrumbs.put(document.getId(), parentDocuments);
+            });
+            return breadcrumbs;
+        }
+    }
+
     @Override
     public void write(JsonGenerator jg, DocumentModel document) throws IOException {
-        List<DocumentModel> parentDocuments = null;
-        try (SessionWrapper wrapper = ctx.getSession(document)) {
-            parentDocuments = wrapper.getSession().getParentDocuments(document.getRef());
+        Map<String, List<DocumentModel>> prefetched = getPrefetched();
+        List<DocumentModel> parentDocuments = prefetched == null ? null : prefetched.get(document.getId());
+        if (parentDocuments == null) {
+            try (SessionWrapper wrapper = ctx.getSession(document)) {
+                parentDocuments = wrapper.getSession().getParentDocuments(document.getRef());
+            }
         }
         DocumentModelListImpl documentList = new DocumentModelListImpl(parentDocuments);
         jg.writeFieldName(NAME);
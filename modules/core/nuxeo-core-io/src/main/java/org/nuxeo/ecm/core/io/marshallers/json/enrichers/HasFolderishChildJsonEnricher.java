@@ -22,9 +22,18 @@ package org.nuxeo.ecm.core.io.marshallers.json.enrichers;
 import static org.nuxeo.ecm.core.io.registry.reflect.Instantiations.SINGLETON;
 import static org.nuxeo.ecm.core.io.registry.reflect.Priorities.REFERENCE;
 
+import static java.util.stream.Collectors.joining;
+
 import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.PartialList;
 import org.nuxeo.ecm.core.io.registry.context.RenderingContext.SessionWrapper;
 import org.nuxeo.ecm.core.io.registry.reflect.Setup;
 import org.nuxeo.ecm.core.query.sql.NXQL;
@@ -32,26 +41,75 @@ import org.nuxeo.ecm.core.query.sql.NXQL;
 import com.fasterxml.jackson.core.JsonGenerator;
 
 /**
+ * Enrich {@link DocumentModel} Json with whether the document has a folderish child.
+ * <p>
+ * For a list of documents, the folderish children of all the folders of the list are looked up with a single query.
+ *
  * @since 8.10
  */
 @Setup(mode = SINGLETON, priority = REFERENCE)
-public class HasFolderishChildJsonEnricher extends AbstractJsonEnricher<DocumentModel> {
+public class HasFolderishChildJsonEnricher extends AbstractBatchJsonEnricher<DocumentModel, Map<String, Boolean>> {
 
     public static final String NAME = "hasFolderishChild";
 
+    /**
+     * The maximum number of folderish children looked up for a list of documents, above which they're looked up for
+     * each document.
+     *
+     * @since 11.5
+     */
+    public static final int PREFETCH_LIMIT = 1000;
+
+    protected static final String FOLDERISH_CHILD_CLAUSE = "ecm:mixinType = 'Folderish'"
+            + " AND ecm:mixinType != 'HiddenInNavigation' AND ecm:isTrashed = 0";
+
     public HasFolderishChildJsonEnricher() {
         super(NAME);
     }
 
+    @Override
+    public Map<String, Boolean> prefetch(List<DocumentModel> documents) throws IOException {
+        String repositoryName = documents.get(0).getRepositoryName();
+        List<String> ids = new ArrayList<>();
+        for (DocumentModel document : documents) {
+            if (document.isFolder() && document.getId() != null
+                    && Objects.equals(repositoryName, document.getRepositoryName())) {
+                ids.add(document.getId());
+            }
+        }
+        if (ids.isEmpty()) {
+            return null;
+        }
+        PartialList<Map<String, Serializable>> projection;
+        try (SessionWrapper wrapper = ctx.getSession(documents.get(0))) {
+            String query = "SELECT " + NXQL.ECM_PARENTID + " FROM Document WHERE " + FOLDERISH_CHILD_CLAUSE + " AND "
+                    + NXQL.ECM_PARENTID + " IN (" + ids.stream().map(NXQL::escapeString).collect(joining(", ")) + ")";
+            projection = wrapper.getSession().queryProjection(query, PREFETCH_LIMIT, 0);
+        }
+        if (projection.size() >= PREFETCH_LIMIT) {
+            // some folders may have been left out
+            return null;
+        }
+        Map<String, Boolean> hasChildren = new HashMap<>();
+        ids.forEach(id -> hasChildren.put(id, Boolean.FALSE));
+        projection.forEach(map -> hasChildren.put((String) map.get(NXQL.ECM_PARENTID), Boolean.TRUE));
+        return hasChildren;
+    }
+
     @Override
     public void write(JsonGenerator jg, DocumentModel document) throws IOException {
         if (!document.isFolder()) {
             jg.writeBooleanField(NAME, false);
             return;
         }
+        Map<String, Boolean> prefetched = getPrefetched();
+        Boolean prefetchedHasChildren = prefetched == null ? null : prefetched.get(document.getId());
+        if (prefetchedHasChildren != null) {
+            jg.writeBooleanField(NAME, prefetchedHasChildren.booleanValue());
+            return;
+        }
         try (SessionWrapper wrapper = ctx.getSession(document)) {
-            String fetchFolderishChildQuery = "SELECT * FROM Document WHERE ecm:mixinType = 'Folderish'"
-                    + " AND ecm:mixinType != 'HiddenInNavigation' AND ecm:isTrashed = 0"
+            String fetchFolderishChildQuery = "SELECT * FROM Document WHERE " + FOLDERISH_CHILD_CLAUSE
                     + " AND ecm:parentId = " + NXQL.escapeString(document.getId());
             // Limit result set to 1 as we just want to know if there's at least one Folderish child
             boolean hasChildren = !wrapper.getSession().queryProjection(fetchFolderishChildQuery, 1, 0).isEmpty();
@@ -20,9 +20,12 @@
 package org.nuxeo.ecm.core.io.registry;
 
 import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentSkipListSet;
@@ -81,6 +84,59 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
      */
     private static final Map<Class<?>, MarshallerInspector> marshallersByType = new ConcurrentHashMap<>();
 
+    /**
+     * {@link MarshallerInspector}s whose managed types are compatible with a lookup, in search order. This doesn't
+     * depend on the {@link RenderingContext}, so it's computed once for each marshalled type and cleared when the
+     * registered marshallers change.
+     *
+     * @since 11.5
+     */
+    private static final Map<CandidatesKey, List<MarshallerInspector>> candidatesCache = new ConcurrentHashMap<>();
+
+    /**
+     * The key of a lookup in {@link #candidatesCache}.
+     *
+     * @since 11.5
+     */
+    private static final class CandidatesKey {
+
+        private final boolean reader;
+
+        private final Class<?> marshalledClazz;
+
+        private final Type genericType;
+
+        private final MediaType mediatype;
+
+        private final int hashCode;
+
+        private CandidatesKey(boolean reader, Class<?> marshalledClazz, Type genericType, MediaType mediatype) {
+            this.reader = reader;
+            this.marshalledClazz = marshalledClazz;
+            this.genericType = genericType;
+            this.mediatype = mediatype;
+            hashCode = Objects.hash(reader, marshalledClazz, genericType, mediatype);
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof CandidatesKey)) {
+                return false;
+            }
+            CandidatesKey other = (CandidatesKey) obj;
+            return reader == other.reader && marshalledClazz.equals(other.marshalledClazz)
+                    && Objects.equals(genericType, other.genericType) && Objects.equals(mediatype, other.mediatype);
+        }
+    }
+
     @Override
     public void deactivate(ComponentContext context) {
         clear();
@@ -155,6 +211,8 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
                 inspectors.add(inspector);
             }
         }
+        // after the sets are updated, so that concurrent lookups don't cache stale candidates
+        candidatesCache.clear();
     }
 
     @Override
@@ -188,29 +246,30 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
                 }
             }
         }
+        candidatesCache.clear();
     }
 
     @Override
     public <T> Writer<T> getWriter(RenderingContext ctx, Class<T> marshalledClazz, Type genericType,
             MediaType mediatype) {
-        Set<MarshallerInspector> candidates = writersByMediaType.get(mediatype);
-        return (Writer<T>) getMarshaller(ctx, marshalledClazz, genericType, mediatype, candidates, writers, false);
+        List<MarshallerInspector> candidates = getCandidates(false, marshalledClazz, genericType, mediatype);
+        return (Writer<T>) acceptCandidate(ctx, marshalledClazz, genericType, mediatype, candidates, false);
     }
 
     @Override
     public <T> Writer<T> getUniqueWriter(RenderingContext ctx, Class<T> marshalledClazz, Type genericType,
             MediaType mediatype) {
-        Set<MarshallerInspector> candidates = writersByMediaType.get(mediatype);
-        return (Writer<T>) getMarshaller(ctx, marshalledClazz, genericType, mediatype, candidates, writers, true);
+        List<MarshallerInspector> candidates = getCandidates(false, marshalledClazz, genericType, mediatype);
+        return (Writer<T>) acceptCandidate(ctx, marshalledClazz, genericType, mediatype, candidates, true);
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public <T> Collection<Writer<T>> getAllWriters(RenderingContext ctx, Class<T> marshalledClazz, Type genericType,
             MediaType mediatype) {
-        Set<MarshallerInspector> candidates = writersByMediaType.get(mediatype);
-        Collection<Marshaller<T>> founds = getAllMarshallers(ctx, marshalledClazz, genericType, mediatype, candidates,
-                writers);
+        List<MarshallerInspector> candidates = getCandidates(false, marshalledClazz, genericType, mediatype);
+        Collection<Marshaller<T>> founds = acceptAllCandidates(ctx, marshalledClazz, genericType, mediatype,
+                candidates).values();
         return (Collection<Writer<T>>) (Collection<?>) founds;
     }
 
@@ -222,24 +281,24 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
     @Override
     public <T> Reader<T> getReader(RenderingContext ctx, Class<T> marshalledClazz, Type genericType,
             MediaType mediatype) {
-        Set<MarshallerInspector> candidates = readersByMediaType.get(mediatype);
-        return (Reader<T>) getMarshaller(ctx, marshalledClazz, genericType, mediatype, candidates, readers, false);
+        List<MarshallerInspector> candidates = getCandidates(true, marshalledClazz, genericType, mediatype);
+        return (Reader<T>) acceptCandidate(ctx, marshalledClazz, genericType, mediatype, candidates, false);
     }
 
     @Override
     public <T> Reader<T> getUniqueReader(RenderingContext ctx, Class<T> marshalledClazz, Type genericType,
             MediaType mediatype) {
-        Set<MarshallerInspector> candidates = readersByMediaType.get(mediatype);
-        return (Reader<T>) getMarshaller(ctx, marshalledClazz, genericType, mediatype, candidates, readers, true);
+        List<MarshallerInspector> candidates = getCandidates(true, marshalledClazz, genericType, mediatype);
+        return (Reader<T>) acceptCandidate(ctx, marshalledClazz, genericType, mediatype, candidates, true);
     }
 
     @Override
     @SuppressWarnings("unchecked")
     public <T> Collection<Reader<T>> getAllReaders(RenderingContext ctx, Class<T> marshalledClazz, Type genericType,
             MediaType mediatype) {
-        Set<MarshallerInspector> candidates = readersByMediaType.get(mediatype);
-        Collection<Marshaller<T>> founds = getAllMarshallers(ctx, marshalledClazz, genericType, mediatype, candidates,
-                readers);
+        List<MarshallerInspector> candidates = getCandidates(true, marshalledClazz, genericType, mediatype);
+        Collection<Marshaller<T>> founds = acceptAllCandidates(ctx, marshalledClazz, genericType, mediatype,
+                candidates).values();
         return (Collection<Reader<T>>) (Collection<?>) founds;
     }
 
@@ -272,26 +331,64 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
         return result.values();
     }
 
-    @SuppressWarnings("unchecked")
+    /**
+     * Gets the inspectors whose managed types are compatible with the given ones, in search order: the ones managing
+     * the given media type, then all of them.
+     *
+     * @since 11.5
+     */
+    private List<MarshallerInspector> getCandidates(boolean reader, Class<?> marshalledClazz, Type genericType,
+            MediaType mediatype) {
+        CandidatesKey key = new CandidatesKey(reader, marshalledClazz, genericType, mediatype);
+        return candidatesCache.computeIfAbsent(key, k -> {
+            Set<MarshallerInspector> customs = (reader ? readersByMediaType : writersByMediaType).get(mediatype);
+            Set<MarshallerInspector> wildcards = reader ? readers : writers;
+            List<MarshallerInspector> candidates = new ArrayList<>();
+            if (customs != null) {
+                customs.stream().filter(i -> isCompatible(i, marshalledClazz, genericType)).forEach(candidates::add);
+            }
+            wildcards.stream().filter(i -> isCompatible(i, marshalledClazz, genericType)).forEach(candidates::add);
+            return candidates;
+        });
+    }
+
+    private static boolean isCompatible(MarshallerInspector inspector, Class<?> marshalledClazz, Type genericType) {
+        // checks the managed class is compatible
+        if (!inspector.getMarshalledType().isAssignableFrom(marshalledClazz)) {
+            return false;
+        }
+        // checks the generic type is compatible
+        return genericType == null || marshalledClazz.equals(inspector.getGenericType())
+                || TypeUtils.isAssignable(genericType, inspector.getGenericType());
+    }
+
     private <T> Marshaller<T> searchCandidate(RenderingContext ctx, Class<T> marshalledClazz, Type genericType,
             MediaType mediatype, Set<MarshallerInspector> candidates, boolean forceInstantiation) {
+        List<MarshallerInspector> compatibles = new ArrayList<>();
         for (MarshallerInspector inspector : candidates) {
-            // checks the managed class is compatible
-            if (inspector.getMarshalledType().isAssignableFrom(marshalledClazz)) {
-                // checks the generic type is compatible
-                if (genericType == null || marshalledClazz.equals(inspector.getGenericType())
-                        || TypeUtils.isAssignable(genericType, inspector.getGenericType())) {
-                    Marshaller<T> marshaller = null;
-                    if (forceInstantiation) {
-                        marshaller = (Marshaller<T>) inspector.getNewInstance(ctx, false);
-                    } else {
-                        marshaller = inspector.getInstance(ctx);
-                    }
-                    // checks the marshaller accepts the request
-                    if (marshaller.accept(marshalledClazz, genericType, mediatype)) {
-                        return marshaller;
-                    }
-                }
+            if (isCompatible(inspector, marshalledClazz, genericType)) {
+                compatibles.add(inspector);
+            }
+        }
+        return acceptCandidate(ctx, marshalledClazz, genericType, mediatype, compatibles, forceInstantiation);
+    }
+
+    /**
+     * Gets the first marshaller accepting the request among inspectors already known to be compatible.
+     */
+    @SuppressWarnings("unchecked")
+    private <T> Marshaller<T> acceptCandidate(RenderingContext ctx, Class<T> marshalledClazz, Type genericType,
+            MediaType mediatype, List<MarshallerInspector> compatibles, boolean forceInstantiation) {
+        for (MarshallerInspector inspector : compatibles) {
+            Marshaller<T> marshaller = null;
+            if (forceInstantiation) {
+                marshaller = (Marshaller<T>) inspector.getNewInstance(ctx, false);
+            } else {
+                marshaller = inspector.getInstance(ctx);
+            }
+            // checks the marshaller accepts the request
+            if (marshaller.accept(marshalledClazz, genericType, mediatype)) {
+                return marshaller;
             }
         }
         return null;
@@ -299,19 +396,26 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
 
     private <T> Map<MarshallerInspector, Marshaller<T>> searchAllCandidates(RenderingContext ctx,
             Class<T> marshalledClazz, Type genericType, MediaType mediatype, Set<MarshallerInspector> candidates) {
-        Map<MarshallerInspector, Marshaller<T>> result = new HashMap<>();
+        List<MarshallerInspector> compatibles = new ArrayList<>();
         for (MarshallerInspector inspector : candidates) {
-            // checks the managed class is compatible
-            if (inspector.getMarshalledType().isAssignableFrom(marshalledClazz)) {
-                // checks the generic type is compatible
-                if (genericType == null || marshalledClazz.equals(inspector.getGenericType())
-                        || TypeUtils.isAssignable(genericType, inspector.getGenericType())) {
-                    // checks the marshaller accepts the request
-                    Marshaller<T> marshaller = inspector.getInstance(ctx);
-                    if (marshaller.accept(marshalledClazz, genericType, mediatype)) {
-                        result.put(inspector, marshaller);
-                    }
-                }
+            if (isCompatible(inspector, marshalledClazz, genericType)) {
+                compatibles.add(inspector);
+            }
+        }
+        return acceptAllCandidates(ctx, marshalledClazz, genericType, mediatype, compatibles);
+    }
+
+    /**
+     * Gets all the marshallers accepting the request among inspectors already known to be compatible.
+     */
+    private <T> Map<MarshallerInspector, Marshaller<T>> acceptAllCandidates(RenderingContext ctx,
+            Class<T> marshalledClazz, Type genericType, MediaType mediatype, List<MarshallerInspector> compatibles) {
+        Map<MarshallerInspector, Marshaller<T>> result = new HashMap<>();
+        for (MarshallerInspector inspector : compatibles) {
+            // checks the marshaller accepts the request
+            Marshaller<T> marshaller = inspector.getInstance(ctx);
+            if (marshaller.accept(marshalledClazz, genericType, mediatype)) {
+                result.put(inspector, marshaller);
             }
         }
         return result;
@@ -344,6 +448,7 @@ public class MarshallerRegistryImpl extends DefaultComponent implements Marshall
         readersByMediaType.clear();
         writers.clear();
         readers.clear();
+        candidatesCache.clear();
     }
 
 }
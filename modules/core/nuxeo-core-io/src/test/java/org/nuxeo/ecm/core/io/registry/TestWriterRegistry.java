@@ -123,6 +123,20 @@ public class TestWriterRegistry {
         assertEquals(DefaultNumberWriter.class, writer.getClass());
     }
 
+    @Test
+    public void deregisterAfterLookup() throws Exception {
+        registry.register(DefaultNumberWriter.class);
+        registry.register(HigherPriorityWriter.class);
+        Writer<?> writer = registry.getWriter(ctx, Integer.class, null, APPLICATION_JSON_TYPE);
+        assertEquals(HigherPriorityWriter.class, writer.getClass());
+        // lookups are cached, check the cache follows the registry
+        registry.deregister(HigherPriorityWriter.class);
+        writer = registry.getWriter(ctx, Integer.class, null, APPLICATION_JSON_TYPE);
+        assertEquals(DefaultNumberWriter.class, writer.getClass());
+        registry.clear();
+        assertNull(registry.getWriter(ctx, Integer.class, null, APPLICATION_JSON_TYPE));
+    }
+
     // to force sub classes managing their priorities
     @Test
     public void prioriseParentClasses() throws Exception {
@@ -0,0 +1,369 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.schema;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputFilter.FilterInfo;
+import java.io.ObjectInputFilter.Status;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.CodeSource;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.xml.XMLConstants;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.common.Environment;
+import org.nuxeo.ecm.core.schema.types.Schema;
+import org.nuxeo.ecm.core.schema.types.Type;
+import org.nuxeo.ecm.core.schema.types.constraints.Constraint;
+import org.nuxeo.ecm.core.schema.types.resolver.ObjectResolver;
+import org.nuxeo.ecm.core.schema.types.resolver.ObjectResolverService;
+import org.nuxeo.runtime.api.Framework;
+
+/**
+ * A persistent cache of the schemas loaded from XSDs, to avoid parsing them again at startup.
+ * <p>
+ * The cache is a serialized snapshot of the {@link Schema} objects, stored in the data directory together with a key
+ * computed from:
+ * <ul>
+ * <li>the cache format version and the version of the code building the schemas,</li>
+ * <li>the distribution version,</li>
+ * <li>the registered {@link ObjectResolver} classes,</li>
+ * <li>the schema descriptors, their XSDs and the XSDs they include or import.</li>
+ * </ul>
+ * If the key doesn't match the current contributions, the schemas are loaded from the XSDs and the cache is rewritten.
+ * <p>
+ * Reading the cache only accepts the classes that can be part of a schema.
+ *
+ * @since 11.5
+ */
+public class SchemaCache {
+
+    private static final Logger log = LogManager.getLogger(SchemaCache.class);
+
+    public static final String CACHE_ENABLED_PROP = "org.nuxeo.schema.cache.enabled";
+
+    public static final String CACHE_FILE_NAME = "schemas.cache";
+
+    /**
+     * The version of the cache format, to increment when the way schemas are built or serialized changes.
+     */
+    public static final int CACHE_FORMAT_VERSION = 1;
+
+    /**
+     * The packages of the classes that can be read from the cache, in addition to types, constraints, resolvers and
+     * their nested classes.
+     */
+    protected static final List<String> ALLOWED_PACKAGES = List.of("java.lang.", "java.math.", "java.util.",
+            "org.nuxeo.ecm.core.schema.");
+
+    protected static final List<String> XSD_REFERENCES = List.of("include", "import", "redefine");
+
+    protected final File file;
+
+    public SchemaCache(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Gets the schema cache, or {@code null} if it's not enabled.
+     */
+    public static SchemaCache getSchemaCache() {
+        if (!Framework.isInitialized() || !Framework.isBooleanPropertyTrue(CACHE_ENABLED_PROP)) {
+            return null;
+        }
+        File dir = new File(Environment.getDefault().getData(), SchemaManagerImpl.SCHEMAS_DIR_NAME);
+        return new SchemaCache(new File(dir, CACHE_FILE_NAME));
+    }
+
+    /**
+     * Computes the cache key for the given schema descriptors, whose XSDs must have been copied to their file.
+     *
+     * @return the key, or {@code null} if it cannot be computed
+     */
+    public static byte[] computeKey(Collection<SchemaBindingDescriptor> sds) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            update(digest, String.valueOf(CACHE_FORMAT_VERSION));
+            update(digest, getCodeVersion());
+            update(digest, Framework.getProperty(Environment.DISTRIBUTION_VERSION));
+            ObjectResolverService objectResolverService = Framework.getService(ObjectResolverService.class);
+            Map<String, Class<? extends ObjectResolver>> resolvers = objectResolverService == null ? Map.of()
+                    : new TreeMap<>(objectResolverService.getResolverClasses());
+            update(digest, String.valueOf(resolvers.size()));
+            resolvers.forEach((type, klass) -> {
+                update(digest, type);
+                update(digest, klass.getName());
+            });
+            for (SchemaBindingDescriptor sd : sds) {
+                update(digest, sd.name);
+                update(digest, sd.prefix);
+                update(digest, sd.xsdRootElement);
+                update(digest, String.valueOf(sd.isVersionWritable));
+                if (sd.file == null) {
+                    update(digest, null);
+                } else {
+                    updateXSD(digest, sd, sd.file.getName(), new HashSet<>());
+                }
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException | IOException | XMLStreamException e) {
+            log.warn("Cannot compute schema cache key, not using the cache: {}", e.toString());
+            log.debug(e, e);
+            return null;
+        }
+    }
+
+    /**
+     * Gets a marker of the version of the code building the schemas, which changes with each build of this bundle.
+     */
+    protected static String getCodeVersion() {
+        CodeSource codeSource = SchemaCache.class.getProtectionDomain().getCodeSource();
+        URL location = codeSource == null ? null : codeSource.getLocation();
+        if (location == null) {
+            return null;
+        }
+        String version = SchemaCache.class.getPackage().getImplementationVersion();
+        if ("file".equals(location.getProtocol())) {
+            File file = FileUtils.toFile(location);
+            return version + ':' + file + ':' + file.lastModified() + ':' + file.length();
+        }
+        return version + ':' + location;
+    }
+
+    /**
+     * Adds an XSD and, recursively, the XSDs it includes or imports to the digest.
+     * <p>
+     * Referenced XSDs are looked up like {@link XSDLoader} does: relative to the directory of the copied schemas, then
+     * relative to the schema source in its bundle.
+     *
+     * @param path the path of the XSD relative to the directory of the copied schemas
+     */
+    protected static void updateXSD(MessageDigest digest, SchemaBindingDescriptor sd, String path, Set<String> done)
+            throws IOException, XMLStreamException {
+        update(digest, path);
+        if (!done.add(path)) {
+            return;
+        }
+        byte[] bytes = readXSD(sd, path);
+        if (bytes == null) {
+            update(digest, null);
+            return;
+        }
+        update(digest, String.valueOf(bytes.length));
+        digest.update(bytes);
+        for (String location : getReferencedXSDs(bytes)) {
+            if (location.contains(":")) {
+                // absolute URL, not resolved by XSDLoader
+                update(digest, location);
+            } else {
+                String referenced = Paths.get(path).resolveSibling(location).normalize().toString().replace('\\', '/');
+                updateXSD(digest, sd, referenced, done);
+            }
+        }
+    }
+
+    protected static byte[] readXSD(SchemaBindingDescriptor sd, String path) throws IOException {
+        File xsd = new File(sd.file.getParentFile(), path);
+        if (xsd.exists()) {
+            return Files.readAllBytes(xsd.toPath());
+        }
+        if (sd.context == null || sd.src == null) {
+            return null;
+        }
+        String resource = sd.src.substring(0, sd.src.lastIndexOf('/') + 1) + path;
+        URL url = sd.context.getLocalResource(resource);
+        if (url == null) {
+            url = sd.context.getResource(resource);
+        }
+        if (url == null) {
+            return null;
+        }
+        try (InputStream in = url.openStream()) {
+            return in.readAllBytes();
+        }
+    }
+
+    /**
+     * Gets the schema locations of the XSDs included, imported or redefined by an XSD.
+     */
+    protected static List<String> getReferencedXSDs(byte[] bytes) throws XMLStreamException {
+        XMLInputFactory factory = XMLInputFactory.newFactory();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+        List<String> locations = new ArrayList<>();
+        XMLStreamReader reader = factory.createXMLStreamReader(new ByteArrayInputStream(bytes));
+        try {
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT
+                        && XMLConstants.W3C_XML_SCHEMA_NS_URI.equals(reader.getNamespaceURI())
+                        && XSD_REFERENCES.contains(reader.getLocalName())) {
+                    String location = reader.getAttributeValue(null, "schemaLocation");
+                    if (location != null) {
+                        locations.add(location);
+                    }
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        return locations;
+    }
+
+    protected static void update(MessageDigest digest, String string) {
+        // length-prefixed so that consecutive strings can't be confused
+        byte[] bytes = string == null ? new byte[0] : string.getBytes(UTF_8);
+        digest.update(String.valueOf(string == null ? -1 : bytes.length).getBytes(UTF_8));
+        digest.update((byte) ':');
+        digest.update(bytes);
+    }
+
+    /**
+     * Reads the schemas from the cache.
+     *
+     * @return the schemas, or {@code null} if the cache is absent, unreadable or for a different key
+     */
+    public List<Schema> read(byte[] key) {
+        if (!file.exists()) {
+            return null;
+        }
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(file.toPath()));
+                ObjectInputStream oin = new ObjectInputStream(in)) {
+            oin.setObjectInputFilter(SchemaCache::checkClass);
+            byte[] cachedKey = (byte[]) oin.readObject();
+            if (!Arrays.equals(key, cachedKey)) {
+                log.debug("Schema cache is stale: {}", file);
+                return null;
+            }
+            int size = oin.readInt();
+            List<Schema> schemas = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                schemas.add((Schema) oin.readObject());
+            }
+            log.debug("Read {} schemas from cache: {}", size, file);
+            return schemas;
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            log.warn("Cannot read schema cache: {}, ignoring it: {}", file, e.toString());
+            log.debug(e, e);
+            return null;
+        }
+    }
+
+    /**
+     * Filters the classes read from the cache, so that a tampered cache cannot instantiate arbitrary classes.
+     */
+    protected static Status checkClass(FilterInfo info) {
+        Class<?> klass = info.serialClass();
+        if (klass == null) {
+            return Status.UNDECIDED;
+        }
+        while (klass.isArray()) {
+            klass = klass.getComponentType();
+        }
+        if (isAllowed(klass)) {
+            return Status.ALLOWED;
+        }
+        log.debug("Rejecting class from schema cache: {}", klass);
+        return Status.REJECTED;
+    }
+
+    protected static boolean isAllowed(Class<?> klass) {
+        // interfaces can only be read as class references, like the classes managed by a resolver
+        if (klass.isPrimitive() || klass.isInterface()) {
+            return true;
+        }
+        String name = klass.getName();
+        if (name.startsWith("java.lang.reflect.") || name.startsWith("java.lang.invoke.")) {
+            return false;
+        }
+        if (ALLOWED_PACKAGES.stream().anyMatch(name::startsWith)) {
+            return true;
+        }
+        // types, constraints and resolvers may be contributed by any bundle
+        for (Class<?> c = klass; c != null; c = c.getEnclosingClass()) {
+            if (Type.class.isAssignableFrom(c) || Constraint.class.isAssignableFrom(c)
+                    || ObjectResolver.class.isAssignableFrom(c)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Writes the schemas to the cache. Failures are logged and otherwise ignored.
+     */
+    public void write(byte[] key, Collection<Schema> schemas) {
+        try {
+            File dir = file.getParentFile();
+            if (!dir.mkdirs() && !dir.isDirectory()) {
+                throw new IOException("Cannot create directory: " + dir);
+            }
+            Path tmp = Files.createTempFile(dir.toPath(), CACHE_FILE_NAME, ".tmp");
+            try {
+                try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(tmp));
+                        ObjectOutputStream oout = new ObjectOutputStream(out)) {
+                    oout.writeObject(key);
+                    oout.writeInt(schemas.size());
+                    // a single stream, so that types shared between schemas stay shared
+                    for (Schema schema : schemas) {
+                        oout.writeObject(schema);
+                    }
+                }
+                Files.move(tmp, file.toPath(), REPLACE_EXISTING, ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            log.debug("Wrote {} schemas to cache: {}", schemas.size(), file);
+        } catch (IOException e) {
+            log.warn("Cannot write schema cache: {}: {}", file, e.toString());
+            log.debug(e, e);
+        }
+    }
+
+}
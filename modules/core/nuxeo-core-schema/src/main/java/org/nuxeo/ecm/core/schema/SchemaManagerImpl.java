@@ -52,6 +52,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.nuxeo.common.Environment;
 import org.nuxeo.ecm.core.schema.types.AnyType;
+import org.nuxeo.ecm.core.schema.types.CompiledXPath;
 import org.nuxeo.ecm.core.schema.types.ComplexType;
 import org.nuxeo.ecm.core.schema.types.CompositeType;
 import org.nuxeo.ecm.core.schema.types.CompositeTypeImpl;
@@ -426,6 +427,17 @@ public class SchemaManagerImpl implements SchemaManager {
                 errors.addSuppressed(error);
             }
         }
+        // reuse the schemas from the persistent cache if the contributed XSDs didn't change
+        SchemaCache schemaCache = errors.getSuppressed().length == 0 ? SchemaCache.getSchemaCache() : null;
+        byte[] cacheKey = schemaCache == null ? null : SchemaCache.computeKey(resolvedSchemas.values());
+        if (cacheKey != null) {
+            List<Schema> cached = schemaCache.read(cacheKey);
+            if (cached != null) {
+                cached.forEach(this::registerSchema);
+                log.info("Registered {} schemas from cache", cached.size());
+                return;
+            }
+        }
         for (SchemaBindingDescriptor sd : resolvedSchemas.values()) {
             try {
                 loadSchema(sd);
@@ -436,6 +448,9 @@ public class SchemaManagerImpl implements SchemaManager {
         if (errors.getSuppressed().length > 0) {
             throw errors;
         }
+        if (cacheKey != null) {
+            schemaCache.write(cacheKey, schemas.values());
+        }
     }
 
     protected void copySchema(SchemaBindingDescriptor sd) throws IOException {
@@ -818,6 +833,12 @@ public class SchemaManagerImpl implements SchemaManager {
         checkDirty();
         Field field = null;
         if (xpath != null && xpath.contains("/")) {
+            // list indexes all resolve to the same field
+            String key = CompiledXPath.genericXPath(xpath);
+            field = fields.get(key);
+            if (field != null) {
+                return field;
+            }
             // need to resolve subfields
             String[] properties = xpath.split("/");
             Field resolvedField = getField(properties[0]);
@@ -829,6 +850,8 @@ public class SchemaManagerImpl implements SchemaManager {
             }
             if (resolvedField != null) {
                 field = resolvedField;
+                // map is concurrent so parallelism is ok
+                fields.put(key, field);
             }
         } else {
             field = fields.get(xpath);
@@ -0,0 +1,126 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.schema.types;
+
+import static org.nuxeo.ecm.core.schema.types.ComplexTypeImpl.canonicalXPath;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.nuxeo.common.utils.Path;
+
+/**
+ * A property xpath parsed once and shared, so that repeated accesses to the same property don't parse it again.
+ * <p>
+ * The xpath is canonicalized ({@code files/item[2]/file} becomes {@code files/2/file}) and split into the schema
+ * prefix of its first segment, if any, and the path relative to the schema. This is purely syntactic and doesn't
+ * depend on the registered schemas.
+ *
+ * @since 11.5
+ */
+public final class CompiledXPath {
+
+    /** The cache is cleared when reaching this size, as distinct xpaths normally come from a bounded set. */
+    protected static final int MAX_CACHED = 10_000;
+
+    private static final Map<String, CompiledXPath> CACHE = new ConcurrentHashMap<>();
+
+    /** The canonical xpath. */
+    public final String xpath;
+
+    /** The schema prefix of the first segment, or {@code null} if unprefixed. */
+    public final String prefix;
+
+    /** The name of the first segment, without prefix. */
+    public final String name;
+
+    /** The path relative to the schema. */
+    public final Path path;
+
+    private CompiledXPath(String xpath) {
+        this.xpath = canonicalXPath(xpath);
+        int i = this.xpath.indexOf('/');
+        String first = i == -1 ? this.xpath : this.xpath.substring(0, i);
+        int p = first.indexOf(':');
+        prefix = p == -1 ? null : first.substring(0, p);
+        name = p == -1 ? first : first.substring(p + 1);
+        path = new Path(this.xpath.substring(this.xpath.indexOf(':') + 1));
+    }
+
+    /**
+     * Gets the compiled form of an xpath.
+     */
+    public static CompiledXPath compile(String xpath) {
+        CompiledXPath compiled = CACHE.get(xpath);
+        if (compiled == null) {
+            compiled = new CompiledXPath(xpath);
+            if (CACHE.size() >= MAX_CACHED) {
+                CACHE.clear();
+            }
+            CACHE.put(xpath, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * Returns a generic form of an xpath for field lookups, where list indexes are replaced by {@code *}, for instance
+     * {@code files:files/2/file} becomes {@code files:files/}{@code *}{@code /file}.
+     */
+    public static String genericXPath(String xpath) {
+        StringBuilder sb = null;
+        int start = 0;
+        int len = xpath.length();
+        while (start <= len) {
+            int end = xpath.indexOf('/', start);
+            if (end == -1) {
+                end = len;
+            }
+            if (end > start && isDigits(xpath, start, end)) {
+                if (sb == null) {
+                    sb = new StringBuilder(len);
+                    sb.append(xpath, 0, start);
+                }
+                sb.append('*');
+            } else if (sb != null) {
+                sb.append(xpath, start, end);
+            }
+            if (sb != null && end < len) {
+                sb.append('/');
+            }
+            start = end + 1;
+        }
+        return sb == null ? xpath : sb.toString();
+    }
+
+    private static boolean isDigits(String s, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return xpath;
+    }
+
+}
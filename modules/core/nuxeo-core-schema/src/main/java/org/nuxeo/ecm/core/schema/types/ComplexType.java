@@ -106,4 +106,18 @@ public interface ComplexType extends Type {
      */
     int getFieldsCount();
 
+    /**
+     * Gets the position of a field in this complex type.
+     * <p>
+     * Positions are assigned in order of field addition and never change, so they can be used to store per-field data
+     * in arrays shared by all the instances of this type.
+     *
+     * @param prefixedName the prefixed field name
+     * @return the position, or {@code -1} if there is no such field or positions are not available
+     * @since 11.5
+     */
+    default int getFieldPosition(String prefixedName) {
+        return -1;
+    }
+
 }
@@ -34,7 +34,7 @@ import org.nuxeo.ecm.core.schema.types.constraints.Constraint;
  */
 public class ComplexTypeImpl extends AbstractType implements ComplexType {
 
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 2L;
 
     /** The fields held by this complex type. */
     protected final Map<QName, Field> fields = new HashMap<>();
@@ -42,6 +42,16 @@ public class ComplexTypeImpl extends AbstractType implements ComplexType {
     /** The map of name or prefixed name to field. */
     protected volatile Map<String, Field> fieldsByName = new HashMap<>();
 
+    /**
+     * The map of prefixed name to field position, in order of addition.
+     * <p>
+     * Serialized with the type, so that the children of serialized complex properties, which are laid out by position,
+     * still match it once deserialized.
+     *
+     * @since 11.5
+     */
+    protected final Map<String, Integer> fieldPositions = new HashMap<>();
+
     protected final Namespace ns;
 
     public ComplexTypeImpl(ComplexType superType, String schema, String name, Namespace ns) {
@@ -65,6 +75,7 @@ public class ComplexTypeImpl extends AbstractType implements ComplexType {
         fields.put(name, field);
         fieldsByName.put(name.getLocalName(), field);
         fieldsByName.put(name.getPrefixedName(), field);
+        fieldPositions.putIfAbsent(name.getPrefixedName(), Integer.valueOf(fieldPositions.size()));
     }
 
     // called by XSDLoader
@@ -101,6 +112,12 @@ public class ComplexTypeImpl extends AbstractType implements ComplexType {
         return fields.size();
     }
 
+    @Override
+    public int getFieldPosition(String prefixedName) {
+        Integer position = fieldPositions.get(prefixedName);
+        return position == null ? -1 : position.intValue();
+    }
+
     @Override
     public boolean hasField(String name) {
         return fieldsByName.containsKey(name);
@@ -35,4 +35,15 @@ public interface ObjectResolverService {
      */
     ObjectResolver getResolver(String type, Map<String, String> parameters);
 
+    /**
+     * Gets the registered resolver classes, keyed by the xsd type they manage.
+     * <p>
+     * The default implementation returns an empty map.
+     *
+     * @since 11.5
+     */
+    default Map<String, Class<? extends ObjectResolver>> getResolverClasses() {
+        return Map.of();
+    }
+
 }
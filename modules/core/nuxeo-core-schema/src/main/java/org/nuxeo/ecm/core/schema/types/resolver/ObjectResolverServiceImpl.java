@@ -19,6 +19,7 @@
 
 package org.nuxeo.ecm.core.schema.types.resolver;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -85,4 +86,9 @@ public class ObjectResolverServiceImpl extends DefaultComponent implements Objec
         return resolver;
     }
 
+    @Override
+    public Map<String, Class<? extends ObjectResolver>> getResolverClasses() {
+        return Collections.unmodifiableMap(resolvers);
+    }
+
 }
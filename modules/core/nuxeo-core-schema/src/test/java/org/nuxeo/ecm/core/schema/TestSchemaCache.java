@@ -0,0 +1,224 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.schema;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.APPEND;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.ObjectOutputStream;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import javax.inject.Inject;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.schema.types.ComplexType;
+import org.nuxeo.ecm.core.schema.types.Field;
+import org.nuxeo.ecm.core.schema.types.Schema;
+import org.nuxeo.ecm.core.schema.types.Type;
+import org.nuxeo.ecm.core.schema.types.constraints.Constraint;
+import org.nuxeo.ecm.core.schema.types.constraints.Constraint.Description;
+import org.nuxeo.ecm.core.schema.types.constraints.LengthConstraint;
+import org.nuxeo.ecm.core.schema.types.constraints.NotNullConstraint;
+import org.nuxeo.ecm.core.schema.types.constraints.NumericIntervalConstraint;
+import org.nuxeo.ecm.core.schema.types.constraints.ObjectResolverConstraint;
+import org.nuxeo.ecm.core.schema.types.constraints.PatternConstraint;
+import org.nuxeo.ecm.core.schema.types.primitives.StringType;
+import org.nuxeo.ecm.core.schema.types.resolver.ObjectResolver;
+import org.nuxeo.ecm.core.schema.types.resolver.TestingColorResolver;
+import org.nuxeo.runtime.test.ResourceHelper;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.LogCaptureFeature;
+import org.nuxeo.runtime.test.runner.RuntimeFeature;
+import org.nuxeo.runtime.test.runner.WithFrameworkProperty;
+
+/**
+ * @since 11.5
+ */
+@RunWith(FeaturesRunner.class)
+@Features({ RuntimeFeature.class, LogCaptureFeature.class })
+@Deploy("org.nuxeo.ecm.core.schema")
+public class TestSchemaCache {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Inject
+    protected SchemaManager schemaManager;
+
+    @Inject
+    protected LogCaptureFeature.Result logCaptureResult;
+
+    @Test
+    public void testKey() throws Exception {
+        URL url = ResourceHelper.getResource("schema/schema.xsd");
+        SchemaBindingDescriptor sd = new SchemaBindingDescriptor("MySchema", "my");
+        sd.file = folder.newFile("MySchema.xsd");
+        FileUtils.copyURLToFile(url, sd.file);
+        List<SchemaBindingDescriptor> sds = Arrays.asList(sd);
+
+        byte[] key = SchemaCache.computeKey(sds);
+        assertArrayEquals(key, SchemaCache.computeKey(sds));
+
+        sd.prefix = "other";
+        byte[] key2 = SchemaCache.computeKey(sds);
+        assertFalse(Arrays.equals(key, key2));
+
+        Files.write(sd.file.toPath(), "\n".getBytes(UTF_8), APPEND);
+        assertFalse(Arrays.equals(key2, SchemaCache.computeKey(sds)));
+    }
+
+    @Test
+    public void testKeyWithIncludedXSD() throws Exception {
+        SchemaBindingDescriptor sd = new SchemaBindingDescriptor("schemaWithIncludeAndImport", "sii");
+        sd.file = folder.newFile("schemaWithIncludeAndImport.xsd");
+        FileUtils.copyURLToFile(ResourceHelper.getResource("schema/schemaWithIncludeAndImport.xsd"), sd.file);
+        File included = folder.newFile("testInclude.xsd");
+        FileUtils.copyURLToFile(ResourceHelper.getResource("schema/testInclude.xsd"), included);
+        File imported = folder.newFile("testImport.xsd");
+        FileUtils.copyURLToFile(ResourceHelper.getResource("schema/testImport.xsd"), imported);
+        List<SchemaBindingDescriptor> sds = Arrays.asList(sd);
+
+        byte[] key = SchemaCache.computeKey(sds);
+        Files.write(included.toPath(), "\n".getBytes(UTF_8), APPEND);
+        byte[] key2 = SchemaCache.computeKey(sds);
+        assertFalse(Arrays.equals(key, key2));
+
+        Files.write(imported.toPath(), "\n".getBytes(UTF_8), APPEND);
+        assertFalse(Arrays.equals(key2, SchemaCache.computeKey(sds)));
+    }
+
+    @Test
+    @Deploy("org.nuxeo.ecm.core.schema.tests:OSGI-INF/test-schema-cache.xml")
+    @WithFrameworkProperty(name = SchemaCache.CACHE_ENABLED_PROP, value = "true")
+    @LogCaptureFeature.FilterOn(loggerClass = SchemaManagerImpl.class, logLevel = "INFO")
+    public void testReloadFromCache() throws Exception {
+        SchemaManagerImpl sm = (SchemaManagerImpl) schemaManager;
+        File cacheFile = SchemaCache.getSchemaCache().file;
+        Files.deleteIfExists(cacheFile.toPath());
+        try {
+            // load from the XSDs, which writes the cache
+            sm.dirty = true;
+            sm.checkDirty();
+            assertTrue(cacheFile.exists());
+            Schema parsed = sm.getSchema("schemaCache");
+            assertNotNull(parsed);
+
+            // reload from the cache
+            logCaptureResult.clear();
+            sm.dirty = true;
+            sm.checkDirty();
+            assertTrue(logCaptureResult.getCaughtEventMessages().toString(),
+                    logCaptureResult.getCaughtEventMessages()
+                                    .stream()
+                                    .anyMatch(message -> message.endsWith("schemas from cache")));
+            Schema cached = sm.getSchema("schemaCache");
+            assertNotSame(parsed, cached);
+            assertSame(cached, sm.getSchemaFromPrefix("sc"));
+
+            // resolver
+            Type colorType = cached.getField("color").getType();
+            ObjectResolver resolver = colorType.getObjectResolver();
+            assertTrue(String.valueOf(resolver), resolver instanceof TestingColorResolver);
+            assertEquals(TestingColorResolver.MODE.PRIMARY.name(),
+                    resolver.getParameters().get(TestingColorResolver.COLOR_MODE));
+            assertTrue(colorType.getConstraints().stream().anyMatch(ObjectResolverConstraint.class::isInstance));
+
+            // constraints
+            Field code = cached.getField("code");
+            assertTrue(code.getConstraints().contains(NotNullConstraint.get()));
+            assertTrue(code.getType().getConstraints().stream().anyMatch(LengthConstraint.class::isInstance));
+            assertTrue(code.getType().getConstraints().stream().anyMatch(PatternConstraint.class::isInstance));
+            assertEquals(getDescriptions(parsed.getField("code").getType()), getDescriptions(code.getType()));
+
+            // type from the included XSD
+            ComplexType included = (ComplexType) cached.getField("included").getType();
+            assertEquals("includedType", included.getName());
+            Type count = included.getField("count").getType();
+            assertTrue(count.getConstraints().stream().anyMatch(NumericIntervalConstraint.class::isInstance));
+            assertSame(StringType.INSTANCE, included.getField("name").getType());
+        } finally {
+            Files.deleteIfExists(cacheFile.toPath());
+        }
+    }
+
+    protected static Set<Description> getDescriptions(Type type) {
+        return type.getConstraints().stream().map(Constraint::getDescription).collect(Collectors.toSet());
+    }
+
+    @Test
+    public void testReadRejectsUnexpectedClasses() throws Exception {
+        SchemaCache cache = new SchemaCache(new File(folder.getRoot(), "cache/" + SchemaCache.CACHE_FILE_NAME));
+        byte[] key = { 1, 2, 3 };
+        cache.file.getParentFile().mkdirs();
+        try (ObjectOutputStream out = new ObjectOutputStream(Files.newOutputStream(cache.file.toPath()))) {
+            out.writeObject(key);
+            out.writeInt(1);
+            // not a class that can be part of a schema
+            out.writeObject(new File("foo"));
+        }
+        assertNull(cache.read(key));
+    }
+
+    @Test
+    public void testReadWrite() throws Exception {
+        new XSDLoader((SchemaManagerImpl) schemaManager).loadSchema("MySchema", "",
+                ResourceHelper.getResource("schema/schema.xsd"));
+        Schema schema = schemaManager.getSchema("MySchema");
+
+        SchemaCache cache = new SchemaCache(new File(folder.getRoot(), "cache/" + SchemaCache.CACHE_FILE_NAME));
+        byte[] key = { 1, 2, 3 };
+        assertNull(cache.read(key));
+        cache.write(key, Arrays.asList(schema));
+
+        assertNull(cache.read(new byte[] { 4, 5, 6 }));
+        List<Schema> schemas = cache.read(key);
+        assertEquals(1, schemas.size());
+        Schema cached = schemas.get(0);
+        assertEquals(schema.getName(), cached.getName());
+        assertEquals(schema.getNamespace().uri, cached.getNamespace().uri);
+        assertEquals(schema.getFieldsCount(), cached.getFieldsCount());
+        for (Field field : schema.getFields()) {
+            Field cachedField = cached.getField(field.getName());
+            assertEquals(field.getType().getName(), cachedField.getType().getName());
+        }
+        // builtin types are still singletons
+        assertSame(StringType.INSTANCE, cached.getField("description").getType());
+    }
+
+}
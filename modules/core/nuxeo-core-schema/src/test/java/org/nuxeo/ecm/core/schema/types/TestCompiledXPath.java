@@ -0,0 +1,65 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.schema.types;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import org.junit.Test;
+
+/**
+ * @since 11.5
+ */
+public class TestCompiledXPath {
+
+    @Test
+    public void testCompile() {
+        CompiledXPath cxpath = CompiledXPath.compile("dc:title");
+        assertEquals("dc:title", cxpath.xpath);
+        assertEquals("dc", cxpath.prefix);
+        assertEquals("title", cxpath.name);
+        assertEquals("title", cxpath.path.toString());
+        assertSame(cxpath, CompiledXPath.compile("dc:title"));
+
+        cxpath = CompiledXPath.compile("/files:files/item[2]/file");
+        assertEquals("files:files/2/file", cxpath.xpath);
+        assertEquals("files", cxpath.prefix);
+        assertEquals("files", cxpath.name);
+        assertEquals("files/2/file", cxpath.path.toString());
+
+        cxpath = CompiledXPath.compile("title");
+        assertNull(cxpath.prefix);
+        assertEquals("title", cxpath.name);
+        assertEquals("title", cxpath.path.toString());
+
+        cxpath = CompiledXPath.compile("");
+        assertEquals("", cxpath.xpath);
+    }
+
+    @Test
+    public void testGenericXPath() {
+        assertEquals("dc:title", CompiledXPath.genericXPath("dc:title"));
+        assertEquals("files:files/*/file", CompiledXPath.genericXPath("files:files/2/file"));
+        assertEquals("files:files/*", CompiledXPath.genericXPath("files:files/12"));
+        assertEquals("files:files/*/file", CompiledXPath.genericXPath("files:files/*/file"));
+        assertEquals("a/1b/*", CompiledXPath.genericXPath("a/1b/3"));
+    }
+
+}
@@ -19,11 +19,18 @@
 package org.nuxeo.ecm.core.storage.dbs;
 
 import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Deque;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.logging.Log;
@@ -33,6 +40,7 @@ import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.api.lock.LockManager;
 import org.nuxeo.ecm.core.api.repository.FulltextConfiguration;
 import org.nuxeo.ecm.core.blob.BlobManager;
+import org.nuxeo.ecm.core.blob.DocumentBlobManager;
 import org.nuxeo.ecm.core.model.Session;
 import org.nuxeo.ecm.core.schema.DocumentType;
 import org.nuxeo.ecm.core.schema.SchemaManager;
@@ -66,6 +74,20 @@ public abstract class DBSRepositoryBase implements DBSRepository {
 
     public static final String UUID_ZERO_DEBUG = "UUID_0";
 
+    /**
+     * Framework property for the number of parallel workers used to find the binaries referenced by the repository
+     * during a binaries garbage collection.
+     *
+     * @since 11.5
+     */
+    public static final String GC_MARK_THREADS_PROP = "nuxeo.dbs.gc.mark.threads";
+
+    /** @since 11.5 */
+    public static final int DEFAULT_GC_MARK_THREADS = 4;
+
+    /** Number of referenced binary keys found by a worker before they are marked. */
+    protected static final int GC_MARK_BATCH_SIZE = 1000;
+
     /**
      * Type of id to used for documents.
      *
@@ -208,6 +230,83 @@ public abstract class DBSRepositoryBase implements DBSRepository {
 
     protected abstract void initBlobsPaths();
 
+    /**
+     * Gets the number of parallel workers to use to find the binaries referenced by the repository.
+     *
+     * @since 11.5
+     */
+    protected int getMarkThreads() {
+        String value = Framework.getProperty(GC_MARK_THREADS_PROP);
+        if (StringUtils.isBlank(value)) {
+            return DEFAULT_GC_MARK_THREADS;
+        }
+        try {
+            return Math.max(1, Integer.parseInt(value.trim()));
+        } catch (NumberFormatException e) {
+            log.error("Invalid value for " + GC_MARK_THREADS_PROP + ": " + value);
+            return DEFAULT_GC_MARK_THREADS;
+        }
+    }
+
+    /**
+     * Runs the tasks finding the binaries referenced by the repository in parallel, and waits for their completion.
+     * <p>
+     * Each task is given a consumer to which it passes the keys it finds. Keys are marked by batches, one batch at a
+     * time, as binary garbage collectors are not required to be thread-safe.
+     *
+     * @since 11.5
+     */
+    protected void markReferencedBinaries(List<Consumer<Consumer<String>>> tasks) {
+        DocumentBlobManager documentBlobManager = Framework.getService(DocumentBlobManager.class);
+        Object lock = new Object();
+        int nbThreads = Math.min(getMarkThreads(), tasks.size());
+        if (nbThreads <= 1) {
+            tasks.forEach(task -> runMarkTask(task, documentBlobManager, lock));
+            return;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(nbThreads, r -> {
+            Thread thread = new Thread(r, "Nuxeo-GC-Mark-" + repositoryName + "-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Future<?>> futures = new ArrayList<>(tasks.size());
+            for (Consumer<Consumer<String>> task : tasks) {
+                futures.add(executor.submit(() -> runMarkTask(task, documentBlobManager, lock)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NuxeoException(e);
+        } catch (ExecutionException e) {
+            throw new NuxeoException("Failed to mark referenced binaries for repository: " + repositoryName,
+                    e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    protected void runMarkTask(Consumer<Consumer<String>> task, DocumentBlobManager documentBlobManager,
+            Object lock) {
+        List<String> batch = new ArrayList<>(GC_MARK_BATCH_SIZE);
+        Consumer<List<String>> flush = keys -> {
+            synchronized (lock) {
+                keys.forEach(key -> documentBlobManager.markReferencedBinary(key, repositoryName));
+            }
+            keys.clear();
+        };
+        task.accept(key -> {
+            batch.add(key);
+            if (batch.size() >= GC_MARK_BATCH_SIZE) {
+                flush.accept(batch);
+            }
+        });
+        flush.accept(batch);
+    }
+
     /** Finds the paths for all blobs in all document types. */
     protected static abstract class BlobFinder {
 
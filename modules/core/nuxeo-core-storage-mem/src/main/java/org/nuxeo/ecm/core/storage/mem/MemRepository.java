@@ -32,16 +32,15 @@ import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
 
 import org.nuxeo.ecm.core.api.DocumentNotFoundException;
 import org.nuxeo.ecm.core.api.Lock;
 import org.nuxeo.ecm.core.api.lock.LockManager;
-import org.nuxeo.ecm.core.blob.DocumentBlobManager;
 import org.nuxeo.ecm.core.storage.State;
 import org.nuxeo.ecm.core.storage.dbs.DBSDocument;
 import org.nuxeo.ecm.core.storage.dbs.DBSRepository;
 import org.nuxeo.ecm.core.storage.dbs.DBSRepositoryBase;
-import org.nuxeo.runtime.api.Framework;
 
 /**
  * In-memory implementation of a {@link DBSRepository}.
@@ -184,17 +183,29 @@ public class MemRepository extends DBSRepositoryBase {
         }
     }
 
+    /**
+     * Marks the referenced binaries by splitting the documents into slices walked in parallel.
+     */
     @Override
     public void markReferencedBinaries() {
-        DocumentBlobManager blobManager = Framework.getService(DocumentBlobManager.class);
-        for (State state : states.values()) {
-            for (List<String> path : binaryPaths) {
-                markReferencedBinaries(state, path, 0, blobManager);
-            }
+        List<State> all = new ArrayList<>(states.values());
+        int n = Math.max(1, getMarkThreads());
+        int sliceSize = (all.size() + n - 1) / n;
+        List<Consumer<Consumer<String>>> tasks = new ArrayList<>();
+        for (int i = 0; i < all.size(); i += sliceSize) {
+            List<State> slice = all.subList(i, Math.min(i + sliceSize, all.size()));
+            tasks.add(marker -> {
+                for (State state : slice) {
+                    for (List<String> path : binaryPaths) {
+                        markReferencedBinaries(state, path, 0, marker);
+                    }
+                }
+            });
         }
+        markReferencedBinaries(tasks);
     }
 
-    protected void markReferencedBinaries(State state, List<String> path, int start, DocumentBlobManager blobManager) {
+    protected void markReferencedBinaries(State state, List<String> path, int start, Consumer<String> marker) {
         for (int i = start; i < path.size(); i++) {
             String name = path.get(i);
             Serializable value = state.get(name);
@@ -206,9 +217,9 @@ public class MemRepository extends DBSRepositoryBase {
                     List<Object> list = (List<Object>) value;
                     for (Object v : list) {
                         if (v instanceof State) {
-                            markReferencedBinaries((State) v, path, i + 1, blobManager);
+                            markReferencedBinaries((State) v, path, i + 1, marker);
                         } else {
-                            markReferencedBinary(v, blobManager);
+                            markReferencedBinary(v, marker);
                         }
                     }
                 }
@@ -218,20 +229,19 @@ public class MemRepository extends DBSRepositoryBase {
         }
         if (state != null) {
             Serializable data = state.get(KEY_BLOB_DATA);
-            markReferencedBinary(data, blobManager);
+            markReferencedBinary(data, marker);
             if (isFulltextStoredInBlob()) {
                 data = state.get(KEY_FULLTEXT_BINARY);
-                markReferencedBinary(data, blobManager);
+                markReferencedBinary(data, marker);
             }
         }
     }
 
-    protected void markReferencedBinary(Object value, DocumentBlobManager blobManager) {
+    protected void markReferencedBinary(Object value, Consumer<String> marker) {
         if (!(value instanceof String)) {
             return;
         }
-        String key = (String) value;
-        blobManager.markReferencedBinary(key, repositoryName);
+        marker.accept((String) value);
     }
 
 }
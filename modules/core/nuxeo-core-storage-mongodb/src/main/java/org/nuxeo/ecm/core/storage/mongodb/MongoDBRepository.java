@@ -27,13 +27,13 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.function.Consumer;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.bson.Document;
 import org.bson.conversions.Bson;
-import org.nuxeo.ecm.core.blob.DocumentBlobManager;
 import org.nuxeo.ecm.core.model.Repository;
 import org.nuxeo.ecm.core.storage.dbs.DBSRepositoryBase;
 import org.nuxeo.ecm.core.storage.dbs.DBSSession;
@@ -45,7 +45,10 @@ import com.mongodb.client.ClientSession;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Aggregates;
+import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
 
 /**
  * MongoDB implementation of a {@link Repository}.
@@ -257,6 +260,16 @@ public class MongoDBRepository extends DBSRepositoryBase {
     /** Keys used for document projection when marking all binaries for GC. */
     protected Bson binaryKeys;
 
+    /**
+     * Paths of the binary keys in a document, used to extract them without walking the whole document.
+     *
+     * @since 11.5
+     */
+    protected List<String[]> binaryPaths;
+
+    /** Number of sampled ids per range when splitting the collection into id ranges. */
+    protected static final int ID_RANGE_SAMPLES = 100;
+
     @Override
     protected void initBlobsPaths() {
         MongoDBBlobFinder finder = new MongoDBBlobFinder();
@@ -265,11 +278,14 @@ public class MongoDBRepository extends DBSRepositoryBase {
             finder.recordBlobKey(KEY_FULLTEXT_BINARY);
         }
         binaryKeys = Projections.fields(finder.binaryKeys);
+        binaryPaths = finder.binaryPaths;
     }
 
     protected static class MongoDBBlobFinder extends BlobFinder {
         protected List<Bson> binaryKeys = new ArrayList<>(Set.of(Projections.excludeId()));
 
+        protected List<String[]> binaryPaths = new ArrayList<>();
+
         @Override
         protected void recordBlobPath() {
             path.addLast(KEY_BLOB_DATA);
@@ -279,47 +295,94 @@ public class MongoDBRepository extends DBSRepositoryBase {
 
         protected void recordBlobKey(String key) {
             binaryKeys.add(Projections.include(key));
+            binaryPaths.add(StringUtils.split(key, '.'));
         }
     }
 
+    /**
+     * Marks the referenced binaries by reading the collection on parallel cursors, each one on a range of ids.
+     */
     @Override
     public void markReferencedBinaries() {
-        DocumentBlobManager blobManager = Framework.getService(DocumentBlobManager.class);
         // TODO add a query to not scan all documents
-        log.trace("MongoDB: QUERY {} KEYS {}", Document::new, () -> binaryKeys);
-        coll.find().projection(binaryKeys).forEach(doc -> markReferencedBinaries(doc, blobManager));
+        List<Consumer<Consumer<String>>> tasks = new ArrayList<>();
+        for (Bson filter : getIdRangeFilters(getMarkThreads())) {
+            tasks.add(marker -> markReferencedBinaries(filter, marker));
+        }
+        markReferencedBinaries(tasks);
+    }
+
+    /** @since 11.5 */
+    protected void markReferencedBinaries(Bson filter, Consumer<String> marker) {
+        log.trace("MongoDB: QUERY {} KEYS {}", () -> filter, () -> binaryKeys);
+        coll.find(filter).projection(binaryKeys).forEach(doc -> {
+            for (String[] path : binaryPaths) {
+                findReferencedBinaries(doc, path, 0, marker);
+            }
+        });
     }
 
-    protected void markReferencedBinaries(Document ob, DocumentBlobManager blobManager) {
-        for (var value : ob.values()) {
-            if (value instanceof List) {
-                @SuppressWarnings("unchecked")
-                List<Object> list = (List<Object>) value;
-                for (Object v : list) {
+    /**
+     * Finds the binary keys at the given path in a document, walking through lists of complex properties.
+     *
+     * @since 11.5
+     */
+    protected void findReferencedBinaries(Document doc, String[] path, int start, Consumer<String> marker) {
+        Object value = doc;
+        for (int i = start; i < path.length; i++) {
+            if (!(value instanceof Document)) {
+                // not a complex property, nothing at this path
+                return;
+            }
+            value = ((Document) value).get(path[i]);
+            if (value instanceof List && i < path.length - 1) {
+                for (Object v : (List<?>) value) {
                     if (v instanceof Document) {
-                        markReferencedBinaries((Document) v, blobManager);
-                    } else {
-                        markReferencedBinary(v, blobManager);
+                        findReferencedBinaries((Document) v, path, i + 1, marker);
                     }
                 }
-            } else if (value instanceof Object[]) {
-                for (Object v : (Object[]) value) {
-                    markReferencedBinary(v, blobManager);
-                }
-            } else if (value instanceof Document) {
-                markReferencedBinaries((Document) value, blobManager);
-            } else {
-                markReferencedBinary(value, blobManager);
+                return;
             }
         }
+        // only the value of the last path segment is a binary key
+        if (value instanceof String) {
+            marker.accept((String) value);
+        }
     }
 
-    protected void markReferencedBinary(Object value, DocumentBlobManager blobManager) {
-        if (!(value instanceof String)) {
-            return;
+    /**
+     * Splits the collection into ranges of ids of roughly equal sizes, using boundaries taken from a random sample of
+     * ids. The first range also matches documents whose id is missing or of a different type, so that the ranges
+     * always cover the whole collection.
+     *
+     * @since 11.5
+     */
+    protected List<Bson> getIdRangeFilters(int n) {
+        if (n <= 1) {
+            return List.of(new Document());
+        }
+        List<Object> ids = new ArrayList<>();
+        coll.aggregate(List.of(Aggregates.sample(n * ID_RANGE_SAMPLES), //
+                Aggregates.project(Projections.include(idKey)), //
+                Aggregates.sort(Sorts.ascending(idKey)))) //
+            .forEach(doc -> ids.add(doc.get(idKey)));
+        List<Object> bounds = new ArrayList<>();
+        for (int i = ID_RANGE_SAMPLES; i < ids.size(); i += ID_RANGE_SAMPLES) {
+            Object bound = ids.get(i);
+            if (bound != null && (bounds.isEmpty() || !bound.equals(bounds.get(bounds.size() - 1)))) {
+                bounds.add(bound);
+            }
+        }
+        if (bounds.isEmpty()) {
+            return List.of(new Document());
+        }
+        List<Bson> filters = new ArrayList<>();
+        filters.add(Filters.not(Filters.gte(idKey, bounds.get(0))));
+        for (int i = 1; i < bounds.size(); i++) {
+            filters.add(Filters.and(Filters.gte(idKey, bounds.get(i - 1)), Filters.lt(idKey, bounds.get(i))));
         }
-        String key = (String) value;
-        blobManager.markReferencedBinary(key, repositoryName);
+        filters.add(Filters.gte(idKey, bounds.get(bounds.size() - 1)));
+        return filters;
     }
 
 }
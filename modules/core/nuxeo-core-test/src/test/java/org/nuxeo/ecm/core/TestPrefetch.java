@@ -21,6 +21,7 @@ package org.nuxeo.ecm.core;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 import java.util.Set;
 
@@ -28,10 +29,13 @@ import javax.inject.Inject;
 
 import org.junit.Test;
 import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.AdaptivePrefetch;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.PathRef;
 import org.nuxeo.ecm.core.schema.PrefetchInfo;
 import org.nuxeo.ecm.core.test.CoreFeature;
+import org.nuxeo.runtime.test.runner.Deploy;
 import org.nuxeo.runtime.test.runner.Features;
 import org.nuxeo.runtime.test.runner.FeaturesRunner;
 import org.nuxeo.runtime.test.runner.TransactionalFeature;
@@ -81,4 +85,32 @@ public class TestPrefetch {
         assertEquals("foo/icon", doc.getPropertyValue("common:icon"));
         assertNull(doc.getPropertyValue("uid:uid"));
     }
+
+    @Test
+    @Deploy("org.nuxeo.ecm.core.test.tests:OSGI-INF/test-adaptive-prefetch-contrib.xml")
+    public void testAdaptivePrefetch() {
+        // read this test's configuration
+        AdaptivePrefetch.reset();
+        for (int i = 0; i < 10; i++) {
+            DocumentModel doc = session.createDocumentModel("/", "doc" + i, "File");
+            doc.setPropertyValue("uid:uid", "uid" + i); // not prefetched
+            session.createDocument(doc);
+        }
+        txFeature.nextTransaction();
+        AdaptivePrefetch.reset();
+
+        // access the uid schema on every document
+        for (int i = 0; i < 10; i++) {
+            DocumentModel doc = session.getDocument(new PathRef("/doc" + i));
+            assertEquals("uid" + i, doc.getPropertyValue("uid:uid"));
+        }
+        assertTrue(AdaptivePrefetch.getSchemas("File").contains("uid"));
+
+        // now it's prefetched
+        DocumentModel doc = session.getDocument(new PathRef("/doc0"));
+        doc.detach(false);
+        assertEquals("uid0", doc.getPropertyValue("uid:uid"));
+        AdaptivePrefetch.reset();
+    }
+
 }
@@ -122,6 +122,7 @@ import org.nuxeo.ecm.core.schema.SchemaManager;
 import org.nuxeo.ecm.core.schema.SchemaManagerImpl;
 import org.nuxeo.ecm.core.schema.types.Schema;
 import org.nuxeo.ecm.core.security.RetentionExpiredFinderListener;
+import org.nuxeo.ecm.core.storage.dbs.DBSRepositoryBase;
 import org.nuxeo.ecm.core.storage.sql.IgnorePostgreSQL;
 import org.nuxeo.ecm.core.storage.sql.listeners.DummyBeforeModificationListener;
 import org.nuxeo.ecm.core.test.CoreFeature;
@@ -133,6 +134,7 @@ import org.nuxeo.runtime.test.runner.Deploy;
 import org.nuxeo.runtime.test.runner.Features;
 import org.nuxeo.runtime.test.runner.FeaturesRunner;
 import org.nuxeo.runtime.test.runner.TransactionalFeature;
+import org.nuxeo.runtime.test.runner.WithFrameworkProperty;
 import org.nuxeo.runtime.transaction.TransactionHelper;
 
 @RunWith(FeaturesRunner.class)
@@ -4459,6 +4461,51 @@ public class TestSQLRepositoryAPI {
         assertEquals(0, status.numBinariesGC);
     }
 
+    /**
+     * Test with enough documents for the mark phase to be split between several workers. On MongoDB, there are more
+     * documents than sampled ids per range, so the collection is split into several id ranges.
+     */
+    @Test
+    @WithFrameworkProperty(name = DBSRepositoryBase.GC_MARK_THREADS_PROP, value = "4")
+    public void testBinaryGCManyDocuments() throws Exception {
+        // GC binaries from previous tests
+        Thread.sleep(3 * 1000);
+        runBinariesGC(true, false);
+
+        int n = 450;
+        for (int i = 0; i < n; i++) {
+            addBinary(String.format("%03d", i), "doc" + i);
+        }
+        session.save();
+        // wait for async completion before deletes
+        waitForAsyncCompletion();
+
+        // remove half of the binaries
+        for (int i = 1; i < n; i += 2) {
+            session.removeDocument(new PathRef("/doc" + i));
+        }
+        session.save();
+        nextTransaction();
+
+        // run GC in non-delete mode
+        Thread.sleep(3 * 1000); // sleep before GC to pass its time threshold
+        BinaryManagerStatus status = runBinariesGC(false, false);
+        assertEquals(n / 2, status.numBinaries);
+        assertEquals(n / 2 * 3, status.sizeBinaries);
+        assertEquals(n / 2, status.numBinariesGC);
+        assertEquals(n / 2 * 3, status.sizeBinariesGC);
+
+        // actual GC
+        status = runBinariesGC(true, false);
+        assertEquals(n / 2, status.numBinaries);
+        assertEquals(n / 2, status.numBinariesGC);
+
+        // again, nothing left to GC
+        status = runBinariesGC(true, false);
+        assertEquals(n / 2, status.numBinaries);
+        assertEquals(0, status.numBinariesGC);
+    }
+
     @Test
     public void testLocking() {
         DocumentModel doc = session.createDocumentModel("/", "doc", "File");
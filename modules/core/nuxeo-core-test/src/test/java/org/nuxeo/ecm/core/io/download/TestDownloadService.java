@@ -46,6 +46,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.ZonedDateTime;
@@ -76,6 +78,7 @@ import org.nuxeo.ecm.core.api.NuxeoException;
 import org.nuxeo.ecm.core.api.NuxeoPrincipal;
 import org.nuxeo.ecm.core.api.impl.UserPrincipal;
 import org.nuxeo.ecm.core.api.impl.blob.FileBlob;
+import org.nuxeo.ecm.core.blob.ByteRange;
 import org.nuxeo.ecm.core.blob.binary.Binary;
 import org.nuxeo.ecm.core.blob.binary.BinaryBlob;
 import org.nuxeo.ecm.core.blob.binary.DefaultBinaryManager;
@@ -917,4 +920,96 @@ public class TestDownloadService {
         }
     }
 
+    @Test
+    public void testDownloadFileBlobWithByteRange() throws IOException {
+        FileBlob blob = new FileBlob(new ByteArrayInputStream("Hello World".getBytes("UTF-8")));
+        blob.setFilename("myFile.txt");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HttpServletRequest req = mock(HttpServletRequest.class);
+        when(req.getMethod()).thenReturn("GET");
+        when(req.getHeader("Range")).thenReturn("bytes=6-9");
+        HttpServletResponse resp = mock(HttpServletResponse.class);
+        ServletOutputStream sos = new DummyServletOutputStream() {
+            @Override
+            public void write(int b) {
+                out.write(b);
+            }
+        };
+        when(resp.getOutputStream()).thenReturn(sos);
+
+        DownloadContext context = DownloadContext.builder(req, resp).blob(blob).build();
+        downloadService.downloadBlob(context);
+
+        verify(resp).setHeader(eq("Content-Range"), eq("bytes 6-9/11"));
+        verify(resp).setContentLengthLong(eq(4L));
+        assertEquals("Worl", out.toString("UTF-8"));
+    }
+
+    @Test
+    public void testTransferFileBlobToChannel() throws IOException {
+        FileBlob blob = new FileBlob(new ByteArrayInputStream("Hello World".getBytes("UTF-8")));
+
+        // an output stream that is also a channel gets the file through transferTo
+        class ChannelOutputStream extends ByteArrayOutputStream implements WritableByteChannel {
+
+            int channelWrites;
+
+            @Override
+            public int write(ByteBuffer src) {
+                channelWrites++;
+                int n = src.remaining();
+                byte[] bytes = new byte[n];
+                src.get(bytes);
+                write(bytes, 0, n);
+                return n;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+        }
+        ChannelOutputStream out = new ChannelOutputStream();
+        downloadService.transferBlobWithByteRange(blob, ByteRange.inclusive(6, 9), () -> out);
+        assertEquals("Worl", out.toString("UTF-8"));
+        assertTrue(out.channelWrites > 0);
+    }
+
+    @Test
+    @Deploy("org.nuxeo.ecm.core.api.tests:OSGI-INF/test-default-blob-provider.xml")
+    public void testDownloadWithSendfile() throws IOException {
+        DefaultBinaryManager binaryManager = new DefaultBinaryManager();
+        binaryManager.initialize("repo", Collections.emptyMap());
+        Blob source = new FileBlob(new ByteArrayInputStream(CONTENT.getBytes("UTF-8")));
+        Binary binary = binaryManager.getBinary(source);
+        String digest = binary.getDigest();
+        long length = binary.getFile().length();
+        Blob blob = new BinaryBlob(binary, digest, "cafe.txt", "text/plain", "utf-8", digest, length);
+
+        // mock request response, the container supports sendfile
+        HttpServletRequest req = mock(HttpServletRequest.class);
+        when(req.getMethod()).thenReturn("GET");
+        when(req.getHeader("Range")).thenReturn("bytes=5-9");
+        when(req.getAttribute(DownloadServiceImpl.TOMCAT_SENDFILE_SUPPORT)).thenReturn(TRUE);
+        HttpServletResponse resp = mock(HttpServletResponse.class);
+        ServletOutputStream sos = new DummyServletOutputStream() {
+            @Override
+            public void write(int b) {
+                throw new NuxeoException("Not supposed to write to response");
+            }
+        };
+        when(resp.getOutputStream()).thenReturn(sos);
+
+        DownloadContext context = DownloadContext.builder(req, resp).blob(blob).reason("test").build();
+        downloadService.downloadBlob(context);
+
+        // the transfer is left to the container
+        verify(resp).setContentLengthLong(eq(5L));
+        verify(req).setAttribute(eq(DownloadServiceImpl.TOMCAT_SENDFILE_FILENAME),
+                eq(binary.getFile().getAbsolutePath()));
+        verify(req).setAttribute(eq(DownloadServiceImpl.TOMCAT_SENDFILE_START), eq(Long.valueOf(5)));
+        verify(req).setAttribute(eq(DownloadServiceImpl.TOMCAT_SENDFILE_END), eq(Long.valueOf(10)));
+    }
+
 }
@@ -19,15 +19,23 @@
 
 package org.nuxeo.ecm.core.io.marshallers.json.document;
 
-
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import static org.nuxeo.ecm.core.io.marshallers.json.document.DocumentPropertyJsonWriter.OMIT_PHANTOM_SECURED_PROPERTY;
+import static org.nuxeo.ecm.core.io.registry.reflect.Instantiations.SINGLETON;
+import static org.nuxeo.ecm.core.io.registry.reflect.Priorities.OVERRIDE_REFERENCE;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.Calendar;
 import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.inject.Inject;
 
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.junit.Before;
 import org.junit.Test;
 import org.nuxeo.common.utils.DateUtils;
@@ -39,9 +47,11 @@ import org.nuxeo.ecm.core.api.model.DeltaLong;
 import org.nuxeo.ecm.core.api.model.Property;
 import org.nuxeo.ecm.core.io.marshallers.json.AbstractJsonWriterTest;
 import org.nuxeo.ecm.core.io.marshallers.json.JsonAssert;
+import org.nuxeo.ecm.core.io.marshallers.json.OutputStreamWithJsonWriter;
 import org.nuxeo.ecm.core.io.registry.context.DepthValues;
 import org.nuxeo.ecm.core.io.registry.context.RenderingContext;
 import org.nuxeo.ecm.core.io.registry.context.RenderingContext.CtxBuilder;
+import org.nuxeo.ecm.core.io.registry.reflect.Setup;
 import org.nuxeo.ecm.core.schema.SchemaManager;
 import org.nuxeo.ecm.core.schema.types.Field;
 import org.nuxeo.ecm.core.schema.types.Schema;
@@ -50,10 +60,14 @@ import org.nuxeo.ecm.core.test.CoreFeature;
 import org.nuxeo.runtime.test.runner.Deploy;
 import org.nuxeo.runtime.test.runner.Features;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+
 @Features(CoreFeature.class)
 @Deploy("org.nuxeo.ecm.core.io:OSGI-INF/doc-type-contrib.xml")
 public class DocumentModelJsonWriterTest extends AbstractJsonWriterTest.Local<DocumentModelJsonWriter, DocumentModel> {
 
+    private static final Logger log = LogManager.getLogger(DocumentModelJsonWriterTest.class);
+
     public static final String PROP_DOC_ID_ONLY_REF = "dr:docIdOnlyRef";
 
     public static final String PROP_DOC_PATH_ONLY_REF = "dr:docPathOnlyRef";
@@ -554,4 +568,77 @@ public class DocumentModelJsonWriterTest extends AbstractJsonWriterTest.Local<Do
         json.properties(nbProperties);
     }
 
+    /**
+     * A property writer other than the default one is called through an {@link OutputStreamWithJsonWriter}, and gives
+     * the same rendering.
+     *
+     * @since 11.5
+     */
+    @Test
+    public void testPropertiesWithOtherPropertyWriter() throws IOException {
+        document.setPropertyValue("dc:title", "my title");
+        document.setPropertyValue("dc:subjects", new String[] { "foo", "bar" });
+        document = session.saveDocument(document);
+        String expected = asJson(document, CtxBuilder.properties("*").get());
+        FlushCountingOutputStream defaultOut = render(document);
+
+        registry.register(OtherPropertyJsonWriter.class);
+        String json;
+        FlushCountingOutputStream otherOut;
+        try {
+            OtherPropertyJsonWriter.COUNT.set(0);
+            json = asJson(document, CtxBuilder.properties("*").get());
+            assertTrue(OtherPropertyJsonWriter.COUNT.get() > 0);
+            otherOut = render(document);
+        } finally {
+            registry.deregister(OtherPropertyJsonWriter.class);
+        }
+        assertEquals(expected, json);
+        assertEquals(expected, defaultOut.toString());
+        assertEquals(expected, otherOut.toString());
+
+        // each property written through a stream flushes the generator to the underlying stream, which for an HTTP
+        // response means a write to the socket per property; the default writer only flushes once at the end
+        log.info("Flushes when rendering {} properties: {} with the default property writer, {} with another one",
+                document.getPropertyObjects("dublincore").size(), defaultOut.flushes, otherOut.flushes);
+        assertTrue(defaultOut.flushes + " >= " + otherOut.flushes, defaultOut.flushes < otherOut.flushes);
+        assertTrue(String.valueOf(otherOut.flushes),
+                otherOut.flushes >= document.getPropertyObjects("dublincore").size());
+    }
+
+    protected FlushCountingOutputStream render(DocumentModel doc) throws IOException {
+        FlushCountingOutputStream out = new FlushCountingOutputStream();
+        getInstance(CtxBuilder.properties("*").get()).write(doc, DocumentModel.class, DocumentModel.class,
+                APPLICATION_JSON_TYPE, out);
+        return out;
+    }
+
+    protected static class FlushCountingOutputStream extends ByteArrayOutputStream {
+
+        protected int flushes;
+
+        @Override
+        public void flush() throws IOException {
+            flushes++;
+            super.flush();
+        }
+    }
+
+    /**
+     * Property writer overriding the default one without changing its rendering.
+     *
+     * @since 11.5
+     */
+    @Setup(mode = SINGLETON, priority = OVERRIDE_REFERENCE)
+    public static class OtherPropertyJsonWriter extends DocumentPropertyJsonWriter {
+
+        protected static final AtomicInteger COUNT = new AtomicInteger();
+
+        @Override
+        public void write(Property prop, JsonGenerator jg) throws IOException {
+            COUNT.incrementAndGet();
+            super.write(prop, jg);
+        }
+    }
+
 }
@@ -19,6 +19,9 @@
 
 package org.nuxeo.ecm.core.io.marshallers.json.document;
 
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -30,9 +33,14 @@ import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.io.marshallers.json.AbstractJsonWriterTest;
 import org.nuxeo.ecm.core.io.marshallers.json.JsonAssert;
+import org.nuxeo.ecm.core.io.marshallers.json.enrichers.BreadcrumbJsonEnricher;
+import org.nuxeo.ecm.core.io.registry.context.RenderingContext;
+import org.nuxeo.ecm.core.io.registry.context.RenderingContext.CtxBuilder;
 import org.nuxeo.ecm.core.test.CoreFeature;
+import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.test.runner.Deploy;
 import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.transaction.TransactionHelper;
 
 @Features(CoreFeature.class)
 @Deploy("org.nuxeo.ecm.core.io:OSGI-INF/doc-type-contrib.xml")
@@ -68,4 +76,56 @@ public class DocumentModelListJsonWriterTest extends
         json.childrenContains("title", "myDoc1", "myDoc2", "myDoc3");
     }
 
+    /**
+     * @since 11.5
+     */
+    @Test
+    public void testParallel() throws Exception {
+        List<DocumentModel> elements = getElements();
+        // documents are rendered in other transactions
+        TransactionHelper.commitOrRollbackTransaction();
+        TransactionHelper.startTransaction();
+
+        RenderingContext ctx = CtxBuilder.properties("*").enrichDoc(BreadcrumbJsonEnricher.NAME).get();
+        String expected = asJson(elements, ctx);
+        Framework.getProperties().setProperty(DocumentModelListJsonWriter.PARALLEL_PROPERTY, "true");
+        try {
+            ctx = CtxBuilder.properties("*").enrichDoc(BreadcrumbJsonEnricher.NAME).get();
+            assertEquals(expected, asJson(elements, ctx));
+        } finally {
+            Framework.getProperties().remove(DocumentModelListJsonWriter.PARALLEL_PROPERTY);
+        }
+    }
+
+    /**
+     * @since 11.5
+     */
+    @Test
+    public void testParallelNested() throws Exception {
+        // more documents than rendering threads, each with breadcrumbs that are themselves lists
+        DocumentModel folder = session.createDocumentModel("/", "folder", "Folder");
+        folder = session.createDocument(folder);
+        DocumentModel subfolder = session.createDocumentModel(folder.getPathAsString(), "subfolder", "Folder");
+        subfolder = session.createDocument(subfolder);
+        List<DocumentModel> elements = new ArrayList<>();
+        for (int i = 0; i < 2 * DocumentModelListJsonWriter.DEFAULT_PARALLEL_THREADS + 1; i++) {
+            DocumentModel doc = session.createDocumentModel(subfolder.getPathAsString(), "myDoc" + i, "RefDoc");
+            elements.add(session.createDocument(doc));
+        }
+        TransactionHelper.commitOrRollbackTransaction();
+        TransactionHelper.startTransaction();
+
+        RenderingContext ctx = CtxBuilder.enrichDoc(BreadcrumbJsonEnricher.NAME).get();
+        String expected = asJson(elements, ctx);
+        Framework.getProperties().setProperty(DocumentModelListJsonWriter.PARALLEL_PROPERTY, "true");
+        try {
+            ctx = CtxBuilder.enrichDoc(BreadcrumbJsonEnricher.NAME).get();
+            assertEquals(expected, asJson(elements, ctx));
+        } finally {
+            Framework.getProperties().remove(DocumentModelListJsonWriter.PARALLEL_PROPERTY);
+        }
+        JsonAssert json = JsonAssert.on(expected).has("entries").length(elements.size()).get(0);
+        json.has("contextParameters").has("breadcrumb").has("entries").length(3);
+    }
+
 }
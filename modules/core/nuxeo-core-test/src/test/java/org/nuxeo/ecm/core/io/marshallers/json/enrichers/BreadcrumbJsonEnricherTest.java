@@ -19,20 +19,40 @@
 
 package org.nuxeo.ecm.core.io.marshallers.json.enrichers;
 
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
+import static org.junit.Assert.assertEquals;
+import static org.nuxeo.ecm.core.io.registry.reflect.Instantiations.SINGLETON;
+import static org.nuxeo.ecm.core.io.registry.reflect.Priorities.REFERENCE;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 import javax.inject.Inject;
 
+import org.apache.commons.lang3.reflect.TypeUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.PathRef;
 import org.nuxeo.ecm.core.io.marshallers.json.AbstractJsonWriterTest;
 import org.nuxeo.ecm.core.io.marshallers.json.JsonAssert;
 import org.nuxeo.ecm.core.io.marshallers.json.document.DocumentModelJsonWriter;
+import org.nuxeo.ecm.core.io.marshallers.json.document.DocumentModelListJsonWriter;
+import org.nuxeo.ecm.core.io.registry.context.RenderingContext;
 import org.nuxeo.ecm.core.io.registry.context.RenderingContext.CtxBuilder;
+import org.nuxeo.ecm.core.io.registry.reflect.Setup;
 import org.nuxeo.ecm.core.test.CoreFeature;
 import org.nuxeo.runtime.test.runner.Deploy;
 import org.nuxeo.runtime.test.runner.Features;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+
 @Features(CoreFeature.class)
 @Deploy("org.nuxeo.ecm.core.io:OSGI-INF/doc-type-contrib.xml")
 public class BreadcrumbJsonEnricherTest extends AbstractJsonWriterTest.Local<DocumentModelJsonWriter, DocumentModel> {
@@ -71,4 +91,61 @@ public class BreadcrumbJsonEnricherTest extends AbstractJsonWriterTest.Local<Doc
         }
     }
 
+    /**
+     * @since 11.5
+     */
+    @Test
+    public void testList() throws Exception {
+        List<DocumentModel> documents = Arrays.asList(session.getDocument(new PathRef("/level1")),
+                session.getDocument(new PathRef("/level1/level2")), document);
+        JsonAssert json;
+        // check that the prefetched data is used
+        registry.deregister(BreadcrumbJsonEnricher.class);
+        registry.register(CheckingBreadcrumbJsonEnricher.class);
+        try {
+            CheckingBreadcrumbJsonEnricher.PREFETCHED.clear();
+            json = jsonAssertList(documents);
+        } finally {
+            registry.deregister(CheckingBreadcrumbJsonEnricher.class);
+            registry.register(BreadcrumbJsonEnricher.class);
+        }
+        assertEquals(Set.of(documents.get(0).getId(), documents.get(1).getId(), documents.get(2).getId()),
+                CheckingBreadcrumbJsonEnricher.PREFETCHED);
+        json = json.has("entries").length(3);
+        for (int i = 0; i < 3; i++) {
+            JsonAssert breadcrumb = json.has(i).has("contextParameters").has(BreadcrumbJsonEnricher.NAME);
+            breadcrumb = breadcrumb.has("entries").length(i + 1);
+            for (int j = 0; j <= i; j++) {
+                breadcrumb.has(j).has("title").isEquals("level" + (j + 1));
+            }
+        }
+    }
+
+    protected JsonAssert jsonAssertList(List<DocumentModel> documents) throws Exception {
+        RenderingContext ctx = CtxBuilder.enrichDoc(BreadcrumbJsonEnricher.NAME).get();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        registry.getInstance(ctx, DocumentModelListJsonWriter.class)
+                .write(documents, List.class, TypeUtils.parameterize(List.class, DocumentModel.class),
+                        APPLICATION_JSON_TYPE, baos);
+        return JsonAssert.on(baos.toString());
+    }
+
+    /**
+     * Records the documents written using the prefetched data.
+     */
+    @Setup(mode = SINGLETON, priority = REFERENCE)
+    public static class CheckingBreadcrumbJsonEnricher extends BreadcrumbJsonEnricher {
+
+        protected static final Set<String> PREFETCHED = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void write(JsonGenerator jg, DocumentModel document) throws IOException {
+            Map<String, List<DocumentModel>> prefetched = getPrefetched();
+            if (prefetched != null && prefetched.containsKey(document.getId())) {
+                PREFETCHED.add(document.getId());
+            }
+            super.write(jg, document);
+        }
+    }
+
 }
@@ -19,8 +19,22 @@
 
 package org.nuxeo.ecm.core.io.marshallers.json.enrichers;
 
+import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
+import static org.junit.Assert.assertEquals;
+import static org.nuxeo.ecm.core.io.registry.reflect.Instantiations.SINGLETON;
+import static org.nuxeo.ecm.core.io.registry.reflect.Priorities.REFERENCE;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
 import javax.inject.Inject;
 
+import org.apache.commons.lang3.reflect.TypeUtils;
 import org.junit.Before;
 import org.junit.Test;
 import org.nuxeo.ecm.core.api.CoreSession;
@@ -29,12 +43,17 @@ import org.nuxeo.ecm.core.api.PathRef;
 import org.nuxeo.ecm.core.io.marshallers.json.AbstractJsonWriterTest;
 import org.nuxeo.ecm.core.io.marshallers.json.JsonAssert;
 import org.nuxeo.ecm.core.io.marshallers.json.document.DocumentModelJsonWriter;
+import org.nuxeo.ecm.core.io.marshallers.json.document.DocumentModelListJsonWriter;
+import org.nuxeo.ecm.core.io.registry.context.RenderingContext;
 import org.nuxeo.ecm.core.io.registry.context.RenderingContext.CtxBuilder;
+import org.nuxeo.ecm.core.io.registry.reflect.Setup;
 import org.nuxeo.ecm.core.test.CoreFeature;
 import org.nuxeo.runtime.test.runner.Deploy;
 import org.nuxeo.runtime.test.runner.Features;
 import org.nuxeo.runtime.transaction.TransactionHelper;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+
 /**
  * @since 8.10
  */
@@ -86,4 +105,64 @@ public class HasFolderishChildJsonEnricherTest extends AbstractJsonWriterTest.Lo
         json.isEquals(false);
     }
 
+    /**
+     * @since 11.5
+     */
+    @Test
+    public void testList() throws Exception {
+        TransactionHelper.commitOrRollbackTransaction();
+        TransactionHelper.startTransaction();
+
+        List<DocumentModel> documents = Arrays.asList(session.getDocument(new PathRef("/")),
+                session.getDocument(new PathRef("/child1")), session.getDocument(new PathRef("/child3")));
+        JsonAssert json;
+        // check that the prefetched data is used
+        registry.deregister(HasFolderishChildJsonEnricher.class);
+        registry.register(CheckingHasFolderishChildJsonEnricher.class);
+        try {
+            CheckingHasFolderishChildJsonEnricher.PREFETCHED.clear();
+            json = jsonAssertList(documents);
+        } finally {
+            registry.deregister(CheckingHasFolderishChildJsonEnricher.class);
+            registry.register(HasFolderishChildJsonEnricher.class);
+        }
+        // only folders are looked up
+        assertEquals(Set.of(documents.get(0).getId(), documents.get(1).getId()),
+                CheckingHasFolderishChildJsonEnricher.PREFETCHED);
+        json = json.has("entries").length(3);
+        boolean[] expected = { true, false, false };
+        for (int i = 0; i < 3; i++) {
+            JsonAssert hasChild = json.has(i).has("contextParameters").has(HasFolderishChildJsonEnricher.NAME);
+            hasChild.isBool();
+            hasChild.isEquals(expected[i]);
+        }
+    }
+
+    protected JsonAssert jsonAssertList(List<DocumentModel> documents) throws Exception {
+        RenderingContext ctx = CtxBuilder.enrichDoc(HasFolderishChildJsonEnricher.NAME).get();
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        registry.getInstance(ctx, DocumentModelListJsonWriter.class)
+                .write(documents, List.class, TypeUtils.parameterize(List.class, DocumentModel.class),
+                        APPLICATION_JSON_TYPE, baos);
+        return JsonAssert.on(baos.toString());
+    }
+
+    /**
+     * Records the documents written using the prefetched data.
+     */
+    @Setup(mode = SINGLETON, priority = REFERENCE)
+    public static class CheckingHasFolderishChildJsonEnricher extends HasFolderishChildJsonEnricher {
+
+        protected static final Set<String> PREFETCHED = ConcurrentHashMap.newKeySet();
+
+        @Override
+        public void write(JsonGenerator jg, DocumentModel document) throws IOException {
+            Map<String, Boolean> prefetched = getPrefetched();
+            if (prefetched != null && prefetched.containsKey(document.getId())) {
+                PREFETCHED.add(document.getId());
+            }
+            super.write(jg, document);
+        }
+    }
+
 }
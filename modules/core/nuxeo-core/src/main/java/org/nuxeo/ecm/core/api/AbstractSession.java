@@ -2098,6 +2098,9 @@ public abstract class AbstractSession implements CoreSession, Serializable {
     public DataModel getDataModel(DocumentRef docRef, Schema schema) {
         Document doc = resolveReference(docRef);
         checkPermission(doc, READ);
+        if (AdaptivePrefetch.isEnabled()) {
+            AdaptivePrefetch.schemaLoaded(doc.getType().getName(), schema.getName());
+        }
         return DocumentModelFactory.createDataModel(doc, schema);
     }
 
@@ -0,0 +1,179 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.core.api;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.services.config.ConfigurationService;
+
+/**
+ * Learns which schemas to prefetch for each document type, from the schemas that are actually accessed.
+ * <p>
+ * For each document type, the number of document models created and the number of schemas lazily loaded afterwards
+ * are counted. Every {@link #SAMPLES_PROP} documents, the schemas that were lazily loaded for at least
+ * {@link #THRESHOLD_PROP} percent of them are added to the schemas prefetched for this type, in addition to the static
+ * {@link org.nuxeo.ecm.core.schema.PrefetchInfo PrefetchInfo}. Learned schemas are kept until {@link #reset}.
+ * <p>
+ * This is disabled unless {@link #ENABLED_PROP} is {@code true}. The configuration is read on first use, and again after
+ * {@link #reset}.
+ *
+ * @since 11.5
+ */
+public class AdaptivePrefetch {
+
+    private static final Logger log = LogManager.getLogger(AdaptivePrefetch.class);
+
+    public static final String ENABLED_PROP = "org.nuxeo.core.prefetch.adaptive.enabled";
+
+    public static final String SAMPLES_PROP = "org.nuxeo.core.prefetch.adaptive.samples";
+
+    public static final int DEFAULT_SAMPLES = 1000;
+
+    public static final String THRESHOLD_PROP = "org.nuxeo.core.prefetch.adaptive.threshold";
+
+    public static final int DEFAULT_THRESHOLD = 50;
+
+    protected static final Map<String, TypeStats> STATS = new ConcurrentHashMap<>();
+
+    /** The configuration, read on first use, or {@code null} if not read yet. */
+    protected static volatile Config config;
+
+    /** The configuration read from the {@link ConfigurationService}. */
+    protected static class Config {
+
+        protected final boolean enabled;
+
+        protected final int samples;
+
+        protected final int threshold;
+
+        protected Config(ConfigurationService configurationService) {
+            enabled = configurationService.isBooleanTrue(ENABLED_PROP);
+            samples = configurationService.getInteger(SAMPLES_PROP, DEFAULT_SAMPLES);
+            threshold = configurationService.getInteger(THRESHOLD_PROP, DEFAULT_THRESHOLD);
+        }
+    }
+
+    /** Access statistics for a document type. */
+    protected static class TypeStats {
+
+        protected final LongAdder created = new LongAdder();
+
+        protected final Map<String, LongAdder> loaded = new ConcurrentHashMap<>();
+
+        protected volatile Set<String> learned = Collections.emptySet();
+
+        protected void documentCreated(int samples, int threshold, String type) {
+            created.increment();
+            if (created.sum() < samples) {
+                return;
+            }
+            synchronized (this) {
+                long count = created.sum();
+                if (count < samples) {
+                    return; // another thread did it
+                }
+                Set<String> schemas = new HashSet<>(learned);
+                loaded.forEach((schema, adder) -> {
+                    if (adder.sum() * 100 >= count * threshold) {
+                        schemas.add(schema);
+                    }
+                });
+                if (schemas.size() != learned.size()) {
+                    log.debug("Prefetching schemas: {} for type: {}", schemas, type);
+                    learned = Collections.unmodifiableSet(schemas);
+                }
+                // start a new sampling window
+                created.reset();
+                loaded.clear();
+            }
+        }
+
+        protected void schemaLoaded(String schema) {
+            loaded.computeIfAbsent(schema, k -> new LongAdder()).increment();
+        }
+    }
+
+    private AdaptivePrefetch() {
+        // utility class
+    }
+
+    /**
+     * Checks whether adaptive prefetch is enabled.
+     */
+    public static boolean isEnabled() {
+        Config conf = getConfig();
+        return conf != null && conf.enabled;
+    }
+
+    /**
+     * Gets the configuration, or {@code null} if the runtime is not initialized.
+     */
+    protected static Config getConfig() {
+        Config conf = config;
+        if (conf == null && Framework.isInitialized()) {
+            conf = new Config(Framework.getService(ConfigurationService.class));
+            config = conf;
+        }
+        return conf;
+    }
+
+    /**
+     * Gets the schemas learned for the given document type.
+     */
+    public static Set<String> getSchemas(String type) {
+        TypeStats stats = STATS.get(type);
+        return stats == null ? Collections.emptySet() : stats.learned;
+    }
+
+    /**
+     * Records the creation of a document model of the given type.
+     */
+    public static void documentCreated(String type) {
+        Config conf = getConfig();
+        if (conf == null) {
+            return;
+        }
+        STATS.computeIfAbsent(type, k -> new TypeStats()).documentCreated(conf.samples, conf.threshold, type);
+    }
+
+    /**
+     * Records the lazy loading of a schema for a document of the given type.
+     */
+    public static void schemaLoaded(String type, String schema) {
+        STATS.computeIfAbsent(type, k -> new TypeStats()).schemaLoaded(schema);
+    }
+
+    /**
+     * Forgets all statistics and learned schemas, and the configuration so that it's read again on next use.
+     */
+    public static void reset() {
+        STATS.clear();
+        config = null;
+    }
+
+}
@@ -21,8 +21,7 @@ package org.nuxeo.ecm.core.api;
 
 import java.util.Arrays;
 import java.util.HashSet;
-import java.util.LinkedList;
-import java.util.List;
+import java.util.LinkedHashSet;
 import java.util.Set;
 
 import org.apache.commons.lang3.StringUtils;
@@ -106,19 +105,21 @@ public class DocumentModelFactory {
         }
 
         // populate datamodels
-        List<String> loadSchemas = new LinkedList<>();
+        Set<String> loadSchemas = new LinkedHashSet<>();
         PrefetchInfo prefetchInfo = type.getPrefetchInfo();
         if (prefetchInfo != null) {
             String[] schemas = prefetchInfo.getSchemas();
             if (schemas != null) {
-                Set<String> validSchemas = new HashSet<>(Arrays.asList(docModel.getSchemas()));
-                for (String schemaName : schemas) {
-                    if (validSchemas.contains(schemaName)) {
-                        loadSchemas.add(schemaName);
-                    }
-                }
+                loadSchemas.addAll(Arrays.asList(schemas));
             }
         }
+        if (AdaptivePrefetch.isEnabled()) {
+            AdaptivePrefetch.documentCreated(type.getName());
+            loadSchemas.addAll(AdaptivePrefetch.getSchemas(type.getName()));
+        }
+        if (!loadSchemas.isEmpty()) {
+            loadSchemas.retainAll(new HashSet<>(Arrays.asList(docModel.getSchemas())));
+        }
         SchemaManager schemaManager = Framework.getService(SchemaManager.class);
         for (String schemaName : loadSchemas) {
             Schema schema = schemaManager.getSchema(schemaName);
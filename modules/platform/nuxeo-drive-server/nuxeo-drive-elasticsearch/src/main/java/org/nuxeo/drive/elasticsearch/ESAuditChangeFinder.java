@@ -21,6 +21,7 @@
 package org.nuxeo.drive.elasticsearch;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
@@ -32,6 +33,7 @@ import org.apache.logging.log4j.Logger;
 import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.action.support.IndicesOptions;
 import org.elasticsearch.index.query.BoolQueryBuilder;
 import org.elasticsearch.index.query.QueryBuilder;
 import org.elasticsearch.index.query.QueryBuilders;
@@ -226,7 +228,6 @@ public class ESAuditChangeFinder extends AuditChangeFinder {
 
     @Override
     public long getUpperBound() {
-        SearchRequest request = new SearchRequest(getESIndexName()).searchType(SearchType.DFS_QUERY_THEN_FETCH);
         RangeQueryBuilder filterBuilder = QueryBuilders.rangeQuery("logDate");
         SearchSourceBuilder source = new SearchSourceBuilder();
         source.sort("id", SortOrder.DESC).size(1);
@@ -237,6 +238,7 @@ public class ESAuditChangeFinder extends AuditChangeFinder {
             // set lower bound in query
             filterBuilder = filterBuilder.gt(lowerLogDateTime.toInstant().toEpochMilli());
             source.query(QueryBuilders.boolQuery().filter(filterBuilder));
+            SearchRequest request = createSearchRequest(lowerLogDateTime.toInstant());
             request.source(source);
             // run request
             logSearchRequest(request);
@@ -284,6 +286,21 @@ public class ESAuditChangeFinder extends AuditChangeFinder {
         return Framework.getService(ElasticSearchAdmin.class).getClient();
     }
 
+    /**
+     * Creates a search request on the audit partitions holding the entries logged after the given date.
+     *
+     * @since 11.5
+     */
+    protected SearchRequest createSearchRequest(Instant from) {
+        ElasticSearchAdmin esa = Framework.getService(ElasticSearchAdmin.class);
+        List<String> indexes = esa.getPartitionIndexNames(getESIndexName(), from, null);
+        if (indexes.isEmpty() || indexes.contains(getESIndexName())) {
+            return new SearchRequest(getESIndexName()).searchType(SearchType.DFS_QUERY_THEN_FETCH);
+        }
+        return new SearchRequest(indexes.toArray(new String[0])).indicesOptions(IndicesOptions.lenientExpandOpen())
+                                                                .searchType(SearchType.DFS_QUERY_THEN_FETCH);
+    }
+
     protected String getESIndexName() {
         ElasticSearchAdmin esa = Framework.getService(ElasticSearchAdmin.class);
         return esa.getIndexNameForType(ElasticSearchConstants.ENTRY_TYPE);
@@ -20,12 +20,15 @@
 package org.nuxeo.elasticsearch.audit;
 
 import static org.elasticsearch.common.xcontent.DeprecationHandler.THROW_UNSUPPORTED_OPERATION;
-import static org.elasticsearch.common.xcontent.XContentFactory.jsonBuilder;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_EVENT_DATE;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_EVENT_ID;
 import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_ID;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_LOG_DATE;
 
 import java.io.IOException;
-import java.io.OutputStream;
 import java.io.Serializable;
+import java.time.DateTimeException;
+import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -50,12 +53,13 @@ import org.elasticsearch.action.search.SearchRequest;
 import org.elasticsearch.action.search.SearchResponse;
 import org.elasticsearch.action.search.SearchScrollRequest;
 import org.elasticsearch.action.search.SearchType;
+import org.elasticsearch.action.support.IndicesOptions;
 import org.elasticsearch.common.ParsingException;
+import org.elasticsearch.common.bytes.BytesReference;
 import org.elasticsearch.common.io.stream.BytesStreamOutput;
 import org.elasticsearch.common.settings.Settings;
 import org.elasticsearch.common.unit.TimeValue;
 import org.elasticsearch.common.xcontent.NamedXContentRegistry;
-import org.elasticsearch.common.xcontent.XContentBuilder;
 import org.elasticsearch.common.xcontent.XContentFactory;
 import org.elasticsearch.common.xcontent.XContentParser;
 import org.elasticsearch.common.xcontent.XContentType;
@@ -70,6 +74,7 @@ import org.elasticsearch.search.builder.SearchSourceBuilder;
 import org.elasticsearch.search.sort.SortOrder;
 import org.json.JSONException;
 import org.json.JSONObject;
+import org.nuxeo.common.utils.DateUtils;
 import org.nuxeo.common.utils.TextTemplate;
 import org.nuxeo.ecm.core.api.CursorResult;
 import org.nuxeo.ecm.core.api.CursorService;
@@ -108,6 +113,8 @@ import org.nuxeo.runtime.model.DefaultComponent;
 
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
@@ -127,6 +134,13 @@ public class ESAuditBackend extends AbstractAuditBackend implements AuditBackend
 
     public static final int MIGRATION_DEFAULT_BACTH_SIZE = 1000;
 
+    /**
+     * Shared mapper used to read and write log entries, it is thread safe once configured.
+     *
+     * @since 11.5
+     */
+    protected static final ObjectMapper MAPPER = new ObjectMapper();
+
     protected CursorService<Iterator<SearchHit>, SearchHit, String> cursorService;
 
     public ESAuditBackend(NXAuditEventsService component, AuditBackendDescriptor config) {
@@ -240,7 +254,7 @@ public class ESAuditBackend extends AbstractAuditBackend implements AuditBackend
 
         // Perform search
         List<LogEntry> logEntries;
-        SearchRequest request = createSearchRequest();
+        SearchRequest request = createSearchRequest(getLogDateRange(predicate));
         request.source(source);
         if (limit == 0) {
             // return all result -> use the scroll api
@@ -332,12 +346,39 @@ public class ESAuditBackend extends AbstractAuditBackend implements AuditBackend
         return query;
     }
 
+    /**
+     * Returns the log date range matched by the predicate. An entry is logged after the event occurs, so a lower bound
+     * on the event date is also a lower bound of the log date.
+     *
+     * @since 11.5
+     */
+    protected LogDateRange getLogDateRange(MultiExpression andPredicate) {
+        LogDateRange range = new LogDateRange();
+        for (Predicate predicate : andPredicate.predicates) {
+            if (!(predicate.lvalue instanceof Reference)) {
+                continue;
+            }
+            String name = ((Reference) predicate.lvalue).name;
+            Operator operator = predicate.operator;
+            if (Operator.GT.equals(operator) || Operator.GTEQ.equals(operator) || Operator.EQ.equals(operator)) {
+                if (LOG_LOG_DATE.equals(name) || LOG_EVENT_DATE.equals(name)) {
+                    range.after(Literals.valueOf(predicate.rvalue));
+                }
+            }
+            if (Operator.LT.equals(operator) || Operator.LTEQ.equals(operator) || Operator.EQ.equals(operator)) {
+                if (LOG_LOG_DATE.equals(name)) {
+                    range.before(Literals.valueOf(predicate.rvalue));
+                }
+            }
+        }
+        return range;
+    }
+
     protected List<LogEntry> buildLogEntries(SearchResponse searchResponse) {
         List<LogEntry> entries = new ArrayList<>(searchResponse.getHits().getHits().length);
-        ObjectMapper mapper = new ObjectMapper();
         for (SearchHit hit : searchResponse.getHits()) {
             try {
-                entries.add(mapper.readValue(hit.getSourceAsString(), LogEntryImpl.class));
+                entries.add(MAPPER.readValue(hit.getSourceAsString(), LogEntryImpl.class));
             } catch (IOException e) {
                 log.error("Error while reading Audit Entry from ES", e);
             }
@@ -349,15 +390,46 @@ public class ESAuditBackend extends AbstractAuditBackend implements AuditBackend
         return new SearchRequest(getESIndexName()).searchType(SearchType.DFS_QUERY_THEN_FETCH);
     }
 
+    /**
+     * Creates a search request limited to the audit partitions that may contain entries logged in the range. Searches
+     * the whole audit when the audit index is not partitioned.
+     *
+     * @since 11.5
+     */
+    protected SearchRequest createSearchRequest(LogDateRange range) {
+        if (range.from == null && range.to == null) {
+            return createSearchRequest();
+        }
+        List<String> indexes = getESIndexNames(range.from, range.to);
+        if (indexes.isEmpty() || indexes.contains(getESIndexName())) {
+            return createSearchRequest();
+        }
+        // partitions may have been dropped meanwhile
+        return new SearchRequest(indexes.toArray(new String[0])).indicesOptions(IndicesOptions.lenientExpandOpen())
+                                                                .searchType(SearchType.DFS_QUERY_THEN_FETCH);
+    }
+
     @Override
     public LogEntry getLogEntryByID(long id) {
-        GetResponse ret = esClient.get(
-                new GetRequest(getESIndexName(), String.valueOf(id)));
-        if (!ret.isExists()) {
-            return null;
+        String source;
+        if (isPartitioned()) {
+            // a get request cannot target an alias with multiple indexes
+            SearchRequest request = createSearchRequest();
+            request.source(new SearchSourceBuilder().query(QueryBuilders.idsQuery().addIds(String.valueOf(id))));
+            SearchHit[] hits = runRequest(request).getHits().getHits();
+            if (hits.length == 0) {
+                return null;
+            }
+            source = hits[0].getSourceAsString();
+        } else {
+            GetResponse ret = esClient.get(new GetRequest(getESIndexName(), String.valueOf(id)));
+            if (!ret.isExists()) {
+                return null;
+            }
+            source = ret.getSourceAsString();
         }
         try {
-            return new ObjectMapper().readValue(ret.getSourceAsString(), LogEntryImpl.class);
+            return MAPPER.readValue(source, LogEntryImpl.class);
         } catch (IOException e) {
             throw new NuxeoException("Unable to read Entry for id " + id, e);
         }
@@ -474,43 +546,115 @@ public class ESAuditBackend extends AbstractAuditBackend implements AuditBackend
         }
 
         BulkRequest bulkRequest = new BulkRequest();
-        JsonFactory factory = new JsonFactory();
-
-        UIDGeneratorService uidGeneratorService = Framework.getService(UIDGeneratorService.class);
-        UIDSequencer seq = uidGeneratorService.getSequencer();
-
+        List<Long> block = getNextIdBlock(entries.size());
         try {
-            List<Long> block = seq.getNextBlock(SEQ_NAME, entries.size());
             for (int i = 0; i < entries.size(); i++) {
                 LogEntry entry = entries.get(i);
                 entry.setId(block.get(i));
                 if (log.isDebugEnabled()) {
                     log.debug(String.format("Indexing log entry: %s", entry));
                 }
-                entry.setLogDate(new Date());
-                try (OutputStream out = new BytesStreamOutput(); //
-                        JsonGenerator jg = factory.createGenerator(out); //
-                        XContentBuilder builder = jsonBuilder(out)) {
-                    ObjectMapper mapper = new ObjectMapper();
-                    mapper.writeValue(jg, entry);
-                    bulkRequest.add(
-                            new IndexRequest(getESIndexName()).id(String.valueOf(entry.getId())).source(builder));
+                Date logDate = new Date();
+                entry.setLogDate(logDate);
+                BytesStreamOutput out = new BytesStreamOutput();
+                try (JsonGenerator jg = MAPPER.getFactory().createGenerator(out)) {
+                    MAPPER.writeValue(jg, entry);
                 }
+                bulkRequest.add(new IndexRequest(getESWriteIndexName(logDate.toInstant())).id(
+                        String.valueOf(entry.getId())).source(out.bytes(), XContentType.JSON));
+            }
+        } catch (IOException e) {
+            throw new NuxeoException("Error while indexing Audit entries", e);
+        }
+        bulkLogEntries(bulkRequest);
+    }
+
+    /**
+     * Writes the JSON entries to the bulk request as they are, only the id and the log date are set while copying the
+     * JSON tokens. No log entry object is created.
+     * <p>
+     * As the entries are not read as {@link LogEntryImpl}, only their structure is checked: an entry must be a single
+     * JSON object with an {@code eventId} string field. The types of the other fields are checked by the index mapping,
+     * entries rejected by Elasticsearch are logged like the ones of {@link #addLogEntries(List)}.
+     *
+     * @since 11.5
+     */
+    @Override
+    public void addJsonLogEntries(List<String> jsonEntries) {
+        if (jsonEntries.isEmpty()) {
+            return;
+        }
+        BulkRequest bulkRequest = new BulkRequest();
+        List<Long> block = getNextIdBlock(jsonEntries.size());
+        for (int i = 0; i < jsonEntries.size(); i++) {
+            String json = jsonEntries.get(i);
+            long id = block.get(i);
+            try {
+                // same millisecond precision as the dates serialized from LogEntryImpl
+                Instant logDate = Instant.ofEpochMilli(System.currentTimeMillis());
+                BytesReference source = setIdAndLogDate(json, id, logDate.toString());
+                bulkRequest.add(new IndexRequest(getESWriteIndexName(logDate)).id(String.valueOf(id))
+                                                                              .source(source, XContentType.JSON));
+            } catch (IOException e) {
+                log.error("Discard invalid json log entry: " + json, e);
             }
+        }
+        if (bulkRequest.numberOfActions() > 0) {
+            bulkLogEntries(bulkRequest);
+        }
+    }
 
-            BulkResponse bulkResponse = esClient.bulk(bulkRequest);
-            if (bulkResponse.hasFailures()) {
-                for (BulkItemResponse response : bulkResponse.getItems()) {
-                    if (response.isFailed()) {
-                        log.error("Unable to index audit entry " + response.getItemId() + " :"
-                                + response.getFailureMessage());
-                    }
+    protected BytesReference setIdAndLogDate(String json, long id, String logDate) throws IOException {
+        BytesStreamOutput out = new BytesStreamOutput(json.length() + 64);
+        JsonFactory factory = MAPPER.getFactory();
+        try (JsonParser parser = factory.createParser(json); JsonGenerator jg = factory.createGenerator(out)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IOException("Not a json object");
+            }
+            jg.writeStartObject();
+            jg.writeNumberField(LOG_ID, id);
+            jg.writeStringField(LOG_LOG_DATE, logDate);
+            boolean hasEventId = false;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String name = parser.getCurrentName();
+                JsonToken token = parser.nextToken();
+                if (LOG_ID.equals(name) || LOG_LOG_DATE.equals(name)) {
+                    parser.skipChildren();
+                    continue;
+                }
+                if (LOG_EVENT_ID.equals(name)) {
+                    hasEventId = token == JsonToken.VALUE_STRING;
                 }
+                jg.writeFieldName(name);
+                jg.copyCurrentStructure(parser);
             }
-        } catch (IOException e) {
-            throw new NuxeoException("Error while indexing Audit entries", e);
+            if (parser.currentToken() != JsonToken.END_OBJECT || parser.nextToken() != null) {
+                throw new IOException("Not a single json object");
+            }
+            if (!hasEventId) {
+                throw new IOException("Missing " + LOG_EVENT_ID);
+            }
+            jg.writeEndObject();
         }
+        return out.bytes();
+    }
+
+    protected List<Long> getNextIdBlock(int size) {
+        UIDGeneratorService uidGeneratorService = Framework.getService(UIDGeneratorService.class);
+        UIDSequencer seq = uidGeneratorService.getSequencer();
+        return seq.getNextBlock(SEQ_NAME, size);
+    }
 
+    protected void bulkLogEntries(BulkRequest bulkRequest) {
+        BulkResponse bulkResponse = esClient.bulk(bulkRequest);
+        if (bulkResponse.hasFailures()) {
+            for (BulkItemResponse response : bulkResponse.getItems()) {
+                if (response.isFailed()) {
+                    log.error("Unable to index audit entry " + response.getItemId() + " :"
+                            + response.getFailureMessage());
+                }
+            }
+        }
     }
 
     @Override
@@ -530,11 +674,17 @@ public class ESAuditBackend extends AbstractAuditBackend implements AuditBackend
 
     public SearchResponse search(SearchRequest request) {
         String[] indices = request.indices();
-        if (indices == null || indices.length != 1) {
+        if (indices == null || indices.length == 0) {
             throw new IllegalStateException("Search on audit must include index name: " + request);
         }
-        if (!getESIndexName().equals(indices[0])) {
-            throw new IllegalStateException("Search on audit must be on audit index: " + request);
+        if (indices.length != 1 || !getESIndexName().equals(indices[0])) {
+            // the request can target audit partitions
+            List<String> partitions = getESIndexNames(null, null);
+            for (String index : indices) {
+                if (!partitions.contains(index)) {
+                    throw new IllegalStateException("Search on audit must be on audit index: " + request);
+                }
+            }
         }
         return runRequest(request);
     }
@@ -552,15 +702,7 @@ public class ESAuditBackend extends AbstractAuditBackend implements AuditBackend
         for (PredicateDefinition predicate : predicates) {
 
             // extract data from DocumentModel
-            PredicateFieldDefinition[] fieldDef = predicate.getValues();
-            Object[] val = new Object[fieldDef.length];
-            for (int fidx = 0; fidx < fieldDef.length; fidx++) {
-                if (fieldDef[fidx].getXpath() != null) {
-                    val[fidx] = searchDocumentModel.getPropertyValue(fieldDef[fidx].getXpath());
-                } else {
-                    val[fidx] = searchDocumentModel.getProperty(fieldDef[fidx].getSchema(), fieldDef[fidx].getName());
-                }
-            }
+            Object[] val = getPredicateValues(predicate, searchDocumentModel);
 
             if (!isNonNullParam(val)) {
                 // skip predicate where all values are null
@@ -611,6 +753,53 @@ public class ESAuditBackend extends AbstractAuditBackend implements AuditBackend
         return filterBuilder;
     }
 
+    protected Object[] getPredicateValues(PredicateDefinition predicate, DocumentModel searchDocumentModel) {
+        PredicateFieldDefinition[] fieldDef = predicate.getValues();
+        Object[] val = new Object[fieldDef.length];
+        for (int fidx = 0; fidx < fieldDef.length; fidx++) {
+            if (fieldDef[fidx].getXpath() != null) {
+                val[fidx] = searchDocumentModel.getPropertyValue(fieldDef[fidx].getXpath());
+            } else {
+                val[fidx] = searchDocumentModel.getProperty(fieldDef[fidx].getSchema(), fieldDef[fidx].getName());
+            }
+        }
+        return val;
+    }
+
+    /**
+     * Returns the log date range matched by the page provider predicates, see {@link #buildFilter}.
+     *
+     * @since 11.5
+     */
+    protected LogDateRange getLogDateRange(PredicateDefinition[] predicates, DocumentModel searchDocumentModel) {
+        LogDateRange range = new LogDateRange();
+        if (searchDocumentModel == null) {
+            return range;
+        }
+        for (PredicateDefinition predicate : predicates) {
+            String name = predicate.getParameter();
+            if (!LOG_LOG_DATE.equals(name) && !LOG_EVENT_DATE.equals(name)) {
+                continue;
+            }
+            Object[] val = getPredicateValues(predicate, searchDocumentModel);
+            if (val.length == 0) {
+                continue;
+            }
+            String op = predicate.getOperator();
+            if ("BETWEEN".equalsIgnoreCase(op) || ">".equals(op) || ">=".equals(op)) {
+                range.after(val[0]);
+            }
+            if (LOG_LOG_DATE.equals(name)) {
+                if ("BETWEEN".equalsIgnoreCase(op) && val.length > 1) {
+                    range.before(val[1]);
+                } else if ("<".equals(op) || "<=".equals(op)) {
+                    range.before(val[0]);
+                }
+            }
+        }
+        return range;
+    }
+
     protected Object convertDate(Object o) {
         // Date are convert to timestamp ms which is a known format by default for ES
         if (o instanceof Calendar) {
@@ -623,7 +812,7 @@ public class ESAuditBackend extends AbstractAuditBackend implements AuditBackend
 
     public SearchRequest buildSearchQuery(String fixedPart, PredicateDefinition[] predicates,
             DocumentModel searchDocumentModel) {
-        SearchRequest request = createSearchRequest();
+        SearchRequest request = createSearchRequest(getLogDateRange(predicates, searchDocumentModel));
         QueryBuilder queryBuilder = QueryBuilders.wrapperQuery(fixedPart);
         QueryBuilder filterBuilder = buildFilter(predicates, searchDocumentModel);
         request.source(
@@ -744,16 +933,80 @@ public class ESAuditBackend extends AbstractAuditBackend implements AuditBackend
         return esa.getIndexNameForType(ElasticSearchConstants.ENTRY_TYPE);
     }
 
+    /**
+     * Returns the index where to write an entry logged at the given date, when the audit index is time partitioned
+     * this is the partition holding the date, created on first use.
+     *
+     * @since 11.5
+     */
+    protected String getESWriteIndexName(Instant logDate) {
+        ElasticSearchAdmin esa = Framework.getService(ElasticSearchAdmin.class);
+        return esa.getPartitionIndexName(getESIndexName(), logDate);
+    }
+
+    /**
+     * Returns the indexes that may contain entries logged between the dates, a {@code null} bound is open.
+     *
+     * @since 11.5
+     */
+    protected List<String> getESIndexNames(Instant from, Instant to) {
+        ElasticSearchAdmin esa = Framework.getService(ElasticSearchAdmin.class);
+        return esa.getPartitionIndexNames(getESIndexName(), from, to);
+    }
+
+    /**
+     * @since 11.5
+     */
+    protected boolean isPartitioned() {
+        // the audit index name is an alias on the partitions
+        return !getESIndexNames(null, null).contains(getESIndexName());
+    }
+
+    /**
+     * Drops the audit partitions only containing entries logged before the given date. This is a no-op when the audit
+     * index is not time partitioned.
+     *
+     * @return the names of the dropped partitions
+     * @since 11.5
+     */
+    public List<String> dropPartitionsBefore(Date date) {
+        ElasticSearchAdmin esa = Framework.getService(ElasticSearchAdmin.class);
+        return esa.dropPartitionIndexesBefore(getESIndexName(), date.toInstant());
+    }
+
+    /**
+     * Gets the log date of a Json entry, used to choose its partition.
+     *
+     * @throws DateTimeException if the log date is missing or invalid
+     * @since 11.5
+     */
+    protected Instant getLogDate(Object value) {
+        if (value instanceof Number) {
+            return Instant.ofEpochMilli(((Number) value).longValue());
+        } else if (value instanceof String) {
+            return DateUtils.parseISODateTime((String) value).toInstant();
+        }
+        throw new DateTimeException("Missing log date");
+    }
+
     @Override
     public void append(List<String> jsonEntries) {
         BulkRequest bulkRequest = new BulkRequest();
         for (String json : jsonEntries) {
             try {
-                Object entryId = new JSONObject(json).opt(LOG_ID);
+                JSONObject jsonObject = new JSONObject(json);
+                Object entryId = jsonObject.opt(LOG_ID);
                 if (entryId ==  null) {
                     throw new NuxeoException("A json entry has an empty id. entry=" + json);
                 }
-                IndexRequest request = new IndexRequest(getESIndexName()).id(entryId.toString());
+                Instant logDate;
+                try {
+                    logDate = getLogDate(jsonObject.opt(LOG_LOG_DATE));
+                } catch (DateTimeException e) {
+                    // don't write the entry to a partition that doesn't match its date
+                    throw new NuxeoException("A json entry has an invalid log date. entry=" + json, e);
+                }
+                IndexRequest request = new IndexRequest(getESWriteIndexName(logDate)).id(entryId.toString());
                 request.source(json, XContentType.JSON);
                 bulkRequest.add(request);
             } catch (JSONException e) {
@@ -775,7 +1028,7 @@ public class ESAuditBackend extends AbstractAuditBackend implements AuditBackend
         SearchSourceBuilder source = createSearchRequestSource(predicate, orders);
         source.size(batchSize);
         // create request
-        SearchRequest request = createSearchRequest();
+        SearchRequest request = createSearchRequest(getLogDateRange(predicate));
         request.source(source).scroll(TimeValue.timeValueSeconds(keepAliveSeconds));
         SearchResponse response = runRequest(request);
         // register cursor
@@ -788,6 +1041,43 @@ public class ESAuditBackend extends AbstractAuditBackend implements AuditBackend
         return cursorService.scroll(scrollId);
     }
 
+    /**
+     * Range of log dates matched by a query, a {@code null} bound is open.
+     *
+     * @since 11.5
+     */
+    protected static class LogDateRange {
+
+        protected Instant from;
+
+        protected Instant to;
+
+        protected void after(Object value) {
+            Instant date = toInstant(value);
+            if (date != null && (from == null || date.isAfter(from))) {
+                from = date;
+            }
+        }
+
+        protected void before(Object value) {
+            Instant date = toInstant(value);
+            if (date != null && (to == null || date.isBefore(to))) {
+                to = date;
+            }
+        }
+
+        protected static Instant toInstant(Object value) {
+            if (value instanceof ZonedDateTime) {
+                return ((ZonedDateTime) value).toInstant();
+            } else if (value instanceof Calendar) {
+                return ((Calendar) value).toInstant();
+            } else if (value instanceof Date) {
+                return ((Date) value).toInstant();
+            }
+            return null;
+        }
+    }
+
     public class ESCursorResult extends CursorResult<Iterator<SearchHit>, SearchHit> {
 
         protected final String scrollId;
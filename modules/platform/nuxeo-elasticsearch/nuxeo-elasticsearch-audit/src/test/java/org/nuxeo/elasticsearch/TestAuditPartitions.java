@@ -0,0 +1,143 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.elasticsearch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_DOC_UUID;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_LOG_DATE;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+
+import javax.inject.Inject;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.query.sql.model.Predicates;
+import org.nuxeo.ecm.platform.audit.api.AuditQueryBuilder;
+import org.nuxeo.ecm.platform.audit.api.LogEntry;
+import org.nuxeo.ecm.platform.audit.service.NXAuditEventsService;
+import org.nuxeo.elasticsearch.api.ElasticSearchAdmin;
+import org.nuxeo.elasticsearch.audit.ESAuditBackend;
+import org.nuxeo.elasticsearch.test.RepositoryElasticSearchFeature;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+
+/**
+ * @since 11.5
+ */
+@RunWith(FeaturesRunner.class)
+@Features(RepositoryElasticSearchFeature.class)
+@Deploy("org.nuxeo.runtime.metrics")
+@Deploy("org.nuxeo.ecm.platform.audit.api")
+@Deploy("org.nuxeo.ecm.core.persistence")
+@Deploy("org.nuxeo.ecm.platform.audit")
+@Deploy("org.nuxeo.ecm.platform.uidgen.core")
+@Deploy("org.nuxeo.elasticsearch.core")
+@Deploy("org.nuxeo.elasticsearch.seqgen")
+@Deploy("org.nuxeo.elasticsearch.seqgen.test:elasticsearch-seqgen-index-test-contrib.xml")
+@Deploy("org.nuxeo.elasticsearch.audit")
+@Deploy("org.nuxeo.elasticsearch.audit:elasticsearch-audit-index-test-contrib.xml")
+@Deploy("org.nuxeo.elasticsearch.audit:elasticsearch-audit-index-test-partition-contrib.xml")
+@Deploy("org.nuxeo.elasticsearch.audit:audit-test-contrib.xml")
+public class TestAuditPartitions {
+
+    protected static final Instant OLD_DATE = Instant.parse("2020-01-15T10:00:00Z");
+
+    @Inject
+    protected ElasticSearchAdmin esa;
+
+    @Inject
+    protected NXAuditEventsService auditEventsService;
+
+    protected String indexName;
+
+    @Before
+    public void setupIndex() throws Exception {
+        // make sure that the audit bulker don't drain pending log entries while we reset the index
+        LogEntryGen.flushAndSync();
+        esa.initIndexes(true);
+        indexName = esa.getIndexNameForType(ElasticSearchConstants.ENTRY_TYPE);
+    }
+
+    @After
+    public void dropPartitions() {
+        // the other tests expect a plain audit index
+        for (String name : esa.getClient().getIndexesForAlias(indexName)) {
+            esa.getClient().deleteIndex(name, 60);
+        }
+    }
+
+    protected static String jsonEntry(long id, Instant logDate) {
+        return "{\"entity-type\":\"logEntry\",\"id\":" + id + ",\"eventId\":\"evt" + id
+                + "\",\"category\":\"cat\",\"docUUID\":\"mydoc\",\"docPath\":\"/mydoc\",\"repositoryId\":\"test\""
+                + ",\"eventDate\":\"" + logDate + "\",\"logDate\":\"" + logDate + "\"}";
+    }
+
+    protected List<LogEntry> query(Instant from) {
+        AuditQueryBuilder builder = new AuditQueryBuilder();
+        builder.predicate(Predicates.eq(LOG_DOC_UUID, "mydoc"));
+        if (from != null) {
+            builder.and(Predicates.gte(LOG_LOG_DATE, Date.from(from)));
+        }
+        builder.defaultOrder();
+        return getBackend().queryLogs(builder);
+    }
+
+    protected ESAuditBackend getBackend() {
+        return (ESAuditBackend) auditEventsService.getBackend();
+    }
+
+    @Test
+    public void testPartitions() {
+        Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        String oldPartition = indexName + "-2020.01";
+        String currentPartition = esa.getPartitionIndexName(indexName, now);
+
+        // entries are written to the partition of their log date
+        getBackend().append(List.of(jsonEntry(1, OLD_DATE), jsonEntry(2, now)));
+        esa.getClient().refresh(indexName);
+        List<String> partitions = esa.getPartitionIndexNames(indexName, null, null);
+        assertEquals(partitions.toString(), 2, partitions.size());
+        assertTrue(partitions.toString(), partitions.contains(oldPartition));
+        assertTrue(partitions.toString(), partitions.contains(currentPartition));
+
+        // queries span all the partitions, unless bounded by the log date
+        assertEquals(2, query(null).size());
+        assertEquals(List.of(currentPartition), esa.getPartitionIndexNames(indexName, now, null));
+        List<LogEntry> entries = query(now.minus(1, ChronoUnit.MINUTES));
+        assertEquals(1, entries.size());
+        assertEquals(2L, entries.get(0).getId());
+        assertEquals(1L, getBackend().getLogEntryByID(1).getId());
+
+        // the old partition is dropped as a whole, the current one is kept
+        assertEquals(List.of(oldPartition), getBackend().dropPartitionsBefore(Date.from(now)));
+        assertEquals(List.of(currentPartition), esa.getPartitionIndexNames(indexName, null, null));
+        entries = query(null);
+        assertEquals(1, entries.size());
+        assertEquals(2L, entries.get(0).getId());
+    }
+
+}
@@ -19,10 +19,14 @@
  */
 package org.nuxeo.elasticsearch;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
+import static org.nuxeo.ecm.platform.audit.api.BuiltinLogEntryData.LOG_LOG_DATE;
+import static org.nuxeo.ecm.platform.audit.listener.StreamAuditEventListener.STREAM_NAME;
 
 import java.util.Date;
 import java.util.HashMap;
@@ -32,6 +36,8 @@ import java.util.Map;
 import javax.inject.Inject;
 
 import org.apache.commons.io.IOUtils;
+import org.elasticsearch.action.get.GetRequest;
+import org.elasticsearch.action.get.GetResponse;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -45,7 +51,10 @@ import org.nuxeo.ecm.platform.audit.service.NXAuditEventsService;
 import org.nuxeo.elasticsearch.api.ElasticSearchAdmin;
 import org.nuxeo.elasticsearch.audit.ESAuditBackend;
 import org.nuxeo.elasticsearch.test.RepositoryElasticSearchFeature;
+import org.nuxeo.lib.stream.computation.Record;
+import org.nuxeo.lib.stream.computation.StreamManager;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.stream.StreamService;
 import org.nuxeo.runtime.test.runner.Deploy;
 import org.nuxeo.runtime.test.runner.Features;
 import org.nuxeo.runtime.test.runner.FeaturesRunner;
@@ -132,6 +141,46 @@ public class TestAuditWithElasticSearch extends AbstractAuditStorageTest {
         assertEquals(1L, backend.getEventsCount(entry.getEventId()).longValue());
     }
 
+    /**
+     * @since 11.5
+     */
+    @Test
+    public void shouldWriteStreamEntriesAsJson() throws Exception {
+        StreamManager streamManager = Framework.getService(StreamService.class).getStreamManager();
+        String json = "{\"entity-type\":\"logEntry\",\"id\":999,\"logDate\":\"2000-01-01T00:00:00.123456Z\","
+                + "\"eventId\":\"jsonEvent\",\"category\":\"jsonCategory\",\"docUUID\":\"jsondoc\","
+                + "\"docPath\":\"/jsondoc\",\"repositoryId\":\"test\",\"eventDate\":\"2020-01-01T00:00:00.000Z\","
+                + "\"extended\":{\"title\":\"A title\"}}";
+        long before = System.currentTimeMillis();
+        streamManager.append(STREAM_NAME, Record.of("jsondoc", json.getBytes(UTF_8)));
+        // invalid entries are discarded
+        streamManager.append(STREAM_NAME, Record.of("invalid", "{\"category\":\"noEventId\"}".getBytes(UTF_8)));
+        streamManager.append(STREAM_NAME, Record.of("invalid", "[]".getBytes(UTF_8)));
+        LogEntryGen.flushAndSync();
+
+        AuditReader reader = Framework.getService(AuditReader.class);
+        List<LogEntry> entries = reader.getLogEntriesFor("jsondoc", "test");
+        assertEquals(1, entries.size());
+        LogEntry entry = entries.get(0);
+        // id and log date are assigned by the backend
+        assertNotEquals(999L, entry.getId());
+        assertTrue(entry.getLogDate().getTime() >= before);
+        assertEquals("jsonEvent", entry.getEventId());
+        assertEquals("jsonCategory", entry.getCategory());
+        assertEquals("/jsondoc", entry.getDocPath());
+        assertEquals("A title", entry.getExtendedInfos().get("title").getValue(String.class));
+        assertEquals(entry.getId(), reader.getLogEntryByID(entry.getId()).getId());
+
+        // the log date has the same millisecond precision as the entries written from LogEntryImpl
+        GetResponse response = esa.getClient()
+                                  .get(new GetRequest(esa.getIndexNameForType(ElasticSearchConstants.ENTRY_TYPE),
+                                          String.valueOf(entry.getId())));
+        String logDate = (String) response.getSourceAsMap().get(LOG_LOG_DATE);
+        assertTrue(logDate, logDate.matches("\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}(\\.\\d{3})?Z"));
+
+        assertEquals(0, reader.queryLogsByPage(null, (Date) null, new String[] { "noEventId" }, null, 0, 10).size());
+    }
+
     @Test
     public void shouldSupportMultiCriteriaQueries() throws Exception {
 
@@ -24,6 +24,7 @@ import static org.nuxeo.elasticsearch.ElasticSearchConstants.INDEXING_QUEUE_ID;
 import static org.nuxeo.elasticsearch.ElasticSearchConstants.REINDEX_ON_STARTUP_PROPERTY;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -304,6 +305,21 @@ public class ElasticSearchComponent extends DefaultComponent
         esa.syncSearchAndWriteAlias(searchIndexName);
     }
 
+    @Override
+    public String getPartitionIndexName(String indexName, Instant date) {
+        return esa.getPartitionIndexName(indexName, date);
+    }
+
+    @Override
+    public List<String> getPartitionIndexNames(String indexName, Instant from, Instant to) {
+        return esa.getPartitionIndexNames(indexName, from, to);
+    }
+
+    @Override
+    public List<String> dropPartitionIndexesBefore(String indexName, Instant date) {
+        return esa.dropPartitionIndexesBefore(indexName, date);
+    }
+
     @SuppressWarnings("deprecation")
     @Override
     public long getPendingWorkerCount() {
@@ -18,6 +18,8 @@
  */
 package org.nuxeo.elasticsearch.api;
 
+import java.util.List;
+
 import org.elasticsearch.action.bulk.BulkProcessor;
 import org.elasticsearch.action.bulk.BulkRequest;
 import org.elasticsearch.action.bulk.BulkResponse;
@@ -76,6 +78,20 @@ public interface ESClient extends AutoCloseable {
 
     void updateAlias(String aliasName, String indexName);
 
+    /**
+     * Returns the names of the indexes referenced by the alias. Returns an empty list if the alias does not exists.
+     *
+     * @since 11.5
+     */
+    List<String> getIndexesForAlias(String aliasName);
+
+    /**
+     * Adds the index to the alias, the indexes already referenced by the alias are kept.
+     *
+     * @since 11.5
+     */
+    void addAlias(String aliasName, String indexName);
+
     // -------------------------------------------------------------------
     // Search
     //
@@ -20,6 +20,7 @@
 
 package org.nuxeo.elasticsearch.api;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
@@ -128,6 +129,29 @@ public interface ElasticSearchAdmin {
      */
     void syncSearchAndWriteAlias(String searchIndexName);
 
+    /**
+     * Returns the partition index holding the entries of the given date, the partition is created and added to the
+     * index alias when needed. Returns the write index when the index is not time partitioned.
+     *
+     * @since 11.5
+     */
+    String getPartitionIndexName(String indexName, Instant date);
+
+    /**
+     * Returns the partition indexes that may contain entries between {@code from} and {@code to}, a {@code null} bound
+     * is open. Returns the index itself when the index is not time partitioned.
+     *
+     * @since 11.5
+     */
+    List<String> getPartitionIndexNames(String indexName, Instant from, Instant to);
+
+    /**
+     * Deletes the partition indexes only containing entries older than the given date and returns their names.
+     *
+     * @since 11.5
+     */
+    List<String> dropPartitionIndexesBefore(String indexName, Instant date);
+
     /**
      * Returns true if there are indexing activities scheduled or running.
      *
@@ -0,0 +1,118 @@
+/*
+ * (C) Copyright 2020 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     bdelbosc
+ */
+package org.nuxeo.elasticsearch.bulk;
+
+/**
+ * Computes the size of the elasticsearch bulk requests using an additive increase / multiplicative decrease policy.
+ * <p>
+ * The size grows while the bulk latency stays under the target latency, it shrinks when the latency is too high and is
+ * halved when elasticsearch rejects requests (HTTP 429), in this last case an exponential backoff delay is also
+ * returned. The size is bounded by the configured bulk size and actions.
+ *
+ * @since 11.5
+ */
+public class AdaptiveBulkSizer {
+
+    // the min size is a fraction of the max size
+    protected static final int MIN_SIZE_RATIO = 16;
+
+    // number of steps to go from min to max size
+    protected static final int INCREASE_STEPS = 10;
+
+    protected static final double DECREASE_FACTOR = 0.75;
+
+    protected final long maxBytes;
+
+    protected final long minBytes;
+
+    protected final int maxActions;
+
+    protected final int minActions;
+
+    protected final long targetLatencyMs;
+
+    protected final long initialBackoffMs;
+
+    protected final long maxBackoffMs;
+
+    protected long bytes;
+
+    protected int actions;
+
+    protected long backoffMs;
+
+    public AdaptiveBulkSizer(long maxBytes, int maxActions, long targetLatencyMs, long initialBackoffMs,
+            long maxBackoffMs) {
+        this.maxBytes = maxBytes;
+        this.minBytes = Math.max(1, maxBytes / MIN_SIZE_RATIO);
+        this.maxActions = maxActions;
+        this.minActions = Math.max(1, maxActions / MIN_SIZE_RATIO);
+        this.targetLatencyMs = targetLatencyMs;
+        this.initialBackoffMs = initialBackoffMs;
+        this.maxBackoffMs = maxBackoffMs;
+        this.bytes = maxBytes;
+        this.actions = maxActions;
+    }
+
+    /**
+     * Updates the sizing after a bulk request that has been fully accepted.
+     */
+    public synchronized void onSuccess(long latencyMs) {
+        backoffMs = 0;
+        if (latencyMs <= targetLatencyMs) {
+            bytes = Math.min(maxBytes, bytes + Math.max(1, (maxBytes - minBytes) / INCREASE_STEPS));
+            actions = Math.min(maxActions, actions + Math.max(1, (maxActions - minActions) / INCREASE_STEPS));
+        } else if (latencyMs > 2 * targetLatencyMs) {
+            bytes = Math.max(minBytes, (long) (bytes * DECREASE_FACTOR));
+            actions = Math.max(minActions, (int) (actions * DECREASE_FACTOR));
+        }
+    }
+
+    /**
+     * Updates the sizing after elasticsearch rejected some requests because it is overloaded.
+     */
+    public synchronized void onRejection() {
+        bytes = Math.max(minBytes, bytes / 2);
+        actions = Math.max(minActions, actions / 2);
+        backoffMs = backoffMs == 0 ? initialBackoffMs : Math.min(maxBackoffMs, backoffMs * 2);
+    }
+
+    /**
+     * Returns the current max size in bytes of a bulk request.
+     */
+    public synchronized long getBulkSize() {
+        return bytes;
+    }
+
+    /**
+     * Returns the current max number of actions of a bulk request.
+     */
+    public synchronized int getBulkActions() {
+        return actions;
+    }
+
+    /**
+     * Returns the delay to wait before submitting the next bulk request, {@code 0} when elasticsearch is not
+     * throttling.
+     */
+    public synchronized long getBackoffDelay() {
+        return backoffMs;
+    }
+
+}
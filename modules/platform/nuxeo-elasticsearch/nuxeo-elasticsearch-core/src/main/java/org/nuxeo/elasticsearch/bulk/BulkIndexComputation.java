@@ -20,12 +20,20 @@ package org.nuxeo.elasticsearch.bulk;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.commons.lang3.mutable.MutableBoolean;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.elasticsearch.ElasticsearchException;
+import org.elasticsearch.ExceptionsHelper;
 import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.bulk.BackoffPolicy;
 import org.elasticsearch.action.bulk.BulkItemResponse;
@@ -50,11 +58,23 @@ import org.nuxeo.lib.stream.computation.AbstractComputation;
 import org.nuxeo.lib.stream.computation.ComputationContext;
 import org.nuxeo.lib.stream.computation.Record;
 import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.metrics.MetricsService;
+
+import io.dropwizard.metrics5.Counter;
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+import io.dropwizard.metrics5.Timer;
 
 /**
  * A computation that submits elasticsearch requests using the bulk API.
  * <p>
- * Note that the retry policy is handled by the elasticsearch bulk processor.
+ * Note that the retry policy is handled by the elasticsearch bulk processor, unless adaptive sizing is enabled.
+ * <p>
+ * When adaptive sizing is enabled, the size of the bulk requests is driven by the elasticsearch response latency, the
+ * requests rejected by an overloaded cluster are resubmitted by the computation itself after an exponential backoff
+ * instead of failing the computation, the bulk processor doesn't retry them. Because bulk requests are executed
+ * synchronously, the computation is slowed down accordingly.
  *
  * @since 10.3
  */
@@ -79,11 +99,53 @@ public class BulkIndexComputation extends AbstractComputation implements BulkPro
 
     protected volatile boolean abort;
 
+    // @since 11.5
+    protected final boolean adaptive;
+
+    // @since 11.5
+    protected final long targetLatencyMs;
+
+    // @since 11.5
+    protected AdaptiveBulkSizer sizer;
+
+    // @since 11.5
+    protected int maxRetries;
+
+    // size of the requests added to the bulk processor and not yet submitted
+    protected final AtomicLong pendingBytes = new AtomicLong();
+
+    protected final AtomicInteger pendingActions = new AtomicInteger();
+
+    protected final Map<Long, Long> bulkStartTimes = new ConcurrentHashMap<>();
+
+    // requests rejected by elasticsearch that must be resubmitted
+    protected final Queue<DocWriteRequest<?>> rejectedRequests = new ConcurrentLinkedQueue<>();
+
+    protected final Counter inFlightBytes;
+
+    protected final Counter rejectedCounter;
+
+    protected final Timer bulkTimer;
+
     public BulkIndexComputation(int esBulkSize, int esBulkActions, int flushInterval) {
+        this(esBulkSize, esBulkActions, flushInterval, false, 0);
+    }
+
+    /**
+     * @since 11.5
+     */
+    public BulkIndexComputation(int esBulkSize, int esBulkActions, int flushInterval, boolean adaptive,
+            long targetLatencyMs) {
         super(NAME, 1, 1);
         this.esBulkSize = esBulkSize;
         this.esBulkActions = esBulkActions;
         this.flushIntervalMs = flushInterval * 1000;
+        this.adaptive = adaptive;
+        this.targetLatencyMs = targetLatencyMs;
+        MetricRegistry registry = SharedMetricRegistries.getOrCreate(MetricsService.class.getName());
+        inFlightBytes = registry.counter(MetricName.build("nuxeo.elasticsearch.bulk.inflight.bytes"));
+        rejectedCounter = registry.counter(MetricName.build("nuxeo.elasticsearch.bulk.rejected"));
+        bulkTimer = registry.timer(MetricName.build("nuxeo.elasticsearch.bulk.timer"));
     }
 
     @Override
@@ -93,13 +155,21 @@ public class BulkIndexComputation extends AbstractComputation implements BulkPro
         continueOnFailure = context.getPolicy().continueOnFailure();
         long backoffDelayMs = context.getPolicy().getRetryPolicy().getDelay().toMillis();
         int retries = context.getPolicy().getRetryPolicy().getMaxRetries();
+        maxRetries = retries;
+        if (adaptive) {
+            Duration maxDelay = context.getPolicy().getRetryPolicy().getMaxDelay();
+            long maxBackoffMs = maxDelay == null ? backoffDelayMs : Math.max(backoffDelayMs, maxDelay.toMillis());
+            sizer = new AdaptiveBulkSizer(esBulkSize, esBulkActions, targetLatencyMs, backoffDelayMs, maxBackoffMs);
+        }
 
+        // in adaptive mode the rejected requests are retried by the computation, not by the bulk processor
+        BackoffPolicy backoffPolicy = adaptive ? BackoffPolicy.noBackoff()
+                : BackoffPolicy.exponentialBackoff(TimeValue.timeValueMillis(backoffDelayMs), retries);
         bulkProcessor = getESClient().bulkProcessorBuilder(this)
                                      .setConcurrentRequests(0)
                                      .setBulkSize(new ByteSizeValue(esBulkSize, ByteSizeUnit.BYTES))
                                      .setBulkActions(esBulkActions)
-                                     .setBackoffPolicy(BackoffPolicy.exponentialBackoff(
-                                             TimeValue.timeValueMillis(backoffDelayMs), retries))
+                                     .setBackoffPolicy(backoffPolicy)
                                      .build();
         codec = BulkCodecs.getDataBucketCodec();
         context.setTimer("flush", System.currentTimeMillis() + flushIntervalMs);
@@ -111,8 +181,7 @@ public class BulkIndexComputation extends AbstractComputation implements BulkPro
             throw new NuxeoException("Terminate computation due to previous error");
         }
         if (updates) {
-            // flush is sync because bulkProcessor is initialized with setConcurrentRequests(0)
-            bulkProcessor.flush();
+            flush();
             context.askForCheckpoint();
             updates = false;
         }
@@ -130,6 +199,9 @@ public class BulkIndexComputation extends AbstractComputation implements BulkPro
             for (DocWriteRequest<?> request : bulkRequest.requests()) {
                 bulkProcessor.add(request);
             }
+            if (adaptive) {
+                flushIfNeeded(bulkRequest.estimatedSizeInBytes(), bulkRequest.numberOfActions());
+            }
             BulkStatus delta = BulkStatus.deltaOf(in.getCommandId());
             delta.setProcessed(in.getCount());
             AbstractBulkComputation.updateStatus(context, delta);
@@ -137,6 +209,62 @@ public class BulkIndexComputation extends AbstractComputation implements BulkPro
         updates = true;
     }
 
+    protected void flushIfNeeded(long addedBytes, int addedActions) {
+        long bytes = pendingBytes.addAndGet(addedBytes);
+        int actions = pendingActions.addAndGet(addedActions);
+        if (bytes >= sizer.getBulkSize() || actions >= sizer.getBulkActions()) {
+            flush();
+        }
+    }
+
+    /**
+     * Submits the pending requests, this is synchronous because the bulkProcessor is initialized with
+     * setConcurrentRequests(0).
+     */
+    protected void flush() {
+        if (!adaptive) {
+            bulkProcessor.flush();
+            return;
+        }
+        waitForBackoff();
+        bulkProcessor.flush();
+        int retry = 0;
+        while (!rejectedRequests.isEmpty() && !abort) {
+            if (++retry > maxRetries) {
+                log.error(String.format("Elasticsearch keeps rejecting %d requests after %d retries",
+                        rejectedRequests.size(), maxRetries));
+                rejectedRequests.clear();
+                if (!continueOnFailure) {
+                    abort = true;
+                }
+                return;
+            }
+            waitForBackoff();
+            DocWriteRequest<?> request;
+            while ((request = rejectedRequests.poll()) != null) {
+                bulkProcessor.add(request);
+            }
+            bulkProcessor.flush();
+        }
+    }
+
+    protected void waitForBackoff() {
+        long delay = sizer.getBackoffDelay();
+        if (delay <= 0) {
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug(String.format("Elasticsearch is overloaded, waiting %d ms, bulk size: %d bytes, %d actions",
+                    delay, sizer.getBulkSize(), sizer.getBulkActions()));
+        }
+        try {
+            TimeUnit.MILLISECONDS.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new NuxeoException("Interrupted while waiting for elasticsearch", e);
+        }
+    }
+
     @Override
     public void destroy() {
         if (bulkProcessor != null) {
@@ -168,6 +296,24 @@ public class BulkIndexComputation extends AbstractComputation implements BulkPro
             log.debug(String.format("Creating elasticsearch bulk %s with %d action", executionId,
                     request.numberOfActions()));
         }
+        pendingBytes.set(0);
+        pendingActions.set(0);
+        inFlightBytes.inc(request.estimatedSizeInBytes());
+        bulkStartTimes.put(executionId, System.nanoTime());
+    }
+
+    /**
+     * Returns the bulk latency in milliseconds.
+     */
+    protected long endBulk(long executionId, BulkRequest request) {
+        inFlightBytes.dec(request.estimatedSizeInBytes());
+        Long start = bulkStartTimes.remove(executionId);
+        if (start == null) {
+            return 0;
+        }
+        long elapsed = System.nanoTime() - start;
+        bulkTimer.update(elapsed, TimeUnit.NANOSECONDS);
+        return TimeUnit.NANOSECONDS.toMillis(elapsed);
     }
 
     @Override
@@ -176,18 +322,34 @@ public class BulkIndexComputation extends AbstractComputation implements BulkPro
             log.debug(String.format("After bulk: %s, actions: %d, status: %s", executionId, request.numberOfActions(),
                     response.status()));
         }
+        long latencyMs = endBulk(executionId, request);
         if (!response.hasFailures()) {
+            if (adaptive) {
+                sizer.onSuccess(latencyMs);
+            }
             return;
         }
         MutableBoolean inError = new MutableBoolean(false);
+        MutableBoolean rejected = new MutableBoolean(false);
         Arrays.stream(response.getItems()).filter(BulkItemResponse::isFailed).forEach(item -> {
-            if (item.getFailure().getStatus() != RestStatus.CONFLICT) {
+            if (adaptive && item.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS) {
+                rejectedRequests.add(request.requests().get(item.getItemId()));
+                rejectedCounter.inc();
+                rejected.setTrue();
+            } else if (item.getFailure().getStatus() != RestStatus.CONFLICT) {
                 log.warn("Failure in bulk indexing: " + item.getFailureMessage());
                 inError.setTrue();
             } else if (log.isDebugEnabled()) {
                 log.debug("Skipping version conflict: " + item.getFailureMessage());
             }
         });
+        if (adaptive) {
+            if (rejected.isTrue()) {
+                sizer.onRejection();
+            } else {
+                sizer.onSuccess(latencyMs);
+            }
+        }
         if (inError.isTrue()) {
             log.error(String.format("Elasticsearch bulk %s returns with failures: %s", executionId,
                     response.buildFailureMessage()));
@@ -199,6 +361,15 @@ public class BulkIndexComputation extends AbstractComputation implements BulkPro
 
     @Override
     public void afterBulk(long executionId, BulkRequest request, Throwable failure) {
+        endBulk(executionId, request);
+        if (adaptive && ExceptionsHelper.status(failure) == RestStatus.TOO_MANY_REQUESTS) {
+            log.warn(String.format("Elasticsearch bulk %s rejected, resubmitting %d actions", executionId,
+                    request.numberOfActions()));
+            rejectedRequests.addAll(request.requests());
+            rejectedCounter.inc(request.numberOfActions());
+            sizer.onRejection();
+            return;
+        }
         log.error(String.format("Elasticsearch bulk %s fails, contains %d actions", executionId,
                 request.numberOfActions()), failure);
         if (!continueOnFailure) {
@@ -54,6 +54,15 @@ public class IndexAction implements StreamProcessorTopology {
 
     public static final int BULK_FLUSH_INTERVAL_DEFAULT = 10;
 
+    // @since 11.5
+    public static final String ES_BULK_ADAPTIVE_OPTION = "esBulkAdaptive";
+
+    // @since 11.5
+    public static final String ES_BULK_TARGET_LATENCY_OPTION = "esBulkTargetLatencyMs";
+
+    // @since 11.5
+    public static final int ES_BULK_TARGET_LATENCY_DEFAULT = 1_000;
+
     public static final String INDEX_UPDATE_ALIAS_PARAM = "updateAlias";
 
     public static final String REFRESH_INDEX_PARAM = "refresh";
@@ -63,10 +72,14 @@ public class IndexAction implements StreamProcessorTopology {
         int esBulkSize = getOptionAsInteger(options, ES_BULK_SIZE_OPTION, ES_BULK_SIZE_DEFAULT);
         int esBulkActions = getOptionAsInteger(options, ES_BULK_ACTION_OPTION, ES_BULK_ACTION_DEFAULT);
         int esBulkFlushInterval = getOptionAsInteger(options, BULK_FLUSH_INTERVAL_OPTION, BULK_FLUSH_INTERVAL_DEFAULT);
+        boolean esBulkAdaptive = Boolean.parseBoolean(options.get(ES_BULK_ADAPTIVE_OPTION));
+        int esBulkTargetLatency = getOptionAsInteger(options, ES_BULK_TARGET_LATENCY_OPTION,
+                ES_BULK_TARGET_LATENCY_DEFAULT);
         return Topology.builder()
                        .addComputation(IndexRequestComputation::new, Arrays.asList(INPUT_1 + ":" + ACTION_FULL_NAME, //
                                OUTPUT_1 + ":" + BulkIndexComputation.NAME))
-                       .addComputation(() -> new BulkIndexComputation(esBulkSize, esBulkActions, esBulkFlushInterval),
+                       .addComputation(() -> new BulkIndexComputation(esBulkSize, esBulkActions, esBulkFlushInterval,
+                               esBulkAdaptive, esBulkTargetLatency),
                                Arrays.asList(INPUT_1 + ":" + BulkIndexComputation.NAME, //
                                        OUTPUT_1 + ":" + STATUS_STREAM))
                        .addComputation(() -> new IndexCompletionComputation(),
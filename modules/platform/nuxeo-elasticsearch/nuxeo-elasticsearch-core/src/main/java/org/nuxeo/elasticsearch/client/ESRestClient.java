@@ -20,8 +20,11 @@ package org.nuxeo.elasticsearch.client;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.logging.Log;
@@ -272,6 +275,25 @@ public class ESRestClient implements ESClient {
         }
     }
 
+    @Override
+    public List<String> getIndexesForAlias(String aliasName) {
+        if (!aliasExists(aliasName)) {
+            return Collections.emptyList();
+        }
+        Response response = performRequestWithTracing(new Request("GET", String.format("/_alias/%s", aliasName)));
+        try (InputStream is = response.getEntity().getContent()) {
+            Map<String, Object> map = XContentHelper.convertToMap(XContentType.JSON.xContent(), is, true);
+            return new ArrayList<>(map.keySet());
+        } catch (IOException e) {
+            throw new NuxeoException(e);
+        }
+    }
+
+    @Override
+    public void addAlias(String aliasName, String indexName) {
+        createAlias(aliasName, indexName);
+    }
+
     @Override
     public void updateAlias(String aliasName, String indexName) {
         // TODO do this in a single call to make it atomically
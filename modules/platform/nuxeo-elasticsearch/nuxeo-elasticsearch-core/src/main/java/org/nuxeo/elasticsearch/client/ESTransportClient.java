@@ -18,6 +18,7 @@
  */
 package org.nuxeo.elasticsearch.client;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
@@ -183,6 +184,28 @@ public class ESTransportClient implements ESClient {
         return null;
     }
 
+    @Override
+    public List<String> getIndexesForAlias(String aliasName) {
+        ImmutableOpenMap<String, List<AliasMetadata>> aliases = client.admin()
+                                                                      .indices()
+                                                                      .prepareGetAliases(aliasName)
+                                                                      .get()
+                                                                      .getAliases();
+        List<String> ret = new ArrayList<>();
+        for (Iterator<String> it = aliases.keysIt(); it.hasNext();) {
+            String indexName = it.next();
+            if (!aliases.get(indexName).isEmpty()) {
+                ret.add(indexName);
+            }
+        }
+        return ret;
+    }
+
+    @Override
+    public void addAlias(String aliasName, String indexName) {
+        client.admin().indices().prepareAliases().addAlias(indexName, aliasName).execute().actionGet();
+    }
+
     @Override
     public void updateAlias(String aliasName, String indexName) {
         IndicesAliasesRequestBuilder cmd = client.admin().indices().prepareAliases();
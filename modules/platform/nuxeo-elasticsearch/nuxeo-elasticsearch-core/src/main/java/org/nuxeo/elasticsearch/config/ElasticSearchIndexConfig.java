@@ -36,6 +36,7 @@ import org.nuxeo.common.xmap.annotation.XNode;
 import org.nuxeo.common.xmap.annotation.XNodeList;
 import org.nuxeo.common.xmap.annotation.XObject;
 import org.nuxeo.elasticsearch.core.IncrementalIndexNameGenerator;
+import org.nuxeo.elasticsearch.core.TimePartition;
 
 /**
  * XMap descriptor for configuring an index
@@ -66,6 +67,10 @@ public class ElasticSearchIndexConfig {
     @XNode("@writeAlias")
     protected String writeAlias;
 
+    // @since 11.5
+    @XNode("@partition")
+    protected String partition;
+
     @XNode("@repository")
     protected String repositoryName;
 
@@ -247,6 +252,16 @@ public class ElasticSearchIndexConfig {
         return manageAlias;
     }
 
+    /**
+     * Returns the time partition of the index, {@code null} if the index is not partitioned. A partitioned index name
+     * is an alias on the partition indexes.
+     *
+     * @since 11.5
+     */
+    public TimePartition getPartition() {
+        return TimePartition.of(partition);
+    }
+
     // @since 9.3
     public String newWriteIndexForAlias(String aliasName, String oldIndexName) {
         // TODO make the alias resolver configurable
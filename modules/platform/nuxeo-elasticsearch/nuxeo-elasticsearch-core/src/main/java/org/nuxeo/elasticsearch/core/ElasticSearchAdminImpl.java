@@ -23,16 +23,21 @@ package org.nuxeo.elasticsearch.core;
 import static org.nuxeo.elasticsearch.ElasticSearchConstants.ALL_FIELDS;
 
 import java.io.IOException;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
@@ -61,6 +66,9 @@ public class ElasticSearchAdminImpl implements ElasticSearchAdmin {
 
     protected static final int TIMEOUT_DELETE_SECOND = 300;
 
+    // delay before reloading the partition indexes of an alias, other nodes may have created or dropped partitions
+    protected static final long PARTITION_REFRESH_MS = 60_000;
+
     protected final AtomicInteger totalCommandProcessed = new AtomicInteger(0);
 
     protected final Map<String, String> indexNames = new HashMap<>();
@@ -69,6 +77,11 @@ public class ElasticSearchAdminImpl implements ElasticSearchAdmin {
 
     protected final Map<String, String> writeIndexNames = new HashMap<>();
 
+    // partition index names sorted by date for each partitioned index
+    protected final Map<String, NavigableSet<String>> partitionNames = new ConcurrentHashMap<>();
+
+    protected final Map<String, Long> partitionRefreshTimes = new ConcurrentHashMap<>();
+
     protected final Map<String, ElasticSearchIndexConfig> indexConfig;
 
     protected Map<String, ESHintQueryBuilder> hints;
@@ -250,6 +263,75 @@ public class ElasticSearchAdminImpl implements ElasticSearchAdmin {
         return writeIndexNames.getOrDefault(searchIndexName, searchIndexName);
     }
 
+    @Override
+    public String getPartitionIndexName(String indexName, Instant date) {
+        ElasticSearchIndexConfig conf = indexConfig.get(indexName);
+        if (conf == null || conf.getPartition() == null) {
+            return getWriteIndexName(indexName);
+        }
+        String partitionName = conf.getPartition().getIndexName(indexName, date);
+        if (!getPartitionNames(indexName).contains(partitionName)) {
+            initPartitionIndex(conf, partitionName);
+        }
+        return partitionName;
+    }
+
+    @Override
+    public List<String> getPartitionIndexNames(String indexName, Instant from, Instant to) {
+        ElasticSearchIndexConfig conf = indexConfig.get(indexName);
+        if (conf == null || conf.getPartition() == null) {
+            return Collections.singletonList(indexName);
+        }
+        TimePartition partition = conf.getPartition();
+        List<String> ret = getPartitionNames(indexName).stream()
+                                                       .filter(name -> partition.overlaps(indexName, name, from, to))
+                                                       .collect(Collectors.toList());
+        // the current partition may have been created by another node since the last refresh
+        String current = partition.getIndexName(indexName, Instant.now());
+        if (!ret.contains(current) && partition.overlaps(indexName, current, from, to)) {
+            ret.add(current);
+        }
+        return ret;
+    }
+
+    @Override
+    public List<String> dropPartitionIndexesBefore(String indexName, Instant date) {
+        ElasticSearchIndexConfig conf = indexConfig.get(indexName);
+        if (conf == null || conf.getPartition() == null) {
+            return Collections.emptyList();
+        }
+        TimePartition partition = conf.getPartition();
+        partitionRefreshTimes.remove(indexName);
+        NavigableSet<String> names = getPartitionNames(indexName);
+        Instant now = Instant.now();
+        List<String> ret = new ArrayList<>();
+        for (String name : names) {
+            Instant start = partition.getStart(indexName, name);
+            if (start == null || partition.getEnd(start).isAfter(date)) {
+                continue;
+            }
+            if (partition.overlaps(indexName, name, now, now)) {
+                // never drop the partition receiving the writes
+                continue;
+            }
+            log.warn("Dropping partition index: {} of: {}", name, indexName);
+            getClient().deleteIndex(name, TIMEOUT_DELETE_SECOND);
+            names.remove(name);
+            ret.add(name);
+        }
+        return ret;
+    }
+
+    protected NavigableSet<String> getPartitionNames(String aliasName) {
+        long now = System.currentTimeMillis();
+        Long refreshTime = partitionRefreshTimes.get(aliasName);
+        if (refreshTime == null || now - refreshTime > PARTITION_REFRESH_MS) {
+            partitionNames.put(aliasName, new ConcurrentSkipListSet<>(getClient().getIndexesForAlias(aliasName)));
+            partitionRefreshTimes.put(aliasName, now);
+        }
+        return partitionNames.get(aliasName);
+    }
+
     @Override
     public void syncSearchAndWriteAlias(String searchIndexName) {
         ElasticSearchIndexConfig conf = indexConfig.values()
@@ -353,7 +435,9 @@ public class ElasticSearchAdminImpl implements ElasticSearchAdmin {
     }
 
     protected void initIndex(ElasticSearchIndexConfig conf, boolean dropIfExists, boolean syncAlias) {
-        if (conf.manageAlias()) {
+        if (conf.getPartition() != null) {
+            initPartitionedIndex(conf, dropIfExists);
+        } else if (conf.manageAlias()) {
             initWriteAlias(conf, dropIfExists);
             initSearchAlias(conf);
             writeIndexNames.put(conf.getName(), conf.writeIndexOrAlias());
@@ -369,6 +453,53 @@ public class ElasticSearchAdminImpl implements ElasticSearchAdmin {
         }
     }
 
+    protected void initPartitionedIndex(ElasticSearchIndexConfig conf, boolean dropIfExists) {
+        if (!conf.mustCreate()) {
+            return;
+        }
+        String aliasName = conf.getName();
+        if (dropIfExists) {
+            for (String name : getClient().getIndexesForAlias(aliasName)) {
+                log.warn("Deleting partition index: {} of: {}", name, aliasName);
+                getClient().deleteIndex(name, TIMEOUT_DELETE_SECOND);
+            }
+        }
+        if (!getClient().aliasExists(aliasName) && getClient().indexExists(aliasName)) {
+            if (!dropIfExists && !Framework.isTestModeSet()) {
+                throw new NuxeoException(String.format(
+                        "Cannot partition the index: %s, an index with the same name already exists", aliasName));
+            }
+            getClient().deleteIndex(aliasName, TIMEOUT_DELETE_SECOND);
+        }
+        partitionRefreshTimes.remove(aliasName);
+        initPartitionIndex(conf, conf.getPartition().getIndexName(aliasName, Instant.now()));
+        log.info("Partitioned index: {} -> indexes: {}", () -> aliasName, () -> getPartitionNames(aliasName));
+    }
+
+    protected synchronized void initPartitionIndex(ElasticSearchIndexConfig conf, String partitionName) {
+        String aliasName = conf.getName();
+        NavigableSet<String> names = getPartitionNames(aliasName);
+        if (names.contains(partitionName)) {
+            return;
+        }
+        if (!getClient().indexExists(partitionName)) {
+            log.info("Creating partition index: {} of: {}", partitionName, aliasName);
+            try {
+                getClient().createIndex(partitionName, conf.getSettings());
+            } catch (RuntimeException e) {
+                // another node may have created the same partition in the meantime
+                if (!getClient().indexExists(partitionName)) {
+                    throw e;
+                }
+                log.debug("Partition index: {} already created", partitionName);
+            }
+        }
+        // the index exists, creates its mapping if needed
+        initIndex(partitionName, conf, false);
+        getClient().addAlias(aliasName, partitionName);
+        names.add(partitionName);
+    }
+
     protected void initWriteAlias(ElasticSearchIndexConfig conf, boolean dropIfExists) {
         // init the write index and alias
         String writeAlias = conf.writeIndexOrAlias();
@@ -257,8 +257,8 @@ public class ElasticSearchServiceImpl implements ElasticSearchService {
         SearchSourceBuilder search = new SearchSourceBuilder();
         query.updateRequest(search);
         request.source(search);
-        if (query.isFetchFromElasticsearch()) {
-            // fetch the _source without the binaryfulltext field
+        if (query.isFetchFromElasticsearch() && query.getProjectionFields() == null) {
+            // fetch the _source without the binaryfulltext field, a projection already selected its fields
             search.fetchSource(esa.getIncludeSourceFields(), esa.getExcludeSourceFields());
         }
         return request;
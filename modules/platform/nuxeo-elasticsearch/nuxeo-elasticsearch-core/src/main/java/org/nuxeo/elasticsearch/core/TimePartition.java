@@ -0,0 +1,118 @@
+/*
+ * (C) Copyright 2020 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     bdelbosc
+ */
+package org.nuxeo.elasticsearch.core;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+
+import org.apache.commons.lang3.StringUtils;
+
+/**
+ * The period covered by each index of a time partitioned index, the partition indexes are named
+ * {@code <alias>-<date>} where the date is the UTC start of the period.
+ *
+ * @since 11.5
+ */
+public enum TimePartition {
+
+    DAY("yyyy.MM.dd", ChronoUnit.DAYS),
+
+    MONTH("yyyy.MM", ChronoUnit.MONTHS),
+
+    YEAR("yyyy", ChronoUnit.YEARS);
+
+    protected static final String SEP = "-";
+
+    protected final String pattern;
+
+    protected final DateTimeFormatter formatter;
+
+    protected final ChronoUnit unit;
+
+    TimePartition(String pattern, ChronoUnit unit) {
+        this.pattern = pattern;
+        this.formatter = DateTimeFormatter.ofPattern(pattern).withZone(ZoneOffset.UTC);
+        this.unit = unit;
+    }
+
+    /**
+     * Returns the partition matching the value, {@code null} for a blank value.
+     */
+    public static TimePartition of(String value) {
+        if (StringUtils.isBlank(value)) {
+            return null;
+        }
+        return valueOf(value.trim().toUpperCase());
+    }
+
+    /**
+     * Returns the name of the partition index holding the given date.
+     */
+    public String getIndexName(String aliasName, Instant date) {
+        return aliasName + SEP + formatter.format(date);
+    }
+
+    /**
+     * Returns the start of the period covered by the partition index, {@code null} if the index is not a partition of
+     * the alias.
+     */
+    public Instant getStart(String aliasName, String indexName) {
+        String prefix = aliasName + SEP;
+        if (!indexName.startsWith(prefix) || indexName.length() != prefix.length() + pattern.length()) {
+            return null;
+        }
+        String date = indexName.substring(prefix.length());
+        try {
+            switch (this) {
+            case DAY:
+                return LocalDate.parse(date, formatter).atStartOfDay(ZoneOffset.UTC).toInstant();
+            case MONTH:
+                return LocalDate.parse(date + ".01", DAY.formatter).atStartOfDay(ZoneOffset.UTC).toInstant();
+            default:
+                return LocalDate.parse(date + ".01.01", DAY.formatter).atStartOfDay(ZoneOffset.UTC).toInstant();
+            }
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Returns the end (exclusive) of the period starting at the given date.
+     */
+    public Instant getEnd(Instant start) {
+        return start.atZone(ZoneOffset.UTC).plus(1, unit).toInstant();
+    }
+
+    /**
+     * Returns {@code true} if the partition index may contain dates between {@code from} and {@code to} (inclusive),
+     * a {@code null} bound is open.
+     */
+    public boolean overlaps(String aliasName, String indexName, Instant from, Instant to) {
+        Instant start = getStart(aliasName, indexName);
+        if (start == null) {
+            return false;
+        }
+        return (from == null || from.isBefore(getEnd(start))) && (to == null || !to.isBefore(start));
+    }
+
+}
@@ -0,0 +1,148 @@
+/*
+ * (C) Copyright 2020 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     bdelbosc
+ */
+package org.nuxeo.elasticsearch.fetcher;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.elasticsearch.action.search.SearchResponse;
+import org.nuxeo.ecm.core.api.CoreInstance;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.impl.DocumentModelListImpl;
+import org.nuxeo.ecm.core.query.sql.NXQL;
+
+/**
+ * Builds lightweight documents from a projection of the Elasticsearch {@code _source}, only the requested fields are
+ * set on the documents.
+ * <p>
+ * Depending on the {@link Check}, the documents are either trusted as indexed, or their visibility is checked against
+ * the repository using a single projection query per chunk of hits, removing the documents that have been deleted or
+ * that are no longer readable since their indexing.
+ *
+ * @since 11.5
+ */
+public class EsProjectionFetcher extends EsFetcher {
+
+    /**
+     * The {@code _source} fields required to build a document.
+     */
+    public static final List<String> SYSTEM_FIELDS = Arrays.asList(NXQL.ECM_UUID, NXQL.ECM_PRIMARYTYPE,
+            NXQL.ECM_MIXINTYPE, NXQL.ECM_PATH, NXQL.ECM_PARENTID, "ecm:repository", NXQL.ECM_ISPROXY,
+            NXQL.ECM_LIFECYCLESTATE);
+
+    private static final int CHUNK_SIZE = 100;
+
+    /**
+     * The policy applied to the documents built from the index.
+     */
+    public enum Check {
+
+        /** The documents are returned as indexed, the index ACL has already been applied by the query. */
+        INDEX,
+
+        /** The documents not visible in the repository anymore are removed. */
+        REPOSITORY;
+
+        public static Check of(String value) {
+            return value == null ? REPOSITORY : valueOf(value.toUpperCase());
+        }
+    }
+
+    protected final Check check;
+
+    public EsProjectionFetcher(CoreSession session, SearchResponse response, Map<String, String> repoNames,
+            HitDocConsumer consumer, Check check) {
+        super(session, response, repoNames, consumer);
+        this.check = check;
+    }
+
+    /**
+     * Returns the {@code _source} fields to fetch for the given projection.
+     */
+    public static String[] getSourceFields(List<String> fields) {
+        Set<String> ret = new LinkedHashSet<>(SYSTEM_FIELDS);
+        ret.addAll(fields);
+        return ret.toArray(new String[0]);
+    }
+
+    @Override
+    public DocumentModelListImpl fetchDocuments() {
+        DocumentModelListImpl docs = super.fetchDocuments();
+        if (check == Check.INDEX || docs.isEmpty()) {
+            return docs;
+        }
+        Set<String> visibleIds = getVisibleIds(docs);
+        DocumentModelListImpl ret = new DocumentModelListImpl(docs.size());
+        for (DocumentModel doc : docs) {
+            if (visibleIds.contains(doc.getId())) {
+                ret.add(doc);
+            }
+        }
+        return ret;
+    }
+
+    @SuppressWarnings("resource") // session closed only if we opened it
+    protected Set<String> getVisibleIds(List<DocumentModel> docs) {
+        Map<String, List<String>> repoIds = new HashMap<>();
+        String openSessionRepository = getSession().getRepositoryName();
+        for (DocumentModel doc : docs) {
+            String repo = doc.getRepositoryName() == null ? openSessionRepository : doc.getRepositoryName();
+            repoIds.computeIfAbsent(repo, k -> new ArrayList<>()).add(doc.getId());
+        }
+        Set<String> ret = new HashSet<>(docs.size());
+        for (Map.Entry<String, List<String>> entry : repoIds.entrySet()) {
+            CoreSession session;
+            if (openSessionRepository.equals(entry.getKey())) {
+                session = getSession();
+            } else {
+                session = CoreInstance.getCoreSession(entry.getKey());
+            }
+            List<String> ids = entry.getValue();
+            for (int start = 0; start < ids.size(); start += CHUNK_SIZE) {
+                List<String> chunk = ids.subList(start, Math.min(start + CHUNK_SIZE, ids.size()));
+                for (Map<String, Serializable> row : session.queryProjection(getVisibleIdsQuery(chunk), 0, 0)) {
+                    ret.add((String) row.get(NXQL.ECM_UUID));
+                }
+            }
+        }
+        return ret;
+    }
+
+    protected String getVisibleIdsQuery(List<String> ids) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("SELECT ecm:uuid FROM Document, Relation WHERE ecm:uuid IN (");
+        for (int i = 0; i < ids.size(); i++) {
+            sb.append(NXQL.escapeString(ids.get(i)));
+            if (i < ids.size() - 1) {
+                sb.append(", ");
+            }
+        }
+        sb.append(")");
+        return sb.toString();
+    }
+
+}
@@ -0,0 +1,219 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     bdelbosc
+ */
+package org.nuxeo.elasticsearch.io;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.AbstractSession;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.DocumentNotFoundException;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.api.PropertyException;
+import org.nuxeo.ecm.core.model.Document;
+import org.nuxeo.ecm.core.schema.SchemaManager;
+import org.nuxeo.ecm.core.schema.TypeConstants;
+import org.nuxeo.ecm.core.schema.types.ComplexType;
+import org.nuxeo.ecm.core.schema.types.Field;
+import org.nuxeo.ecm.core.schema.types.ListType;
+import org.nuxeo.ecm.core.schema.types.Schema;
+import org.nuxeo.ecm.core.schema.types.SimpleType;
+import org.nuxeo.ecm.core.schema.types.Type;
+import org.nuxeo.ecm.core.schema.types.primitives.BinaryType;
+import org.nuxeo.ecm.core.schema.types.primitives.BooleanType;
+import org.nuxeo.ecm.core.schema.types.primitives.DoubleType;
+import org.nuxeo.ecm.core.schema.types.primitives.IntegerType;
+import org.nuxeo.ecm.core.schema.types.primitives.LongType;
+import org.nuxeo.runtime.api.Framework;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * JSon writer producing the same output as {@link JsonESDocumentWriter} but reading schema values directly from the
+ * storage level {@link Document} (DBS state or VCS rows) instead of building the {@link DocumentModel} property tree.
+ * <p>
+ * This avoids materializing the data models of every schema when indexing, which matters during full reindexing. When
+ * the document is not attached to a local session the writer falls back to the property model.
+ *
+ * @since 11.5
+ */
+public class JsonESDocumentStateWriter extends JsonESDocumentWriter {
+
+    private static final Logger log = LogManager.getLogger(JsonESDocumentStateWriter.class);
+
+    @Override
+    protected void writeSchemas(JsonGenerator jg, DocumentModel doc, String[] schemas) throws IOException {
+        Document document = getStorageDocument(doc);
+        if (document == null) {
+            super.writeSchemas(jg, doc, schemas);
+            return;
+        }
+        if (schemas == null || (schemas.length == 1 && "*".equals(schemas[0]))) {
+            schemas = doc.getSchemas();
+        }
+        SchemaManager schemaManager = Framework.getService(SchemaManager.class);
+        for (String schemaName : schemas) {
+            Schema schema = schemaManager.getSchema(schemaName);
+            try {
+                writeSchema(jg, document, schema);
+            } catch (ClassCastException e) {
+                throw new NuxeoException(String.format("writing JSON schema failed on document: %s for schema: %s",
+                        doc, schemaName), e);
+            }
+        }
+    }
+
+    /**
+     * Returns the storage level document backing the given document model, or {@code null} if it cannot be reached.
+     */
+    protected Document getStorageDocument(DocumentModel doc) {
+        if (doc.getId() == null || doc.isDirty() || doc.isImmutable() && !doc.isVersion()) {
+            // unsaved changes or built from an elasticsearch source
+            return null;
+        }
+        CoreSession session = doc.getCoreSession();
+        if (!(session instanceof AbstractSession)) {
+            return null;
+        }
+        try {
+            return ((AbstractSession) session).getSession().getDocumentByUUID(doc.getId());
+        } catch (DocumentNotFoundException e) {
+            log.debug("Document: {} not found in storage, using property model", doc::getId);
+            return null;
+        }
+    }
+
+    protected void writeSchema(JsonGenerator jg, Document document, Schema schema) throws IOException {
+        Collection<Field> fields = schema.getFields();
+        if (fields.isEmpty()) {
+            return;
+        }
+        String prefix = schema.getNamespace().prefix;
+        if (prefix == null || prefix.length() == 0) {
+            prefix = schema.getName();
+        }
+        for (Field field : fields) {
+            Object value = document.getValue(field.getName().getPrefixedName());
+            String fieldName = prefix + ':' + field.getName().getLocalName();
+            writeValue(jg, fieldName, field.getType(), value);
+        }
+    }
+
+    /**
+     * Writes a storage value the way {@link org.nuxeo.ecm.automation.core.util.JSONPropertyWriter} writes the
+     * corresponding property, skipping null and empty values. The field name is not written when {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    protected void writeValue(JsonGenerator jg, String fieldName, Type type, Object value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (type.isSimpleType()) {
+            writeFieldName(jg, fieldName);
+            writeScalarValue(jg, type, value);
+        } else if (type.isListType()) {
+            Type itemType = ((ListType) type).getFieldType();
+            if (itemType.isSimpleType()) {
+                Object[] array = (Object[]) value;
+                writeFieldName(jg, fieldName);
+                jg.writeStartArray();
+                for (Object item : array) {
+                    jg.writeString(itemType.encode(item));
+                }
+                jg.writeEndArray();
+            } else {
+                List<Object> list = (List<Object>) value;
+                if (list.isEmpty()) {
+                    return;
+                }
+                writeFieldName(jg, fieldName);
+                jg.writeStartArray();
+                for (Object item : list) {
+                    writeValue(jg, null, itemType, item);
+                }
+                jg.writeEndArray();
+            }
+        } else if (TypeConstants.isContentType(type)) {
+            writeBlobValue(jg, fieldName, (Blob) value);
+        } else {
+            ComplexType complexType = (ComplexType) type;
+            if (complexType.getFieldsCount() == 0) {
+                return;
+            }
+            Map<String, Object> map = (Map<String, Object>) value;
+            writeFieldName(jg, fieldName);
+            jg.writeStartObject();
+            for (Field field : complexType.getFields()) {
+                String name = field.getName().getPrefixedName();
+                writeValue(jg, name, field.getType(), map.get(name));
+            }
+            jg.writeEndObject();
+        }
+    }
+
+    protected void writeScalarValue(JsonGenerator jg, Type type, Object value) throws IOException {
+        if (type instanceof SimpleType) {
+            type = ((SimpleType) type).getPrimitiveType();
+        }
+        if (type instanceof BooleanType) {
+            jg.writeBoolean((Boolean) value);
+        } else if (type instanceof LongType) {
+            jg.writeNumber(((Number) value).longValue());
+        } else if (type instanceof DoubleType) {
+            jg.writeNumber(((Number) value).doubleValue());
+        } else if (type instanceof IntegerType) {
+            jg.writeNumber(((Number) value).intValue());
+        } else if (type instanceof BinaryType) {
+            jg.writeBinary((byte[]) value);
+        } else {
+            jg.writeString(type.encode(value));
+        }
+    }
+
+    protected void writeBlobValue(JsonGenerator jg, String fieldName, Blob blob) throws PropertyException, IOException {
+        writeFieldName(jg, fieldName);
+        jg.writeStartObject();
+        writeStringFieldIfNotNull(jg, "name", blob.getFilename());
+        writeStringFieldIfNotNull(jg, "mime-type", blob.getMimeType());
+        writeStringFieldIfNotNull(jg, "encoding", blob.getEncoding());
+        writeStringFieldIfNotNull(jg, "digest", blob.getDigest());
+        jg.writeNumberField("length", blob.getLength());
+        jg.writeEndObject();
+    }
+
+    protected static void writeFieldName(JsonGenerator jg, String fieldName) throws IOException {
+        if (fieldName != null) {
+            jg.writeFieldName(fieldName);
+        }
+    }
+
+    protected static void writeStringFieldIfNotNull(JsonGenerator jg, String fieldName, String value)
+            throws IOException {
+        if (value != null) {
+            jg.writeStringField(fieldName, value);
+        }
+    }
+
+}
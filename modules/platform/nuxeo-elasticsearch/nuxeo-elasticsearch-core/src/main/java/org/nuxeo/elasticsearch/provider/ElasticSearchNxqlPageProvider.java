@@ -21,10 +21,14 @@ package org.nuxeo.elasticsearch.provider;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Collectors;
 
+import org.apache.commons.lang3.StringUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.elasticsearch.index.query.QueryBuilder;
@@ -42,6 +46,7 @@ import org.nuxeo.elasticsearch.aggregate.AggregateEsBase;
 import org.nuxeo.elasticsearch.aggregate.AggregateFactory;
 import org.nuxeo.elasticsearch.api.ElasticSearchService;
 import org.nuxeo.elasticsearch.api.EsResult;
+import org.nuxeo.elasticsearch.fetcher.EsProjectionFetcher;
 import org.nuxeo.elasticsearch.query.NxQueryBuilder;
 import org.nuxeo.elasticsearch.query.NxqlQueryConverter;
 import org.nuxeo.runtime.api.Framework;
@@ -61,6 +66,22 @@ public class ElasticSearchNxqlPageProvider extends CoreQueryDocumentPageProvider
     // @since 9.2
     public static final String ES_MAX_RESULT_WINDOW_PROPERTY = "org.nuxeo.elasticsearch.provider.maxResultWindow";
 
+    /**
+     * Comma separated list of fields, when set the documents are built from these fields of the Elasticsearch _source
+     * without fetching them from the repository.
+     *
+     * @since 11.5
+     */
+    public static final String ES_PROJECTION_FIELDS_PROPERTY = "esProjectionFields";
+
+    /**
+     * Check applied to the documents built from a projection, either {@code index} or {@code repository} (default).
+     *
+     * @see EsProjectionFetcher.Check
+     * @since 11.5
+     */
+    public static final String ES_PROJECTION_CHECK_PROPERTY = "esProjectionCheck";
+
     // This is the default ES index.max_result_window
     public static final long DEFAULT_ES_MAX_RESULT_WINDOW_VALUE = 10000;
 
@@ -104,6 +125,12 @@ public class ElasticSearchNxqlPageProvider extends CoreQueryDocumentPageProvider
                 nxQuery.searchOnAllRepositories();
             }
             nxQuery.useUnrestrictedSession(useUnrestrictedSession());
+            List<String> projectionFields = getProjectionFields();
+            if (!projectionFields.isEmpty()) {
+                nxQuery.fetchProjectionFromElasticsearch(projectionFields)
+                       .projectionCheck(EsProjectionFetcher.Check.of(
+                               (String) getProperties().get(ES_PROJECTION_CHECK_PROPERTY)));
+            }
 
             List<String> highlightFields = getHighlights();
             if (highlightFields != null && !highlightFields.isEmpty()) {
@@ -182,6 +209,20 @@ public class ElasticSearchNxqlPageProvider extends CoreQueryDocumentPageProvider
         return ret;
     }
 
+    /**
+     * @since 11.5
+     */
+    protected List<String> getProjectionFields() {
+        String value = (String) getProperties().get(ES_PROJECTION_FIELDS_PROPERTY);
+        if (StringUtils.isBlank(value)) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(value.split(","))
+                     .map(String::trim)
+                     .filter(StringUtils::isNotEmpty)
+                     .collect(Collectors.toList());
+    }
+
     protected boolean searchOnAllRepositories() {
         String value = (String) getProperties().get(SEARCH_ON_ALL_REPOSITORIES_PROPERTY);
         if (value == null) {
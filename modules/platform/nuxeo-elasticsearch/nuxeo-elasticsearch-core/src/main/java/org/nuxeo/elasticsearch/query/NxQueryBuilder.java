@@ -54,6 +54,7 @@ import org.nuxeo.elasticsearch.ElasticSearchConstants;
 import org.nuxeo.elasticsearch.aggregate.AggregateEsBase;
 import org.nuxeo.elasticsearch.api.EsResult;
 import org.nuxeo.elasticsearch.fetcher.EsFetcher;
+import org.nuxeo.elasticsearch.fetcher.EsProjectionFetcher;
 import org.nuxeo.elasticsearch.fetcher.Fetcher;
 import org.nuxeo.elasticsearch.fetcher.VcsFetcher;
 import org.nuxeo.runtime.api.Framework;
@@ -103,6 +104,10 @@ public class NxQueryBuilder {
 
     protected boolean useUnrestrictedSession;
 
+    protected List<String> projectionFields;
+
+    protected EsProjectionFetcher.Check projectionCheck = EsProjectionFetcher.Check.REPOSITORY;
+
     public NxQueryBuilder(CoreSession coreSession) {
         session = coreSession;
         repositories.add(coreSession.getRepositoryName());
@@ -175,6 +180,29 @@ public class NxQueryBuilder {
         return this;
     }
 
+    /**
+     * Ask for a projection of the Elasticsearch _source field, use it to build lightweight documents where only the
+     * given fields are set.
+     *
+     * @since 11.5
+     */
+    public NxQueryBuilder fetchProjectionFromElasticsearch(List<String> fields) {
+        fetchFromElasticsearch = true;
+        projectionFields = fields;
+        return this;
+    }
+
+    /**
+     * Sets the check applied to the documents built from a projection, default is
+     * {@link EsProjectionFetcher.Check#REPOSITORY}.
+     *
+     * @since 11.5
+     */
+    public NxQueryBuilder projectionCheck(EsProjectionFetcher.Check check) {
+        projectionCheck = check;
+        return this;
+    }
+
     /**
      * If search results are found, use this SearchHit and DocumentModel consumer on each hit.
      *
@@ -198,6 +226,7 @@ public class NxQueryBuilder {
      */
     public NxQueryBuilder fetchFromDatabase() {
         fetchFromElasticsearch = false;
+        projectionFields = null;
         return this;
     }
 
@@ -253,6 +282,15 @@ public class NxQueryBuilder {
         return fetchFromElasticsearch;
     }
 
+    /**
+     * Returns the fields of the projection to fetch from Elasticsearch, or {@code null} if there is no projection.
+     *
+     * @since 11.5
+     */
+    public List<String> getProjectionFields() {
+        return projectionFields;
+    }
+
     public CoreSession getSession() {
         return session;
     }
@@ -403,6 +441,8 @@ public class NxQueryBuilder {
         // Fields selection
         if (!isFetchFromElasticsearch()) {
             request.fetchSource(getSelectFields(), null);
+        } else if (projectionFields != null) {
+            request.fetchSource(EsProjectionFetcher.getSourceFields(projectionFields), null);
         }
 
     }
@@ -467,6 +507,9 @@ public class NxQueryBuilder {
 
     protected Fetcher getFetcher(CoreSession session, SearchResponse response, Map<String, String> repoNames) {
         if (isFetchFromElasticsearch()) {
+            if (projectionFields != null) {
+                return new EsProjectionFetcher(session, response, repoNames, hitDocConsumer, projectionCheck);
+            }
             return new EsFetcher(session, response, repoNames, hitDocConsumer);
         }
         return new VcsFetcher(session, response, repoNames);
@@ -19,6 +19,8 @@
  */
 package org.nuxeo.elasticsearch.test;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import javax.inject.Inject;
@@ -35,10 +37,12 @@ import org.junit.runner.RunWith;
 import org.nuxeo.ecm.core.api.CoreSession;
 import org.nuxeo.ecm.core.api.DocumentModel;
 import org.nuxeo.ecm.core.api.DocumentModelList;
+import org.nuxeo.ecm.core.api.PathRef;
 import org.nuxeo.ecm.core.work.api.WorkManager;
 import org.nuxeo.elasticsearch.api.ElasticSearchAdmin;
 import org.nuxeo.elasticsearch.api.ElasticSearchService;
 import org.nuxeo.elasticsearch.api.EsResult;
+import org.nuxeo.elasticsearch.fetcher.EsProjectionFetcher;
 import org.nuxeo.elasticsearch.query.NxQueryBuilder;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.test.runner.Deploy;
@@ -73,6 +77,7 @@ public class TestFetchDocumentsFromEs {
             String name = "folder" + i;
             DocumentModel doc = session.createDocumentModel(root, name, "Folder");
             doc.setPropertyValue("dc:title", "Folder" + i);
+            doc.setPropertyValue("dc:description", "Description" + i);
             session.createDocument(doc);
             root = root + name + "/";
         }
@@ -129,6 +134,45 @@ public class TestFetchDocumentsFromEs {
 
     }
 
+    /**
+     * @since 11.5
+     */
+    @Test
+    public void shouldLoadProjectionFromEs() throws Exception {
+        buildAndIndexTree();
+        List<String> fields = Collections.singletonList("dc:title");
+        DocumentModelList docs = ess.query(new NxQueryBuilder(session).nxql("select * from Document")
+                                                                      .limit(20)
+                                                                      .fetchProjectionFromElasticsearch(fields));
+        Assert.assertEquals(10, docs.size());
+        DocumentModel doc = docs.stream().filter(d -> "/folder0".equals(d.getPathAsString())).findFirst().get();
+        Assert.assertEquals("Folder0", doc.getTitle());
+        Assert.assertEquals("Folder", doc.getType());
+        // not projected, so not fetched from the _source
+        Assert.assertNull(doc.getPropertyValue("dc:description"));
+        Assert.assertTrue(doc.isImmutable());
+
+        // fetched without a projection
+        docs = ess.query(new NxQueryBuilder(session).nxql("select * from Document").limit(20).fetchFromElasticsearch());
+        doc = docs.stream().filter(d -> "/folder0".equals(d.getPathAsString())).findFirst().get();
+        Assert.assertEquals("Description0", doc.getPropertyValue("dc:description"));
+
+        // remove a document from the repository, it is still in the index until the transaction is committed
+        session.removeDocument(new PathRef(
+                "/folder0/folder1/folder2/folder3/folder4/folder5/folder6/folder7/folder8/folder9"));
+        session.save();
+        docs = ess.query(new NxQueryBuilder(session).nxql("select * from Document")
+                                                    .limit(20)
+                                                    .fetchProjectionFromElasticsearch(fields)
+                                                    .projectionCheck(EsProjectionFetcher.Check.INDEX));
+        Assert.assertEquals(10, docs.size());
+        docs = ess.query(new NxQueryBuilder(session).nxql("select * from Document")
+                                                    .limit(20)
+                                                    .fetchProjectionFromElasticsearch(fields)
+                                                    .projectionCheck(EsProjectionFetcher.Check.REPOSITORY));
+        Assert.assertEquals(9, docs.size());
+    }
+
     @Test
     public void checkNotFetch() throws Exception {
         buildAndIndexTree();
@@ -0,0 +1,73 @@
+/*
+ * (C) Copyright 2020 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     bdelbosc
+ */
+package org.nuxeo.elasticsearch.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Instant;
+
+import org.junit.Test;
+import org.nuxeo.elasticsearch.core.TimePartition;
+
+/**
+ * @since 11.5
+ */
+public class TestTimePartition {
+
+    protected static final Instant DATE = Instant.parse("2020-03-02T23:30:00Z");
+
+    @Test
+    public void testIndexName() {
+        assertEquals("audit-2020.03.02", TimePartition.DAY.getIndexName("audit", DATE));
+        assertEquals("audit-2020.03", TimePartition.MONTH.getIndexName("audit", DATE));
+        assertEquals("nuxeo-audit-2020", TimePartition.YEAR.getIndexName("nuxeo-audit", DATE));
+        assertNull(TimePartition.of(""));
+        assertEquals(TimePartition.MONTH, TimePartition.of("month"));
+    }
+
+    @Test
+    public void testStartAndEnd() {
+        assertEquals(Instant.parse("2020-03-02T00:00:00Z"), TimePartition.DAY.getStart("audit", "audit-2020.03.02"));
+        assertEquals(Instant.parse("2020-03-01T00:00:00Z"), TimePartition.MONTH.getStart("audit", "audit-2020.03"));
+        assertEquals(Instant.parse("2020-01-01T00:00:00Z"), TimePartition.YEAR.getStart("audit", "audit-2020"));
+        assertEquals(Instant.parse("2020-04-01T00:00:00Z"),
+                TimePartition.MONTH.getEnd(Instant.parse("2020-03-01T00:00:00Z")));
+        // not a partition
+        assertNull(TimePartition.MONTH.getStart("audit", "audit"));
+        assertNull(TimePartition.MONTH.getStart("audit", "audit-write"));
+        assertNull(TimePartition.MONTH.getStart("audit", "other-2020.03"));
+        assertNull(TimePartition.MONTH.getStart("audit", "audit-2020.03.02"));
+    }
+
+    @Test
+    public void testOverlaps() {
+        TimePartition partition = TimePartition.MONTH;
+        assertTrue(partition.overlaps("audit", "audit-2020.03", null, null));
+        assertTrue(partition.overlaps("audit", "audit-2020.03", DATE, null));
+        assertTrue(partition.overlaps("audit", "audit-2020.03", null, DATE));
+        assertTrue(partition.overlaps("audit", "audit-2020.02", Instant.parse("2020-02-29T23:59:59Z"), null));
+        assertFalse(partition.overlaps("audit", "audit-2020.02", DATE, null));
+        assertFalse(partition.overlaps("audit", "audit-2020.04", null, DATE));
+        assertFalse(partition.overlaps("audit", "audit", null, null));
+    }
+
+}
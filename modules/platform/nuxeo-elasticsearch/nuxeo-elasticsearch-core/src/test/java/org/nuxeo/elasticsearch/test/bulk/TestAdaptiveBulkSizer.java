@@ -0,0 +1,77 @@
+/*
+ * (C) Copyright 2020 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     bdelbosc
+ */
+package org.nuxeo.elasticsearch.test.bulk;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+import org.nuxeo.elasticsearch.bulk.AdaptiveBulkSizer;
+
+/**
+ * @since 11.5
+ */
+public class TestAdaptiveBulkSizer {
+
+    @Test
+    public void testSizing() {
+        AdaptiveBulkSizer sizer = new AdaptiveBulkSizer(16_000, 1_600, 100, 10, 50);
+        assertEquals(16_000, sizer.getBulkSize());
+        assertEquals(1_600, sizer.getBulkActions());
+        assertEquals(0, sizer.getBackoffDelay());
+
+        // fast responses never go above the max
+        sizer.onSuccess(10);
+        assertEquals(16_000, sizer.getBulkSize());
+        assertEquals(1_600, sizer.getBulkActions());
+
+        // slow responses decrease the size
+        sizer.onSuccess(500);
+        assertEquals(12_000, sizer.getBulkSize());
+        assertEquals(1_200, sizer.getBulkActions());
+
+        // acceptable latency keeps the size
+        sizer.onSuccess(150);
+        assertEquals(12_000, sizer.getBulkSize());
+
+        // rejections halve the size down to the min and backoff exponentially up to the max delay
+        sizer.onRejection();
+        assertEquals(6_000, sizer.getBulkSize());
+        assertEquals(600, sizer.getBulkActions());
+        assertEquals(10, sizer.getBackoffDelay());
+        sizer.onRejection();
+        sizer.onRejection();
+        sizer.onRejection();
+        assertEquals(1_000, sizer.getBulkSize());
+        assertEquals(100, sizer.getBulkActions());
+        assertEquals(50, sizer.getBackoffDelay());
+
+        // recovering
+        sizer.onSuccess(10);
+        assertEquals(0, sizer.getBackoffDelay());
+        assertEquals(2_500, sizer.getBulkSize());
+        assertEquals(250, sizer.getBulkActions());
+        for (int i = 0; i < 10; i++) {
+            sizer.onSuccess(10);
+        }
+        assertEquals(16_000, sizer.getBulkSize());
+        assertEquals(1_600, sizer.getBulkActions());
+        assertEquals(0, sizer.getBackoffDelay());
+    }
+
+}
@@ -0,0 +1,151 @@
+/*
+ * (C) Copyright 2020 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     bdelbosc
+ */
+package org.nuxeo.elasticsearch.test.bulk;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.elasticsearch.action.DocWriteRequest;
+import org.elasticsearch.action.bulk.BulkItemResponse;
+import org.elasticsearch.action.bulk.BulkProcessor;
+import org.elasticsearch.action.bulk.BulkResponse;
+import org.elasticsearch.action.delete.DeleteRequest;
+import org.elasticsearch.common.util.concurrent.EsRejectedExecutionException;
+import org.junit.After;
+import org.junit.Test;
+import org.nuxeo.elasticsearch.api.ESClient;
+import org.nuxeo.elasticsearch.bulk.BulkIndexComputation;
+import org.nuxeo.lib.stream.computation.ComputationContext;
+import org.nuxeo.lib.stream.computation.ComputationPolicyBuilder;
+
+import net.jodah.failsafe.RetryPolicy;
+
+/**
+ * Tests the resubmission of the requests rejected by an overloaded cluster in adaptive mode.
+ *
+ * @since 11.5
+ */
+public class TestBulkIndexComputation {
+
+    protected static final int MAX_RETRIES = 3;
+
+    protected static final String INDEX = "test";
+
+    /** Number of bulk requests received by the fake cluster. */
+    protected final AtomicInteger bulks = new AtomicInteger();
+
+    /** Ids of the requests received by the fake cluster. */
+    protected final List<String> ids = new ArrayList<>();
+
+    protected TestableBulkIndexComputation computation;
+
+    /**
+     * A computation sending its bulk requests to a fake cluster rejecting the first given number of them.
+     */
+    protected class TestableBulkIndexComputation extends BulkIndexComputation {
+
+        protected final int rejections;
+
+        protected TestableBulkIndexComputation(int rejections) {
+            super(1024 * 1024, 1000, 1, true, 1000);
+            this.rejections = rejections;
+        }
+
+        @Override
+        protected ESClient getESClient() {
+            ESClient client = mock(ESClient.class);
+            when(client.bulkProcessorBuilder(any())).thenAnswer(
+                    invocation -> BulkProcessor.builder((request, listener) -> {
+                        List<DocWriteRequest<?>> requests = request.requests();
+                        requests.forEach(r -> ids.add(r.id()));
+                        List<BulkItemResponse> items = new ArrayList<>();
+                        if (bulks.incrementAndGet() <= rejections) {
+                            for (int i = 0; i < requests.size(); i++) {
+                                DocWriteRequest<?> r = requests.get(i);
+                                items.add(BulkItemResponse.failure(i, r.opType(), new BulkItemResponse.Failure(
+                                        r.index(), null, r.id(), new EsRejectedExecutionException("rejected"))));
+                            }
+                        }
+                        listener.onResponse(new BulkResponse(items.toArray(new BulkItemResponse[0]), 1));
+                    }, invocation.getArgument(0)));
+            return client;
+        }
+
+        public void addAndFlush(String... docIds) {
+            for (String id : docIds) {
+                bulkProcessor.add(new DeleteRequest(INDEX, id));
+            }
+            flush();
+        }
+
+        public boolean isAborted() {
+            return abort;
+        }
+    }
+
+    protected void init(int rejections) {
+        ComputationContext context = mock(ComputationContext.class);
+        RetryPolicy retryPolicy = new RetryPolicy().withMaxRetries(MAX_RETRIES).withBackoff(1, 10,
+                TimeUnit.MILLISECONDS);
+        when(context.getPolicy()).thenReturn(
+                new ComputationPolicyBuilder().retryPolicy(retryPolicy).continueOnFailure(false).build());
+        computation = new TestableBulkIndexComputation(rejections);
+        computation.init(context);
+    }
+
+    @After
+    public void tearDown() {
+        if (computation != null) {
+            computation.destroy();
+        }
+    }
+
+    @Test
+    public void testRejectedRequestsAreResubmitted() {
+        init(2);
+        computation.addAndFlush("1", "2");
+        // each rejection is retried once by the computation, not by the bulk processor
+        assertEquals(3, bulks.get());
+        assertEquals(List.of("1", "2", "1", "2", "1", "2"), ids);
+        assertFalse(computation.isAborted());
+
+        // next bulks are accepted
+        computation.addAndFlush("3");
+        assertEquals(4, bulks.get());
+        assertFalse(computation.isAborted());
+    }
+
+    @Test
+    public void testRejectedRequestsAbortAfterMaxRetries() {
+        init(Integer.MAX_VALUE);
+        computation.addAndFlush("1");
+        assertEquals(1 + MAX_RETRIES, bulks.get());
+        assertTrue(computation.isAborted());
+    }
+
+}
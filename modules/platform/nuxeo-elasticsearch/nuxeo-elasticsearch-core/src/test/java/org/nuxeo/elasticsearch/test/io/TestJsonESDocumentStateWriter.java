@@ -0,0 +1,118 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     bdelbosc
+ */
+package org.nuxeo.elasticsearch.test.io;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.GregorianCalendar;
+import java.util.List;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.ecm.core.api.Blob;
+import org.nuxeo.ecm.core.api.Blobs;
+import org.nuxeo.ecm.core.api.CoreSession;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.elasticsearch.io.JsonESDocumentStateWriter;
+import org.nuxeo.elasticsearch.io.JsonESDocumentWriter;
+import org.nuxeo.elasticsearch.test.RepositoryElasticSearchFeature;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * @since 11.5
+ */
+@RunWith(FeaturesRunner.class)
+@Features({ RepositoryElasticSearchFeature.class })
+@Deploy("org.nuxeo.elasticsearch.core:elasticsearch-test-contrib.xml")
+public class TestJsonESDocumentStateWriter {
+
+    protected static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    @Inject
+    protected CoreSession session;
+
+    @Test
+    public void testSameOutputAsPropertyWriter() throws Exception {
+        DocumentModel folder = session.createDocumentModel("/", "folder", "Folder");
+        folder = session.createDocument(folder);
+
+        DocumentModel doc = session.createDocumentModel("/folder", "file", "File");
+        doc.setPropertyValue("dc:title", "Some file");
+        doc.setPropertyValue("dc:description", "Some \"quoted\" description");
+        doc.setPropertyValue("dc:subjects", new String[] { "art", "sport" });
+        doc.setPropertyValue("dc:created", new GregorianCalendar(2020, Calendar.MARCH, 2, 12, 13, 14));
+        Blob blob = Blobs.createBlob("some content", "text/plain", "UTF-8", "content.txt");
+        doc.setPropertyValue("file:content", (Serializable) blob);
+        Blob attachment = Blobs.createBlob("some attachment", "text/plain", null, "attachment.txt");
+        List<Map<String, Serializable>> files = Collections.singletonList(
+                Collections.singletonMap("file", (Serializable) attachment));
+        doc.setPropertyValue("files:files", (Serializable) files);
+        doc = session.createDocument(doc);
+
+        DocumentModel note = session.createDocumentModel("/folder", "note", "Note");
+        note.setPropertyValue("note:note", "Some note");
+        note.setPropertyValue("dc:contributors", new String[0]);
+        note = session.createDocument(note);
+        session.save();
+
+        DocumentModel version = session.getDocument(session.checkIn(doc.getRef(), null, "version"));
+        session.save();
+
+        for (DocumentModel document : Arrays.asList(folder, doc, note, version)) {
+            document = session.getDocument(document.getRef());
+            assertEquals(document.getPathAsString(), toJson(new JsonESDocumentWriter(), document),
+                    toJson(new JsonESDocumentStateWriter(), document));
+        }
+    }
+
+    @Test
+    public void testFallbackOnDirtyDocument() throws Exception {
+        DocumentModel doc = session.createDocumentModel("/", "file", "File");
+        doc.setPropertyValue("dc:title", "Some file");
+        doc = session.createDocument(doc);
+        session.save();
+        doc.setPropertyValue("dc:title", "Modified title");
+
+        String json = toJson(new JsonESDocumentStateWriter(), doc);
+        assertEquals(toJson(new JsonESDocumentWriter(), doc), json);
+    }
+
+    protected String toJson(JsonESDocumentWriter writer, DocumentModel doc) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator jsonGen = JSON_FACTORY.createGenerator(out)) {
+            writer.writeESDocument(jsonGen, doc, null, null);
+        }
+        return out.toString();
+    }
+
+}
@@ -21,8 +21,6 @@ package org.nuxeo.ecm.platform.audit.impl;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.nuxeo.ecm.platform.audit.listener.StreamAuditEventListener.STREAM_NAME;
 
-import java.io.IOException;
-import java.io.UnsupportedEncodingException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -30,9 +28,7 @@ import java.util.Map;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.nuxeo.ecm.core.api.NuxeoException;
-import org.nuxeo.ecm.platform.audit.api.AuditLogger;
-import org.nuxeo.ecm.platform.audit.api.LogEntry;
+import org.nuxeo.ecm.platform.audit.service.AuditBackend;
 import org.nuxeo.lib.stream.computation.AbstractBatchComputation;
 import org.nuxeo.lib.stream.computation.ComputationContext;
 import org.nuxeo.lib.stream.computation.Record;
@@ -40,8 +36,6 @@ import org.nuxeo.lib.stream.computation.Topology;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.stream.StreamProcessorTopology;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 /**
  * Computation that consumes a stream of log entries and write them to the audit backend.
  *
@@ -69,15 +63,11 @@ public class StreamAuditWriter implements StreamProcessorTopology {
 
         @Override
         public void batchProcess(ComputationContext context, String inputStreamName, List<Record> records) {
-            List<LogEntry> logEntries = new ArrayList<>(records.size());
+            List<String> jsonEntries = new ArrayList<>(records.size());
             for (Record record : records) {
-                try {
-                    logEntries.add(getLogEntryFromJson(record.getData()));
-                } catch (NuxeoException e) {
-                    log.error("Discard invalid record: " + record, e);
-                }
+                jsonEntries.add(new String(record.getData(), UTF_8));
             }
-            writeEntriesToAudit(logEntries);
+            writeJsonEntriesToAudit(jsonEntries);
         }
 
         @Override
@@ -85,26 +75,20 @@ public class StreamAuditWriter implements StreamProcessorTopology {
             // error log already done by abstract
         }
 
-        protected void writeEntriesToAudit(List<LogEntry> logEntries) {
-            if (logEntries.isEmpty()) {
+        /**
+         * Writes the entries as serialized in the stream, letting the backend avoid a deserialization.
+         *
+         * @since 11.5
+         */
+        protected void writeJsonEntriesToAudit(List<String> jsonEntries) {
+            if (jsonEntries.isEmpty()) {
                 return;
             }
             if (log.isDebugEnabled()) {
-                log.debug(String.format("Writing %d log entries to audit backend.", logEntries.size()));
-            }
-            AuditLogger logger = Framework.getService(AuditLogger.class);
-            logger.addLogEntries(logEntries);
-        }
-
-        protected LogEntry getLogEntryFromJson(byte[] data) {
-            String json = "";
-            try {
-                json = new String(data, UTF_8);
-                ObjectMapper mapper = new ObjectMapper();
-                return mapper.readValue(json, LogEntryImpl.class);
-            } catch (IOException e) {
-                throw new NuxeoException("Invalid json logEntry" + json, e);
+                log.debug(String.format("Writing %d json log entries to audit backend.", jsonEntries.size()));
             }
+            AuditBackend backend = Framework.getService(AuditBackend.class);
+            backend.addJsonLogEntries(jsonEntries);
         }
     }
 
@@ -18,8 +18,17 @@
  */
 package org.nuxeo.ecm.platform.audit.service;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.logging.log4j.LogManager;
 import org.nuxeo.ecm.platform.audit.api.AuditStorage;
+import org.nuxeo.ecm.platform.audit.api.LogEntry;
 import org.nuxeo.ecm.platform.audit.api.Logs;
+import org.nuxeo.ecm.platform.audit.impl.LogEntryImpl;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 /**
  * Audit Backend SPI
@@ -57,4 +66,27 @@ public interface AuditBackend extends Logs {
      */
     void restore(AuditStorage auditStorage, int batchSize, int keepAlive);
 
+    /**
+     * Adds log entries serialized as JSON, the entry ids and log dates are assigned by the backend like in
+     * {@link #addLogEntries(List)}. Invalid entries are discarded.
+     * <p>
+     * The default implementation deserializes the entries, backends able to store the JSON as is should override it.
+     *
+     * @since 11.5
+     */
+    default void addJsonLogEntries(List<String> jsonEntries) {
+        List<LogEntry> entries = new ArrayList<>(jsonEntries.size());
+        ObjectMapper mapper = new ObjectMapper();
+        for (String json : jsonEntries) {
+            try {
+                entries.add(mapper.readValue(json, LogEntryImpl.class));
+            } catch (IOException e) {
+                LogManager.getLogger(AuditBackend.class).error("Discard invalid json log entry: {}", json, e);
+            }
+        }
+        if (!entries.isEmpty()) {
+            addLogEntries(entries);
+        }
+    }
+
 }
@@ -48,5 +48,8 @@ public class BinaryManagerStatusJsonWriter extends ExtensibleEntityJsonWriter<Bi
         jg.writeNumberField("sizeBinaries", entity.getSizeBinaries());
         jg.writeNumberField("numBinariesGC", entity.getNumBinariesGC());
         jg.writeNumberField("sizeBinariesGC", entity.getSizeBinariesGC());
+        jg.writeNumberField("numBinariesMarked", entity.getNumBinariesMarked());
+        jg.writeNumberField("numShards", entity.getNumShards());
+        jg.writeNumberField("numShardsDone", entity.getNumShardsDone());
     }
 }
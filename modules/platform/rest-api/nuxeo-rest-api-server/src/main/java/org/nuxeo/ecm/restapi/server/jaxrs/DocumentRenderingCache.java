@@ -0,0 +1,297 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.ecm.restapi.server.jaxrs;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.nuxeo.ecm.core.io.registry.MarshallingConstants.EMBED_ENRICHERS;
+import static org.nuxeo.ecm.core.io.registry.MarshallingConstants.FETCH_PROPERTIES;
+import static org.nuxeo.ecm.core.io.registry.MarshallingConstants.HEADER_PREFIX;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.MediaType;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.commons.lang3.math.NumberUtils;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.ecm.core.api.DocumentModel;
+import org.nuxeo.ecm.core.api.NuxeoException;
+import org.nuxeo.ecm.core.io.marshallers.json.document.DocumentModelJsonWriter;
+import org.nuxeo.ecm.core.io.registry.MarshallerRegistry;
+import org.nuxeo.ecm.core.io.registry.Writer;
+import org.nuxeo.ecm.core.io.registry.context.RenderingContext;
+import org.nuxeo.ecm.webengine.jaxrs.coreiodelegate.PartialCoreIODelegate;
+import org.nuxeo.ecm.webengine.jaxrs.coreiodelegate.RenderingContextWebUtils;
+import org.nuxeo.runtime.api.Framework;
+
+/**
+ * Computes the ETags of the JSON renderings of documents, and optionally keeps the last rendered bodies.
+ * <p>
+ * The ETag of a rendering is a digest of the document change token and of everything in the request that the
+ * marshallers can use: the principal, the base URL, the locale, the query parameters and the headers. Enrichers and
+ * fetched properties may render data that doesn't change with the document (permissions, children, resolved
+ * entities...), so requests using them, as well as proxies and documents without change token, don't get an ETag.
+ * <p>
+ * When {@value #CACHE_SIZE_PROP} is positive, the bodies of up to that many renderings are kept in a LRU cache keyed by
+ * their ETag. The cache is bounded by its number of entries, not by the size in bytes of the bodies.
+ *
+ * @since 11.5
+ */
+public class DocumentRenderingCache {
+
+    private static final Logger log = LogManager.getLogger(DocumentRenderingCache.class);
+
+    /**
+     * Framework property for the maximum number of rendered bodies kept in the cache, {@code 0} (the default) disables
+     * the cache.
+     */
+    public static final String CACHE_SIZE_PROP = "org.nuxeo.rest.api.document.cache.size";
+
+    public static final int DEFAULT_CACHE_SIZE = 0;
+
+    /**
+     * Request headers that don't change the rendering, or that only change it through the base URL.
+     */
+    protected static final Set<String> IGNORED_HEADERS = Set.of("accept-encoding", "accept-language", "authorization",
+            "cache-control", "connection", "content-length", "cookie", "forwarded", "host", "if-match",
+            "if-modified-since", "if-none-match", "if-unmodified-since", "nuxeo-virtual-host", "pragma", "referer",
+            "user-agent", "x-forwarded-for", "x-forwarded-host", "x-forwarded-port", "x-forwarded-proto");
+
+    protected static final DocumentRenderingCache INSTANCE = new DocumentRenderingCache();
+
+    /** The maximum number of cached bodies, read from the configuration on first use, or -1 if not read yet. */
+    protected volatile int maxSize = -1;
+
+    protected final Map<String, CachedBody> bodies = new LinkedHashMap<>(16, 0.75f, true) {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedBody> eldest) {
+            return size() > getMaxSize();
+        }
+    };
+
+    public static DocumentRenderingCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Computes the ETag of the JSON rendering of the document for the given request.
+     *
+     * @return the ETag, or {@code null} if the rendering cannot be identified by one
+     */
+    public static EntityTag computeETag(DocumentModel doc, HttpServletRequest request) {
+        String changeToken = doc.getChangeToken();
+        if (changeToken == null || doc.isProxy()) {
+            return null;
+        }
+        if (Framework.isBooleanPropertyTrue(DocumentModelJsonWriter.DOCUMENT_JSON_FETCH_HEAVY_KEY)) {
+            // versionLabel and lock are rendered, they don't change the change token
+            return null;
+        }
+        // sort parameters and headers so that their order doesn't matter
+        Map<String, List<String>> params = new TreeMap<>();
+        for (Map.Entry<String, String[]> param : request.getParameterMap().entrySet()) {
+            if (isDynamic(param.getKey())) {
+                return null;
+            }
+            params.put(param.getKey(), List.of(param.getValue()));
+        }
+        Map<String, List<String>> headers = new TreeMap<>();
+        for (String name : Collections.list(request.getHeaderNames())) {
+            String key = name.toLowerCase(Locale.ENGLISH);
+            if (isDynamic(key)) {
+                return null;
+            }
+            if (!IGNORED_HEADERS.contains(key)) {
+                headers.computeIfAbsent(key, k -> new ArrayList<>()).addAll(Collections.list(request.getHeaders(name)));
+            }
+        }
+        RenderingContext ctx = RenderingContextWebUtils.getContext(request);
+        Principal principal = request.getUserPrincipal();
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new NuxeoException(e);
+        }
+        update(digest, doc.getRepositoryName());
+        update(digest, doc.getId());
+        update(digest, changeToken);
+        // a move doesn't change the change token
+        update(digest, doc.getPathAsString());
+        update(digest, principal == null ? null : principal.getName());
+        update(digest, ctx.getBaseUrl());
+        update(digest, ctx.getLocale().toLanguageTag());
+        update(digest, params);
+        update(digest, headers);
+        return new EntityTag(Base64.getUrlEncoder().withoutPadding().encodeToString(digest.digest()));
+    }
+
+    /**
+     * Checks whether a request parameter or header asks for enrichers or fetched properties.
+     */
+    protected static boolean isDynamic(String name) {
+        String key = StringUtils.removeStartIgnoreCase(name, HEADER_PREFIX).toLowerCase(Locale.ENGLISH);
+        return key.startsWith(EMBED_ENRICHERS) || key.startsWith(FETCH_PROPERTIES)
+                || key.equals("context-category");
+    }
+
+    protected static void update(MessageDigest digest, String string) {
+        // length-prefixed so that consecutive strings can't be confused
+        byte[] bytes = string == null ? new byte[0] : string.getBytes(UTF_8);
+        digest.update(String.valueOf(string == null ? -1 : bytes.length).getBytes(UTF_8));
+        digest.update((byte) ':');
+        digest.update(bytes);
+    }
+
+    protected static void update(MessageDigest digest, Map<String, List<String>> map) {
+        update(digest, String.valueOf(map.size()));
+        map.forEach((key, values) -> {
+            update(digest, key);
+            update(digest, String.valueOf(values.size()));
+            values.forEach(value -> update(digest, value));
+        });
+    }
+
+    /**
+     * Checks whether an {@code If-None-Match} header matches the given ETag, using the weak comparison.
+     */
+    public static boolean matches(String ifNoneMatch, EntityTag etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.equals("*")) {
+                return true;
+            }
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals('"' + etag.getValue() + '"')) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    protected int getMaxSize() {
+        int size = maxSize;
+        if (size < 0) {
+            size = Math.max(0, NumberUtils.toInt(Framework.getProperty(CACHE_SIZE_PROP), DEFAULT_CACHE_SIZE));
+            maxSize = size;
+        }
+        return size;
+    }
+
+    /**
+     * Checks whether the body of the JSON rendering can be kept for the given request.
+     */
+    public boolean isEnabled(HttpServletRequest request) {
+        // the ES rendering of the document is not cached
+        String accept = request.getHeader(HttpHeaders.ACCEPT);
+        return getMaxSize() > 0 && (accept == null || !accept.contains("+esentity"));
+    }
+
+    /**
+     * Gets the body of the JSON rendering of the document identified by the given ETag, rendering it if it's not
+     * cached.
+     */
+    public CachedBody getBody(EntityTag etag, DocumentModel doc, HttpServletRequest request) {
+        String key = etag.getValue();
+        CachedBody body;
+        synchronized (bodies) {
+            body = bodies.get(key);
+        }
+        if (body != null) {
+            log.trace("Using cached rendering of document: {}", doc.getId());
+            return body;
+        }
+        // render outside of the lock, a concurrent rendering of the same document gives the same body
+        RenderingContext ctx = RenderingContextWebUtils.getContext(request);
+        MarshallerRegistry registry = Framework.getService(MarshallerRegistry.class);
+        Writer<DocumentModel> writer = registry.getWriter(ctx, DocumentModel.class, MediaType.APPLICATION_JSON_TYPE);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            writer.write(doc, DocumentModel.class, DocumentModel.class, MediaType.APPLICATION_JSON_TYPE, out);
+        } catch (IOException e) {
+            throw new NuxeoException(e);
+        }
+        String type = MediaType.APPLICATION_JSON + PartialCoreIODelegate.NUXEO_ENTITY
+                + ctx.getParameter(RenderingContext.RESPONSE_HEADER_ENTITY_TYPE_KEY);
+        body = new CachedBody(out.toByteArray(), type);
+        synchronized (bodies) {
+            bodies.put(key, body);
+        }
+        return body;
+    }
+
+    /**
+     * Forgets all the cached bodies, and the cache size so that it's read again from the configuration on next use.
+     */
+    public void clear() {
+        synchronized (bodies) {
+            bodies.clear();
+            maxSize = -1;
+        }
+    }
+
+    /**
+     * A rendered body with its content type.
+     */
+    public static class CachedBody {
+
+        protected final byte[] bytes;
+
+        protected final String type;
+
+        public CachedBody(byte[] bytes, String type) {
+            this.bytes = bytes;
+            this.type = type;
+        }
+
+        public byte[] getBytes() {
+            return bytes;
+        }
+
+        public String getType() {
+            return type;
+        }
+    }
+
+}
@@ -20,6 +20,7 @@ package org.nuxeo.ecm.restapi.server.jaxrs;
 
 import java.util.List;
 
+import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Consumes;
 import javax.ws.rs.DELETE;
 import javax.ws.rs.GET;
@@ -28,9 +29,11 @@ import javax.ws.rs.PUT;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.Context;
+import javax.ws.rs.core.EntityTag;
 import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.Response.ResponseBuilder;
 import javax.ws.rs.core.Response.Status;
 
 import org.apache.commons.lang3.StringUtils;
@@ -46,6 +49,7 @@ import org.nuxeo.ecm.core.api.versioning.VersioningService;
 import org.nuxeo.ecm.core.io.marshallers.json.document.DocumentModelJsonReader;
 import org.nuxeo.ecm.core.rest.DocumentObject;
 import org.nuxeo.ecm.restapi.jaxrs.io.RestConstants;
+import org.nuxeo.ecm.restapi.server.jaxrs.DocumentRenderingCache.CachedBody;
 import org.nuxeo.ecm.webengine.model.WebObject;
 
 /**
@@ -62,10 +66,33 @@ public class JSONDocumentObject extends DocumentObject {
 
     private boolean isVersioning;
 
+    /**
+     * Returns the document, with an ETag when its rendering can be identified by one, see
+     * {@link DocumentRenderingCache}.
+     *
+     * @return the document, or a {@code 304 Not Modified} response if the {@code If-None-Match} header matches the
+     *         ETag
+     */
     @Override
     @GET
-    public DocumentModel doGet() {
-        return doc;
+    public Object doGet() {
+        HttpServletRequest request = ctx.getRequest();
+        EntityTag etag = DocumentRenderingCache.computeETag(doc, request);
+        if (etag == null) {
+            return doc;
+        }
+        if (DocumentRenderingCache.matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            return Response.notModified(etag).build();
+        }
+        DocumentRenderingCache cache = DocumentRenderingCache.getInstance();
+        ResponseBuilder builder;
+        if (cache.isEnabled(request)) {
+            CachedBody body = cache.getBody(etag, doc, request);
+            builder = Response.ok(body.getBytes(), body.getType());
+        } else {
+            builder = Response.ok(doc);
+        }
+        return builder.tag(etag).build();
     }
 
     /**
@@ -18,8 +18,10 @@
  */
 package org.nuxeo.ecm.restapi.test;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
@@ -27,6 +29,7 @@ import static org.nuxeo.ecm.core.io.marshallers.json.document.DocumentModelJsonW
 import static org.nuxeo.ecm.core.io.registry.MarshallingConstants.FETCH_PROPERTIES;
 import static org.nuxeo.ecm.core.io.registry.MarshallingConstants.HEADER_PREFIX;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.Arrays;
@@ -35,6 +38,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
+import javax.ws.rs.core.HttpHeaders;
 import javax.ws.rs.core.Response;
 
 import org.apache.commons.lang3.StringUtils;
@@ -63,12 +67,14 @@ import org.nuxeo.ecm.platform.tag.TagService;
 import org.nuxeo.ecm.platform.tag.io.TagsJsonEnricher;
 import org.nuxeo.ecm.platform.thumbnail.io.ThumbnailJsonEnricher;
 import org.nuxeo.ecm.restapi.jaxrs.io.RestConstants;
+import org.nuxeo.ecm.restapi.server.jaxrs.DocumentRenderingCache;
 import org.nuxeo.ecm.webengine.jaxrs.coreiodelegate.DocumentModelJsonReaderLegacy;
 import org.nuxeo.jaxrs.test.CloseableClientResponse;
 import org.nuxeo.runtime.api.Framework;
 import org.nuxeo.runtime.test.runner.Deploy;
 import org.nuxeo.runtime.test.runner.Features;
 import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.WithFrameworkProperty;
 import org.nuxeo.runtime.transaction.TransactionHelper;
 
 import com.fasterxml.jackson.databind.JsonNode;
@@ -927,6 +933,89 @@ public class DocumentBrowsingTest extends BaseTest {
         }
     }
 
+    /**
+     * @since 11.5
+     */
+    @Test
+    public void iCanGetADocumentConditionally() throws Exception {
+        DocumentModel note = RestServerInit.getNote(0, session);
+        String etag;
+        try (CloseableClientResponse response = getResponse(RequestType.GET, "id/" + note.getId())) {
+            assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+            etag = response.getHeaders().getFirst(HttpHeaders.ETAG);
+            assertNotNull(etag);
+        }
+
+        // the document didn't change
+        Map<String, String> headers = new HashMap<>();
+        headers.put(HttpHeaders.IF_NONE_MATCH, etag);
+        try (CloseableClientResponse response = getResponse(RequestType.GET, "id/" + note.getId(), headers)) {
+            assertEquals(Response.Status.NOT_MODIFIED.getStatusCode(), response.getStatus());
+        }
+
+        // other rendering parameters give another rendering
+        headers.put(HEADER_PREFIX + MarshallingConstants.EMBED_PROPERTIES, "*");
+        try (CloseableClientResponse response = getResponse(RequestType.GET, "id/" + note.getId(), headers)) {
+            assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+            String otherETag = response.getHeaders().getFirst(HttpHeaders.ETAG);
+            assertNotNull(otherETag);
+            assertNotEquals(etag, otherETag);
+        }
+        headers.remove(HEADER_PREFIX + MarshallingConstants.EMBED_PROPERTIES);
+
+        // enrichers may render data that doesn't change with the document
+        headers.put(MarshallingConstants.EMBED_ENRICHERS + ".document", BasePermissionsJsonEnricher.NAME);
+        try (CloseableClientResponse response = getResponse(RequestType.GET, "id/" + note.getId(), headers)) {
+            assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+            assertNull(response.getHeaders().getFirst(HttpHeaders.ETAG));
+        }
+        headers.remove(MarshallingConstants.EMBED_ENRICHERS + ".document");
+
+        // the document changed
+        note.setPropertyValue("dc:title", "New title");
+        session.saveDocument(note);
+        TransactionHelper.commitOrRollbackTransaction();
+        TransactionHelper.startTransaction();
+        try (CloseableClientResponse response = getResponse(RequestType.GET, "id/" + note.getId(), headers)) {
+            assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+            assertNotEquals(etag, response.getHeaders().getFirst(HttpHeaders.ETAG));
+            JsonNode node = mapper.readTree(response.getEntityInputStream());
+            assertEquals("New title", node.get("title").textValue());
+        }
+    }
+
+    /**
+     * @since 11.5
+     */
+    @Test
+    @WithFrameworkProperty(name = DocumentRenderingCache.CACHE_SIZE_PROP, value = "10")
+    public void iCanGetADocumentFromTheRenderingCache() throws Exception {
+        DocumentModel note = RestServerInit.getNote(0, session);
+        // the cache size is read on first use, make sure this test's configuration is used
+        DocumentRenderingCache.getInstance().clear();
+        try {
+            String etag;
+            String body;
+            try (CloseableClientResponse response = getResponse(RequestType.GET, "id/" + note.getId())) {
+                assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+                assertEquals("application/json; nuxeo-entity=document",
+                        response.getHeaders().getFirst(HttpHeaders.CONTENT_TYPE));
+                etag = response.getHeaders().getFirst(HttpHeaders.ETAG);
+                body = response.getEntity(String.class);
+            }
+            assertEntityEqualsDoc(new ByteArrayInputStream(body.getBytes(UTF_8)), note);
+
+            // same rendering, from the cache
+            try (CloseableClientResponse response = getResponse(RequestType.GET, "id/" + note.getId())) {
+                assertEquals(Response.Status.OK.getStatusCode(), response.getStatus());
+                assertEquals(etag, response.getHeaders().getFirst(HttpHeaders.ETAG));
+                assertEquals(body, response.getEntity(String.class));
+            }
+        } finally {
+            DocumentRenderingCache.getInstance().clear();
+        }
+    }
+
     @Test
     public void itCanBrowseDocumentWithSpacesInPath() {
         DocumentModel folder = RestServerInit.getFolder(0, session);
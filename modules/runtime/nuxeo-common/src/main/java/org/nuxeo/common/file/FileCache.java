@@ -34,6 +34,7 @@ import java.io.InputStream;
  * then pass this file to {@link #putFile(String, File)}.
  *
  * @see LRUFileCache
+ * @see IndexedLRUFileCache
  */
 public interface FileCache {
 
@@ -86,6 +87,22 @@ public interface FileCache {
      */
     File getFile(String key);
 
+    /**
+     * Removes a file from the cache.
+     * <p>
+     * Does nothing if the file is absent.
+     * <p>
+     * The default implementation throws {@link UnsupportedOperationException}, implementations supporting removal must
+     * override it.
+     *
+     * @param key the cache key
+     * @throws UnsupportedOperationException if the cache doesn't support removal
+     * @since 11.5
+     */
+    default void removeFile(String key) {
+        throw new UnsupportedOperationException("Cannot remove files from: " + getClass().getName());
+    }
+
     /**
      * Clears the cache.
      * <p>
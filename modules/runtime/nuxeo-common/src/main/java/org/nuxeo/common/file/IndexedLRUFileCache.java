@@ -0,0 +1,303 @@
+/*
+ * (C) Copyright 2020 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.common.file;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+/**
+ * A LRU cache of {@link File}s with maximum filesystem size, keeping an in-memory index of its entries.
+ * <p>
+ * Unlike {@link LRUFileCache} the cache directory is only listed once, when the cache is created, to rebuild the index
+ * from the file modification times. Afterwards the index is maintained on each put and get, and the least recently
+ * used entries are evicted in constant time per entry without statting the whole directory.
+ * <p>
+ * Entries must be added and removed through the cache. An entry whose file has been removed behind the cache's back is
+ * dropped from the index when it is accessed or evicted, and the index is reset if the whole directory disappears.
+ *
+ * @since 11.5
+ */
+public class IndexedLRUFileCache extends LRUFileCache {
+
+    private static final Log log = LogFactory.getLog(IndexedLRUFileCache.class);
+
+    protected static class Entry {
+
+        protected final long size;
+
+        protected long time;
+
+        protected Entry(long size, long time) {
+            this.size = size;
+            this.time = time;
+        }
+    }
+
+    /** The entries in access order, least recently used first. Guarded by itself. */
+    protected final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    protected long size;
+
+    /**
+     * Constructs a cache in the given directory with the given maximum size (in bytes).
+     *
+     * @param dir the directory to use to store cached files
+     * @param maxSize the maximum size of the cache (in bytes)
+     * @param maxCount the maximum number of files in the cache
+     * @param minAge the minimum age of a file in the cache to be eligible for removal (in seconds)
+     */
+    public IndexedLRUFileCache(File dir, long maxSize, long maxCount, long minAge) {
+        super(dir, maxSize, maxCount, minAge);
+        loadIndex();
+    }
+
+    /**
+     * Rebuilds the index from the files present in the cache directory.
+     */
+    protected void loadIndex() {
+        List<PathInfo> files = new ArrayList<>();
+        if (Files.isDirectory(dir)) {
+            try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, RegularFileFilter.INSTANCE)) {
+                for (Path path : ds) {
+                    try {
+                        files.add(new PathInfo(path));
+                    } catch (IOException e) {
+                        log.error(e, e);
+                    }
+                }
+            } catch (IOException e) {
+                log.error(e, e);
+            }
+        }
+        Collections.sort(files, Collections.reverseOrder()); // sort by least recent first
+        synchronized (entries) {
+            entries.clear();
+            size = 0;
+            for (PathInfo pi : files) {
+                entries.put(pi.path.getFileName().toString(), new Entry(pi.size, pi.time));
+                size += pi.size;
+            }
+        }
+        if (!files.isEmpty()) {
+            log.debug("Loaded " + files.size() + " entries from cache directory: " + dir);
+        }
+    }
+
+    @Override
+    public long getSize() {
+        synchronized (entries) {
+            return size;
+        }
+    }
+
+    @Override
+    public int getNumberOfItems() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @Override
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+            size = 0;
+        }
+        super.clear();
+    }
+
+    @Override
+    public File getTempFile() throws IOException {
+        if (!Files.isDirectory(dir)) {
+            // directory removed by an external process doing cleanup, entries are gone
+            synchronized (entries) {
+                entries.clear();
+                size = 0;
+            }
+        }
+        return super.getTempFile();
+    }
+
+    @Override
+    public File putFile(String key, InputStream in) throws IOException {
+        File tmp;
+        try {
+            // check the cache
+            File file = getFile(key);
+            if (file != null) {
+                return file;
+            }
+
+            // store the stream in a temporary file
+            tmp = getTempFile();
+            try (FileOutputStream out = new FileOutputStream(tmp)) {
+                IOUtils.copy(in, out);
+            }
+        } finally {
+            in.close();
+        }
+        return putFile(key, tmp);
+    }
+
+    @Override
+    public File putFile(String key, File file) throws IllegalArgumentException, IOException {
+        Path source = file.toPath();
+
+        // put file in cache
+        checkKey(key);
+        Path path = dir.resolve(key);
+        try {
+            Files.move(source, path, ATOMIC_MOVE, REPLACE_EXISTING);
+            recordAccess(path);
+            addEntry(key, Files.size(path));
+            clearOldEntries();
+        } catch (FileAlreadyExistsException faee) {
+            // already something there
+            recordAccess(path);
+            touchEntry(key, path);
+            // remove unused tmp file
+            try {
+                Files.delete(source);
+            } catch (IOException e) {
+                log.error(e, e);
+            }
+        }
+        return path.toFile();
+    }
+
+    @Override
+    public File getFile(String key) {
+        checkKey(key);
+        Path path = dir.resolve(key);
+        if (!Files.exists(path)) {
+            removeEntry(key);
+            return null;
+        }
+        recordAccess(path);
+        touchEntry(key, path);
+        return path.toFile();
+    }
+
+    @Override
+    public void removeFile(String key) {
+        checkKey(key);
+        removeEntry(key);
+        super.removeFile(key);
+    }
+
+    protected void addEntry(String key, long length) {
+        synchronized (entries) {
+            Entry old = entries.put(key, new Entry(length, System.currentTimeMillis()));
+            if (old != null) {
+                size -= old.size;
+            }
+            size += length;
+        }
+    }
+
+    /** Marks the entry as most recently used, indexing it if it was added behind the cache's back. */
+    protected void touchEntry(String key, Path path) {
+        synchronized (entries) {
+            Entry entry = entries.get(key); // moves the entry to the tail
+            if (entry != null) {
+                entry.time = System.currentTimeMillis();
+                return;
+            }
+        }
+        try {
+            addEntry(key, Files.size(path));
+        } catch (IOException e) {
+            log.error(e, e);
+        }
+    }
+
+    protected void removeEntry(String key) {
+        synchronized (entries) {
+            Entry old = entries.remove(key);
+            if (old != null) {
+                size -= old.size;
+            }
+        }
+    }
+
+    /**
+     * Evicts the least recently used entries old enough while the cache is bigger than its maximum size.
+     */
+    @Override
+    protected void clearOldEntries() {
+        List<String> keys = new ArrayList<>();
+        long threshold = System.currentTimeMillis() - minAgeMillis;
+        synchronized (entries) {
+            Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+            while ((size > maxSize || entries.size() > maxCount) && it.hasNext()) {
+                Map.Entry<String, Entry> es = it.next();
+                if (es.getValue().time >= threshold) {
+                    // next entries are more recent
+                    break;
+                }
+                it.remove();
+                size -= es.getValue().size;
+                keys.add(es.getKey());
+            }
+        }
+        for (String key : keys) {
+            try {
+                Files.delete(dir.resolve(key));
+            } catch (NoSuchFileException e) {
+                // already removed
+            } catch (IOException e) {
+                log.error(e, e);
+            }
+        }
+    }
+
+    /** Records access to a file by changing its modification time, used to rebuild the index on restart. */
+    @Override
+    protected void recordAccess(Path path) {
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            // removed concurrently
+        } catch (IOException e) {
+            log.error(e, e);
+        }
+    }
+
+}
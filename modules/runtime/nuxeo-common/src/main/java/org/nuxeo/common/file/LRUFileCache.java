@@ -313,6 +313,16 @@ public class LRUFileCache implements FileCache {
         return path.toFile();
     }
 
+    @Override
+    public void removeFile(String key) {
+        checkKey(key);
+        try {
+            Files.deleteIfExists(dir.resolve(key));
+        } catch (IOException e) {
+            log.error(e, e);
+        }
+    }
+
     /** Records access to a file by changing its modification time. */
     protected void recordAccess(Path path) {
         try {
@@ -184,36 +184,68 @@ public class XMap {
     }
 
     private void scan(XAnnotatedObject xob) {
-        scanClass(xob, xob.klass);
-    }
-
-    private void scanClass(XAnnotatedObject xob, Class<?> aClass) {
-        Field[] fields = aClass.getDeclaredFields();
-        for (Field field : fields) {
-            Annotation anno = checkMemberAnnotation(field);
-            if (anno != null) {
-                XAnnotatedMember member = createFieldMember(field, anno);
-                xob.addMember(member);
+        for (ScannedMember scanned : SCANNED_MEMBERS.get(xob.klass)) {
+            XAnnotatedMember member;
+            if (scanned.element instanceof Field) {
+                member = createFieldMember((Field) scanned.element, scanned.annotation);
+            } else {
+                member = createMethodMember((Method) scanned.element, scanned.annotation, scanned.declaringClass);
             }
+            xob.addMember(member);
         }
+    }
 
-        Method[] methods = aClass.getDeclaredMethods();
-        for (Method method : methods) {
-            // we accept only methods with one parameter
-            Class<?>[] paramTypes = method.getParameterTypes();
-            if (paramTypes.length != 1) {
-                continue;
-            }
-            Annotation anno = checkMemberAnnotation(method);
-            if (anno != null) {
-                XAnnotatedMember member = createMethodMember(method, anno, aClass);
-                xob.addMember(member);
+    /**
+     * The annotated members of a class and of its superclasses, in scan order.
+     * <p>
+     * This is shared by all XMap instances, as the same classes are registered by many of them and looking up
+     * annotations by reflection is costly.
+     *
+     * @since 11.5
+     */
+    private static final ClassValue<List<ScannedMember>> SCANNED_MEMBERS = new ClassValue<>() {
+        @Override
+        protected List<ScannedMember> computeValue(Class<?> klass) {
+            List<ScannedMember> members = new ArrayList<>();
+            for (Class<?> aClass = klass; aClass != null; aClass = aClass.getSuperclass()) {
+                for (Field field : aClass.getDeclaredFields()) {
+                    Annotation anno = checkMemberAnnotation(field);
+                    if (anno != null) {
+                        members.add(new ScannedMember(field, anno, aClass));
+                    }
+                }
+                for (Method method : aClass.getDeclaredMethods()) {
+                    // we accept only methods with one parameter
+                    if (method.getParameterCount() != 1) {
+                        continue;
+                    }
+                    Annotation anno = checkMemberAnnotation(method);
+                    if (anno != null) {
+                        members.add(new ScannedMember(method, anno, aClass));
+                    }
+                }
             }
+            return members;
         }
+    };
+
+    /**
+     * An annotated field or method found by scanning a class.
+     *
+     * @since 11.5
+     */
+    private static final class ScannedMember {
+
+        final AnnotatedElement element;
+
+        final Annotation annotation;
+
+        final Class<?> declaringClass;
 
-        // scan superClass annotations
-        if (aClass.getSuperclass() != null) {
-            scanClass(xob, aClass.getSuperclass());
+        ScannedMember(AnnotatedElement element, Annotation annotation, Class<?> declaringClass) {
+            this.element = element;
+            this.annotation = annotation;
+            this.declaringClass = declaringClass;
         }
     }
 
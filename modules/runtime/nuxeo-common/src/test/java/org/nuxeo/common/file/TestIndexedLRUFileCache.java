@@ -0,0 +1,92 @@
+/*
+ * (C) Copyright 2020 Nuxeo SA (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.common.file;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.Test;
+
+/**
+ * Runs the {@link LRUFileCache} tests against the indexed implementation.
+ *
+ * @since 11.5
+ */
+public class TestIndexedLRUFileCache extends TestLRUFileCache {
+
+    @Override
+    protected LRUFileCache newCache(File dir, long maxSize, long maxCount, long minAge) {
+        return new IndexedLRUFileCache(dir, maxSize, maxCount, minAge);
+    }
+
+    @Test
+    public void testIndexReloadedOnStartup() throws Exception {
+        LRUFileCache cache = newCache(dir, 100, 9999, 1); // 100 bytes max
+        byte[] buf = new byte[30];
+        cache.putFile("1", new ByteArrayInputStream(buf));
+        Thread.sleep(1100);
+        cache.putFile("2", new ByteArrayInputStream(buf));
+        Thread.sleep(1100);
+        cache.putFile("3", new ByteArrayInputStream(buf));
+        // access the first one so that the second one is the least recently used
+        Thread.sleep(1100);
+        cache.getFile("1");
+
+        // new cache on the same directory
+        cache = newCache(dir, 100, 9999, 1);
+        assertEquals(3, cache.getNumberOfItems());
+        assertEquals(90, cache.getSize());
+
+        Thread.sleep(1100);
+        cache.putFile("4", new ByteArrayInputStream(buf));
+        assertEquals(3, cache.getNumberOfItems());
+        assertEquals(90, cache.getSize());
+        assertTrue(new File(dir, "1").exists());
+        assertFalse(new File(dir, "2").exists());
+        assertTrue(new File(dir, "3").exists());
+        assertTrue(new File(dir, "4").exists());
+    }
+
+    @Test
+    public void testRemoveFile() throws Exception {
+        LRUFileCache cache = newCache(dir, 100, 9999, 1);
+        cache.putFile("1", new ByteArrayInputStream(new byte[30]));
+        cache.putFile("2", new ByteArrayInputStream(new byte[40]));
+        assertEquals(70, cache.getSize());
+
+        cache.removeFile("1");
+        assertEquals(1, cache.getNumberOfItems());
+        assertEquals(40, cache.getSize());
+        assertFalse(new File(dir, "1").exists());
+        assertNull(cache.getFile("1"));
+
+        // removed behind the cache's back
+        Files.delete(new File(dir, "2").toPath());
+        assertNull(cache.getFile("2"));
+        assertEquals(0, cache.getNumberOfItems());
+        assertEquals(0, cache.getSize());
+    }
+
+}
@@ -47,6 +47,10 @@ public class TestLRUFileCache {
         FileUtils.deleteQuietly(dir);
     }
 
+    protected LRUFileCache newCache(File dir, long maxSize, long maxCount, long minAge) {
+        return new LRUFileCache(dir, maxSize, maxCount, minAge);
+    }
+
     public long getDirSize() {
         long size = 0;
         for (File f : dir.listFiles()) {
@@ -57,7 +61,7 @@ public class TestLRUFileCache {
 
     @Test
     public void testLRUFileCache() throws Exception {
-        LRUFileCache cache = new LRUFileCache(dir, 100, 9999, 1); // 100 bytes max
+        LRUFileCache cache = newCache(dir, 100, 9999, 1); // 100 bytes max
         cache.setClearOldEntriesIntervalMillis(0); // clear immediately
         assertEquals(0, cache.getSize());
         assertEquals(0, getDirSize());
@@ -120,7 +124,7 @@ public class TestLRUFileCache {
 
     @Test
     public void testLRUFileCacheMaxCount() throws Exception {
-        LRUFileCache cache = new LRUFileCache(dir, 10000, 3, 1); // 3 files max
+        LRUFileCache cache = newCache(dir, 10000, 3, 1); // 3 files max
         cache.setClearOldEntriesIntervalMillis(0); // clear immediately
         assertEquals(0, cache.getNumberOfItems());
 
@@ -158,7 +162,7 @@ public class TestLRUFileCache {
 
     @Test
     public void testLRUFileCacheExternalCleanup() throws Exception {
-        LRUFileCache cache = new LRUFileCache(dir, 100, 9999, 1); // 100 bytes max
+        LRUFileCache cache = newCache(dir, 100, 9999, 1); // 100 bytes max
         cache.setClearOldEntriesIntervalMillis(0); // clear immediately
 
         // create one file
@@ -183,7 +187,7 @@ public class TestLRUFileCache {
 
     @Test
     public void testLRUFileCacheKeyCheck() throws IOException {
-        LRUFileCache cache = new LRUFileCache(dir, 100, 9999, 1);
+        LRUFileCache cache = newCache(dir, 100, 9999, 1);
         byte[] buf = new byte[30];
         // complex key allowed
         cache.putFile("10623fe9-1646-40f0-83d6-bda1ba43d305@Llxny6HoJ1_C8CJGJ1rLpRnpWJri4qAS",
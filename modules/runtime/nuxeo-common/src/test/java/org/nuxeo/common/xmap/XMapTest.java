@@ -57,6 +57,22 @@ public class XMapTest {
         assertEquals("test1", inheritedAuthor.inheritedId);
     }
 
+    /**
+     * @since 11.5
+     */
+    @Test
+    public void testMappingInSeveralXMaps() throws Exception {
+        // the scan of annotated classes is shared between XMap instances
+        URL url = Thread.currentThread().getContextClassLoader().getResource("second-test-xmap.xml");
+        for (int i = 0; i < 2; i++) {
+            XMap xmap = new XMap();
+            xmap.register(InheritedAuthor.class);
+            InheritedAuthor inheritedAuthor = (InheritedAuthor) xmap.load(url);
+            checkAuthor(inheritedAuthor);
+            assertEquals("test1", inheritedAuthor.inheritedId);
+        }
+    }
+
     protected void checkAuthor(Author author) {
         assertEquals("First test 22", author.title);
         assertEquals("bla bla", author.description);
@@ -0,0 +1,60 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.runtime;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.nuxeo.runtime.model.ComponentContext;
+import org.nuxeo.runtime.model.DefaultComponent;
+
+/**
+ * Component recording the order in which it is started and the starting thread, or failing to start.
+ *
+ * @since 11.5
+ */
+public class ConcurrentStartTestComponent extends DefaultComponent {
+
+    public static final List<String> STARTED = Collections.synchronizedList(new ArrayList<>());
+
+    public static final Set<String> THREADS = ConcurrentHashMap.newKeySet();
+
+    protected String componentName;
+
+    protected boolean fail;
+
+    @Override
+    public void activate(ComponentContext context) {
+        componentName = context.getRegistrationInfo().getName().getName();
+        fail = Boolean.parseBoolean((String) context.getPropertyValue("fail"));
+    }
+
+    @Override
+    public void start(ComponentContext context) {
+        if (fail) {
+            throw new RuntimeException("Fail on start");
+        }
+        THREADS.add(Thread.currentThread().getName());
+        STARTED.add(componentName);
+    }
+
+}
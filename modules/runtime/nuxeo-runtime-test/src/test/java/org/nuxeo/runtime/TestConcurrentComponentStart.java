@@ -0,0 +1,93 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.runtime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.nuxeo.runtime.model.impl.ComponentManagerImpl.START_PARALLEL_PROP;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.nuxeo.runtime.api.Framework;
+import org.nuxeo.runtime.model.ComponentManager;
+import org.nuxeo.runtime.model.ComponentName;
+import org.nuxeo.runtime.model.RegistrationInfo;
+import org.nuxeo.runtime.test.runner.Deploy;
+import org.nuxeo.runtime.test.runner.Features;
+import org.nuxeo.runtime.test.runner.FeaturesRunner;
+import org.nuxeo.runtime.test.runner.RuntimeFeature;
+import org.nuxeo.runtime.test.runner.WithFrameworkProperty;
+
+/**
+ * @since 11.5
+ */
+@RunWith(FeaturesRunner.class)
+@Features(RuntimeFeature.class)
+@Deploy("org.nuxeo.runtime.test.tests:concurrent-start-c.xml")
+@Deploy("org.nuxeo.runtime.test.tests:concurrent-start-b.xml")
+@Deploy("org.nuxeo.runtime.test.tests:concurrent-start-a.xml")
+@Deploy("org.nuxeo.runtime.test.tests:concurrent-start-d.xml")
+@Deploy("org.nuxeo.runtime.test.tests:concurrent-start-failing.xml")
+public class TestConcurrentComponentStart {
+
+    protected static final String A = "concurrent.start.a";
+
+    protected static final String B = "concurrent.start.b";
+
+    protected static final String C = "concurrent.start.c";
+
+    protected static final String D = "concurrent.start.d";
+
+    protected static final String FAILING = "concurrent.start.failing";
+
+    @Test
+    @WithFrameworkProperty(name = START_PARALLEL_PROP, value = "true")
+    public void testStartConcurrently() {
+        ComponentManager mgr = Framework.getRuntime().getComponentManager();
+        mgr.stop();
+        ConcurrentStartTestComponent.STARTED.clear();
+        ConcurrentStartTestComponent.THREADS.clear();
+        // the failing component doesn't make the whole start fail
+        assertTrue(mgr.start());
+
+        // all the test components have the same start order, required components are started first
+        List<String> started = List.copyOf(ConcurrentStartTestComponent.STARTED);
+        assertEquals(started.toString(), 4, started.size());
+        assertTrue(started.toString(), started.indexOf(A) < started.indexOf(B));
+        assertTrue(started.toString(), started.indexOf(B) < started.indexOf(C));
+        assertTrue(started.toString(), started.contains(D));
+        Set<String> threads = ConcurrentStartTestComponent.THREADS;
+        assertTrue(threads.toString(), threads.stream().allMatch(name -> name.startsWith("Nuxeo-ComponentStart-")));
+
+        assertEquals(RegistrationInfo.STARTED, getState(A));
+        assertEquals(RegistrationInfo.STARTED, getState(B));
+        assertEquals(RegistrationInfo.STARTED, getState(C));
+        assertEquals(RegistrationInfo.START_FAILURE, getState(FAILING));
+        // like in a sequential start, a component requiring a failed one is still started
+        assertEquals(RegistrationInfo.STARTED, getState(D));
+    }
+
+    protected int getState(String name) {
+        return Framework.getRuntime().getComponentManager().getRegistrationInfo(new ComponentName(name)).getState();
+    }
+
+}
@@ -34,7 +34,10 @@ import java.util.HashSet;
 import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
@@ -43,7 +46,9 @@ import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import org.apache.commons.lang3.math.NumberUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.nuxeo.common.Environment;
@@ -71,6 +76,31 @@ public class ComponentManagerImpl implements ComponentManager {
 
     private static final Logger log = LogManager.getLogger(ComponentManagerImpl.class);
 
+    /**
+     * Framework property to start components concurrently.
+     * <p>
+     * Components having the same start order are started concurrently, a component being started only after the
+     * components it requires.
+     *
+     * @since 11.5
+     */
+    public static final String START_PARALLEL_PROP = "org.nuxeo.runtime.component.start.parallel";
+
+    /**
+     * Framework property for the number of threads used to start components concurrently, the number of available
+     * processors by default.
+     *
+     * @since 11.5
+     */
+    public static final String START_THREADS_PROP = "org.nuxeo.runtime.component.start.threads";
+
+    /**
+     * Framework property to enable the per-component startup profile, see {@link StartupProfile}.
+     *
+     * @since 11.5
+     */
+    public static final String PROFILE_PROP = "org.nuxeo.runtime.component.profile";
+
     // must use an ordered Set to avoid loosing the order of the pending
     // extensions
     protected final ConcurrentMap<ComponentName, Set<Extension>> pendingExtensions;
@@ -138,6 +168,20 @@ public class ComponentManagerImpl implements ComponentManager {
      */
     protected volatile boolean changed = false;
 
+    /**
+     * The startup profile, or {@code null} if not enabled.
+     *
+     * @since 11.5
+     */
+    protected StartupProfile profile;
+
+    /**
+     * The timings of the extensions registration, during activation if profiling.
+     *
+     * @since 11.5
+     */
+    protected Watch extensionsWatch;
+
     public ComponentManagerImpl(RuntimeService runtime) {
         registry = new ComponentRegistry();
         pendingExtensions = new ConcurrentHashMap<>();
@@ -530,10 +574,14 @@ public class ComponentManagerImpl implements ComponentManager {
         }
         log.debug("Components instantiated in {}s", iwatch.total::formatSeconds);
         writeDevMetrics(iwatch, "instantiate");
+        recordProfile(iwatch, StartupProfile.INSTANTIATE);
 
         log.info("Activate components");
         Watch awatch = new Watch();
         awatch.start();
+        if (profile != null) {
+            extensionsWatch = new Watch().start();
+        }
         listeners.beforeActivation();
         // make sure we start with a clean pending registry
         pendingExtensions.clear();
@@ -550,6 +598,11 @@ public class ComponentManagerImpl implements ComponentManager {
 
         log.debug("Components activated in {}s", awatch.total::formatSeconds);
         writeDevMetrics(awatch, "activate");
+        recordProfile(awatch, StartupProfile.ACTIVATE);
+        if (extensionsWatch != null) {
+            recordProfile(extensionsWatch.stop(), StartupProfile.EXTENSIONS);
+            extensionsWatch = null;
+        }
 
         return ris;
     }
@@ -591,6 +644,10 @@ public class ComponentManagerImpl implements ComponentManager {
         component.activate();
         log.debug("Component activated: {}", ri.getName());
 
+        Watch xwatch = extensionsWatch;
+        if (xwatch != null) {
+            xwatch.start(ri.getName().getName());
+        }
         // register contributed extensions if any
         Extension[] extensions = ri.getExtensions();
         if (extensions != null) {
@@ -638,6 +695,9 @@ public class ComponentManagerImpl implements ComponentManager {
                 }
             }
         }
+        if (xwatch != null) {
+            xwatch.stop(ri.getName().getName());
+        }
 
         registerServices(ri);
 
@@ -725,13 +785,18 @@ public class ComponentManagerImpl implements ComponentManager {
      */
     protected void startComponents(List<RegistrationInfo> ris, boolean isResume) {
         log.info("Start components (isResume={})", isResume);
-        Watch watch = new Watch();
+        boolean parallel = Framework.isBooleanPropertyTrue(START_PARALLEL_PROP);
+        Watch watch = parallel ? new Watch(new ConcurrentHashMap<>()) : new Watch();
         watch.start();
         listeners.beforeStart(isResume);
-        for (RegistrationInfo ri : ris) {
-            watch.start(ri.getName().getName());
-            startComponent(ri);
-            watch.stop(ri.getName().getName());
+        if (parallel) {
+            startComponentsConcurrently(ris, watch);
+        } else {
+            for (RegistrationInfo ri : ris) {
+                watch.start(ri.getName().getName());
+                startComponent(ri);
+                watch.stop(ri.getName().getName());
+            }
         }
         this.started = ris;
         listeners.afterStart(isResume);
@@ -739,6 +804,87 @@ public class ComponentManagerImpl implements ComponentManager {
 
         log.debug("Components started in {}s", watch.total::formatSeconds);
         writeDevMetrics(watch, "start");
+        recordProfile(watch, StartupProfile.START);
+    }
+
+    /**
+     * Starts the given components concurrently.
+     * <p>
+     * The components, sorted by start order, are started by groups having the same start order. In a group, a
+     * component is started once the components it requires in this group are started.
+     *
+     * @since 11.5
+     */
+    protected void startComponentsConcurrently(List<RegistrationInfo> ris, Watch watch) {
+        int threads = NumberUtils.toInt(Framework.getProperty(START_THREADS_PROP), 0);
+        if (threads <= 0) {
+            threads = Runtime.getRuntime().availableProcessors();
+        }
+        log.debug("Starting components concurrently with {} threads", threads);
+        ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Nuxeo-ComponentStart-" + threadNumber.incrementAndGet());
+            thread.setContextClassLoader(classLoader);
+            return thread;
+        });
+        try {
+            int i = 0;
+            while (i < ris.size()) {
+                int order = ris.get(i).getApplicationStartedOrder();
+                Map<ComponentName, RegistrationInfo> group = new HashMap<>();
+                for (; i < ris.size() && ris.get(i).getApplicationStartedOrder() == order; i++) {
+                    RegistrationInfo ri = ris.get(i);
+                    group.put(ri.getName(), ri);
+                    ri.getAliases().forEach(alias -> group.put(alias, ri));
+                }
+                Map<RegistrationInfo, CompletableFuture<Void>> futures = new HashMap<>();
+                for (RegistrationInfo ri : group.values()) {
+                    startComponentAsync(ri, group, futures, watch, executor);
+                }
+                CompletableFuture.allOf(futures.values().toArray(new CompletableFuture[0])).join();
+            }
+        } catch (CompletionException e) {
+            // rethrow what a sequential start would have thrown
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Schedules the start of a component after the start of the components it requires in its group.
+     *
+     * @since 11.5
+     */
+    protected CompletableFuture<Void> startComponentAsync(RegistrationInfo ri,
+            Map<ComponentName, RegistrationInfo> group, Map<RegistrationInfo, CompletableFuture<Void>> futures,
+            Watch watch, ExecutorService executor) {
+        CompletableFuture<Void> future = futures.get(ri);
+        if (future != null) {
+            return future;
+        }
+        // requirements are resolved so there is no cycle
+        CompletableFuture<?>[] required = ri.getRequiredComponents()
+                                            .stream()
+                                            .map(group::get)
+                                            .filter(Objects::nonNull)
+                                            .map(req -> startComponentAsync(req, group, futures, watch, executor))
+                                            .toArray(CompletableFuture[]::new);
+        String name = ri.getName().getName();
+        future = CompletableFuture.allOf(required).thenRunAsync(() -> {
+            watch.start(name);
+            startComponent(ri);
+            watch.stop(name);
+        }, executor);
+        futures.put(ri, future);
+        return future;
     }
 
     /**
@@ -824,6 +970,9 @@ public class ComponentManagerImpl implements ComponentManager {
         }
 
         log.info("Starting Nuxeo Components");
+        if (Framework.isBooleanPropertyTrue(PROFILE_PROP)) {
+            profile = new StartupProfile();
+        }
 
         List<RegistrationInfo> ris = activateComponents();
 
@@ -833,6 +982,11 @@ public class ComponentManagerImpl implements ComponentManager {
         // then start activated components
         startComponents(ris, false);
 
+        if (profile != null) {
+            profile.flush();
+            profile = null;
+        }
+
         return true;
     }
 
@@ -1094,6 +1248,17 @@ public class ComponentManagerImpl implements ComponentManager {
 
     }
 
+    /**
+     * Records the timings of a phase in the startup profile, if enabled.
+     *
+     * @since 11.5
+     */
+    protected void recordProfile(Watch watch, String phase) {
+        if (profile != null) {
+            profile.record(phase, watch);
+        }
+    }
+
     protected void writeDevMetrics(Watch watch, String type) {
         if (!Framework.isDevModeSet()) {
             return;
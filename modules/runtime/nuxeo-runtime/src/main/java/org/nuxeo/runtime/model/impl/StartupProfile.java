@@ -0,0 +1,122 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.runtime.model.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.nuxeo.common.Environment;
+import org.nuxeo.runtime.util.Watch;
+import org.nuxeo.runtime.util.Watch.TimeInterval;
+
+import io.dropwizard.metrics5.MetricName;
+import io.dropwizard.metrics5.MetricRegistry;
+import io.dropwizard.metrics5.SharedMetricRegistries;
+
+/**
+ * Collects the per-component timings of the component manager startup phases.
+ * <p>
+ * When the startup is done, the timings are exported as timers named {@code nuxeo.runtime.components.<phase>} tagged
+ * with the component name, and written to the {@value #PROFILE_FILE_NAME} file of the temporary directory in the
+ * "folded stacks" format understood by flame graph tools: one {@code phase;component microseconds} line per component
+ * and phase. As the activation phase includes the registration of the extensions, the latter is written as a child
+ * frame of the former.
+ *
+ * @since 11.5
+ */
+public class StartupProfile {
+
+    private static final Logger log = LogManager.getLogger(StartupProfile.class);
+
+    public static final String PROFILE_FILE_NAME = "startup-profile.folded";
+
+    public static final String METRICS_REGISTRY_NAME = "org.nuxeo.runtime.metrics.MetricsService";
+
+    public static final String INSTANTIATE = "instantiate";
+
+    public static final String ACTIVATE = "activate";
+
+    public static final String EXTENSIONS = "extensions";
+
+    public static final String START = "start";
+
+    protected final Map<String, Watch> phases = new LinkedHashMap<>();
+
+    /**
+     * Records the timings of a phase.
+     */
+    public synchronized void record(String phase, Watch watch) {
+        phases.put(phase, watch);
+    }
+
+    /**
+     * Exports the recorded timings as metrics and to the profile file, then forgets them.
+     */
+    public synchronized void flush() {
+        if (phases.isEmpty()) {
+            return;
+        }
+        MetricRegistry registry = SharedMetricRegistries.getOrCreate(METRICS_REGISTRY_NAME);
+        phases.forEach((phase, watch) -> {
+            for (TimeInterval interval : watch.getIntervals()) {
+                registry.timer(MetricName.build("nuxeo.runtime.components." + phase)
+                                         .tagged("component", interval.getName()))
+                        .update(interval.elapsed(), TimeUnit.NANOSECONDS);
+            }
+        });
+        File file = new File(Environment.getDefault().getTemp(), PROFILE_FILE_NAME);
+        try (PrintStream ps = new PrintStream(file, UTF_8)) {
+            writeFolded(ps);
+        } catch (IOException e) {
+            log.error("Failed to write startup profile: {}", file, e);
+        }
+        log.info("Startup profile written to: {}", file);
+        phases.clear();
+    }
+
+    protected void writeFolded(PrintStream ps) {
+        Watch extensions = phases.get(EXTENSIONS);
+        phases.forEach((phase, watch) -> {
+            if (phase.equals(EXTENSIONS)) {
+                return; // written below the activation
+            }
+            for (TimeInterval interval : watch.getIntervals()) {
+                String name = interval.getName();
+                long self = interval.elapsed(TimeUnit.MICROSECONDS);
+                if (phase.equals(ACTIVATE) && extensions != null) {
+                    long ext = extensions.elapsed(name, TimeUnit.MICROSECONDS);
+                    if (ext > 0) {
+                        ps.println(phase + ';' + name + ';' + EXTENSIONS + ' ' + ext);
+                        self = Math.max(0, self - ext);
+                    }
+                }
+                ps.println(phase + ';' + name + ' ' + self);
+            }
+        });
+    }
+
+}
@@ -0,0 +1,74 @@
+/*
+ * (C) Copyright 2020 Nuxeo (http://nuxeo.com/) and others.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ * Contributors:
+ *     Florent Guillaume
+ */
+package org.nuxeo.runtime.model.impl;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+import org.nuxeo.runtime.util.Watch;
+
+/**
+ * @since 11.5
+ */
+public class TestStartupProfile {
+
+    @Test
+    public void testFolded() throws Exception {
+        Watch activate = new Watch().start();
+        Watch extensions = new Watch().start();
+        activate.start("comp1");
+        extensions.start("comp1");
+        Thread.sleep(5);
+        extensions.stop("comp1");
+        activate.stop("comp1");
+        activate.start("comp2");
+        activate.stop("comp2");
+        Watch start = new Watch().start();
+        start.start("comp1");
+        start.stop("comp1");
+
+        StartupProfile profile = new StartupProfile();
+        profile.record(StartupProfile.ACTIVATE, activate);
+        profile.record(StartupProfile.EXTENSIONS, extensions);
+        profile.record(StartupProfile.START, start);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PrintStream ps = new PrintStream(out, true, UTF_8)) {
+            profile.writeFolded(ps);
+        }
+        List<String> stacks = out.toString(UTF_8)
+                                 .lines()
+                                 .map(line -> line.substring(0, line.lastIndexOf(' ')))
+                                 .sorted()
+                                 .collect(Collectors.toList());
+        assertEquals(Arrays.asList("activate;comp1", "activate;comp1;extensions", "activate;comp2", "start;comp1"),
+                stacks);
+        // timings are in microseconds
+        String ext = out.toString(UTF_8).lines().filter(l -> l.startsWith("activate;comp1;")).findFirst().get();
+        assertTrue(ext, Long.parseLong(ext.substring(ext.lastIndexOf(' ') + 1)) >= 5000);
+    }
+
+}